@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.benchmarks;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.alert.AlertTemplateRenderer;
+import ai.startree.thirdeye.spi.datalayer.bao.MergedAnomalyResultManager;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertTemplateDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.EnumerationItemDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.MergedAnomalyResultDTO;
+import ai.startree.thirdeye.worker.task.runner.AnomalyMerger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.joda.time.Interval;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * AnomalyMerger.mergeAndSave of the anomalies of a detection run.
+ *
+ * The database is stubbed: the query of existing anomalies returns one existing anomaly for each
+ * new anomaly, half of them close enough to be merged. Merging modifies the anomalies, so they
+ * are generated again before each invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class AnomalyMergerBenchmark {
+
+  private static final long ALERT_ID = 1L;
+  private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+  @Param({"100", "1000", "10000"})
+  public int anomalies;
+
+  @Param({"1", "100"})
+  public int enumerationItems;
+
+  private AnomalyMerger anomalyMerger;
+  private AlertDTO alert;
+  private List<MergedAnomalyResultDTO> newAnomalies;
+  private List<MergedAnomalyResultDTO> existingAnomalies;
+
+  @Setup(Level.Trial)
+  public void setUpMerger() throws Exception {
+    final MergedAnomalyResultManager mergedAnomalyResultManager = mock(
+        MergedAnomalyResultManager.class);
+    when(mergedAnomalyResultManager.findByStartEndTimeInRangeAndDetectionConfigId(anyLong(),
+        anyLong(),
+        anyLong(),
+        any())).thenAnswer(i -> existingAnomalies);
+    when(mergedAnomalyResultManager.saveAll(anyList())).thenReturn(true);
+    final AlertTemplateRenderer alertTemplateRenderer = mock(AlertTemplateRenderer.class);
+    when(alertTemplateRenderer.renderAlert(any(AlertDTO.class), any(Interval.class)))
+        .thenReturn(new AlertTemplateDTO());
+
+    anomalyMerger = new AnomalyMerger(mergedAnomalyResultManager, alertTemplateRenderer);
+    alert = new AlertDTO();
+    alert.setId(ALERT_ID);
+  }
+
+  @Setup(Level.Invocation)
+  public void setUpAnomalies() {
+    final Random random = new Random(SyntheticData.SEED);
+    final int anomaliesPerItem = Math.max(1, anomalies / enumerationItems);
+    newAnomalies = new ArrayList<>(anomalies);
+    existingAnomalies = new ArrayList<>(anomalies);
+    long id = 0;
+    for (int item = 0; item < enumerationItems; item++) {
+      for (int i = 0; i < anomaliesPerItem; i++) {
+        // one anomaly every 4 hours. Existing anomalies end 1 or 3 hours before the new ones
+        final long start = SyntheticData.START_TIME + 4 * i * HOUR;
+        final long gap = random.nextBoolean() ? HOUR : 3 * HOUR;
+        final MergedAnomalyResultDTO existing = anomaly(item, start - gap - HOUR, start - gap);
+        existing.setId(++id);
+        existingAnomalies.add(existing);
+        newAnomalies.add(anomaly(item, start, start + HOUR));
+      }
+    }
+  }
+
+  private static MergedAnomalyResultDTO anomaly(final long enumerationItemId,
+      final long startTime, final long endTime) {
+    final EnumerationItemDTO enumerationItem = new EnumerationItemDTO();
+    enumerationItem.setId(enumerationItemId);
+    final MergedAnomalyResultDTO anomaly = new MergedAnomalyResultDTO();
+    anomaly.setDetectionConfigId(ALERT_ID);
+    anomaly.setStartTime(startTime);
+    anomaly.setEndTime(endTime);
+    anomaly.setAvgCurrentVal(1000);
+    anomaly.setAvgBaselineVal(800);
+    anomaly.setEnumerationItem(enumerationItem);
+    return anomaly;
+  }
+
+  @Benchmark
+  public List<MergedAnomalyResultDTO> mergeAndSave() {
+    anomalyMerger.mergeAndSave(alert, newAnomalies);
+    return newAnomalies;
+  }
+}
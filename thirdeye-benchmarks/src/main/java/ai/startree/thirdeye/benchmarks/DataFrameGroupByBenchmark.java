@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.benchmarks;
+
+import static ai.startree.thirdeye.spi.Constants.COL_TIME;
+import static ai.startree.thirdeye.spi.Constants.COL_VALUE;
+
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * DataFrame group by and aggregation.
+ *
+ * 10M rows with many dimensions do not fit in a default heap. Run them with
+ * -p rows=10000000 -p dimensions=1 or with a larger -Xmx.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DataFrameGroupByBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  public int rows;
+
+  @Param({"1", "10", "50"})
+  public int dimensions;
+
+  private DataFrame df;
+  private List<String> dimensionNames;
+
+  @Setup
+  public void setUp() {
+    df = SyntheticData.table(rows, dimensions, 0, new Random(SyntheticData.SEED));
+    dimensionNames = SyntheticData.dimensionNames(dimensions);
+  }
+
+  @Benchmark
+  public DataFrame groupByTime() {
+    return df.groupByValue(COL_TIME).aggregate(COL_VALUE + ":SUM");
+  }
+
+  @Benchmark
+  public DataFrame groupByFirstDimension() {
+    return df.groupByValue(dimensionNames.get(0))
+        .aggregate(COL_VALUE + ":SUM", COL_VALUE + ":MEAN:mean", COL_VALUE + ":MAX:max");
+  }
+
+  @Benchmark
+  public DataFrame groupByAllDimensions() {
+    return df.groupByValue(dimensionNames).aggregate(COL_VALUE + ":SUM");
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.benchmarks;
+
+import static ai.startree.thirdeye.spi.Constants.COL_TIME;
+
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * DataFrame joins on time and one dimension. All join types use Series.hashJoinOuter, then
+ * filter the join pairs.
+ *
+ * The right table is shifted by half of the rows: half of the keys match.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class DataFrameJoinBenchmark {
+
+  @Param({"1000", "100000", "1000000", "10000000"})
+  public int rows;
+
+  private DataFrame left;
+  private DataFrame right;
+  private String firstDimension;
+
+  @Setup
+  public void setUp() {
+    final Random random = new Random(SyntheticData.SEED);
+    left = SyntheticData.table(rows, 1, 0, random);
+    right = SyntheticData.table(rows, 1, rows / 2, random);
+    firstDimension = SyntheticData.dimensionName(0);
+  }
+
+  @Benchmark
+  public DataFrame joinInnerOnTime() {
+    return left.joinInner(right, COL_TIME, firstDimension);
+  }
+
+  @Benchmark
+  public DataFrame joinOuterOnTime() {
+    return left.joinOuter(right, COL_TIME, firstDimension);
+  }
+
+  @Benchmark
+  public DataFrame joinLeftOnTime() {
+    return left.joinLeft(right, COL_TIME, firstDimension);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.benchmarks;
+
+import ai.startree.thirdeye.datalayer.entity.MergedAnomalyResultIndex;
+import ai.startree.thirdeye.datalayer.util.EntityMapperType;
+import ai.startree.thirdeye.datalayer.util.EntityMappingHolder;
+import ai.startree.thirdeye.datalayer.util.GenericResultSetMapper;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mapping of the rows of merged_anomaly_result_index to entities, see
+ * {@link GenericResultSetMapper}.
+ *
+ * The rows are read once from an in-memory HSQLDB table and cached in a {@link CachedRowSet}: the
+ * benchmark measures the mapping, not the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class EntityMapperBenchmark {
+
+  private static final String TABLE = "merged_anomaly_result_index";
+
+  @Param({"GENERATED", "JACKSON"})
+  public EntityMapperType mapper;
+
+  @Param({"100", "10000"})
+  public int rows;
+
+  private GenericResultSetMapper resultSetMapper;
+  private CachedRowSet rowSet;
+
+  @Setup
+  public void setUp() throws Exception {
+    try (final Connection connection = DriverManager.getConnection(
+        "jdbc:hsqldb:mem:" + TABLE + "_" + mapper + "_" + rows, "SA", "")) {
+      try (final Statement statement = connection.createStatement()) {
+        statement.execute("CREATE TABLE " + TABLE + " (id bigint, function_id bigint, "
+            + "detection_config_id bigint, anomaly_feedback_id bigint, metric_id bigint, "
+            + "start_time bigint, end_time bigint, collection varchar(200), "
+            + "metric varchar(200), dimensions varchar(1023), notified boolean, child boolean, "
+            + "enumeration_item_id bigint, base_id bigint, create_time timestamp, "
+            + "update_time timestamp, version int)");
+      }
+      insertRows(connection);
+
+      final EntityMappingHolder entityMappingHolder = new EntityMappingHolder();
+      entityMappingHolder.register(connection, MergedAnomalyResultIndex.class, TABLE);
+      resultSetMapper = new GenericResultSetMapper(entityMappingHolder, mapper);
+
+      rowSet = RowSetProvider.newFactory().createCachedRowSet();
+      try (final Statement statement = connection.createStatement();
+          final ResultSet resultSet = statement.executeQuery("SELECT * FROM " + TABLE)) {
+        rowSet.populate(resultSet);
+      }
+      try (final Statement statement = connection.createStatement()) {
+        statement.execute("SHUTDOWN");
+      }
+    }
+  }
+
+  private void insertRows(final Connection connection) throws Exception {
+    final Random random = new Random(SyntheticData.SEED);
+    final Timestamp now = new Timestamp(SyntheticData.START_TIME);
+    try (final PreparedStatement insert = connection.prepareStatement("INSERT INTO " + TABLE
+        + " VALUES (?, 0, ?, ?, 0, ?, ?, 'pageviews', 'views', ?, ?, false, ?, ?, ?, ?, 1)")) {
+      for (int i = 0; i < rows; i++) {
+        final long startTime = SyntheticData.START_TIME + i * SyntheticData.GRANULARITY;
+        insert.setLong(1, i);
+        insert.setLong(2, random.nextInt(100));
+        insert.setLong(3, random.nextInt(1000));
+        insert.setLong(4, startTime);
+        insert.setLong(5, startTime + SyntheticData.GRANULARITY);
+        insert.setString(6, "{\"country\":\"" + SyntheticData.dimensionName(random.nextInt(5))
+            + "\"}");
+        insert.setBoolean(7, random.nextBoolean());
+        insert.setLong(8, random.nextInt(100));
+        insert.setLong(9, i);
+        insert.setTimestamp(10, now);
+        insert.setTimestamp(11, now);
+        insert.addBatch();
+      }
+      insert.executeBatch();
+    }
+  }
+
+  @Benchmark
+  public List<MergedAnomalyResultIndex> mapAll() throws Exception {
+    rowSet.beforeFirst();
+    return resultSetMapper.mapAll(rowSet, MergedAnomalyResultIndex.class);
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.benchmarks;
+
+import ai.startree.thirdeye.datalayer.dao.JsonValCodec;
+import ai.startree.thirdeye.datalayer.dao.JsonValFormat;
+import ai.startree.thirdeye.spi.datalayer.TemplatableMap;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertTemplateDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.MergedAnomalyResultDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.PlanNodeBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Encoding and decoding of the json_val column of GenericPojoDao, see {@link JsonValCodec}.
+ *
+ * The documents are a synthetic anomaly with 50 properties and a synthetic alert with a 10 nodes
+ * template. The encoded size is not measured by JMH: it is logged once at setup.
+ *
+ * DEFLATE is not only a speed and size trade-off: the "~deflate:" rows it writes cannot be read
+ * by MySQL JSON_* functions, including the JSON_VALID backfill of the V1_98_0 migration. See
+ * {@link JsonValFormat#DEFLATE}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class JsonValCodecBenchmark {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JsonValCodecBenchmark.class);
+
+  @Param({"JSON", "DEFLATE"})
+  public JsonValFormat format;
+
+  @Param({"anomaly", "alert"})
+  public String document;
+
+  private JsonValCodec codec;
+  private Object entity;
+  private String jsonVal;
+
+  @Setup
+  public void setUp() throws Exception {
+    codec = new JsonValCodec(format);
+    entity = "anomaly".equals(document) ? anomaly() : alert();
+    jsonVal = codec.encode(codec.toJson(entity));
+    LOG.info("{} {}: {} chars", format, document, jsonVal.length());
+  }
+
+  private static MergedAnomalyResultDTO anomaly() {
+    final Random random = new Random(SyntheticData.SEED);
+    final MergedAnomalyResultDTO anomaly = new MergedAnomalyResultDTO()
+        .setMetric("views")
+        .setCollection("pageviews");
+    anomaly.setDetectionConfigId(1L);
+    anomaly.setStartTime(SyntheticData.START_TIME);
+    anomaly.setEndTime(SyntheticData.START_TIME + TimeUnit.HOURS.toMillis(1));
+    anomaly.setAvgCurrentVal(random.nextDouble() * 1000);
+    anomaly.setAvgBaselineVal(random.nextDouble() * 1000);
+    final Map<String, String> properties = new HashMap<>();
+    for (int i = 0; i < 50; i++) {
+      properties.put("property" + i, Long.toString(random.nextLong()));
+    }
+    anomaly.setProperties(properties);
+    return anomaly;
+  }
+
+  private static AlertDTO alert() {
+    final List<PlanNodeBean> nodes = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      final TemplatableMap<String, Object> params = new TemplatableMap<>();
+      params.putValue("type", "THRESHOLD");
+      params.putValue("component.monitoringGranularity", "PT1H");
+      params.putValue("component.max", "${max}");
+      nodes.add(new PlanNodeBean()
+          .setName("node" + i)
+          .setType("AnomalyDetector")
+          .setParams(params));
+    }
+    final Map<String, Object> properties = new HashMap<>();
+    properties.put("max", 1000);
+    properties.put("dataSource", "pinot");
+    properties.put("dataset", "pageviews");
+    final AlertDTO alert = new AlertDTO()
+        .setTemplate(new AlertTemplateDTO().setNodes(nodes))
+        .setTemplateProperties(properties);
+    alert.setName("alert");
+    alert.setDescription("synthetic alert");
+    alert.setCron("0 0 * * * ? *");
+    return alert;
+  }
+
+  @Benchmark
+  public String encode() throws Exception {
+    return codec.encode(codec.toJson(entity));
+  }
+
+  @Benchmark
+  public Object decode() throws Exception {
+    return codec.decode(jsonVal, entity.getClass());
+  }
+}
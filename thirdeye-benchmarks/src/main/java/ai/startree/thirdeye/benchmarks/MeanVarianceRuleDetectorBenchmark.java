@@ -0,0 +1,98 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.benchmarks;
+
+import static ai.startree.thirdeye.spi.Constants.COL_TIME;
+import static ai.startree.thirdeye.spi.Constants.COL_VALUE;
+
+import ai.startree.thirdeye.plugins.detectors.RollingMeanVariance;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the rolling mean/variance of the MeanVarianceRuleDetector with the previous
+ * implementation, that built a lookback DataFrame and a seasonality mask for each forecast point.
+ *
+ * 5 minutes granularity, 28 days lookback, weekly seasonality, 1 day detection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class MeanVarianceRuleDetectorBenchmark {
+
+  private static final long SEASONALITY = TimeUnit.DAYS.toMillis(7);
+  private static final int LOOKBACK = (int) (TimeUnit.DAYS.toMillis(28)
+      / SyntheticData.GRANULARITY);
+  private static final int N_FORECASTS = (int) (TimeUnit.DAYS.toMillis(1)
+      / SyntheticData.GRANULARITY);
+
+  private DataFrame df;
+
+  @Setup
+  public void setUp() {
+    df = SyntheticData.timeSeries(LOOKBACK + N_FORECASTS, new Random(SyntheticData.SEED));
+  }
+
+  @Benchmark
+  public double rolling() {
+    final RollingMeanVariance rolling = new RollingMeanVariance(df.getLongs(COL_TIME).values(),
+        df.getDoubles(COL_VALUE).values(), LOOKBACK, SEASONALITY);
+    double checksum = 0;
+    for (int end = LOOKBACK; end < df.size(); end++) {
+      rolling.moveTo(end);
+      checksum += rolling.mean() + rolling.std();
+    }
+    return checksum;
+  }
+
+  @Benchmark
+  public double lookbackDataFrames() {
+    double checksum = 0;
+    for (int end = LOOKBACK; end < df.size(); end++) {
+      final long forecastTime = df.getLong(COL_TIME, end);
+      final DataFrame lookbackDf = DataFrame.builder(COL_TIME, COL_VALUE).build()
+          .append(df.slice(end - LOOKBACK, end));
+      final DateTime forecastDateTime = new DateTime(forecastTime, DateTimeZone.UTC);
+      final DoubleSeries.Builder mask = DoubleSeries.builder();
+      final LongSeries lookbackEpochs = lookbackDf.getLongs(COL_TIME);
+      for (int idx = 0; idx < lookbackEpochs.size(); idx++) {
+        final DateTime lookbackDateTime = new DateTime(lookbackEpochs.get(idx), DateTimeZone.UTC);
+        mask.addValues(forecastDateTime.getMillisOfDay() == lookbackDateTime.getMillisOfDay()
+            && forecastDateTime.getDayOfWeek() == lookbackDateTime.getDayOfWeek() ? 1. : null);
+      }
+      final DoubleSeries periodMask = mask.build();
+      checksum += lookbackDf.getDoubles(COL_VALUE).multiply(periodMask).mean().value()
+          + lookbackDf.getDoubles(COL_VALUE).multiply(periodMask).std().value();
+    }
+    return checksum;
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.benchmarks;
+
+import static ai.startree.thirdeye.spi.Constants.COL_VALUE;
+
+import ai.startree.thirdeye.plugins.detectors.AbsoluteChangeRuleDetector;
+import ai.startree.thirdeye.plugins.detectors.AbsoluteChangeRuleDetectorSpec;
+import ai.startree.thirdeye.plugins.detectors.MeanVarianceRuleDetector;
+import ai.startree.thirdeye.plugins.detectors.MeanVarianceRuleDetectorSpec;
+import ai.startree.thirdeye.plugins.detectors.PercentageChangeRuleDetector;
+import ai.startree.thirdeye.plugins.detectors.PercentageChangeRuleDetectorSpec;
+import ai.startree.thirdeye.plugins.detectors.ThresholdRuleDetector;
+import ai.startree.thirdeye.plugins.detectors.ThresholdRuleDetectorSpec;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.detection.AnomalyDetector;
+import ai.startree.thirdeye.spi.detection.AnomalyDetectorResult;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import ai.startree.thirdeye.spi.detection.v2.SimpleDataTable;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The rule detectors of thirdeye-detectors, on a 5 minutes time series.
+ *
+ * The first 28 days of data are the lookback of the MeanVarianceRuleDetector. The detection
+ * window is the rest of the data, for all detectors. Detectors modify their input DataFrames, so
+ * each invocation works on a copy: the copy is part of the measured time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RuleDetectorBenchmark {
+
+  private static final String LOOKBACK_PERIOD = "P28D";
+  private static final int LOOKBACK_POINTS = (int) (TimeUnit.DAYS.toMillis(28)
+      / SyntheticData.GRANULARITY);
+
+  public enum Detector {
+    THRESHOLD, PERCENTAGE_CHANGE, ABSOLUTE_CHANGE, MEAN_VARIANCE
+  }
+
+  @Param({"THRESHOLD", "PERCENTAGE_CHANGE", "ABSOLUTE_CHANGE", "MEAN_VARIANCE"})
+  public Detector detector;
+
+  @Param({"10000", "100000"})
+  public int points;
+
+  private AnomalyDetector<?> anomalyDetector;
+  private Interval window;
+  private DataFrame current;
+  private DataFrame baseline;
+
+  @Setup
+  public void setUp() {
+    final Random random = new Random(SyntheticData.SEED);
+    current = SyntheticData.timeSeries(points, random);
+    baseline = new DataFrame().addSeries(COL_VALUE,
+        SyntheticData.timeSeries(points, random).getDoubles(COL_VALUE));
+    window = new Interval(SyntheticData.START_TIME + LOOKBACK_POINTS * SyntheticData.GRANULARITY,
+        SyntheticData.START_TIME + points * SyntheticData.GRANULARITY,
+        DateTimeZone.UTC);
+    anomalyDetector = anomalyDetector(detector);
+  }
+
+  private static AnomalyDetector<?> anomalyDetector(final Detector detector) {
+    switch (detector) {
+      case THRESHOLD:
+        final ThresholdRuleDetectorSpec thresholdSpec = new ThresholdRuleDetectorSpec()
+            .setMin(850)
+            .setMax(1150);
+        thresholdSpec.setMonitoringGranularity(SyntheticData.GRANULARITY_PERIOD);
+        final ThresholdRuleDetector threshold = new ThresholdRuleDetector();
+        threshold.init(thresholdSpec);
+        return threshold;
+      case PERCENTAGE_CHANGE:
+        final PercentageChangeRuleDetectorSpec percentageSpec = new PercentageChangeRuleDetectorSpec()
+            .setPercentageChange(0.1);
+        percentageSpec.setMonitoringGranularity(SyntheticData.GRANULARITY_PERIOD);
+        final PercentageChangeRuleDetector percentageChange = new PercentageChangeRuleDetector();
+        percentageChange.init(percentageSpec);
+        return percentageChange;
+      case ABSOLUTE_CHANGE:
+        final AbsoluteChangeRuleDetectorSpec absoluteSpec = new AbsoluteChangeRuleDetectorSpec()
+            .setAbsoluteChange(100);
+        absoluteSpec.setMonitoringGranularity(SyntheticData.GRANULARITY_PERIOD);
+        final AbsoluteChangeRuleDetector absoluteChange = new AbsoluteChangeRuleDetector();
+        absoluteChange.init(absoluteSpec);
+        return absoluteChange;
+      case MEAN_VARIANCE:
+        final MeanVarianceRuleDetectorSpec meanVarianceSpec = new MeanVarianceRuleDetectorSpec()
+            .setLookbackPeriod(LOOKBACK_PERIOD)
+            .setSeasonalityPeriod("P7D")
+            .setSensitivity(5);
+        meanVarianceSpec.setMonitoringGranularity(SyntheticData.GRANULARITY_PERIOD);
+        final MeanVarianceRuleDetector meanVariance = new MeanVarianceRuleDetector();
+        meanVariance.init(meanVarianceSpec);
+        return meanVariance;
+      default:
+        throw new IllegalArgumentException("Unknown detector: " + detector);
+    }
+  }
+
+  @Benchmark
+  public AnomalyDetectorResult runDetection() throws Exception {
+    final Map<String, DataTable> dataTables = Map.of(
+        AnomalyDetector.KEY_CURRENT, SimpleDataTable.fromDataFrame(current.copy()),
+        AnomalyDetector.KEY_BASELINE, SimpleDataTable.fromDataFrame(baseline.copy()));
+    return anomalyDetector.runDetection(window, dataTables);
+  }
+}
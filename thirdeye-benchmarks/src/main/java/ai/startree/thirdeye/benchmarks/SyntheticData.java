@@ -0,0 +1,144 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.benchmarks;
+
+import static ai.startree.thirdeye.spi.Constants.COL_TIME;
+import static ai.startree.thirdeye.spi.Constants.COL_VALUE;
+
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.dataframe.StringSeries;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates the datasets of the benchmarks.
+ *
+ * Metrics have a daily seasonality and gaussian noise. Dimension i has a cardinality of
+ * 5 * 2^(i % 4): dimensions with 5, 10, 20 and 40 values alternate. Generation is seeded, so all
+ * the runs of a benchmark use the same data.
+ */
+public class SyntheticData {
+
+  /** 2021-01-01 UTC */
+  public static final long START_TIME = 1609459200000L;
+  public static final long GRANULARITY = TimeUnit.MINUTES.toMillis(5);
+  public static final String GRANULARITY_PERIOD = "PT5M";
+  public static final long SEED = 42L;
+
+  private static final int POINTS_PER_DAY = (int) (TimeUnit.DAYS.toMillis(1) / GRANULARITY);
+  private static final double MEAN = 1000;
+  private static final double AMPLITUDE = 300;
+  private static final double NOISE = 50;
+
+  private SyntheticData() {
+  }
+
+  public static String dimensionName(final int dimension) {
+    return "dim" + dimension;
+  }
+
+  public static List<String> dimensionNames(final int dimensions) {
+    final List<String> names = new ArrayList<>(dimensions);
+    for (int d = 0; d < dimensions; d++) {
+      names.add(dimensionName(d));
+    }
+    return names;
+  }
+
+  public static int cardinality(final int dimension) {
+    return 5 << (dimension % 4);
+  }
+
+  public static double metricValue(final int timeBucket, final Random random) {
+    final double dailyPhase = 2 * Math.PI * (timeBucket % POINTS_PER_DAY) / POINTS_PER_DAY;
+    return MEAN + AMPLITUDE * Math.sin(dailyPhase) + NOISE * random.nextGaussian();
+  }
+
+  /**
+   * A time series with one point per time bucket, indexed by time.
+   *
+   * @param size number of points
+   * @return a DataFrame with the columns {@link ai.startree.thirdeye.spi.Constants#COL_TIME}
+   *     and {@link ai.startree.thirdeye.spi.Constants#COL_VALUE}
+   */
+  public static DataFrame timeSeries(final int size, final Random random) {
+    final long[] times = new long[size];
+    final double[] values = new double[size];
+    for (int i = 0; i < size; i++) {
+      times[i] = START_TIME + i * GRANULARITY;
+      values[i] = metricValue(i, random);
+    }
+    return new DataFrame()
+        .addSeries(COL_TIME, LongSeries.buildFrom(times))
+        .addSeries(COL_VALUE, DoubleSeries.buildFrom(values))
+        .setIndex(COL_TIME);
+  }
+
+  /**
+   * A fact table, as returned by a group by time and dimensions query.
+   *
+   * Rows are ordered by time. Each time bucket has one row per value of the first dimension, so
+   * (time, first dimension) is unique. Other dimension values are random.
+   *
+   * @param rows number of rows
+   * @param dimensions number of dimension columns
+   * @param firstRow index of the first row. Tables generated with different firstRow overlap
+   *     on their common rows
+   * @return a DataFrame with the columns {@link ai.startree.thirdeye.spi.Constants#COL_TIME},
+   *     {@link ai.startree.thirdeye.spi.Constants#COL_VALUE} and {@link #dimensionNames(int)}
+   */
+  public static DataFrame table(final int rows, final int dimensions, final int firstRow,
+      final Random random) {
+    final int firstCardinality = cardinality(0);
+    final long[] times = new long[rows];
+    final double[] values = new double[rows];
+    final String[][] dimensionValues = new String[dimensions][rows];
+    final String[][] dictionaries = new String[dimensions][];
+    for (int d = 0; d < dimensions; d++) {
+      dictionaries[d] = dictionary(d);
+    }
+    for (int i = 0; i < rows; i++) {
+      final int row = firstRow + i;
+      final int timeBucket = row / firstCardinality;
+      times[i] = START_TIME + timeBucket * GRANULARITY;
+      values[i] = metricValue(timeBucket, random);
+      if (dimensions > 0) {
+        dimensionValues[0][i] = dictionaries[0][row % firstCardinality];
+      }
+      for (int d = 1; d < dimensions; d++) {
+        dimensionValues[d][i] = dictionaries[d][random.nextInt(dictionaries[d].length)];
+      }
+    }
+
+    final DataFrame df = new DataFrame()
+        .addSeries(COL_TIME, LongSeries.buildFrom(times))
+        .addSeries(COL_VALUE, DoubleSeries.buildFrom(values));
+    for (int d = 0; d < dimensions; d++) {
+      df.addSeries(dimensionName(d), StringSeries.buildFrom(dimensionValues[d]));
+    }
+    return df;
+  }
+
+  private static String[] dictionary(final int dimension) {
+    final String[] values = new String[cardinality(dimension)];
+    for (int v = 0; v < values.length; v++) {
+      values[v] = dimensionName(dimension) + "_value" + v;
+    }
+    return values;
+  }
+}
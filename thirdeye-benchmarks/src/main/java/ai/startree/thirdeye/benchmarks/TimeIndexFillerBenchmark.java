@@ -0,0 +1,96 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.benchmarks;
+
+import ai.startree.thirdeye.detectionpipeline.components.TimeIndexFiller;
+import ai.startree.thirdeye.detectionpipeline.components.TimeIndexFiller.TimeLimitInferenceStrategy;
+import ai.startree.thirdeye.detectionpipeline.spec.TimeIndexFillerSpec;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import ai.startree.thirdeye.spi.detection.v2.SimpleDataTable;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * TimeIndexFiller.fillIndex on a time series with missing points.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class TimeIndexFillerBenchmark {
+
+  private static final String TIMESTAMP = "ts";
+  private static final String METRIC = "met";
+
+  @Param({"1000", "100000", "1000000"})
+  public int points;
+
+  @Param({"0.1"})
+  public double missingRatio;
+
+  private TimeIndexFiller timeIndexFiller;
+  private Interval detectionInterval;
+  private DataTable dataTable;
+
+  @Setup
+  public void setUp() {
+    final TimeIndexFillerSpec spec = new TimeIndexFillerSpec();
+    spec.setMinTimeInference(TimeLimitInferenceStrategy.FROM_DETECTION_TIME.toString())
+        .setMaxTimeInference(TimeLimitInferenceStrategy.FROM_DETECTION_TIME.toString())
+        .setMonitoringGranularity(SyntheticData.GRANULARITY_PERIOD)
+        .setTimestamp(TIMESTAMP);
+    timeIndexFiller = new TimeIndexFiller();
+    timeIndexFiller.init(spec);
+
+    detectionInterval = new Interval(SyntheticData.START_TIME,
+        SyntheticData.START_TIME + points * SyntheticData.GRANULARITY,
+        DateTimeZone.UTC);
+
+    final Random random = new Random(SyntheticData.SEED);
+    final LongSeries.Builder times = LongSeries.builder();
+    final DoubleSeries.Builder values = DoubleSeries.builder();
+    for (int i = 0; i < points; i++) {
+      if (random.nextDouble() >= missingRatio) {
+        times.addValues(SyntheticData.START_TIME + i * SyntheticData.GRANULARITY);
+        values.addValues(SyntheticData.metricValue(i, random));
+      }
+    }
+    dataTable = SimpleDataTable.fromDataFrame(new DataFrame()
+        .addSeries(TIMESTAMP, times.build())
+        .addSeries(METRIC, values.build()));
+  }
+
+  @Benchmark
+  public DataTable fillIndex() throws Exception {
+    return timeIndexFiller.fillIndex(detectionInterval, dataTable);
+  }
+}
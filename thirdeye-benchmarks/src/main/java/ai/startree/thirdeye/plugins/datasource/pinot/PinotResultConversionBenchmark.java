@@ -0,0 +1,147 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.datasource.pinot;
+
+import ai.startree.thirdeye.benchmarks.SyntheticData;
+import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeDataFrameResultSet;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.apache.pinot.client.AbstractResultSet;
+import org.apache.pinot.client.ResultSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Conversion of a Pinot broker result table to a ThirdEye result set.
+ *
+ * In the benchmarks module but in the package of PinotResponseCacheLoader, to access the
+ * package-private conversion method.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PinotResultConversionBenchmark {
+
+  @Param({"1000", "100000", "1000000"})
+  public int rows;
+
+  @Param({"1", "10"})
+  public int dimensions;
+
+  private ResultSet resultSet;
+
+  @Setup
+  public void setUp() {
+    final Random random = new Random(SyntheticData.SEED);
+    final int columnCount = dimensions + 2;
+    final String[] columnNames = new String[columnCount];
+    final String[] columnTypes = new String[columnCount];
+    columnNames[0] = "ts";
+    columnTypes[0] = "LONG";
+    columnNames[1] = "met";
+    columnTypes[1] = "DOUBLE";
+    for (int d = 0; d < dimensions; d++) {
+      columnNames[d + 2] = SyntheticData.dimensionName(d);
+      columnTypes[d + 2] = "STRING";
+    }
+
+    // the Pinot client returns all values as strings parsed from the broker response
+    final String[][] values = new String[rows][columnCount];
+    for (int row = 0; row < rows; row++) {
+      final int timeBucket = row / SyntheticData.cardinality(0);
+      values[row][0] = String.valueOf(
+          SyntheticData.START_TIME + timeBucket * SyntheticData.GRANULARITY);
+      values[row][1] = String.valueOf(SyntheticData.metricValue(timeBucket, random));
+      for (int d = 0; d < dimensions; d++) {
+        values[row][d + 2] = new String(SyntheticData.dimensionName(d) + "_value"
+            + random.nextInt(SyntheticData.cardinality(d)));
+      }
+    }
+    resultSet = new StringResultTable(columnNames, columnTypes, values);
+  }
+
+  @Benchmark
+  public ThirdEyeDataFrameResultSet fromPinotResultSet() {
+    return PinotResponseCacheLoader.fromPinotResultSet(resultSet);
+  }
+
+  /**
+   * In-memory result table, equivalent to the Pinot client ResultTableResultSet.
+   */
+  private static class StringResultTable extends AbstractResultSet {
+
+    private final String[] columnNames;
+    private final String[] columnTypes;
+    private final String[][] values;
+
+    private StringResultTable(final String[] columnNames, final String[] columnTypes,
+        final String[][] values) {
+      this.columnNames = columnNames;
+      this.columnTypes = columnTypes;
+      this.values = values;
+    }
+
+    @Override
+    public int getRowCount() {
+      return values.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+      return columnNames.length;
+    }
+
+    @Override
+    public String getColumnName(final int columnIndex) {
+      return columnNames[columnIndex];
+    }
+
+    @Override
+    public String getColumnDataType(final int columnIndex) {
+      return columnTypes[columnIndex];
+    }
+
+    @Override
+    public String getString(final int rowIndex, final int columnIndex) {
+      return values[rowIndex][columnIndex];
+    }
+
+    @Override
+    public int getGroupKeyLength() {
+      return 0;
+    }
+
+    @Override
+    public String getGroupKeyColumnName(final int groupKeyColumnIndex) {
+      throw new UnsupportedOperationException("No group key in a result table");
+    }
+
+    @Override
+    public String getGroupKeyString(final int rowIndex, final int groupKeyColumnIndex) {
+      throw new UnsupportedOperationException("No group key in a result table");
+    }
+  }
+}
@@ -27,6 +27,8 @@ import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.AlertTemplateDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.EnumerationItemDTO;
 import ai.startree.thirdeye.util.StringTemplateUtils;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.io.IOException;
@@ -45,9 +47,15 @@ public class AlertTemplateRenderer {
   @Inject
   public AlertTemplateRenderer(
       final AlertManager alertManager,
-      final AlertTemplateManager alertTemplateManager) {
+      final AlertTemplateManager alertTemplateManager,
+      final MetricRegistry metricRegistry) {
     this.alertManager = alertManager;
     this.alertTemplateManager = alertTemplateManager;
+
+    metricRegistry.register("templateCompileTimer", StringTemplateUtils.COMPILE_TIMER);
+    metricRegistry.register("templateRenderTimer", StringTemplateUtils.RENDER_TIMER);
+    metricRegistry.register("compiledTemplateCount",
+        (Gauge<Long>) StringTemplateUtils::compiledTemplatesCount);
   }
 
   /**
@@ -161,15 +169,16 @@ public class AlertTemplateRenderer {
 
     properties.put("startTime", detectionInterval.getStartMillis());
     properties.put("endTime", detectionInterval.getEndMillis());
+
+    final AlertTemplateDTO rendered = StringTemplateUtils.applyContext(template, properties);
     // add source metadata to each node
-    if (template.getNodes() != null) {
-      template.getNodes().stream()
+    if (rendered.getNodes() != null) {
+      rendered.getNodes().stream()
           // TODO spyne remove magic string. This was done to remove dependency of AnomalyDetector.TYPE on the renderer
           .filter(node -> node.getType().equals("AnomalyDetector"))
           .forEach(node -> node.getParams()
               .putValue("anomaly.source", String.format("%s/%s", alertName, node.getName())));
     }
-
-    return StringTemplateUtils.applyContext(template, properties);
+    return rendered;
   }
 }
@@ -15,37 +15,84 @@ package ai.startree.thirdeye.calcite.dataframe;
 
 import static org.apache.calcite.linq4j.Nullness.castNonNull;
 
+import ai.startree.thirdeye.spi.dataframe.BooleanSeries;
 import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.dataframe.Series;
+import ai.startree.thirdeye.spi.dataframe.StringSeries;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+import java.util.function.IntPredicate;
 import org.apache.calcite.linq4j.Enumerator;
-import org.apache.calcite.util.ImmutableNullableList;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
  * Enumerator that reads from a DataFrame.
+ *
+ * Reads the primitive arrays of the series. Only the projected columns are read, and filters are
+ * evaluated before any value is boxed.
  */
 public class DataFrameEnumerator implements Enumerator<Object[]> {
 
-  private final DataFrame dataFrame;
-  private final @Nullable List<@Nullable Object> filterValues;
   private final AtomicBoolean cancelFlag;
+  private final List<IntFunction<Object>> columns;
+  private final IntPredicate[] predicates;
+  private final int end;
   private @Nullable Object[] current;
-  private int currentIndex = -1;
-  List<String> columnNames;
+  private int currentIndex;
 
   public DataFrameEnumerator(DataFrame dataFrame, AtomicBoolean cancelFlag) {
-    this(dataFrame, cancelFlag, null);
+    this(dataFrame, cancelFlag, null, null);
   }
 
+  /**
+   * @param filter filter to apply. No filtering if null.
+   * @param projects indexes of the columns to return. All columns if null.
+   */
   public DataFrameEnumerator(DataFrame dataFrame, AtomicBoolean cancelFlag,
-      @Nullable Object @Nullable [] filterValues) {
+      @Nullable DataFrameScanFilter filter, int @Nullable [] projects) {
     this.cancelFlag = cancelFlag;
-    this.filterValues = filterValues == null ? null
-        : ImmutableNullableList.copyOf(filterValues);
-    this.dataFrame = dataFrame;
-    this.columnNames = new ArrayList<>(dataFrame.getSeriesNames());
+    final List<Series> series = new ArrayList<>(dataFrame.getSeries().values());
+    columns = new ArrayList<>();
+    if (projects == null) {
+      series.forEach(s -> columns.add(columnReader(s)));
+    } else {
+      for (final int project : projects) {
+        columns.add(columnReader(series.get(project)));
+      }
+    }
+    if (filter == null) {
+      predicates = new IntPredicate[0];
+      currentIndex = -1;
+      end = dataFrame.size();
+    } else {
+      predicates = filter.predicates(series).toArray(new IntPredicate[0]);
+      final int[] rowRange = filter.rowRange(series, dataFrame.size());
+      currentIndex = rowRange[0] - 1;
+      end = rowRange[1];
+    }
+  }
+
+  private static IntFunction<Object> columnReader(final Series series) {
+    switch (series.type()) {
+      case LONG:
+        final long[] longs = series.getLongs().values();
+        return row -> LongSeries.getObject(longs[row]);
+      case DOUBLE:
+        final double[] doubles = series.getDoubles().values();
+        return row -> DoubleSeries.getObject(doubles[row]);
+      case BOOLEAN:
+        final byte[] booleans = series.getBooleans().values();
+        return row -> BooleanSeries.getObject(booleans[row]);
+      case STRING:
+        final String[] strings = series.getStrings().values();
+        return row -> StringSeries.getObject(strings[row]);
+      default:
+        return series::getObject;
+    }
   }
 
   @Override
@@ -61,24 +108,18 @@ public class DataFrameEnumerator implements Enumerator<Object[]> {
         return false;
       }
       currentIndex++;
-      if (currentIndex == dataFrame.size()) {
+      if (currentIndex >= end) {
         return false;
       }
-      Object[] values = columnNames.stream()
-          .map(name -> dataFrame.getObject(name, currentIndex))
-          .toArray(Object[]::new);
-
-      // works with string - long - boolean - double
-      if (filterValues != null) {
-        for (int i = 0; i < values.length; i++) {
-          Object filterValue = filterValues.get(i);
-          if (filterValue != null) {
-            if (!filterValue.equals(values[i])) {
-              continue outer;
-            }
-          }
+      for (final IntPredicate predicate : predicates) {
+        if (!predicate.test(currentIndex)) {
+          continue outer;
         }
       }
+      final Object[] values = new Object[columns.size()];
+      for (int i = 0; i < values.length; i++) {
+        values[i] = columns.get(i).apply(currentIndex);
+      }
       current = values;
       return true;
     }
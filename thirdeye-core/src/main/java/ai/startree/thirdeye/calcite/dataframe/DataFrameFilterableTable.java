@@ -14,33 +14,40 @@
 package ai.startree.thirdeye.calcite.dataframe;
 
 import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import com.google.common.collect.BoundType;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.calcite.DataContext;
-import org.apache.calcite.adapter.java.JavaTypeFactory;
 import org.apache.calcite.linq4j.AbstractEnumerable;
 import org.apache.calcite.linq4j.Enumerable;
 import org.apache.calcite.linq4j.Enumerator;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.rel.RelNode;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.rel.type.RelProtoDataType;
 import org.apache.calcite.rex.RexCall;
 import org.apache.calcite.rex.RexInputRef;
 import org.apache.calcite.rex.RexLiteral;
 import org.apache.calcite.rex.RexNode;
-import org.apache.calcite.schema.FilterableTable;
+import org.apache.calcite.rex.RexUnknownAs;
+import org.apache.calcite.schema.TranslatableTable;
 import org.apache.calcite.sql.SqlKind;
 import org.apache.calcite.sql.type.SqlTypeName;
+import org.apache.calcite.util.Sarg;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
 /**
- * Table based on a DataFrame. Implements simple equal filtering.
+ * Table based on a DataFrame. Implements projection, equal filtering and range filtering on
+ * LONG and DOUBLE columns. See {@link DataFrameScanFilter}.
  *
- * <p>It implements the {@link FilterableTable} interface, so Calcite gets
- * data by calling the {@link #scan(DataContext, List)} method.
- *
- * Resource: https://github.com/apache/calcite/blob/4bc916619fd286b2c0cc4d5c653c96a68801d74e/example/csv/src/main/java/org/apache/calcite/adapter/csv/CsvFilterableTable.java
+ * The table is planned as a {@link DataFrameTableScan}. Projections and filters are pushed into
+ * the scan by {@link DataFrameTableScanRule}.
  */
 public class DataFrameFilterableTable extends DataFrameTable
-    implements FilterableTable {
+    implements TranslatableTable {
 
   public DataFrameFilterableTable(DataFrame dataFrame, RelProtoDataType protoRowType) {
     super(dataFrame, protoRowType);
@@ -52,29 +59,61 @@ public class DataFrameFilterableTable extends DataFrameTable
   }
 
   @Override
-  public Enumerable<@Nullable Object[]> scan(DataContext root, List<RexNode> filters) {
-    JavaTypeFactory typeFactory = root.getTypeFactory();
-    final List<DataFrameFieldType> fieldTypes = getFieldTypes(typeFactory);
-    final @Nullable Object[] filterValues = new Object[fieldTypes.size()];
-    filters.removeIf(filter -> addFilter(filter, filterValues));
+  public RelNode toRel(RelOptTable.ToRelContext context, RelOptTable relOptTable) {
+    return new DataFrameTableScan(context.getCluster(), relOptTable, this, ImmutableList.of(),
+        null);
+  }
+
+  /**
+   * Called by the code generated for {@link DataFrameTableScan}.
+   *
+   * @param projects indexes of the columns to return. All columns if null.
+   */
+  public Enumerable<@Nullable Object[]> scan(DataContext root, DataFrameScanFilter scanFilter,
+      int @Nullable [] projects) {
     final AtomicBoolean cancelFlag = DataContext.Variable.CANCEL_FLAG.get(root);
     return new AbstractEnumerable<@Nullable Object[]>() {
       @Override
       public Enumerator<@Nullable Object[]> enumerator() {
-        return new DataFrameEnumerator(dataFrame, cancelFlag, filterValues);
+        return new DataFrameEnumerator(dataFrame, cancelFlag, scanFilter, projects);
       }
     };
   }
 
   /**
-   * Push down equal filter for STRING, LONG and DOUBLE.
+   * Builds the scan filter of filters accepted by {@link #pushFilter}.
    */
-  private static boolean addFilter(RexNode filter, @Nullable Object[] filterValues) {
+  DataFrameScanFilter toScanFilter(List<RexNode> filters, RelDataTypeFactory typeFactory) {
+    final DataFrameScanFilter scanFilter = new DataFrameScanFilter(dataFrame.getSeries().size());
+    for (final RexNode filter : filters) {
+      pushFilter(filter, typeFactory, scanFilter);
+    }
+    return scanFilter;
+  }
+
+  /**
+   * Adds the filter to the scan filter.
+   *
+   * @return false if the filter cannot be evaluated by the scan. It must be evaluated by Calcite.
+   */
+  boolean pushFilter(RexNode filter, RelDataTypeFactory typeFactory,
+      DataFrameScanFilter scanFilter) {
+    return addFilter(filter, getFieldTypes(typeFactory), scanFilter);
+  }
+
+  /**
+   * Push down equal filter for STRING, LONG and DOUBLE, and range filters for LONG and DOUBLE.
+   */
+  private static boolean addFilter(RexNode filter, List<DataFrameFieldType> fieldTypes,
+      DataFrameScanFilter scanFilter) {
 
     if (filter.isA(SqlKind.AND)) {
-      // We cannot refine(remove) the operands of AND,
-      // it will cause o.a.c.i.TableScanNode.createFilterable filters check failed.
-      ((RexCall) filter).getOperands().forEach(subFilter -> addFilter(subFilter, filterValues));
+      // The AND is pushed down only if all its operands are pushed down.
+      boolean allPushed = true;
+      for (final RexNode subFilter : ((RexCall) filter).getOperands()) {
+        allPushed &= addFilter(subFilter, fieldTypes, scanFilter);
+      }
+      return allPushed;
     } else if (filter.isA(SqlKind.EQUALS)) {
       final RexCall call = (RexCall) filter;
       RexNode left = call.getOperands().get(0);
@@ -85,15 +124,132 @@ public class DataFrameFilterableTable extends DataFrameTable
       if (left instanceof RexInputRef
           && right instanceof RexLiteral) {
         final int index = ((RexInputRef) left).getIndex();
-        if (filterValues[index] == null) {
-          filterValues[index] = customGetValue((RexLiteral) right);
-          return true;
-        }
+        final Object value = customGetValue((RexLiteral) right);
+        return value != null && scanFilter.addEquals(index, value);
       }
+    } else if (filter.isA(SqlKind.SEARCH)) {
+      return addSearchFilter((RexCall) filter, fieldTypes, scanFilter);
+    } else if (filter.isA(SqlKind.COMPARISON)) {
+      return addRangeFilter((RexCall) filter, fieldTypes, scanFilter);
     }
     return false;
   }
 
+  /**
+   * Push down a SEARCH on a single range, the form Calcite gives to range predicates.
+   * For instance {@code SEARCH($0, Sarg[[10..20)])} is {@code $0 >= 10 AND $0 < 20}.
+   */
+  @SuppressWarnings({"rawtypes", "unchecked"})
+  private static boolean addSearchFilter(RexCall call, List<DataFrameFieldType> fieldTypes,
+      DataFrameScanFilter scanFilter) {
+    final RexNode ref = call.getOperands().get(0);
+    final RexNode literal = call.getOperands().get(1);
+    if (!(ref instanceof RexInputRef) || !(literal instanceof RexLiteral)) {
+      return false;
+    }
+    final Sarg sarg = ((RexLiteral) literal).getValueAs(Sarg.class);
+    if (sarg == null || sarg.nullAs == RexUnknownAs.TRUE || sarg.rangeSet.asRanges().size() != 1) {
+      return false;
+    }
+    final Range range = (Range) sarg.rangeSet.asRanges().iterator().next();
+    final int index = ((RexInputRef) ref).getIndex();
+    if (!isRangeSupported(fieldTypes.get(index), range)) {
+      return false;
+    }
+    if (range.hasLowerBound()) {
+      addBound(index, fieldTypes.get(index),
+          range.lowerBoundType() == BoundType.CLOSED
+              ? SqlKind.GREATER_THAN_OR_EQUAL
+              : SqlKind.GREATER_THAN,
+          (BigDecimal) range.lowerEndpoint(),
+          scanFilter);
+    }
+    if (range.hasUpperBound()) {
+      addBound(index, fieldTypes.get(index),
+          range.upperBoundType() == BoundType.CLOSED
+              ? SqlKind.LESS_THAN_OR_EQUAL
+              : SqlKind.LESS_THAN,
+          (BigDecimal) range.upperEndpoint(),
+          scanFilter);
+    }
+    return true;
+  }
+
+  @SuppressWarnings("rawtypes")
+  private static boolean isRangeSupported(DataFrameFieldType fieldType, Range range) {
+    if (!range.hasLowerBound() && !range.hasUpperBound()) {
+      // IS NOT NULL
+      return false;
+    }
+    for (final Object endpoint : List.of(
+        range.hasLowerBound() ? range.lowerEndpoint() : BigDecimal.ZERO,
+        range.hasUpperBound() ? range.upperEndpoint() : BigDecimal.ZERO)) {
+      if (!(endpoint instanceof BigDecimal) || !isBoundSupported(fieldType,
+          (BigDecimal) endpoint)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean addRangeFilter(RexCall call, List<DataFrameFieldType> fieldTypes,
+      DataFrameScanFilter scanFilter) {
+    SqlKind kind = call.getKind();
+    if (kind != SqlKind.LESS_THAN && kind != SqlKind.LESS_THAN_OR_EQUAL
+        && kind != SqlKind.GREATER_THAN && kind != SqlKind.GREATER_THAN_OR_EQUAL) {
+      return false;
+    }
+    RexNode left = call.getOperands().get(0);
+    RexNode right = call.getOperands().get(1);
+    if (left instanceof RexLiteral && right instanceof RexInputRef) {
+      // 10 < column is column > 10
+      final RexNode literal = left;
+      left = right;
+      right = literal;
+      kind = kind.reverse();
+    }
+    if (!(left instanceof RexInputRef) || !(right instanceof RexLiteral)
+        || !SqlTypeName.NUMERIC_TYPES.contains(right.getType().getSqlTypeName())) {
+      return false;
+    }
+    final int index = ((RexInputRef) left).getIndex();
+    final BigDecimal value = ((RexLiteral) right).getValueAs(BigDecimal.class);
+    if (value == null || !isBoundSupported(fieldTypes.get(index), value)) {
+      return false;
+    }
+    addBound(index, fieldTypes.get(index), kind, value, scanFilter);
+    return true;
+  }
+
+  /**
+   * Ranges are supported on LONG columns with integer bounds, and on DOUBLE columns.
+   */
+  private static boolean isBoundSupported(DataFrameFieldType fieldType, BigDecimal value) {
+    switch (fieldType) {
+      case LONG:
+        try {
+          value.longValueExact();
+          return true;
+        } catch (ArithmeticException e) {
+          // not an integer, or out of range: evaluated by Calcite
+          return false;
+        }
+      case DOUBLE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private static void addBound(int index, DataFrameFieldType fieldType, SqlKind kind,
+      BigDecimal value, DataFrameScanFilter scanFilter) {
+    if (fieldType == DataFrameFieldType.LONG) {
+      scanFilter.addLongRange(index, kind, value.longValueExact());
+    } else {
+      scanFilter.addDoubleRange(index, kind, value.doubleValue());
+    }
+  }
+
   private static Object customGetValue(RexLiteral literal) {
     // only tested with SeriesType DOUBLE, BOOLEAN, STRING, LONG
     SqlTypeName preciseSqlType = literal.getType().getSqlTypeName();
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.calcite.dataframe;
+
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.dataframe.Series;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntPredicate;
+import org.apache.calcite.sql.SqlKind;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Filter pushed down to a DataFrame scan. Supports equality on all columns, and ranges on LONG
+ * and DOUBLE columns. As in SQL, null values never match.
+ *
+ * Predicates are evaluated on the primitive arrays of the series. If a LONG column with a range
+ * is sorted, typically the time column, the scan is restricted to the rows in the range.
+ */
+public class DataFrameScanFilter {
+
+  private final @Nullable Object[] equalValues;
+  private final long[] longLowers;
+  private final long[] longUppers;
+  private final double[] doubleLowers;
+  private final double[] doubleUppers;
+  private final boolean[] doubleLowersStrict;
+  private final boolean[] doubleUppersStrict;
+  private final boolean[] longRanges;
+  private final boolean[] doubleRanges;
+
+  public DataFrameScanFilter(final int columnCount) {
+    equalValues = new Object[columnCount];
+    longLowers = new long[columnCount];
+    longUppers = new long[columnCount];
+    Arrays.fill(longLowers, Long.MIN_VALUE);
+    Arrays.fill(longUppers, Long.MAX_VALUE);
+    doubleLowers = new double[columnCount];
+    doubleUppers = new double[columnCount];
+    Arrays.fill(doubleLowers, Double.NEGATIVE_INFINITY);
+    Arrays.fill(doubleUppers, Double.POSITIVE_INFINITY);
+    doubleLowersStrict = new boolean[columnCount];
+    doubleUppersStrict = new boolean[columnCount];
+    longRanges = new boolean[columnCount];
+    doubleRanges = new boolean[columnCount];
+  }
+
+  /**
+   * @return false if the column already has an equality filter. The filter is not added.
+   */
+  public boolean addEquals(final int column, final Object value) {
+    if (equalValues[column] != null) {
+      return false;
+    }
+    equalValues[column] = value;
+    return true;
+  }
+
+  /**
+   * Adds a range on a LONG column.
+   *
+   * @param kind one of LESS_THAN, LESS_THAN_OR_EQUAL, GREATER_THAN, GREATER_THAN_OR_EQUAL
+   */
+  public void addLongRange(final int column, final SqlKind kind, final long value) {
+    longRanges[column] = true;
+    switch (kind) {
+      case GREATER_THAN:
+        if (value == Long.MAX_VALUE) {
+          setEmpty(column);
+        } else {
+          longLowers[column] = Math.max(longLowers[column], value + 1);
+        }
+        break;
+      case GREATER_THAN_OR_EQUAL:
+        longLowers[column] = Math.max(longLowers[column], value);
+        break;
+      case LESS_THAN:
+        if (value == Long.MIN_VALUE) {
+          setEmpty(column);
+        } else {
+          longUppers[column] = Math.min(longUppers[column], value - 1);
+        }
+        break;
+      case LESS_THAN_OR_EQUAL:
+        longUppers[column] = Math.min(longUppers[column], value);
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported range: " + kind);
+    }
+  }
+
+  private void setEmpty(final int column) {
+    longLowers[column] = Long.MAX_VALUE;
+    longUppers[column] = Long.MIN_VALUE;
+  }
+
+  /**
+   * Adds a range on a DOUBLE column.
+   *
+   * @param kind one of LESS_THAN, LESS_THAN_OR_EQUAL, GREATER_THAN, GREATER_THAN_OR_EQUAL
+   */
+  public void addDoubleRange(final int column, final SqlKind kind, final double value) {
+    doubleRanges[column] = true;
+    switch (kind) {
+      case GREATER_THAN:
+      case GREATER_THAN_OR_EQUAL:
+        final boolean lowerStrict = kind == SqlKind.GREATER_THAN;
+        if (value > doubleLowers[column]
+            || (value == doubleLowers[column] && lowerStrict)) {
+          doubleLowers[column] = value;
+          doubleLowersStrict[column] = lowerStrict;
+        }
+        break;
+      case LESS_THAN:
+      case LESS_THAN_OR_EQUAL:
+        final boolean upperStrict = kind == SqlKind.LESS_THAN;
+        if (value < doubleUppers[column]
+            || (value == doubleUppers[column] && upperStrict)) {
+          doubleUppers[column] = value;
+          doubleUppersStrict[column] = upperStrict;
+        }
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported range: " + kind);
+    }
+  }
+
+  /**
+   * @param series the series of the scanned DataFrame, in the order of the table columns
+   * @return the row predicates of the filter
+   */
+  List<IntPredicate> predicates(final List<Series> series) {
+    final List<IntPredicate> predicates = new ArrayList<>();
+    for (int column = 0; column < equalValues.length; column++) {
+      final Series s = series.get(column);
+      if (equalValues[column] != null) {
+        predicates.add(equalPredicate(s, equalValues[column]));
+      }
+      if (longRanges[column]) {
+        final long[] values = s.getLongs().values();
+        final long lower = longLowers[column];
+        final long upper = longUppers[column];
+        predicates.add(row -> {
+          final long v = values[row];
+          return !LongSeries.isNull(v) && v >= lower && v <= upper;
+        });
+      }
+      if (doubleRanges[column]) {
+        final double[] values = s.getDoubles().values();
+        final double lower = doubleLowers[column];
+        final double upper = doubleUppers[column];
+        final boolean lowerStrict = doubleLowersStrict[column];
+        final boolean upperStrict = doubleUppersStrict[column];
+        // comparisons with NaN, the null of DOUBLE, are false
+        predicates.add(row -> {
+          final double v = values[row];
+          return (lowerStrict ? v > lower : v >= lower) && (upperStrict ? v < upper : v <= upper);
+        });
+      }
+    }
+    return predicates;
+  }
+
+  private static IntPredicate equalPredicate(final Series series, final Object value) {
+    if (series.type() == Series.SeriesType.LONG && value instanceof Long) {
+      final long[] values = series.getLongs().values();
+      final long longValue = (Long) value;
+      return row -> values[row] == longValue && !LongSeries.isNull(values[row]);
+    }
+    if (series.type() == Series.SeriesType.DOUBLE && value instanceof Double) {
+      final double[] values = series.getDoubles().values();
+      final double doubleValue = (Double) value;
+      return row -> values[row] == doubleValue;
+    }
+    return row -> value.equals(series.getObject(row));
+  }
+
+  /**
+   * Restricts the rows to scan with the ranges on sorted LONG columns.
+   *
+   * @return the first row to scan, inclusive, and the last row, exclusive
+   */
+  int[] rowRange(final List<Series> series, final int size) {
+    int from = 0;
+    int to = size;
+    for (int column = 0; column < longRanges.length; column++) {
+      if (!longRanges[column]) {
+        continue;
+      }
+      final long[] values = series.get(column).getLongs().values();
+      if (!isSorted(values)) {
+        continue;
+      }
+      from = Math.max(from, firstIndexGreaterOrEqual(values, longLowers[column]));
+      to = Math.min(to, longUppers[column] == Long.MAX_VALUE
+          ? size
+          : firstIndexGreaterOrEqual(values, longUppers[column] + 1));
+    }
+    return new int[]{from, Math.max(from, to)};
+  }
+
+  private static boolean isSorted(final long[] values) {
+    for (int i = 1; i < values.length; i++) {
+      if (values[i - 1] > values[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int firstIndexGreaterOrEqual(final long[] sortedValues, final long value) {
+    int low = 0;
+    int high = sortedValues.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (sortedValues[mid] < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+}
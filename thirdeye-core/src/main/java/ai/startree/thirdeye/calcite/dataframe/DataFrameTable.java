@@ -22,6 +22,8 @@ import org.apache.calcite.adapter.java.JavaTypeFactory;
 import org.apache.calcite.rel.type.RelDataType;
 import org.apache.calcite.rel.type.RelDataTypeFactory;
 import org.apache.calcite.rel.type.RelProtoDataType;
+import org.apache.calcite.schema.Statistic;
+import org.apache.calcite.schema.Statistics;
 import org.apache.calcite.schema.impl.AbstractTable;
 import org.apache.calcite.util.Pair;
 import org.checkerframework.checker.nullness.qual.Nullable;
@@ -45,6 +47,11 @@ public abstract class DataFrameTable extends AbstractTable {
     this.protoRowType = protoRowType;
   }
 
+  @Override
+  public Statistic getStatistic() {
+    return Statistics.of(dataFrame.size(), null);
+  }
+
   @Override
   public RelDataType getRowType(RelDataTypeFactory typeFactory) {
     if (protoRowType != null) {
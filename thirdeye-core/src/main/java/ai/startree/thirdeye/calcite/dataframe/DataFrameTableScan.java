@@ -0,0 +1,152 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.calcite.dataframe;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import org.apache.calcite.adapter.enumerable.EnumerableConvention;
+import org.apache.calcite.adapter.enumerable.EnumerableRel;
+import org.apache.calcite.adapter.enumerable.EnumerableRelImplementor;
+import org.apache.calcite.adapter.enumerable.JavaRowFormat;
+import org.apache.calcite.adapter.enumerable.PhysType;
+import org.apache.calcite.adapter.enumerable.PhysTypeImpl;
+import org.apache.calcite.linq4j.tree.Blocks;
+import org.apache.calcite.linq4j.tree.Expression;
+import org.apache.calcite.linq4j.tree.Expressions;
+import org.apache.calcite.plan.RelOptCluster;
+import org.apache.calcite.plan.RelOptCost;
+import org.apache.calcite.plan.RelOptPlanner;
+import org.apache.calcite.plan.RelOptTable;
+import org.apache.calcite.rel.RelWriter;
+import org.apache.calcite.rel.core.TableScan;
+import org.apache.calcite.rel.metadata.RelMdUtil;
+import org.apache.calcite.rel.metadata.RelMetadataQuery;
+import org.apache.calcite.rel.type.RelDataType;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rel.type.RelDataTypeField;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.util.ImmutableIntList;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Scan of a {@link DataFrameFilterableTable}, with the projections and filters pushed down by
+ * {@link DataFrameTableScanRule}.
+ *
+ * The row count and the cost account for the pushed filters. The planner checks that the
+ * expressions it considers equivalent agree on their row count: the scan estimates the same number
+ * of rows as the Filter it replaces.
+ */
+public class DataFrameTableScan extends TableScan implements EnumerableRel {
+
+  private final DataFrameFilterableTable dataFrameTable;
+  private final ImmutableList<RexNode> filters;
+  private final @Nullable ImmutableIntList projects;
+
+  DataFrameTableScan(final RelOptCluster cluster, final RelOptTable table,
+      final DataFrameFilterableTable dataFrameTable, final ImmutableList<RexNode> filters,
+      final @Nullable ImmutableIntList projects) {
+    super(cluster, cluster.traitSetOf(EnumerableConvention.INSTANCE), ImmutableList.of(), table);
+    this.dataFrameTable = dataFrameTable;
+    this.filters = filters;
+    this.projects = projects;
+  }
+
+  public DataFrameFilterableTable getDataFrameTable() {
+    return dataFrameTable;
+  }
+
+  /**
+   * Filters on the columns of the table.
+   */
+  public ImmutableList<RexNode> getFilters() {
+    return filters;
+  }
+
+  public @Nullable ImmutableIntList getProjects() {
+    return projects;
+  }
+
+  DataFrameTableScan withFilters(final List<RexNode> filters) {
+    return new DataFrameTableScan(getCluster(), table, dataFrameTable, ImmutableList.copyOf(filters),
+        projects);
+  }
+
+  DataFrameTableScan withProjects(final List<Integer> projects) {
+    return new DataFrameTableScan(getCluster(), table, dataFrameTable, filters,
+        ImmutableIntList.copyOf(projects));
+  }
+
+  @Override
+  public void register(final RelOptPlanner planner) {
+    planner.addRule(DataFrameTableScanRule.FILTER);
+    planner.addRule(DataFrameTableScanRule.PROJECT);
+  }
+
+  @Override
+  public RelDataType deriveRowType() {
+    if (projects == null) {
+      return super.deriveRowType();
+    }
+    final List<RelDataTypeField> fields = table.getRowType().getFieldList();
+    final RelDataTypeFactory.Builder builder = getCluster().getTypeFactory().builder();
+    for (final int project : projects) {
+      builder.add(fields.get(project));
+    }
+    return builder.build();
+  }
+
+  @Override
+  public RelWriter explainTerms(final RelWriter pw) {
+    return super.explainTerms(pw)
+        .itemIf("filters", filters, !filters.isEmpty())
+        .itemIf("projects", projects, projects != null);
+  }
+
+  @Override
+  public double estimateRowCount(final RelMetadataQuery mq) {
+    final double rowCount = table.getRowCount();
+    if (filters.isEmpty()) {
+      return rowCount;
+    }
+    // same estimate as a Filter on the table
+    return rowCount * RelMdUtil.guessSelectivity(
+        RexUtil.composeConjunction(getCluster().getRexBuilder(), filters));
+  }
+
+  @Override
+  public @Nullable RelOptCost computeSelfCost(final RelOptPlanner planner,
+      final RelMetadataQuery mq) {
+    // all rows are read, only the ones matching the filters are returned
+    return planner.getCostFactory()
+        .makeCost(estimateRowCount(mq), table.getRowCount() + 1, 0);
+  }
+
+  @Override
+  public Result implement(final EnumerableRelImplementor implementor, final Prefer pref) {
+    final PhysType physType = PhysTypeImpl.of(implementor.getTypeFactory(), getRowType(),
+        JavaRowFormat.ARRAY, false);
+    final DataFrameScanFilter scanFilter = dataFrameTable.toScanFilter(filters,
+        getCluster().getTypeFactory());
+    final Expression projectsExpression = projects == null
+        ? Expressions.constant(null, int[].class)
+        : Expressions.constant(projects.toIntArray());
+    return implementor.result(physType, Blocks.toBlock(
+        Expressions.call(implementor.stash(dataFrameTable, DataFrameFilterableTable.class),
+            "scan",
+            implementor.getRootExpression(),
+            implementor.stash(scanFilter, DataFrameScanFilter.class),
+            projectsExpression)));
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.calcite.dataframe;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.calcite.plan.RelOptRule;
+import org.apache.calcite.plan.RelOptRuleCall;
+import org.apache.calcite.plan.RelOptUtil;
+import org.apache.calcite.plan.RelRule;
+import org.apache.calcite.rel.core.Filter;
+import org.apache.calcite.rel.core.Project;
+import org.apache.calcite.rel.core.RelFactories;
+import org.apache.calcite.rel.type.RelDataTypeFactory;
+import org.apache.calcite.rex.RexInputRef;
+import org.apache.calcite.rex.RexNode;
+import org.apache.calcite.rex.RexUtil;
+import org.apache.calcite.tools.RelBuilderFactory;
+
+/**
+ * Pushes filters and projections into a {@link DataFrameTableScan}.
+ *
+ * Only the filters supported by {@link DataFrameScanFilter} are pushed down. The other filters are
+ * evaluated by Calcite. A projection is pushed down if it only references columns.
+ *
+ * The rules match logical and enumerable Filter and Project: a scan created by a rule is in the
+ * enumerable convention, it is only seen as the input of the enumerable parents.
+ */
+public class DataFrameTableScanRule extends RelRule<DataFrameTableScanRule.Config> {
+
+  public static final RelOptRule FILTER = new Config("DataFrameTableScanRule:filter",
+      RelFactories.LOGICAL_BUILDER,
+      b0 -> b0.operand(Filter.class).oneInput(b1 -> b1.operand(DataFrameTableScan.class)
+          .predicate(scan -> scan.getProjects() == null)
+          .noInputs()))
+      .toRule();
+
+  public static final RelOptRule PROJECT = new Config("DataFrameTableScanRule:project",
+      RelFactories.LOGICAL_BUILDER,
+      b0 -> b0.operand(Project.class).oneInput(b1 -> b1.operand(DataFrameTableScan.class)
+          .predicate(scan -> scan.getProjects() == null)
+          .noInputs()))
+      .toRule();
+
+  private DataFrameTableScanRule(final Config config) {
+    super(config);
+  }
+
+  @Override
+  public void onMatch(final RelOptRuleCall call) {
+    if (call.rel(0) instanceof Filter) {
+      pushFilter(call, call.rel(0), call.rel(1));
+    } else {
+      pushProject(call, call.rel(0), call.rel(1));
+    }
+  }
+
+  private static void pushFilter(final RelOptRuleCall call, final Filter filter,
+      final DataFrameTableScan scan) {
+    final DataFrameFilterableTable table = scan.getDataFrameTable();
+    final RelDataTypeFactory typeFactory = scan.getCluster().getTypeFactory();
+    final DataFrameScanFilter scanFilter = table.toScanFilter(scan.getFilters(), typeFactory);
+    final List<RexNode> pushed = new ArrayList<>(scan.getFilters());
+    final List<RexNode> remaining = new ArrayList<>();
+    for (final RexNode condition : RelOptUtil.conjunctions(filter.getCondition())) {
+      if (table.pushFilter(condition, typeFactory, scanFilter)) {
+        pushed.add(condition);
+      } else {
+        remaining.add(condition);
+      }
+    }
+    if (pushed.size() == scan.getFilters().size()) {
+      return;
+    }
+    final DataFrameTableScan filteredScan = scan.withFilters(pushed);
+    if (remaining.isEmpty()) {
+      call.transformTo(filteredScan);
+    } else {
+      call.transformTo(filter.copy(filter.getTraitSet(), filteredScan,
+          RexUtil.composeConjunction(filter.getCluster().getRexBuilder(), remaining)));
+    }
+  }
+
+  private static void pushProject(final RelOptRuleCall call, final Project project,
+      final DataFrameTableScan scan) {
+    final List<Integer> projects = new ArrayList<>();
+    for (final RexNode expression : project.getProjects()) {
+      if (!(expression instanceof RexInputRef)) {
+        return;
+      }
+      projects.add(((RexInputRef) expression).getIndex());
+    }
+    call.transformTo(scan.withProjects(projects));
+  }
+
+  /**
+   * Rule configuration. Written by hand: Calcite generates its own configurations with Immutables,
+   * which this project does not use.
+   */
+  public static class Config implements RelRule.Config {
+
+    private final String description;
+    private final RelBuilderFactory relBuilderFactory;
+    private final OperandTransform operandSupplier;
+
+    private Config(final String description, final RelBuilderFactory relBuilderFactory,
+        final OperandTransform operandSupplier) {
+      this.description = description;
+      this.relBuilderFactory = relBuilderFactory;
+      this.operandSupplier = operandSupplier;
+    }
+
+    @Override
+    public RelOptRule toRule() {
+      return new DataFrameTableScanRule(this);
+    }
+
+    @Override
+    public String description() {
+      return description;
+    }
+
+    @Override
+    public Config withDescription(final String description) {
+      return new Config(description, relBuilderFactory, operandSupplier);
+    }
+
+    @Override
+    public RelBuilderFactory relBuilderFactory() {
+      return relBuilderFactory;
+    }
+
+    @Override
+    public Config withRelBuilderFactory(final RelBuilderFactory relBuilderFactory) {
+      return new Config(description, relBuilderFactory, operandSupplier);
+    }
+
+    @Override
+    public OperandTransform operandSupplier() {
+      return operandSupplier;
+    }
+
+    @Override
+    public Config withOperandSupplier(final OperandTransform operandSupplier) {
+      return new Config(description, relBuilderFactory, operandSupplier);
+    }
+  }
+}
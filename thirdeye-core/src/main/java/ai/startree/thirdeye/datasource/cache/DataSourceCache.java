@@ -19,7 +19,6 @@
 
 package ai.startree.thirdeye.datasource.cache;
 
-import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
 
@@ -30,31 +29,62 @@ import ai.startree.thirdeye.spi.datalayer.Predicate;
 import ai.startree.thirdeye.spi.datalayer.bao.DataSourceManager;
 import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
-import ai.startree.thirdeye.spi.util.Pair;
-import com.codahale.metrics.CachedGauge;
+import ai.startree.thirdeye.spi.datasource.cache.ResponseCacheStats;
 import com.codahale.metrics.Gauge;
 import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.sql.Timestamp;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Cache of the data sources, by name.
+ *
+ * Reads of a cached data source do not lock and do not query the database. Cached data sources
+ * are versioned by the update time of their DataSourceDTO. A background poll reads all the
+ * DataSourceDTOs and evicts the data sources that were updated or deleted, so changes made by
+ * other ThirdEye instances are picked up within {@link #REFRESH_INTERVAL_SECONDS}. Changes made
+ * through this instance evict the data source immediately, see {@link #removeDataSource(String)}.
+ *
+ * Data sources are validated in the background for the healthyDatasourceCount gauge.
+ */
 @Singleton
 public class DataSourceCache {
 
   private static final Logger LOG = LoggerFactory.getLogger(DataSourceCache.class);
+  private static final long REFRESH_INTERVAL_SECONDS = 15;
+  private static final long HEALTH_CHECK_INTERVAL_SECONDS = 60;
 
   private final DataSourceManager dataSourceManager;
   private final DataSourcesLoader dataSourcesLoader;
   private final MetricRegistry metricRegistry;
 
-  private final Map<String, Pair<DataSourceWrapper, Timestamp>> cache = new HashMap<>();
+  private final Map<String, CacheEntry> cache = new ConcurrentHashMap<>();
+  /**
+   * Starts the async queries that waited for a query slot of their data source.
+   */
+  private final ExecutorService queryExecutor = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder()
+          .setNameFormat("data-source-query-%d")
+          .setDaemon(true)
+          .build());
+  private final AtomicInteger healthyDataSourceCount = new AtomicInteger();
+  private final ScheduledExecutorService executorService;
 
   @Inject
   public DataSourceCache(
@@ -65,42 +95,120 @@ public class DataSourceCache {
     this.dataSourcesLoader = dataSourcesLoader;
     this.metricRegistry = metricRegistry;
 
-    metricRegistry.register("healthyDatasourceCount", new CachedGauge<Integer>(1, TimeUnit.MINUTES) {
-      @Override
-      protected Integer loadValue() {
-        return getHealthyDatasourceCount();
-      }
-    });
+    metricRegistry.register("healthyDatasourceCount",
+        (Gauge<Integer>) healthyDataSourceCount::get);
     metricRegistry.register("cachedDatasourceCount", (Gauge<Integer>) cache::size);
+    metricRegistry.register("responseCacheHitCount",
+        (Gauge<Long>) () -> sumResponseCacheStats(ResponseCacheStats::getHitCount));
+    metricRegistry.register("responseCacheMissCount",
+        (Gauge<Long>) () -> sumResponseCacheStats(ResponseCacheStats::getMissCount));
+    metricRegistry.register("responseCacheEvictionCount",
+        (Gauge<Long>) () -> sumResponseCacheStats(ResponseCacheStats::getEvictionCount));
+    metricRegistry.register("responseCacheEntryCount",
+        (Gauge<Long>) () -> sumResponseCacheStats(ResponseCacheStats::getEntryCount));
+    metricRegistry.register("responseCacheSizeInBytes",
+        (Gauge<Long>) () -> sumResponseCacheStats(ResponseCacheStats::getSizeInBytes));
+
+    executorService = Executors.newSingleThreadScheduledExecutor(
+        new ThreadFactoryBuilder()
+            .setNameFormat("data-source-cache-%d")
+            .setDaemon(true)
+            .build());
+    executorService.scheduleWithFixedDelay(this::refresh,
+        REFRESH_INTERVAL_SECONDS,
+        REFRESH_INTERVAL_SECONDS,
+        TimeUnit.SECONDS);
+    executorService.scheduleWithFixedDelay(this::updateHealthyDataSourceCount,
+        HEALTH_CHECK_INTERVAL_SECONDS,
+        HEALTH_CHECK_INTERVAL_SECONDS,
+        TimeUnit.SECONDS);
   }
 
-  private Integer getHealthyDatasourceCount() {
-    return Math.toIntExact(dataSourceManager.findAll().stream()
-        .map(dto -> getDataSource(dto.getName()))
-        .filter(ThirdEyeDataSource::validate)
-        .count());
+  /**
+   * Sums a response cache statistic over the data sources currently loaded.
+   */
+  private long sumResponseCacheStats(final ToLongFunction<ResponseCacheStats> stat) {
+    return cache.values().stream()
+        .map(CacheEntry::getDataSource)
+        .map(ThirdEyeDataSource::getResponseCacheStats)
+        .filter(Objects::nonNull)
+        .mapToLong(stat)
+        .sum();
   }
 
-  public synchronized ThirdEyeDataSource getDataSource(final String name) {
-    final Optional<DataSourceDTO> dataSource = findByName(name);
+  /**
+   * Evicts the data sources updated or deleted since they were loaded.
+   */
+  void refresh() {
+    try {
+      final Map<String, DataSourceDTO> dtos = dataSourceManager.findAll().stream()
+          .collect(Collectors.toMap(DataSourceDTO::getName, Function.identity(), (a, b) -> a));
+      for (final Map.Entry<String, CacheEntry> cached : cache.entrySet()) {
+        final DataSourceDTO dto = dtos.get(cached.getKey());
+        if (dto == null || !cached.getValue().isVersion(dto.getUpdateTime())) {
+          LOG.info("Data source {} was updated or deleted. Evicting it from the cache.",
+              cached.getKey());
+          removeDataSource(cached.getKey(), cached.getValue());
+        }
+      }
+    } catch (final Exception e) {
+      LOG.error("Failed to refresh the data source cache.", e);
+    }
+  }
 
+  void updateHealthyDataSourceCount() {
+    try {
+      int healthyCount = 0;
+      for (final DataSourceDTO dto : dataSourceManager.findAll()) {
+        if (isHealthy(dto.getName())) {
+          healthyCount++;
+        }
+      }
+      healthyDataSourceCount.set(healthyCount);
+    } catch (final Exception e) {
+      LOG.error("Failed to compute the healthy data source count.", e);
+    }
+  }
+
+  private boolean isHealthy(final String name) {
+    try {
+      return getDataSource(name).validate();
+    } catch (final Exception e) {
+      LOG.warn("Data source {} is not healthy.", name, e);
+      return false;
+    }
+  }
+
+  public ThirdEyeDataSource getDataSource(final String name) {
+    final CacheEntry cachedEntry = cache.get(name);
+    if (cachedEntry != null) {
+      return cachedEntry.getDataSource(); // cache hit
+    }
+
+    // cache miss
+    return loadDataSource(name);
+  }
+
+  private synchronized ThirdEyeDataSource loadDataSource(final String name) {
+    // the data source may have been loaded while waiting for the lock
+    final CacheEntry cachedEntry = cache.get(name);
+    if (cachedEntry != null) {
+      return cachedEntry.getDataSource();
+    }
+
+    final Optional<DataSourceDTO> dataSource = findByName(name);
     // datasource absent in DB
     if (dataSource.isEmpty()) {
-      // remove redundant cache if datasource was recently deleted
-      removeDataSource(name);
       throw new ThirdEyeException(ThirdEyeStatus.ERR_DATASOURCE_NOT_FOUND, name);
     }
-    final Pair<DataSourceWrapper, Timestamp> cachedEntry = cache.get(name);
     final DataSourceDTO dataSourceDTO = dataSource.get();
-    if (cachedEntry != null) {
-      final Timestamp updateTimeCached = cachedEntry.getSecond();
-      if (updateTimeCached.equals(dataSourceDTO.getUpdateTime())) {
-        return cachedEntry.getFirst(); // cache hit
-      }
-    }
+    final DataSourceWrapper wrapped = wrap(
+        requireNonNull(dataSourcesLoader.loadDataSource(dataSourceDTO),
+            "Failed to construct a data source object! " + name),
+        dataSourceDTO.getMaxConcurrentQueries());
 
-    // cache miss
-    return loadDataSource(dataSourceDTO);
+    cache.put(name, new CacheEntry(wrapped, dataSourceDTO.getUpdateTime()));
+    return wrapped;
   }
 
   private Optional<DataSourceDTO> findByName(final String name) {
@@ -111,34 +219,41 @@ public class DataSourceCache {
     return results.stream().findFirst();
   }
 
-  private ThirdEyeDataSource loadDataSource(final DataSourceDTO dataSource) {
-    requireNonNull(dataSource);
-    final String dataSourceName = dataSource.getName();
-    final DataSourceWrapper wrapped = wrap(
-        requireNonNull(dataSourcesLoader.loadDataSource(dataSource),
-            "Failed to construct a data source object! " + dataSourceName));
-
-    // remove outdated cached datasource
-    removeDataSource(dataSourceName);
-    cache.put(dataSourceName, new Pair<>(wrapped, dataSource.getUpdateTime()));
-    return wrapped;
+  private DataSourceWrapper wrap(final ThirdEyeDataSource thirdEyeDataSource,
+      final Integer maxConcurrentQueries) {
+    return new DataSourceWrapper(thirdEyeDataSource,
+        maxConcurrentQueries,
+        queryExecutor,
+        metricRegistry);
   }
 
-  private DataSourceWrapper wrap(final ThirdEyeDataSource thirdEyeDataSource) {
-    return new DataSourceWrapper(thirdEyeDataSource, metricRegistry);
+  public void removeDataSource(final String name) {
+    final CacheEntry removed = cache.remove(name);
+    if (removed != null) {
+      close(removed.getDataSource());
+    }
   }
 
-  public void removeDataSource(final String name) {
-    optional(cache.remove(name))
-        .map(Pair::getFirst)
-        .ifPresent(this::close);
+  /**
+   * Removes the entry only if it was not replaced in the meantime.
+   */
+  private void removeDataSource(final String name, final CacheEntry entry) {
+    if (cache.remove(name, entry)) {
+      close(entry.getDataSource());
+    }
   }
 
   public void clear() {
-    cache.values().stream()
-        .map(Pair::getFirst)
-        .forEach(this::close);
-    cache.clear();
+    cache.forEach(this::removeDataSource);
+  }
+
+  /**
+   * Stops the background refresh and closes the cached data sources.
+   */
+  public void close() {
+    executorService.shutdownNow();
+    queryExecutor.shutdownNow();
+    clear();
   }
 
   private void close(final ThirdEyeDataSource dataSource) {
@@ -148,4 +263,26 @@ public class DataSourceCache {
       LOG.error("Datasource {} was not flushed gracefully.", dataSource.getName());
     }
   }
+
+  private static class CacheEntry {
+
+    private final ThirdEyeDataSource dataSource;
+    /**
+     * Update time of the DataSourceDTO the data source was loaded from.
+     */
+    private final Timestamp version;
+
+    private CacheEntry(final ThirdEyeDataSource dataSource, final Timestamp version) {
+      this.dataSource = dataSource;
+      this.version = version;
+    }
+
+    public ThirdEyeDataSource getDataSource() {
+      return dataSource;
+    }
+
+    public boolean isVersion(final Timestamp updateTime) {
+      return Objects.equals(version, updateTime);
+    }
+  }
 }
@@ -13,10 +13,13 @@
  */
 package ai.startree.thirdeye.datasource.cache;
 
+import static com.google.common.base.Preconditions.checkArgument;
+
 import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
 import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSourceContext;
+import ai.startree.thirdeye.spi.datasource.cache.ResponseCacheStats;
 import ai.startree.thirdeye.spi.datasource.macro.SqlExpressionBuilder;
 import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
 import ai.startree.thirdeye.spi.detection.v2.DataTable;
@@ -24,6 +27,9 @@ import com.codahale.metrics.Meter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 /**
  * This class intercepts all data source calls and helps with telemetry, etc.
@@ -34,12 +40,31 @@ public class DataSourceWrapper implements ThirdEyeDataSource {
 
   private final Meter fetchTableExceptionMeter;
   private final Timer fetchTableTimer;
-
-  public DataSourceWrapper(final ThirdEyeDataSource delegate, final MetricRegistry metricRegistry) {
+  private final Timer fetchTableWaitTimer;
+  /**
+   * Caps the concurrent queries on the data source. null if unlimited.
+   */
+  private final QueryPermits concurrentQueries;
+  /**
+   * Starts the async queries that waited for a permit.
+   */
+  private final Executor queryExecutor;
+
+  public DataSourceWrapper(final ThirdEyeDataSource delegate,
+      final Integer maxConcurrentQueries,
+      final Executor queryExecutor,
+      final MetricRegistry metricRegistry) {
+    checkArgument(maxConcurrentQueries == null || maxConcurrentQueries > 0,
+        "maxConcurrentQueries must be positive");
     this.delegate = delegate;
+    this.queryExecutor = queryExecutor;
+    concurrentQueries = maxConcurrentQueries == null
+        ? null
+        : new QueryPermits(maxConcurrentQueries);
 
     fetchTableExceptionMeter = metricRegistry.meter("fetchTableExceptionMeter");
     fetchTableTimer = metricRegistry.timer("fetchTableTimer");
+    fetchTableWaitTimer = metricRegistry.timer("fetchTableWaitTimer");
   }
 
   @Override
@@ -69,7 +94,27 @@ public class DataSourceWrapper implements ThirdEyeDataSource {
 
   @Override
   public DataTable fetchDataTable(final DataSourceRequest request) throws Exception {
-    return fetchTableTimer.time(() -> fetchDataTable0(request));
+    if (concurrentQueries == null) {
+      return fetchTableTimer.time(() -> fetchDataTable0(request));
+    }
+    final Timer.Context waitContext = fetchTableWaitTimer.time();
+    final CompletableFuture<Void> permit = concurrentQueries.acquire();
+    try {
+      permit.get();
+    } catch (final InterruptedException e) {
+      // the permit may have been granted while interrupted
+      if (!permit.cancel(false)) {
+        concurrentQueries.release();
+      }
+      throw e;
+    } finally {
+      waitContext.stop();
+    }
+    try {
+      return fetchTableTimer.time(() -> fetchDataTable0(request));
+    } finally {
+      concurrentQueries.release();
+    }
   }
 
   private DataTable fetchDataTable0(final DataSourceRequest request) throws Exception {
@@ -82,6 +127,42 @@ public class DataSourceWrapper implements ThirdEyeDataSource {
     }
   }
 
+  @Override
+  public CompletableFuture<DataTable> fetchDataTableAsync(final DataSourceRequest request) {
+    if (concurrentQueries == null) {
+      return fetchDataTableAsync0(request);
+    }
+    // no thread waits for a query slot
+    final Timer.Context waitContext = fetchTableWaitTimer.time();
+    final CompletableFuture<Void> permit = concurrentQueries.acquire();
+    final Function<Void, CompletableFuture<DataTable>> query = granted -> {
+      waitContext.stop();
+      return fetchDataTableAsync0(request)
+          .whenComplete((dataTable, throwable) -> concurrentQueries.release());
+    };
+    // a query that waited is not started by the thread that released the permit
+    return permit.isDone()
+        ? permit.thenCompose(query)
+        : permit.thenComposeAsync(query, queryExecutor);
+  }
+
+  private CompletableFuture<DataTable> fetchDataTableAsync0(final DataSourceRequest request) {
+    final Timer.Context context = fetchTableTimer.time();
+    CompletableFuture<DataTable> future;
+    try {
+      future = delegate.fetchDataTableAsync(request);
+    } catch (final RuntimeException e) {
+      future = CompletableFuture.failedFuture(e);
+    }
+    return future.whenComplete((dataTable, throwable) -> {
+      context.stop();
+      if (throwable != null) {
+        // track exceptions
+        fetchTableExceptionMeter.mark();
+      }
+    });
+  }
+
   @Override
   public boolean validate() {
     return delegate.validate();
@@ -97,6 +178,11 @@ public class DataSourceWrapper implements ThirdEyeDataSource {
     return delegate.getSqlExpressionBuilder();
   }
 
+  @Override
+  public ResponseCacheStats getResponseCacheStats() {
+    return delegate.getResponseCacheStats();
+  }
+
   @Override
   public void clear() throws Exception {
     delegate.clear();
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A fair semaphore whose permits are futures, so that a caller can wait for a permit without
+ * blocking a thread.
+ */
+class QueryPermits {
+
+  private final Queue<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+  private int available;
+
+  QueryPermits(final int permits) {
+    available = permits;
+  }
+
+  /**
+   * @return a future completed when the permit is granted. Cancel it to stop waiting. A permit
+   *     granted must be released.
+   */
+  synchronized CompletableFuture<Void> acquire() {
+    if (available > 0 && waiters.isEmpty()) {
+      available--;
+      return CompletableFuture.completedFuture(null);
+    }
+    final CompletableFuture<Void> waiter = new CompletableFuture<>();
+    waiters.add(waiter);
+    return waiter;
+  }
+
+  /**
+   * Gives the permit to the oldest waiter. The dependents of the waiter run on the calling
+   * thread.
+   */
+  void release() {
+    while (true) {
+      final CompletableFuture<Void> waiter;
+      synchronized (this) {
+        waiter = waiters.poll();
+        if (waiter == null) {
+          available++;
+          return;
+        }
+      }
+      // false if the waiter was cancelled: try the next one
+      if (waiter.complete(null)) {
+        return;
+      }
+    }
+  }
+}
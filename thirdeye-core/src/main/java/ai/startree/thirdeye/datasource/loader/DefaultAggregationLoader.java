@@ -23,6 +23,7 @@ import ai.startree.thirdeye.datasource.calcite.CalciteRequest;
 import ai.startree.thirdeye.datasource.calcite.QueryProjection;
 import ai.startree.thirdeye.spi.Constants;
 import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
 import ai.startree.thirdeye.spi.dataframe.LongSeries;
 import ai.startree.thirdeye.spi.dataframe.StringSeries;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
@@ -31,7 +32,9 @@ import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
 import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
 import ai.startree.thirdeye.spi.datasource.loader.AggregationLoader;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
 import ai.startree.thirdeye.spi.metric.MetricSlice;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -40,10 +43,17 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.apache.calcite.sql.SqlIdentifier;
 import org.apache.commons.collections4.MapUtils;
@@ -57,6 +67,16 @@ public class DefaultAggregationLoader implements AggregationLoader {
 
   private static final long TIMEOUT = 600000;
   private static final String ROLLUP_NAME = "OTHER";
+  /**
+   * Maximum number of queries of a single breakdown running at the same time. The limit across
+   * breakdowns is the maxConcurrentQueries of the data source.
+   */
+  private static final int MAX_CONCURRENT_BREAKDOWN_QUERIES = 8;
+  /**
+   * Threads used to submit breakdown queries. Data sources without an asynchronous client run
+   * the query on these threads. Shut down by {@link #close()}.
+   */
+  private static final int BREAKDOWN_THREADS = 16;
 
   private final DataSourceCache dataSourceCache;
   private final ExecutorService executorService;
@@ -64,8 +84,18 @@ public class DefaultAggregationLoader implements AggregationLoader {
   @Inject
   public DefaultAggregationLoader(final DataSourceCache dataSourceCache) {
     this.dataSourceCache = dataSourceCache;
-    executorService = Executors.newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat(
-        "aggregation-loader-%d").build());
+    executorService = Executors.newFixedThreadPool(BREAKDOWN_THREADS,
+        new ThreadFactoryBuilder()
+            .setNameFormat("aggregation-loader-%d")
+            .setDaemon(true)
+            .build());
+  }
+
+  /**
+   * Stops the breakdown threads. Queries that are running are interrupted.
+   */
+  public void close() {
+    executorService.shutdownNow();
   }
 
   /**
@@ -127,16 +157,10 @@ public class DefaultAggregationLoader implements AggregationLoader {
 
     LOG.info("Querying breakdown '{}' for dimensions '{}'", slice, dimensions);
 
-    final DataFrame dfAll = DataFrame
-        .builder(COL_DIMENSION_NAME + ":STRING",
-            COL_DIMENSION_VALUE + ":STRING",
-            Constants.COL_VALUE + ":DOUBLE")
-        .build()
-        .setIndex(COL_DIMENSION_NAME, COL_DIMENSION_VALUE);
-
-    final Map<String, Future<DataFrame>> responses = new HashMap<>();
-
-    // submit requests
+    final ThirdEyeDataSource dataSource = dataSourceCache.getDataSource(
+        datasetConfigDTO.getDataSource());
+    final List<Supplier<CompletableFuture<DataFrame>>> queries = new ArrayList<>(
+        dimensions.size());
     for (final String dimension : dimensions) {
       final SqlIdentifier dimensionIdentifier = identifierOf(dimension);
       final CalciteRequest request = CalciteRequest.newBuilderFrom(slice)
@@ -146,24 +170,14 @@ public class DefaultAggregationLoader implements AggregationLoader {
           .orderBy(identifierDescOf(Constants.COL_VALUE))
           .limit(limit)
           .build();
-      final Future<DataFrame> res = getQueryResultAsync(request,
-          datasetConfigDTO.getDataSource());
-
-      responses.put(dimension, res);
+      queries.add(() -> getQueryResultAsync(request, dataSource));
     }
+    final List<DataFrame> results = fetchAll(queries,
+        MAX_CONCURRENT_BREAKDOWN_QUERIES,
+        TIMEOUT,
+        executorService);
+    final DataFrame breakdown = breakdownOf(dimensions, results);
 
-    // collect responses
-    final List<DataFrame> results = new ArrayList<>();
-    for (final String dimension : dimensions) {
-      final DataFrame res = responses.get(dimension).get(TIMEOUT, TimeUnit.MILLISECONDS);
-      final DataFrame dfResult = new DataFrame()
-          .addSeries(COL_DIMENSION_NAME, StringSeries.fillValues(res.size(), dimension))
-          .addSeries(COL_DIMENSION_VALUE, res.get(dimension))
-          .addSeries(Constants.COL_VALUE, res.get(Constants.COL_VALUE));
-      results.add(dfResult);
-    }
-
-    final DataFrame breakdown = dfAll.append(results);
     // add time column containing start time of slice
     return breakdown
         .addSeries(Constants.COL_TIME,
@@ -171,6 +185,98 @@ public class DefaultAggregationLoader implements AggregationLoader {
         .setIndex(Constants.COL_TIME, COL_DIMENSION_NAME, COL_DIMENSION_VALUE);
   }
 
+  /**
+   * Runs the queries and returns their results, in the order of the queries.
+   *
+   * At most maxConcurrentQueries queries run at the same time: a query starts when a permit is
+   * released by a completed query. After a failure, the queries that did not start are not run.
+   * The timeout applies to all the queries. When it expires, the queries that did not start are
+   * not run and the running ones are cancelled.
+   */
+  @VisibleForTesting
+  static <T> List<T> fetchAll(final List<Supplier<CompletableFuture<T>>> queries,
+      final int maxConcurrentQueries, final long timeoutMillis, final Executor executor)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    final long deadline = System.currentTimeMillis() + timeoutMillis;
+    final Semaphore permits = new Semaphore(maxConcurrentQueries);
+    final AtomicBoolean failed = new AtomicBoolean(false);
+    final List<CompletableFuture<CompletableFuture<T>>> submitted = new ArrayList<>(
+        queries.size());
+    final List<CompletableFuture<T>> responses = new ArrayList<>(queries.size());
+    try {
+      for (final Supplier<CompletableFuture<T>> query : queries) {
+        if (!permits.tryAcquire(remainingMillis(deadline), TimeUnit.MILLISECONDS)) {
+          throw new TimeoutException(
+              String.format("Timeout after %d ms waiting for a query slot", timeoutMillis));
+        }
+        if (failed.get()) {
+          permits.release();
+          break;
+        }
+        final CompletableFuture<CompletableFuture<T>> start = CompletableFuture.supplyAsync(query,
+            executor);
+        final CompletableFuture<T> response = start.thenCompose(future -> future);
+        response.whenComplete((res, throwable) -> {
+          if (throwable != null) {
+            failed.set(true);
+          }
+          permits.release();
+        });
+        submitted.add(start);
+        responses.add(response);
+      }
+
+      final List<T> results = new ArrayList<>(responses.size());
+      for (final CompletableFuture<T> response : responses) {
+        results.add(response.get(remainingMillis(deadline), TimeUnit.MILLISECONDS));
+      }
+      return results;
+    } finally {
+      // no-op for the queries that completed
+      for (final CompletableFuture<CompletableFuture<T>> start : submitted) {
+        start.cancel(true);
+        final CompletableFuture<T> running = start.getNow(null);
+        if (running != null) {
+          running.cancel(true);
+        }
+      }
+    }
+  }
+
+  private static long remainingMillis(final long deadline) {
+    return Math.max(deadline - System.currentTimeMillis(), 0);
+  }
+
+  /**
+   * Builds the breakdown dataframe in one pass over the per-dimension results.
+   */
+  @VisibleForTesting
+  static DataFrame breakdownOf(final List<String> dimensions,
+      final List<DataFrame> results) {
+    int size = 0;
+    for (final DataFrame res : results) {
+      size += res.size();
+    }
+    final String[] dimensionNames = new String[size];
+    final String[] dimensionValues = new String[size];
+    final double[] values = new double[size];
+    int row = 0;
+    for (int i = 0; i < dimensions.size(); i++) {
+      final String dimension = dimensions.get(i);
+      final DataFrame res = results.get(i);
+      for (int j = 0; j < res.size(); j++) {
+        dimensionNames[row] = dimension;
+        dimensionValues[row] = res.getString(dimension, j);
+        values[row] = res.getDouble(Constants.COL_VALUE, j);
+        row++;
+      }
+    }
+    return new DataFrame()
+        .addSeries(COL_DIMENSION_NAME, StringSeries.buildFrom(dimensionNames))
+        .addSeries(COL_DIMENSION_VALUE, StringSeries.buildFrom(dimensionValues))
+        .addSeries(Constants.COL_VALUE, DoubleSeries.buildFrom(values));
+  }
+
   @Override
   public Future<DataFrame> loadAggregateAsync(final MetricSlice slice,
       final List<String> dimensions, final int limit) {
@@ -196,22 +302,46 @@ public class DefaultAggregationLoader implements AggregationLoader {
           .select(dimensionIdentifier)
           .groupBy(dimensionIdentifier);
     }
+    if (!dimensions.isEmpty()) {
+      // the limit keeps the largest groups, the same for every run - see te-636
+      requestBuilder.orderBy(identifierDescOf(Constants.COL_VALUE));
+    }
     final String dataSource = slice.getDatasetConfigDTO().getDataSource();
     return getQueryResultAsync(requestBuilder.build(), dataSource);
   }
 
   private Future<DataFrame> getQueryResultAsync(final CalciteRequest request,
       final String dataSource) {
-    return executorService.submit(() -> getQueryResult(request, dataSource));
+    try {
+      return getQueryResultAsync(request, dataSourceCache.getDataSource(dataSource));
+    } catch (final Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  private static CompletableFuture<DataFrame> getQueryResultAsync(final CalciteRequest request,
+      final ThirdEyeDataSource thirdEyeDataSource) {
+    try {
+      return thirdEyeDataSource.fetchDataTableAsync(toDataSourceRequest(request,
+              thirdEyeDataSource))
+          .thenApply(DataTable::getDataFrame);
+    } catch (final Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
   }
 
   public DataFrame getQueryResult(final CalciteRequest request, final String dataSource)
       throws Exception {
     final ThirdEyeDataSource thirdEyeDataSource = dataSourceCache.getDataSource(dataSource);
+    return thirdEyeDataSource.fetchDataTable(toDataSourceRequest(request, thirdEyeDataSource))
+        .getDataFrame();
+  }
+
+  private static DataSourceRequest toDataSourceRequest(final CalciteRequest request,
+      final ThirdEyeDataSource thirdEyeDataSource) {
     final String query = request.getSql(thirdEyeDataSource.getSqlLanguage(),
         thirdEyeDataSource.getSqlExpressionBuilder());
     // table info is only used with legacy Pinot client - should be removed
-    final DataSourceRequest requestV2 = new DataSourceRequest(null, query, Map.of());
-    return thirdEyeDataSource.fetchDataTable(requestV2).getDataFrame();
+    return new DataSourceRequest(null, query, Map.of());
   }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.sql.batch;
+
+import java.util.List;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A single query answering a list of sibling queries.
+ *
+ * Each row of the batch result belongs to the queries whose key values equal the values of the
+ * key columns of the row. When there are no key columns, all the queries are identical and the
+ * batch result is the result of every query.
+ */
+public class BatchQuery {
+
+  private final String query;
+  private final List<String> keyColumns;
+  private final List<List<String>> keys;
+  private final @Nullable Long itemLimit;
+  private final @Nullable Long limit;
+
+  public BatchQuery(final String query,
+      final List<String> keyColumns,
+      final List<List<String>> keys,
+      final @Nullable Long itemLimit,
+      final @Nullable Long limit) {
+    this.query = query;
+    this.keyColumns = keyColumns;
+    this.keys = keys;
+    this.itemLimit = itemLimit;
+    this.limit = limit;
+  }
+
+  /**
+   * The batch query. Not macro-processed.
+   */
+  public String getQuery() {
+    return query;
+  }
+
+  /**
+   * Names of the columns added to the batch query to identify the rows of each query.
+   */
+  public List<String> getKeyColumns() {
+    return keyColumns;
+  }
+
+  /**
+   * Key values of each query, in the order of the input queries.
+   */
+  public List<List<String>> getKeys() {
+    return keys;
+  }
+
+  /**
+   * Row limit of each query. Null if there is no limit.
+   */
+  public @Nullable Long getItemLimit() {
+    return itemLimit;
+  }
+
+  /**
+   * Row limit of the batch query. If the batch result reaches this size, it may be truncated
+   * and cannot be used to answer the queries.
+   */
+  public @Nullable Long getLimit() {
+    return limit;
+  }
+}
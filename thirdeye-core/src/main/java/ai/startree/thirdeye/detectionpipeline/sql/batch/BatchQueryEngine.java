@@ -0,0 +1,360 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.sql.batch;
+
+import static ai.startree.thirdeye.util.CalciteUtils.AND_OPERATOR;
+import static ai.startree.thirdeye.util.CalciteUtils.EQUALS_OPERATOR;
+import static ai.startree.thirdeye.util.CalciteUtils.IN_OPERATOR;
+import static ai.startree.thirdeye.util.CalciteUtils.OR_OPERATOR;
+import static ai.startree.thirdeye.util.CalciteUtils.addAlias;
+import static ai.startree.thirdeye.util.CalciteUtils.combinePredicates;
+import static ai.startree.thirdeye.util.CalciteUtils.nodeToQuery;
+import static ai.startree.thirdeye.util.CalciteUtils.numericLiteralOf;
+import static ai.startree.thirdeye.util.CalciteUtils.queryToNode;
+import static ai.startree.thirdeye.util.CalciteUtils.stringLiteralOf;
+
+import ai.startree.thirdeye.detectionpipeline.sql.SqlLanguageTranslator;
+import ai.startree.thirdeye.detectionpipeline.sql.filter.FilterEngine;
+import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import org.apache.calcite.sql.SqlBasicCall;
+import org.apache.calcite.sql.SqlCharStringLiteral;
+import org.apache.calcite.sql.SqlDialect;
+import org.apache.calcite.sql.SqlIdentifier;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.SqlLiteral;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.SqlNodeList;
+import org.apache.calcite.sql.SqlNumericLiteral;
+import org.apache.calcite.sql.SqlOrderBy;
+import org.apache.calcite.sql.SqlSelect;
+import org.apache.calcite.sql.parser.SqlParser;
+import org.apache.calcite.sql.parser.SqlParserPos;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * Merges sibling queries that only differ by equality filters into a single query.
+ *
+ * For instance, the queries
+ * <pre>
+ *   SELECT ts, SUM(m) FROM t WHERE __timeFilter(ts) AND country = 'US' GROUP BY ts LIMIT 100
+ *   SELECT ts, SUM(m) FROM t WHERE __timeFilter(ts) AND country = 'FR' GROUP BY ts LIMIT 100
+ * </pre>
+ * are merged into
+ * <pre>
+ *   SELECT ts, SUM(m), country AS __batchKey0 FROM t WHERE __timeFilter(ts)
+ *   AND country IN ('US', 'FR') GROUP BY ts, country LIMIT 200
+ * </pre>
+ *
+ * Only simple queries are batched: a single SELECT, possibly ordered and limited. Filters that
+ * vary between queries must be string equalities in the top level AND of the WHERE clause. When
+ * filters vary, the queries must have a GROUP BY and a LIMIT: the limit of the batch query is used
+ * to detect a truncated result. Identical queries are always batched.
+ */
+public class BatchQueryEngine {
+
+  public static final String KEY_COLUMN_PREFIX = "__batchKey";
+
+  private final SqlParser.Config sqlParserConfig;
+  private final SqlDialect sqlDialect;
+  private final List<String> queries;
+
+  public BatchQueryEngine(final SqlLanguage sqlLanguage, final List<String> queries) {
+    this.sqlParserConfig = SqlLanguageTranslator.translate(sqlLanguage.getSqlParserConfig());
+    this.sqlDialect = SqlLanguageTranslator.translate(sqlLanguage.getSqlDialect());
+    this.queries = queries;
+  }
+
+  /**
+   * @return the batch query, or empty if the queries cannot be merged.
+   */
+  public Optional<BatchQuery> prepareBatch() {
+    if (queries.isEmpty()) {
+      return Optional.empty();
+    }
+    if (queries.stream().distinct().count() == 1) {
+      return Optional.of(identicalQueriesBatch());
+    }
+
+    final List<ParsedQuery> parsedQueries = new ArrayList<>();
+    for (final String query : queries) {
+      final ParsedQuery parsed = ParsedQuery.parse(queryToNode(query, sqlParserConfig));
+      if (parsed == null) {
+        return Optional.empty();
+      }
+      parsedQueries.add(parsed);
+    }
+
+    /* queries must be identical once equality filters are removed */
+    final ParsedQuery first = parsedQueries.get(0);
+    final String template = first.template(sqlDialect);
+    for (final ParsedQuery parsed : parsedQueries) {
+      if (!parsed.equalityFilters.keySet().equals(first.equalityFilters.keySet())
+          || !Objects.equals(parsed.limit, first.limit)
+          || !parsed.template(sqlDialect).equals(template)) {
+        return Optional.empty();
+      }
+    }
+
+    final List<String> keyIdentifiers = first.equalityFilters.keySet().stream()
+        .filter(id -> parsedQueries.stream()
+            .map(p -> p.equalityFilters.get(id).getValueAs(String.class))
+            .distinct()
+            .count() > 1)
+        .collect(Collectors.toList());
+    if (keyIdentifiers.isEmpty()) {
+      return Optional.of(identicalQueriesBatch());
+    }
+    if (first.select.getGroup() == null || first.limit == null) {
+      return Optional.empty();
+    }
+    final List<List<String>> keys = parsedQueries.stream()
+        .map(p -> keyIdentifiers.stream()
+            .map(id -> p.equalityFilters.get(id).getValueAs(String.class))
+            .collect(Collectors.toList()))
+        .collect(Collectors.toList());
+    final Set<List<String>> distinctKeys = new LinkedHashSet<>(keys);
+    final long limit;
+    try {
+      limit = Math.multiplyExact(first.limit, distinctKeys.size());
+    } catch (final ArithmeticException e) {
+      return Optional.empty();
+    }
+
+    final String batchQuery = first.toBatchQuery(keyIdentifiers, distinctKeys, limit, sqlDialect);
+    final List<String> keyColumns = new ArrayList<>();
+    for (int i = 0; i < keyIdentifiers.size(); i++) {
+      keyColumns.add(KEY_COLUMN_PREFIX + i);
+    }
+    return Optional.of(new BatchQuery(batchQuery, keyColumns, keys, first.limit, limit));
+  }
+
+  private BatchQuery identicalQueriesBatch() {
+    return new BatchQuery(queries.get(0),
+        List.of(),
+        queries.stream().map(q -> List.<String>of()).collect(Collectors.toList()),
+        null,
+        null);
+  }
+
+  private static class ParsedQuery {
+
+    private final SqlSelect select;
+    private final @Nullable SqlNodeList orderList;
+    private final @Nullable Long limit;
+    /**
+     * identifier = 'string' filters of the top level AND, by identifier
+     */
+    private final Map<String, SqlLiteral> equalityFilters;
+    private final Map<String, SqlIdentifier> identifiers;
+    private final List<SqlNode> otherFilters;
+
+    private ParsedQuery(final SqlSelect select,
+        final @Nullable SqlNodeList orderList,
+        final @Nullable Long limit,
+        final Map<String, SqlLiteral> equalityFilters,
+        final Map<String, SqlIdentifier> identifiers,
+        final List<SqlNode> otherFilters) {
+      this.select = select;
+      this.orderList = orderList;
+      this.limit = limit;
+      this.equalityFilters = equalityFilters;
+      this.identifiers = identifiers;
+      this.otherFilters = otherFilters;
+    }
+
+    /**
+     * @return the parsed query, or null if the query is not supported.
+     */
+    private static @Nullable ParsedQuery parse(final SqlNode root) {
+      final SqlSelect select;
+      final SqlNodeList orderList;
+      final SqlNode fetch;
+      if (root instanceof SqlOrderBy) {
+        final SqlOrderBy orderBy = (SqlOrderBy) root;
+        if (!(orderBy.query instanceof SqlSelect) || orderBy.offset != null) {
+          return null;
+        }
+        select = (SqlSelect) orderBy.query;
+        orderList = orderBy.orderList;
+        fetch = orderBy.fetch;
+      } else if (root instanceof SqlSelect) {
+        select = (SqlSelect) root;
+        orderList = null;
+        fetch = null;
+      } else {
+        return null;
+      }
+      if (select.getOffset() != null || select.getFetch() != null
+          || select.getOrderList() != null) {
+        return null;
+      }
+      final Long limit;
+      if (fetch == null) {
+        limit = null;
+      } else if (fetch instanceof SqlNumericLiteral) {
+        limit = ((SqlNumericLiteral) fetch).longValue(true);
+      } else {
+        return null;
+      }
+
+      final Map<String, SqlLiteral> equalityFilters = new TreeMap<>();
+      final Map<String, SqlIdentifier> identifiers = new LinkedHashMap<>();
+      final List<SqlNode> otherFilters = new ArrayList<>();
+      for (final SqlNode conjunct : conjuncts(select.getWhere())) {
+        final SqlIdentifier identifier = equalityIdentifier(conjunct);
+        if (identifier == null) {
+          otherFilters.add(conjunct);
+          continue;
+        }
+        final String name = identifier.toString();
+        if (equalityFilters.containsKey(name)) {
+          return null;
+        }
+        equalityFilters.put(name, equalityLiteral(conjunct));
+        identifiers.put(name, identifier);
+      }
+      return new ParsedQuery(select, orderList, limit, equalityFilters, identifiers,
+          otherFilters);
+    }
+
+    private static List<SqlNode> conjuncts(final @Nullable SqlNode where) {
+      final List<SqlNode> conjuncts = new ArrayList<>();
+      if (where == null) {
+        return conjuncts;
+      }
+      if (where.getKind() == SqlKind.AND) {
+        for (final SqlNode operand : ((SqlBasicCall) where).getOperandList()) {
+          conjuncts.addAll(conjuncts(operand));
+        }
+      } else {
+        conjuncts.add(where);
+      }
+      return conjuncts;
+    }
+
+    private static @Nullable SqlIdentifier equalityIdentifier(final SqlNode conjunct) {
+      if (conjunct.getKind() != SqlKind.EQUALS) {
+        return null;
+      }
+      final List<SqlNode> operands = ((SqlBasicCall) conjunct).getOperandList();
+      if (operands.get(0) instanceof SqlIdentifier
+          && operands.get(1) instanceof SqlCharStringLiteral) {
+        return (SqlIdentifier) operands.get(0);
+      }
+      if (operands.get(1) instanceof SqlIdentifier
+          && operands.get(0) instanceof SqlCharStringLiteral) {
+        return (SqlIdentifier) operands.get(1);
+      }
+      return null;
+    }
+
+    private static SqlLiteral equalityLiteral(final SqlNode conjunct) {
+      final List<SqlNode> operands = ((SqlBasicCall) conjunct).getOperandList();
+      return (SqlLiteral) (operands.get(0) instanceof SqlLiteral ? operands.get(0)
+          : operands.get(1));
+    }
+
+    /**
+     * The query without the equality filters and the limit.
+     */
+    private String template(final SqlDialect sqlDialect) {
+      final SqlNode where = select.getWhere();
+      select.setWhere(combinePredicates(otherFilters));
+      final String template = nodeToQuery(withOrderAndLimit(null), sqlDialect,
+          FilterEngine.QUOTE_IDENTIFIERS);
+      select.setWhere(where);
+      return template;
+    }
+
+    private String toBatchQuery(final List<String> keyIdentifiers,
+        final Set<List<String>> distinctKeys,
+        final long batchLimit,
+        final SqlDialect sqlDialect) {
+      /* constant filters are kept */
+      final List<SqlNode> filters = new ArrayList<>(otherFilters);
+      equalityFilters.forEach((name, literal) -> {
+        if (!keyIdentifiers.contains(name)) {
+          filters.add(new SqlBasicCall(EQUALS_OPERATOR,
+              List.of(identifiers.get(name), literal),
+              SqlParserPos.ZERO));
+        }
+      });
+      filters.add(keyFilter(keyIdentifiers, distinctKeys));
+      select.setWhere(combinePredicates(filters));
+
+      final SqlNodeList selectList = SqlNodeList.of(SqlParserPos.ZERO,
+          new ArrayList<>(select.getSelectList().getList()));
+      final SqlNodeList groupBy = SqlNodeList.of(SqlParserPos.ZERO,
+          new ArrayList<>(Objects.requireNonNull(select.getGroup()).getList()));
+      for (int i = 0; i < keyIdentifiers.size(); i++) {
+        final SqlIdentifier identifier = identifiers.get(keyIdentifiers.get(i));
+        selectList.add(addAlias(identifier, KEY_COLUMN_PREFIX + i));
+        groupBy.add(identifier);
+      }
+      select.setSelectList(selectList);
+      select.setGroupBy(groupBy);
+
+      return nodeToQuery(withOrderAndLimit(numericLiteralOf(batchLimit)), sqlDialect,
+          FilterEngine.QUOTE_IDENTIFIERS);
+    }
+
+    private SqlNode keyFilter(final List<String> keyIdentifiers,
+        final Set<List<String>> distinctKeys) {
+      if (keyIdentifiers.size() == 1) {
+        final List<SqlNode> values = distinctKeys.stream()
+            .map(k -> stringLiteralOf(k.get(0)))
+            .collect(Collectors.toList());
+        return new SqlBasicCall(IN_OPERATOR,
+            List.of(identifiers.get(keyIdentifiers.get(0)),
+                SqlNodeList.of(SqlParserPos.ZERO, values)),
+            SqlParserPos.ZERO);
+      }
+      SqlNode keyFilter = null;
+      for (final List<String> key : distinctKeys) {
+        SqlNode keyPredicate = null;
+        for (int i = 0; i < keyIdentifiers.size(); i++) {
+          final SqlNode equality = new SqlBasicCall(EQUALS_OPERATOR,
+              List.of(identifiers.get(keyIdentifiers.get(i)), stringLiteralOf(key.get(i))),
+              SqlParserPos.ZERO);
+          keyPredicate = keyPredicate == null ? equality
+              : new SqlBasicCall(AND_OPERATOR, List.of(keyPredicate, equality), SqlParserPos.ZERO);
+        }
+        keyFilter = keyFilter == null ? keyPredicate
+            : new SqlBasicCall(OR_OPERATOR, List.of(keyFilter, keyPredicate), SqlParserPos.ZERO);
+      }
+      return keyFilter;
+    }
+
+    private SqlNode withOrderAndLimit(final @Nullable SqlNode fetch) {
+      if (orderList == null && fetch == null) {
+        return select;
+      }
+      return new SqlOrderBy(SqlParserPos.ZERO,
+          select,
+          orderList == null ? SqlNodeList.EMPTY : orderList,
+          null,
+          fetch);
+    }
+  }
+}
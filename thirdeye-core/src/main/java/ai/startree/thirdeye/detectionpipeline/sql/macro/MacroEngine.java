@@ -81,6 +81,15 @@ public class MacroEngine {
     }
   }
 
+  /**
+   * Filters the time filter macro on the given interval instead of the detection interval minus
+   * the lookbacks.
+   */
+  public MacroEngine setTimeFilterInterval(final Interval timeFilterInterval) {
+    macroFunctionContext.setTimeFilterInterval(timeFilterInterval);
+    return this;
+  }
+
   public DataSourceRequest prepareRequest() {
     final SqlNode rootNode = queryToNode(query, sqlParserConfig);
     final SqlNode appliedMacrosNode = applyMacros(rootNode);
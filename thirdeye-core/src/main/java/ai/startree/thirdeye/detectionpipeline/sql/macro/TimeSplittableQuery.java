@@ -0,0 +1,199 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.sql.macro;
+
+import static ai.startree.thirdeye.util.CalciteUtils.queryToNode;
+
+import ai.startree.thirdeye.detectionpipeline.sql.SqlLanguageTranslator;
+import ai.startree.thirdeye.detectionpipeline.sql.macro.function.TimeFilterFunction;
+import ai.startree.thirdeye.detectionpipeline.sql.macro.function.TimeGroupFunction;
+import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.apache.calcite.sql.SqlBasicCall;
+import org.apache.calcite.sql.SqlCall;
+import org.apache.calcite.sql.SqlIdentifier;
+import org.apache.calcite.sql.SqlKind;
+import org.apache.calcite.sql.SqlNode;
+import org.apache.calcite.sql.SqlNodeList;
+import org.apache.calcite.sql.SqlNumericLiteral;
+import org.apache.calcite.sql.SqlOrderBy;
+import org.apache.calcite.sql.SqlSelect;
+import org.apache.calcite.sql.util.SqlBasicVisitor;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * A query whose result can be computed by running it on consecutive sub ranges of its time
+ * filter and concatenating the results in time order.
+ *
+ * This is the case of a single SELECT that filters with a single {@code __timeFilter} macro and
+ * groups by a {@code __timeGroup} macro: every output row belongs to a single time bucket. For
+ * instance
+ * <pre>
+ *   SELECT __timeGroup(ts, 'EPOCH_MILLIS', 'PT1H') AS ts, SUM(m) AS met FROM t
+ *   WHERE __timeFilter(ts, 'EPOCH_MILLIS') GROUP BY ts ORDER BY ts LIMIT 1000
+ * </pre>
+ * The query can only be ordered by the time bucket. Sub queries and window functions are not
+ * supported.
+ */
+public class TimeSplittableQuery {
+
+  private static final String TIME_FILTER = new TimeFilterFunction().name();
+  private static final String TIME_GROUP = new TimeGroupFunction().name();
+
+  /**
+   * Output column of the time bucket.
+   */
+  private final String timeColumn;
+  private final @Nullable Long limit;
+
+  private TimeSplittableQuery(final String timeColumn, final @Nullable Long limit) {
+    this.timeColumn = timeColumn;
+    this.limit = limit;
+  }
+
+  /**
+   * @return the query, or empty if it cannot be split by time.
+   */
+  public static Optional<TimeSplittableQuery> parse(final SqlLanguage sqlLanguage,
+      final String query) {
+    final SqlNode root;
+    try {
+      root = queryToNode(query,
+          SqlLanguageTranslator.translate(sqlLanguage.getSqlParserConfig()));
+    } catch (final RuntimeException e) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(parse(root));
+  }
+
+  private static @Nullable TimeSplittableQuery parse(final SqlNode root) {
+    final SqlSelect select;
+    final SqlNodeList orderList;
+    final SqlNode fetch;
+    if (root instanceof SqlOrderBy) {
+      final SqlOrderBy orderBy = (SqlOrderBy) root;
+      if (!(orderBy.query instanceof SqlSelect) || orderBy.offset != null) {
+        return null;
+      }
+      select = (SqlSelect) orderBy.query;
+      orderList = orderBy.orderList;
+      fetch = orderBy.fetch;
+    } else if (root instanceof SqlSelect) {
+      select = (SqlSelect) root;
+      orderList = select.getOrderList();
+      fetch = select.getFetch();
+    } else {
+      return null;
+    }
+    if (select.getOffset() != null || select.getGroup() == null
+        || !(select.getFrom() instanceof SqlIdentifier)) {
+      return null;
+    }
+    final Long limit;
+    if (fetch == null) {
+      limit = null;
+    } else if (fetch instanceof SqlNumericLiteral) {
+      limit = ((SqlNumericLiteral) fetch).longValue(true);
+    } else {
+      return null;
+    }
+
+    final MacroCallCollector collector = new MacroCallCollector();
+    root.accept(collector);
+    if (collector.unsupported
+        || collector.timeFilterCount != 1
+        || collector.timeGroups.size() != 1) {
+      return null;
+    }
+
+    /* the time bucket must be an aliased output column */
+    String timeColumn = null;
+    for (final SqlNode selectItem : select.getSelectList()) {
+      if (selectItem.getKind() == SqlKind.AS) {
+        final List<SqlNode> operands = ((SqlBasicCall) selectItem).getOperandList();
+        if (isTimeGroup(operands.get(0))) {
+          timeColumn = operands.get(1).toString();
+        }
+      }
+    }
+    if (timeColumn == null) {
+      return null;
+    }
+
+    /* the query must group by the time bucket */
+    boolean groupedByTime = false;
+    for (final SqlNode groupItem : select.getGroup()) {
+      groupedByTime |= isTimeGroup(groupItem) || isIdentifier(groupItem, timeColumn);
+    }
+    if (!groupedByTime) {
+      return null;
+    }
+
+    /* concatenated results are ordered by time only */
+    if (orderList != null) {
+      for (final SqlNode orderItem : orderList) {
+        if (!isTimeGroup(orderItem) && !isIdentifier(orderItem, timeColumn)) {
+          return null;
+        }
+      }
+    }
+    return new TimeSplittableQuery(timeColumn, limit);
+  }
+
+  private static boolean isTimeGroup(final SqlNode node) {
+    return node instanceof SqlCall && isMacro((SqlCall) node, TIME_GROUP);
+  }
+
+  private static boolean isIdentifier(final SqlNode node, final String name) {
+    return node instanceof SqlIdentifier && node.toString().equals(name);
+  }
+
+  private static boolean isMacro(final SqlCall call, final String macroName) {
+    return call.getOperator().getKind() == SqlKind.OTHER_FUNCTION
+        && call.getOperator().getName().equals(macroName);
+  }
+
+  public String getTimeColumn() {
+    return timeColumn;
+  }
+
+  public @Nullable Long getLimit() {
+    return limit;
+  }
+
+  private static class MacroCallCollector extends SqlBasicVisitor<Void> {
+
+    private final Set<String> timeGroups = new HashSet<>();
+    private int selectCount = 0;
+    private int timeFilterCount = 0;
+    private boolean unsupported = false;
+
+    @Override
+    public Void visit(final SqlCall call) {
+      if (call instanceof SqlSelect) {
+        unsupported |= ++selectCount > 1;
+      }
+      unsupported |= call.getKind() == SqlKind.OVER;
+      if (isMacro(call, TIME_FILTER)) {
+        timeFilterCount++;
+      } else if (isMacro(call, TIME_GROUP)) {
+        timeGroups.add(call.toString());
+      }
+      return super.visit(call);
+    }
+  }
+}
@@ -62,10 +62,15 @@ public class TimeFilterFunction implements MacroFunction {
 
     // compute timeLimits
     final Interval detectionInterval = context.getDetectionInterval();
-    final DateTime filterLowerBound = detectionInterval.getStart()
-        .minus(isoPeriod(lookbackFromStart));
-    final DateTime filterUpperBound = detectionInterval.getEnd()
-        .minus(isoPeriod(lookbackFromEnd));
+    final DateTime filterLowerBound;
+    final DateTime filterUpperBound;
+    if (context.getTimeFilterInterval() != null) {
+      filterLowerBound = context.getTimeFilterInterval().getStart();
+      filterUpperBound = context.getTimeFilterInterval().getEnd();
+    } else {
+      filterLowerBound = detectionInterval.getStart().minus(isoPeriod(lookbackFromStart));
+      filterUpperBound = detectionInterval.getEnd().minus(isoPeriod(lookbackFromEnd));
+    }
     final Interval filterInterval = new Interval(filterLowerBound, filterUpperBound);
 
     //write time limits to metadata
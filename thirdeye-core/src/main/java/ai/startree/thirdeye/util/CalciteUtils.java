@@ -47,6 +47,13 @@ public class CalciteUtils {
       null,
       null,
       null);
+  public static final SqlOperator OR_OPERATOR = new SqlBinaryOperator(SqlKind.OR.sql,
+      SqlKind.OR,
+      0,
+      true,
+      null,
+      null,
+      null);
   public static final SqlOperator EQUALS_OPERATOR = new SqlBinaryOperator(SqlKind.EQUALS.sql,
       SqlKind.EQUALS,
       0,
@@ -14,10 +14,14 @@
 package ai.startree.thirdeye.util;
 
 import ai.startree.thirdeye.spi.datalayer.Templatable;
-import com.fasterxml.jackson.databind.Module;
+import com.codahale.metrics.Timer;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import groovy.text.SimpleTemplateEngine;
+import groovy.text.Template;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
@@ -26,22 +30,98 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
 
+/**
+ * Renders groovy string templates.
+ *
+ * Compiling a groovy template generates a new class. Compiled templates are cached by text, so a
+ * text rendered many times with different contexts, for instance for each enumeration item, is
+ * compiled once. Each template is compiled by its own engine, so that the class can be unloaded
+ * once the template is evicted from the cache. Texts without template expressions are not compiled
+ * at all.
+ */
 public class StringTemplateUtils {
 
-  private static final SimpleTemplateEngine GROOVY_TEMPLATE_ENGINE = new SimpleTemplateEngine();
   private static final SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd");
+  private static final int COMPILED_TEMPLATES_MAX_SIZE = 1000;
+  /**
+   * Compiled templates by text.
+   */
+  private static final Cache<String, Template> COMPILED_TEMPLATES = CacheBuilder.newBuilder()
+      .maximumSize(COMPILED_TEMPLATES_MAX_SIZE)
+      .build();
+  /**
+   * Renders the strings and the {@link Templatable} fields with the context given as writer
+   * attributes.
+   */
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper().registerModule(
+      new SimpleModule()
+          .addSerializer(Templatable.class, new TemplateEngineTemplatableSerializer())
+          .addSerializer(String.class, new TemplateEngineStringSerializer(false))
+          .addKeySerializer(String.class, new TemplateEngineStringSerializer(true)));
+
+  public static final Timer COMPILE_TIMER = new Timer();
+  public static final Timer RENDER_TIMER = new Timer();
 
   static {
     DATE_FORMAT.setTimeZone(TimeZone.getTimeZone("UTC"));
-    GROOVY_TEMPLATE_ENGINE.setEscapeBackslash(true);
   }
 
   public static String renderTemplate(final String template, final Map<String, Object> newContext)
       throws IOException, ClassNotFoundException {
-    final Map<String, Object> contextMap = getDefaultContextMap();
-    contextMap.putAll(newContext);
-    return GROOVY_TEMPLATE_ENGINE.createTemplate(template).make(contextMap).toString();
+    return render(template, contextMap(newContext));
+  }
+
+  /**
+   * @param contextMap values of the template properties, default values included. See {@link
+   *     #contextMap(Map)}
+   */
+  static String render(final String text, final Map<String, Object> contextMap)
+      throws IOException, ClassNotFoundException {
+    if (!hasTemplateExpression(text)) {
+      return text;
+    }
+    final Template compiledTemplate = compileCached(text);
+    try (final Timer.Context ignored = RENDER_TIMER.time()) {
+      return compiledTemplate.make(contextMap).toString();
+    }
+  }
+
+  /**
+   * Groovy templates expressions start with $ or &lt;%. Other characters are rendered as is.
+   */
+  private static boolean hasTemplateExpression(final String template) {
+    return template.indexOf('$') >= 0 || template.contains("<%");
+  }
+
+  private static Template compileCached(final String text)
+      throws IOException, ClassNotFoundException {
+    try {
+      return COMPILED_TEMPLATES.get(text, () -> compile(text));
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      if (e.getCause() instanceof ClassNotFoundException) {
+        throw (ClassNotFoundException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private static Template compile(final String text) throws IOException, ClassNotFoundException {
+    // a new engine has its own class loader: the class is unloaded with the template
+    final SimpleTemplateEngine engine = new SimpleTemplateEngine(
+        StringTemplateUtils.class.getClassLoader());
+    engine.setEscapeBackslash(true);
+    try (final Timer.Context ignored = COMPILE_TIMER.time()) {
+      return engine.createTemplate(text);
+    }
+  }
+
+  public static long compiledTemplatesCount() {
+    return COMPILED_TEMPLATES.size();
   }
 
   /**
@@ -58,15 +138,26 @@ public class StringTemplateUtils {
     return defaultContextMap;
   }
 
+  private static Map<String, Object> contextMap(final Map<String, Object> newContext) {
+    final Map<String, Object> contextMap = getDefaultContextMap();
+    contextMap.putAll(newContext);
+    return contextMap;
+  }
+
+  /**
+   * Renders the strings of the template and replaces its {@link Templatable} fields by their
+   * value. Templatable values are not rendered.
+   */
   @SuppressWarnings("unchecked")
   public static <T> T applyContext(final T template,
       final Map<String, Object> valuesMap)
       throws IOException, ClassNotFoundException {
-
-    final Module module = new SimpleModule().addSerializer(Templatable.class, new TemplateEngineTemplatableSerializer(valuesMap));
-    final ObjectMapper objectMapper = new ObjectMapper().registerModule(module);
-
-    final String jsonString = objectMapper.writeValueAsString(template);
-    return (T) objectMapper.readValue(renderTemplate(jsonString, valuesMap), template.getClass());
+    final TokenBuffer buffer = new TokenBuffer(OBJECT_MAPPER, false);
+    OBJECT_MAPPER.writer()
+        .withAttribute(TemplateEngineTemplatableSerializer.VALUES_MAP_ATTRIBUTE, valuesMap)
+        .withAttribute(TemplateEngineStringSerializer.CONTEXT_MAP_ATTRIBUTE,
+            contextMap(valuesMap))
+        .writeValue(buffer, template);
+    return (T) OBJECT_MAPPER.readValue(buffer.asParser(), template.getClass());
   }
 }
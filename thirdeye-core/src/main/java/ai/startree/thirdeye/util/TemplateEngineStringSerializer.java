@@ -0,0 +1,68 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * This serializer renders strings with the groovy template engine.
+ * Do not use for API or persistence.
+ *
+ * The context map is given per call as the {@link #CONTEXT_MAP_ATTRIBUTE} attribute of the
+ * ObjectWriter. Strings are written as is if there is no context map.
+ */
+public class TemplateEngineStringSerializer extends JsonSerializer<String> {
+
+  public static final String CONTEXT_MAP_ATTRIBUTE = "templateContextMap";
+
+  private final boolean fieldName;
+
+  /**
+   * @param fieldName true to serialize map keys
+   */
+  public TemplateEngineStringSerializer(final boolean fieldName) {
+    this.fieldName = fieldName;
+  }
+
+  @Override
+  public void serialize(final String value, final JsonGenerator jsonGenerator,
+      final SerializerProvider serializerProvider) throws IOException {
+    final String rendered = render(value, serializerProvider);
+    if (fieldName) {
+      jsonGenerator.writeFieldName(rendered);
+    } else {
+      jsonGenerator.writeString(rendered);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static String render(final String value, final SerializerProvider serializerProvider)
+      throws IOException {
+    final Object contextMap = serializerProvider.getAttribute(CONTEXT_MAP_ATTRIBUTE);
+    if (contextMap == null) {
+      return value;
+    }
+    try {
+      return StringTemplateUtils.render(value, (Map<String, Object>) contextMap);
+    } catch (final ClassNotFoundException e) {
+      throw JsonMappingException.from(serializerProvider, "Could not compile template: " + value,
+          e);
+    }
+  }
+}
@@ -26,12 +26,25 @@ import org.checkerframework.checker.nullness.qual.Nullable;
 /**
  * This serializer can be used to apply template properties on {@link Templatable} fields.
  * Do not use for API or persistence.
+ *
+ * The values map is either given at construction, or given per call as the
+ * {@link #VALUES_MAP_ATTRIBUTE} attribute of the ObjectWriter, so that a single ObjectMapper can
+ * be shared.
+ *
+ * Values are written as is: the strings they contain are not rendered by
+ * {@link TemplateEngineStringSerializer}.
  */
 public class TemplateEngineTemplatableSerializer extends JsonSerializer<Templatable> {
 
-  private final Map<String, Object> valuesMap;
+  public static final String VALUES_MAP_ATTRIBUTE = "templatableValuesMap";
+
+  private final @Nullable Map<String, Object> valuesMap;
+
+  public TemplateEngineTemplatableSerializer() {
+    this(null);
+  }
 
-  public TemplateEngineTemplatableSerializer(final Map<String, Object> valuesMap) {
+  public TemplateEngineTemplatableSerializer(final @Nullable Map<String, Object> valuesMap) {
     this.valuesMap = valuesMap;
   }
 
@@ -40,15 +53,37 @@ public class TemplateEngineTemplatableSerializer extends JsonSerializer<Templata
       final SerializerProvider serializerProvider) throws IOException {
     final String templatedValue = templatable.templatedValue();
     if (templatedValue != null) {
+      final Map<String, Object> valuesMap = valuesMap(serializerProvider);
       final String property = templatedValue.substring(2, templatedValue.length() - 1);
       checkArgument(valuesMap.containsKey(property), "Property not provided for templatable value: %s", property);
       final @Nullable Object value = valuesMap.get(property);
-      jsonGenerator.writeObject(Templatable.of(value));
+      final Object contextMap = serializerProvider.getAttribute(
+          TemplateEngineStringSerializer.CONTEXT_MAP_ATTRIBUTE);
+      serializerProvider.setAttribute(TemplateEngineStringSerializer.CONTEXT_MAP_ATTRIBUTE, null);
+      try {
+        serializerProvider.defaultSerializeValue(Templatable.of(value), jsonGenerator);
+      } finally {
+        serializerProvider.setAttribute(TemplateEngineStringSerializer.CONTEXT_MAP_ATTRIBUTE,
+            contextMap);
+      }
     } else {
       // cannot call writeObject --> this would create an infinite recursive loop
+      // values are written with the serializerProvider to keep the writer attributes
       jsonGenerator.writeStartObject();
-      jsonGenerator.writeObjectField(Templatable.VALUE_FIELD_STRING,  templatable.value());
+      serializerProvider.defaultSerializeField(Templatable.VALUE_FIELD_STRING,
+          templatable.value(),
+          jsonGenerator);
       jsonGenerator.writeEndObject();
     }
   }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Object> valuesMap(final SerializerProvider serializerProvider) {
+    if (valuesMap != null) {
+      return valuesMap;
+    }
+    final Object attribute = serializerProvider.getAttribute(VALUES_MAP_ATTRIBUTE);
+    checkArgument(attribute instanceof Map, "Template values map not provided to the serializer");
+    return (Map<String, Object>) attribute;
+  }
 }
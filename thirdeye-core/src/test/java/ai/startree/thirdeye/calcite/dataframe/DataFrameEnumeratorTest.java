@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.calcite.dataframe;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.apache.calcite.sql.SqlKind;
+import org.testng.annotations.Test;
+
+public class DataFrameEnumeratorTest {
+
+  private static List<Object[]> scan(final DataFrame dataFrame, final DataFrameScanFilter filter,
+      final int[] projects) {
+    final DataFrameEnumerator enumerator = new DataFrameEnumerator(dataFrame,
+        new AtomicBoolean(false), filter, projects);
+    final List<Object[]> rows = new ArrayList<>();
+    while (enumerator.moveNext()) {
+      rows.add(enumerator.current());
+    }
+    return rows;
+  }
+
+  private static DataFrame dataFrame(final long... timestamps) {
+    final DataFrame dataFrame = new DataFrame();
+    dataFrame.addSeries("ts", timestamps);
+    final double[] values = new double[timestamps.length];
+    for (int i = 0; i < values.length; i++) {
+      values[i] = i;
+    }
+    dataFrame.addSeries("value", values);
+    return dataFrame;
+  }
+
+  @Test
+  public void testSortedTimeRange() {
+    final DataFrameScanFilter filter = new DataFrameScanFilter(2);
+    filter.addLongRange(0, SqlKind.GREATER_THAN_OR_EQUAL, 20L);
+    filter.addLongRange(0, SqlKind.LESS_THAN, 40L);
+
+    final DataFrame sorted = dataFrame(0L, 10L, 20L, 30L, 40L, 50L);
+    assertThat(filter.rowRange(new ArrayList<>(sorted.getSeries().values()), sorted.size()))
+        .containsExactly(2, 4);
+    assertThat(scan(sorted, filter, new int[]{1}))
+        .containsExactly(new Object[]{2.0}, new Object[]{3.0});
+  }
+
+  @Test
+  public void testUnsortedTimeRange() {
+    final DataFrameScanFilter filter = new DataFrameScanFilter(2);
+    filter.addLongRange(0, SqlKind.GREATER_THAN, 20L);
+    filter.addLongRange(0, SqlKind.LESS_THAN_OR_EQUAL, 40L);
+
+    final DataFrame unsorted = dataFrame(40L, 10L, 30L, 20L, 50L);
+    assertThat(filter.rowRange(new ArrayList<>(unsorted.getSeries().values()), unsorted.size()))
+        .containsExactly(0, 5);
+    assertThat(scan(unsorted, filter, new int[]{0, 1}))
+        .containsExactly(new Object[]{40L, 0.0}, new Object[]{30L, 2.0});
+  }
+
+  @Test
+  public void testEmptyRange() {
+    final DataFrameScanFilter filter = new DataFrameScanFilter(2);
+    filter.addLongRange(0, SqlKind.GREATER_THAN, Long.MAX_VALUE);
+
+    assertThat(scan(dataFrame(0L, 10L), filter, null)).isEmpty();
+  }
+}
@@ -15,8 +15,12 @@ package ai.startree.thirdeye.calcite.dataframe;
 
 
 import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
 import ai.startree.thirdeye.spi.detection.v2.DataTable;
 import ai.startree.thirdeye.util.ThirdEyeUtils;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
 import com.google.common.collect.ImmutableMap;
 import java.sql.Connection;
 import java.sql.DriverManager;
@@ -27,6 +31,7 @@ import java.util.Map;
 import java.util.Properties;
 import org.apache.calcite.jdbc.CalciteConnection;
 import org.apache.calcite.schema.SchemaPlus;
+import org.apache.calcite.util.trace.CalciteTrace;
 import org.testng.Assert;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
@@ -84,6 +89,83 @@ public class DataFrameSchemaTest {
     Assert.assertEquals(outputDf, expectedDf);
   }
 
+  @Test
+  public void testRangePredicatePushdown() throws Exception {
+    final Connection connection = getConnection(
+        new DataFrameSchema(ImmutableMap.of("types_table", dataFrame)), properties);
+    final Statement statement = connection.createStatement();
+    final String query = "select double_column, str_column "
+        + "from types_table "
+        + "where long_column >= 1568549798000 "
+        + "AND 1570095890000 > long_column "
+        + "AND double_column > 1.2";
+
+    final ResultSet plan = statement.executeQuery("explain plan for " + query);
+    plan.next();
+    // filters and projection are applied by the table scan
+    Assert.assertTrue(plan.getString(1).contains(
+        "DataFrameTableScan(table=[[root_schema, types_table]], filters="));
+    Assert.assertFalse(plan.getString(1).contains("Filter("));
+
+    final DataFrame outputDf = ThirdEyeUtils.getDataTableFromResultSet(
+        statement.executeQuery(query)).getDataFrame();
+    final DataFrame expectedDf = new DataFrame();
+    expectedDf.addSeries("double_column", 1.3D);
+    expectedDf.addSeries("str_column", "PLACED");
+    Assert.assertEquals(outputDf, expectedDf);
+  }
+
+  @Test
+  public void testPredicatePushdownPlansWithPlannerChecks() throws Exception {
+    // at DEBUG, the Volcano planner checks the costs of the plans it considers
+    final Logger plannerLogger = (Logger) CalciteTrace.getPlannerTracer();
+    final Level level = plannerLogger.getLevel();
+    plannerLogger.setLevel(Level.DEBUG);
+    try {
+      final Connection connection = getConnection(
+          new DataFrameSchema(ImmutableMap.of("types_table", dataFrame)), properties);
+      final Statement statement = connection.createStatement();
+      final String query = "select str_column "
+          + "from types_table "
+          + "where long_column >= 1568549798000 "
+          + "AND double_column > 1.2 "
+          + "AND double_column * 2 < 2.7";
+
+      final DataFrame outputDf = ThirdEyeUtils.getDataTableFromResultSet(
+          statement.executeQuery(query)).getDataFrame();
+      final DataFrame expectedDf = new DataFrame();
+      expectedDf.addSeries("str_column", "PLACED");
+      Assert.assertEquals(outputDf, expectedDf);
+    } finally {
+      plannerLogger.setLevel(level);
+    }
+  }
+
+  @Test
+  public void testNullsDoNotMatchPredicates() throws Exception {
+    final DataFrame df = new DataFrame();
+    df.addSeries("long_column", LongSeries.buildFrom(1L, LongSeries.NULL, 3L));
+    df.addSeries("double_column", DoubleSeries.buildFrom(1D, 2D, DoubleSeries.NULL));
+    final Connection connection = getConnection(
+        new DataFrameSchema(ImmutableMap.of("null_table", df)), properties);
+
+    final ResultSet resultSet = connection.createStatement().executeQuery(
+        "select long_column from null_table where long_column < 10 AND double_column >= 0");
+    final DataFrame outputDf = ThirdEyeUtils.getDataTableFromResultSet(resultSet)
+        .getDataFrame();
+    final DataFrame expectedDf = new DataFrame();
+    expectedDf.addSeries("long_column", 1L);
+    Assert.assertEquals(outputDf, expectedDf);
+
+    final ResultSet notNullResultSet = connection.createStatement().executeQuery(
+        "select long_column from null_table where long_column is not null");
+    final DataFrame notNullDf = ThirdEyeUtils.getDataTableFromResultSet(notNullResultSet)
+        .getDataFrame();
+    final DataFrame expectedNotNullDf = new DataFrame();
+    expectedNotNullDf.addSeries("long_column", 1L, 3L);
+    Assert.assertEquals(notNullDf, expectedNotNullDf);
+  }
+
   @Test
   public void testMultipleTables() throws Exception {
     // test importing multiple dataframe as SQL tables
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.datasource.DataSourcesLoader;
+import ai.startree.thirdeye.spi.ThirdEyeException;
+import ai.startree.thirdeye.spi.datalayer.bao.DataSourceManager;
+import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
+import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
+import com.codahale.metrics.MetricRegistry;
+import java.sql.Timestamp;
+import java.util.List;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class DataSourceCacheTest {
+
+  private static final String NAME = "pinot";
+
+  private DataSourceManager dataSourceManager;
+  private DataSourcesLoader dataSourcesLoader;
+  private DataSourceCache dataSourceCache;
+
+  private static DataSourceDTO dataSource(final long updateTime) {
+    final DataSourceDTO dto = new DataSourceDTO().setName(NAME);
+    dto.setUpdateTime(new Timestamp(updateTime));
+    return dto;
+  }
+
+  @BeforeMethod
+  public void setUp() {
+    dataSourceManager = mock(DataSourceManager.class);
+    dataSourcesLoader = mock(DataSourcesLoader.class);
+    when(dataSourcesLoader.loadDataSource(any())).then(i -> mock(ThirdEyeDataSource.class));
+    dataSourceCache = new DataSourceCache(dataSourceManager, dataSourcesLoader,
+        new MetricRegistry());
+  }
+
+  @Test
+  public void testCachedDataSourceDoesNotQueryTheDatabase() {
+    when(dataSourceManager.findByPredicate(any())).thenReturn(List.of(dataSource(1000L)));
+
+    final ThirdEyeDataSource first = dataSourceCache.getDataSource(NAME);
+    final ThirdEyeDataSource second = dataSourceCache.getDataSource(NAME);
+
+    assertThat(second).isSameAs(first);
+    verify(dataSourceManager, times(1)).findByPredicate(any());
+    verify(dataSourcesLoader, times(1)).loadDataSource(any());
+  }
+
+  @Test
+  public void testRefreshEvictsUpdatedDataSource() {
+    when(dataSourceManager.findByPredicate(any())).thenReturn(List.of(dataSource(1000L)));
+    final ThirdEyeDataSource first = dataSourceCache.getDataSource(NAME);
+
+    // unchanged: kept
+    when(dataSourceManager.findAll()).thenReturn(List.of(dataSource(1000L)));
+    dataSourceCache.refresh();
+    assertThat(dataSourceCache.getDataSource(NAME)).isSameAs(first);
+
+    // updated: reloaded
+    when(dataSourceManager.findAll()).thenReturn(List.of(dataSource(2000L)));
+    when(dataSourceManager.findByPredicate(any())).thenReturn(List.of(dataSource(2000L)));
+    dataSourceCache.refresh();
+    assertThat(dataSourceCache.getDataSource(NAME)).isNotSameAs(first);
+    verify(dataSourcesLoader, times(2)).loadDataSource(any());
+  }
+
+  @Test
+  public void testRefreshEvictsDeletedDataSource() {
+    when(dataSourceManager.findByPredicate(any())).thenReturn(List.of(dataSource(1000L)));
+    dataSourceCache.getDataSource(NAME);
+
+    when(dataSourceManager.findAll()).thenReturn(List.of());
+    when(dataSourceManager.findByPredicate(any())).thenReturn(List.of());
+    dataSourceCache.refresh();
+
+    assertThatThrownBy(() -> dataSourceCache.getDataSource(NAME))
+        .isInstanceOf(ThirdEyeException.class);
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.CompletableFuture;
+import org.testng.annotations.Test;
+
+public class QueryPermitsTest {
+
+  @Test
+  public void testWaitersAreGrantedInOrder() {
+    final QueryPermits permits = new QueryPermits(1);
+    final CompletableFuture<Void> first = permits.acquire();
+    final CompletableFuture<Void> second = permits.acquire();
+    final CompletableFuture<Void> third = permits.acquire();
+    assertThat(first).isDone();
+    assertThat(second).isNotDone();
+
+    permits.release();
+    assertThat(second).isDone();
+    assertThat(third).isNotDone();
+
+    permits.release();
+    assertThat(third).isDone();
+    permits.release();
+    assertThat(permits.acquire()).isDone();
+  }
+
+  @Test
+  public void testCancelledWaiterIsSkipped() {
+    final QueryPermits permits = new QueryPermits(1);
+    permits.acquire();
+    final CompletableFuture<Void> cancelled = permits.acquire();
+    final CompletableFuture<Void> waiting = permits.acquire();
+    cancelled.cancel(false);
+
+    permits.release();
+    assertThat(waiting).isDone();
+    assertThat(waiting).isNotCancelled();
+  }
+}
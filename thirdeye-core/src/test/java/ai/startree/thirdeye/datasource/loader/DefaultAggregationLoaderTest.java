@@ -0,0 +1,136 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datasource.loader;
+
+import static ai.startree.thirdeye.spi.datasource.loader.AggregationLoader.COL_DIMENSION_NAME;
+import static ai.startree.thirdeye.spi.datasource.loader.AggregationLoader.COL_DIMENSION_VALUE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import ai.startree.thirdeye.spi.Constants;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class DefaultAggregationLoaderTest {
+
+  private ExecutorService executorService;
+
+  @BeforeClass
+  public void setUp() {
+    executorService = Executors.newFixedThreadPool(16);
+  }
+
+  @AfterClass
+  public void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testFetchAllRunsAtMostMaxConcurrentQueries() throws Exception {
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final List<Supplier<CompletableFuture<Integer>>> queries = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      final int result = i;
+      queries.add(() -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        try {
+          Thread.sleep(10);
+        } catch (final InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        running.decrementAndGet();
+        return CompletableFuture.completedFuture(result);
+      });
+    }
+
+    final List<Integer> results = DefaultAggregationLoader.fetchAll(queries, 3, 10_000,
+        executorService);
+
+    assertThat(maxRunning.get()).isLessThanOrEqualTo(3);
+    assertThat(results).hasSize(20);
+    for (int i = 0; i < 20; i++) {
+      assertThat(results.get(i)).isEqualTo(i);
+    }
+  }
+
+  @Test
+  public void testFetchAllCancelsQueriesOnTimeout() {
+    final CompletableFuture<Integer> neverCompletes = new CompletableFuture<>();
+    final AtomicBoolean secondQueryStarted = new AtomicBoolean(false);
+    final List<Supplier<CompletableFuture<Integer>>> queries = List.of(
+        () -> neverCompletes,
+        () -> {
+          secondQueryStarted.set(true);
+          return CompletableFuture.completedFuture(1);
+        });
+
+    assertThatThrownBy(() -> DefaultAggregationLoader.fetchAll(queries, 1, 100, executorService))
+        .isInstanceOf(TimeoutException.class);
+    assertThat(neverCompletes).isCancelled();
+    assertThat(secondQueryStarted).isFalse();
+  }
+
+  @Test
+  public void testFetchAllStopsAfterFailure() {
+    final AtomicBoolean secondQueryStarted = new AtomicBoolean(false);
+    final List<Supplier<CompletableFuture<Integer>>> queries = List.of(
+        () -> CompletableFuture.failedFuture(new IllegalStateException("query failed")),
+        () -> {
+          secondQueryStarted.set(true);
+          return CompletableFuture.completedFuture(1);
+        });
+
+    assertThatThrownBy(() -> DefaultAggregationLoader.fetchAll(queries, 1, 10_000,
+        executorService))
+        .hasCauseInstanceOf(IllegalStateException.class);
+    assertThat(secondQueryStarted).isFalse();
+  }
+
+  @Test
+  public void testBreakdownOf() {
+    final DataFrame browsers = new DataFrame()
+        .addSeries("browser", "chrome", "firefox")
+        .addSeries(Constants.COL_VALUE, 10., 5.);
+    final DataFrame countries = new DataFrame()
+        .addSeries("country", "us")
+        .addSeries(Constants.COL_VALUE, 15.);
+    final DataFrame empty = new DataFrame()
+        .addSeries("device", new String[0])
+        .addSeries(Constants.COL_VALUE, new double[0]);
+
+    final DataFrame breakdown = DefaultAggregationLoader.breakdownOf(
+        List.of("browser", "device", "country"),
+        List.of(browsers, empty, countries));
+
+    assertThat(breakdown.size()).isEqualTo(3);
+    assertThat(breakdown.getStrings(COL_DIMENSION_NAME).toList())
+        .containsExactly("browser", "browser", "country");
+    assertThat(breakdown.getStrings(COL_DIMENSION_VALUE).toList())
+        .containsExactly("chrome", "firefox", "us");
+    assertThat(breakdown.getDoubles(Constants.COL_VALUE).toList())
+        .containsExactly(10., 5., 15.);
+  }
+}
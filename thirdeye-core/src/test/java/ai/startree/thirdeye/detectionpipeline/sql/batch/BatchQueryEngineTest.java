@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.sql.batch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
+import ai.startree.thirdeye.spi.datasource.macro.ThirdEyeSqlParserConfig;
+import ai.startree.thirdeye.spi.datasource.macro.ThirdeyeSqlDialect;
+import ai.startree.thirdeye.testutils.SqlUtils;
+import java.util.List;
+import java.util.Optional;
+import org.testng.annotations.Test;
+
+public class BatchQueryEngineTest {
+
+  private static final SqlLanguage SQL_LANGUAGE = new TestPinotLikeSqlLanguage();
+
+  private static final String COUNTRY_QUERY = "SELECT __timeGroup(ts, 'EPOCH_MILLIS', 'P1D') AS ts, SUM(views) AS met FROM pageviews "
+      + "WHERE __timeFilter(ts, 'EPOCH_MILLIS') AND country = '%s' AND browser = 'chrome' "
+      + "GROUP BY ts ORDER BY ts LIMIT 100";
+
+  @Test
+  public void testQueriesDifferingByOneFilter() {
+    final Optional<BatchQuery> batch = new BatchQueryEngine(SQL_LANGUAGE, List.of(
+        String.format(COUNTRY_QUERY, "US"),
+        String.format(COUNTRY_QUERY, "FR"),
+        String.format(COUNTRY_QUERY, "US")
+    )).prepareBatch();
+
+    assertThat(batch).isPresent();
+    final String expected = "SELECT \"__timeGroup\"(\"ts\", 'EPOCH_MILLIS', 'P1D') AS \"ts\", SUM(\"views\") AS \"met\", "
+        + "\"country\" AS \"__batchKey0\" FROM \"pageviews\" "
+        + "WHERE \"__timeFilter\"(\"ts\", 'EPOCH_MILLIS') AND (\"browser\" = 'chrome') AND (\"country\" IN ('US', 'FR')) "
+        + "GROUP BY \"ts\", \"country\" ORDER BY \"ts\" FETCH NEXT 200 ROWS ONLY";
+    assertThat(SqlUtils.cleanSql(batch.get().getQuery())).isEqualTo(expected);
+    assertThat(batch.get().getKeyColumns()).containsExactly("__batchKey0");
+    assertThat(batch.get().getKeys()).containsExactly(List.of("US"), List.of("FR"), List.of("US"));
+    assertThat(batch.get().getItemLimit()).isEqualTo(100L);
+    assertThat(batch.get().getLimit()).isEqualTo(200L);
+  }
+
+  @Test
+  public void testQueriesDifferingByTwoFilters() {
+    final String query = "SELECT ts, SUM(views) FROM pageviews WHERE country = '%s' AND browser = '%s' "
+        + "GROUP BY ts LIMIT 10";
+    final Optional<BatchQuery> batch = new BatchQueryEngine(SQL_LANGUAGE, List.of(
+        String.format(query, "US", "chrome"),
+        String.format(query, "FR", "safari")
+    )).prepareBatch();
+
+    assertThat(batch).isPresent();
+    assertThat(batch.get().getKeyColumns()).containsExactly("__batchKey0", "__batchKey1");
+    // keys are sorted by identifier
+    assertThat(batch.get().getKeys()).containsExactly(List.of("chrome", "US"),
+        List.of("safari", "FR"));
+    assertThat(SqlUtils.cleanSql(batch.get().getQuery())).contains(
+        "WHERE (\"browser\" = 'chrome' AND (\"country\" = 'US')) OR (\"browser\" = 'safari' AND (\"country\" = 'FR'))");
+  }
+
+  @Test
+  public void testIdenticalQueries() {
+    final String query = String.format(COUNTRY_QUERY, "US");
+    final Optional<BatchQuery> batch = new BatchQueryEngine(SQL_LANGUAGE, List.of(query, query))
+        .prepareBatch();
+
+    assertThat(batch).isPresent();
+    assertThat(batch.get().getQuery()).isEqualTo(query);
+    assertThat(batch.get().getKeyColumns()).isEmpty();
+    assertThat(batch.get().getLimit()).isNull();
+  }
+
+  @Test
+  public void testQueriesWithDifferentStructureAreNotBatched() {
+    final Optional<BatchQuery> batch = new BatchQueryEngine(SQL_LANGUAGE, List.of(
+        String.format(COUNTRY_QUERY, "US"),
+        String.format(COUNTRY_QUERY, "FR").replace("SUM(views)", "MAX(views)")
+    )).prepareBatch();
+
+    assertThat(batch).isEmpty();
+  }
+
+  @Test
+  public void testQueriesWithoutLimitAreNotBatched() {
+    final String query = "SELECT ts, SUM(views) FROM pageviews WHERE country = '%s' GROUP BY ts";
+    final Optional<BatchQuery> batch = new BatchQueryEngine(SQL_LANGUAGE, List.of(
+        String.format(query, "US"),
+        String.format(query, "FR")
+    )).prepareBatch();
+
+    assertThat(batch).isEmpty();
+  }
+
+  @Test
+  public void testQueriesWithoutGroupByAreNotBatched() {
+    final String query = "SELECT SUM(views) FROM pageviews WHERE country = '%s' LIMIT 10";
+    final Optional<BatchQuery> batch = new BatchQueryEngine(SQL_LANGUAGE, List.of(
+        String.format(query, "US"),
+        String.format(query, "FR")
+    )).prepareBatch();
+
+    assertThat(batch).isEmpty();
+  }
+
+  private static class TestPinotLikeSqlLanguage implements SqlLanguage {
+
+    private static final ThirdEyeSqlParserConfig SQL_PARSER_CONFIG = new ThirdEyeSqlParserConfig.Builder().withLex(
+        "MYSQL_ANSI").withConformance("BABEL").withParserFactory("SqlBabelParserImpl").build();
+
+    private static final ThirdeyeSqlDialect SQL_DIALECT = new ThirdeyeSqlDialect.Builder().withBaseDialect(
+            "AnsiSqlDialect")
+        .withIdentifierQuoteString("\"")
+        .withIdentifierEscapedQuoteString("")
+        .build();
+
+    @Override
+    public ThirdEyeSqlParserConfig getSqlParserConfig() {
+      return SQL_PARSER_CONFIG;
+    }
+
+    @Override
+    public ThirdeyeSqlDialect getSqlDialect() {
+      return SQL_DIALECT;
+    }
+  }
+}
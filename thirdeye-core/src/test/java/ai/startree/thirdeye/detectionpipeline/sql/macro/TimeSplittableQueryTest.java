@@ -0,0 +1,103 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.sql.macro;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
+import ai.startree.thirdeye.spi.datasource.macro.ThirdEyeSqlParserConfig;
+import ai.startree.thirdeye.spi.datasource.macro.ThirdeyeSqlDialect;
+import java.util.Optional;
+import org.testng.annotations.Test;
+
+public class TimeSplittableQueryTest {
+
+  private static final SqlLanguage SQL_LANGUAGE = new TestPinotLikeSqlLanguage();
+
+  @Test
+  public void testTemplateQuery() {
+    final Optional<TimeSplittableQuery> query = TimeSplittableQuery.parse(SQL_LANGUAGE,
+        "SELECT __timeGroup(ts, 'EPOCH_MILLIS', 'PT1H') AS ts, SUM(views) AS met FROM pageviews "
+            + "WHERE __timeFilter(ts, 'EPOCH_MILLIS', 'P28D') AND country = 'US' "
+            + "GROUP BY ts ORDER BY ts LIMIT 1000");
+
+    assertThat(query).isPresent();
+    assertThat(query.get().getTimeColumn()).isEqualToIgnoringCase("ts");
+    assertThat(query.get().getLimit()).isEqualTo(1000L);
+  }
+
+  @Test
+  public void testGroupByMacroWithoutLimit() {
+    final Optional<TimeSplittableQuery> query = TimeSplittableQuery.parse(SQL_LANGUAGE,
+        "SELECT __timeGroup(ts, 'EPOCH_MILLIS', 'P1D') AS bucket, country, COUNT(*) AS met "
+            + "FROM pageviews WHERE __timeFilter(ts, 'EPOCH_MILLIS') "
+            + "GROUP BY __timeGroup(ts, 'EPOCH_MILLIS', 'P1D'), country");
+
+    assertThat(query).isPresent();
+    assertThat(query.get().getTimeColumn()).isEqualToIgnoringCase("bucket");
+    assertThat(query.get().getLimit()).isNull();
+  }
+
+  @Test
+  public void testUnsupportedQueries() {
+    final String[] queries = {
+        // no time group
+        "SELECT SUM(views) FROM pageviews WHERE __timeFilter(ts, 'EPOCH_MILLIS')",
+        // not grouped by time
+        "SELECT __timeGroup(ts, 'EPOCH_MILLIS', 'P1D') AS ts, views FROM pageviews "
+            + "WHERE __timeFilter(ts, 'EPOCH_MILLIS')",
+        // no time filter
+        "SELECT __timeGroup(ts, 'EPOCH_MILLIS', 'P1D') AS ts, SUM(views) FROM pageviews "
+            + "GROUP BY ts",
+        // ordered by a metric
+        "SELECT __timeGroup(ts, 'EPOCH_MILLIS', 'P1D') AS ts, SUM(views) AS met FROM pageviews "
+            + "WHERE __timeFilter(ts, 'EPOCH_MILLIS') GROUP BY ts ORDER BY met LIMIT 10",
+        // ordered by descending time
+        "SELECT __timeGroup(ts, 'EPOCH_MILLIS', 'P1D') AS ts, SUM(views) AS met FROM pageviews "
+            + "WHERE __timeFilter(ts, 'EPOCH_MILLIS') GROUP BY ts ORDER BY ts DESC",
+        // two time filters
+        "SELECT __timeGroup(ts, 'EPOCH_MILLIS', 'P1D') AS ts, SUM(views) AS met FROM pageviews "
+            + "WHERE __timeFilter(ts, 'EPOCH_MILLIS') OR __timeFilter(ts, 'EPOCH_MILLIS', 'P7D', 'P7D') "
+            + "GROUP BY ts",
+        // sub query
+        "SELECT __timeGroup(ts, 'EPOCH_MILLIS', 'P1D') AS ts, SUM(views) AS met FROM "
+            + "(SELECT * FROM pageviews) WHERE __timeFilter(ts, 'EPOCH_MILLIS') GROUP BY ts",
+    };
+    for (final String query : queries) {
+      assertThat(TimeSplittableQuery.parse(SQL_LANGUAGE, query)).as(query).isEmpty();
+    }
+  }
+
+  private static class TestPinotLikeSqlLanguage implements SqlLanguage {
+
+    private static final ThirdEyeSqlParserConfig SQL_PARSER_CONFIG = new ThirdEyeSqlParserConfig.Builder().withLex(
+        "MYSQL_ANSI").withConformance("BABEL").withParserFactory("SqlBabelParserImpl").build();
+
+    private static final ThirdeyeSqlDialect SQL_DIALECT = new ThirdeyeSqlDialect.Builder().withBaseDialect(
+            "AnsiSqlDialect")
+        .withIdentifierQuoteString("\"")
+        .withIdentifierEscapedQuoteString("")
+        .build();
+
+    @Override
+    public ThirdEyeSqlParserConfig getSqlParserConfig() {
+      return SQL_PARSER_CONFIG;
+    }
+
+    @Override
+    public ThirdeyeSqlDialect getSqlDialect() {
+      return SQL_DIALECT;
+    }
+  }
+}
@@ -19,6 +19,7 @@ import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 import ai.startree.thirdeye.spi.datalayer.Templatable;
 import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import groovy.text.SimpleTemplateEngine;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.List;
@@ -171,6 +172,55 @@ public class StringTemplateUtilsTest {
     assertThat(output.templatableNested.value().templatableDto.templatedValue()).isNull();
   }
 
+  @Test
+  public void testTemplateIsCompiledOncePerText() throws IOException, ClassNotFoundException {
+    final Map<String, String> template = new HashMap<>(Map.of("k", "compiled once ${k1}"));
+    final long compileCount = StringTemplateUtils.COMPILE_TIMER.getCount();
+
+    assertThat(StringTemplateUtils.applyContext(template, Map.of("k1", "v1")))
+        .isEqualTo(Map.of("k", "compiled once v1"));
+    assertThat(StringTemplateUtils.applyContext(template, Map.of("k1", "v2")))
+        .isEqualTo(Map.of("k", "compiled once v2"));
+    assertThat(StringTemplateUtils.renderTemplate("compiled once ${k1}", Map.of("k1", "v3")))
+        .isEqualTo("compiled once v3");
+    assertThat(StringTemplateUtils.COMPILE_TIMER.getCount()).isEqualTo(compileCount + 1);
+  }
+
+  @Test
+  public void testTextWithoutExpressionIsNotCompiled() throws IOException, ClassNotFoundException {
+    final long compiledTemplatesCount = StringTemplateUtils.compiledTemplatesCount();
+
+    assertThat(StringTemplateUtils.renderTemplate("not compiled", Map.of("k1", "v1")))
+        .isEqualTo("not compiled");
+    assertThat(StringTemplateUtils.compiledTemplatesCount()).isEqualTo(compiledTemplatesCount);
+  }
+
+  @Test
+  public void testTemplatableValueIsNotRendered() throws IOException, ClassNotFoundException {
+    final ObjectWithTemplatableFields input = new ObjectWithTemplatableFields();
+    input.templatableList = new Templatable<List<String>>().setTemplatedValue(
+        templateVariableOf("list"));
+    final List<String> list = List.of("${notAProperty}", "a\"b");
+
+    final ObjectWithTemplatableFields output = StringTemplateUtils.applyContext(input,
+        Map.of("list", list));
+
+    assertThat(output.templatableList.value()).isEqualTo(list);
+  }
+
+  @Test
+  public void testTextWithoutExpressionIsRenderedAsGroovy()
+      throws IOException, ClassNotFoundException {
+    final String text = "{\"a\":\"x\\ny\\\\z\\\"q\\t\",\"b\":[1,2.5,null],\"c\":\"%>\"}";
+    final long compileCount = StringTemplateUtils.COMPILE_TIMER.getCount();
+    final SimpleTemplateEngine groovyEngine = new SimpleTemplateEngine();
+    groovyEngine.setEscapeBackslash(true);
+
+    assertThat(StringTemplateUtils.renderTemplate(text, Map.of()))
+        .isEqualTo(groovyEngine.createTemplate(text).make(new HashMap<>()).toString());
+    assertThat(StringTemplateUtils.COMPILE_TIMER.getCount()).isEqualTo(compileCount);
+  }
+
   private static String templateVariableOf(String key) {
     return "${" + key + "}";
   }
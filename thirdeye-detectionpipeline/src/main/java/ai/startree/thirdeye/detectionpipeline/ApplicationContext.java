@@ -14,6 +14,7 @@
 package ai.startree.thirdeye.detectionpipeline;
 
 import ai.startree.thirdeye.datasource.cache.DataSourceCache;
+import ai.startree.thirdeye.detectionpipeline.components.TimeSeriesCache;
 import ai.startree.thirdeye.spi.datalayer.bao.DatasetConfigManager;
 import ai.startree.thirdeye.spi.datalayer.bao.EventManager;
 import java.util.concurrent.ExecutorService;
@@ -27,6 +28,7 @@ public class ApplicationContext {
   private final DatasetConfigManager datasetConfigManager;
   private final ExecutorService subTaskExecutor;
   private final DetectionPipelineConfiguration configuration;
+  private final TimeSeriesCache timeSeriesCache;
 
   public ApplicationContext(final DataSourceCache dataSourceCache,
       final DetectionRegistry detectionRegistry,
@@ -34,7 +36,8 @@ public class ApplicationContext {
       final EventManager eventManager,
       final DatasetConfigManager datasetConfigManager,
       final ExecutorService subTaskExecutor,
-      final DetectionPipelineConfiguration detectionPipelineConfiguration) {
+      final DetectionPipelineConfiguration detectionPipelineConfiguration,
+      final TimeSeriesCache timeSeriesCache) {
     this.dataSourceCache = dataSourceCache;
     this.detectionRegistry = detectionRegistry;
     this.postProcessorRegistry = postProcessorRegistry;
@@ -42,6 +45,7 @@ public class ApplicationContext {
     this.datasetConfigManager = datasetConfigManager;
     this.subTaskExecutor = subTaskExecutor;
     configuration = detectionPipelineConfiguration;
+    this.timeSeriesCache = timeSeriesCache;
   }
 
   public DataSourceCache getDataSourceCache() {
@@ -71,4 +75,11 @@ public class ApplicationContext {
   public DetectionPipelineConfiguration getConfiguration() {
     return configuration;
   }
+
+  /**
+   * Null if the time series cache is disabled.
+   */
+  public TimeSeriesCache getTimeSeriesCache() {
+    return timeSeriesCache;
+  }
 }
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline;
+
+import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Collections.emptyList;
+import static java.util.Objects.requireNonNull;
+
+import ai.startree.thirdeye.spi.datalayer.dto.PlanNodeBean.InputBean;
+import ai.startree.thirdeye.spi.detection.v2.OperatorResult;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes the plan node DAG leading to a target node.
+ *
+ * The nodes required by the target are sorted topologically. Every node whose inputs are
+ * available is started at once on the shared executor, so that independent branches (eg. a
+ * current and a baseline data fetcher) run concurrently. When a single node is ready and nothing
+ * else is running, it is executed on the calling thread to avoid a hand-off: a linear pipeline
+ * never touches the shared executor.
+ *
+ * Nodes running on the executor are bounded by a per node timeout. On the first failure or
+ * timeout, all running nodes are cancelled and the error is propagated.
+ */
+public class DagExecutor {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DagExecutor.class);
+
+  private final ExecutorService executorService;
+  private final Duration nodeTimeout;
+
+  public DagExecutor(final ExecutorService executorService, final Duration nodeTimeout) {
+    this.executorService = requireNonNull(executorService, "executorService is null");
+    this.nodeTimeout = requireNonNull(nodeTimeout, "nodeTimeout is null");
+  }
+
+  /**
+   * Run the target node and all the nodes it depends on.
+   *
+   * @param pipelinePlanNodes all the nodes of the pipeline, by name
+   * @param target the node to compute
+   * @param resultMap the outputs of the nodes. Outputs already present are not recomputed.
+   */
+  public void execute(final Map<String, PlanNode> pipelinePlanNodes,
+      final PlanNode target,
+      final Map<ContextKey, OperatorResult> resultMap) throws Exception {
+    final Map<String, PlanNode> nodes = collectDependencies(pipelinePlanNodes, target, resultMap);
+
+    /* Kahn's algorithm: count the unresolved upstream nodes of each node */
+    final Map<String, Integer> pendingInputs = new HashMap<>();
+    final Map<String, List<String>> dependents = new HashMap<>();
+    for (final PlanNode node : nodes.values()) {
+      final Set<String> sources = sourcesToCompute(node, nodes.keySet());
+      pendingInputs.put(node.getName(), sources.size());
+      for (final String source : sources) {
+        dependents.computeIfAbsent(source, k -> new ArrayList<>()).add(node.getName());
+      }
+    }
+    final Deque<PlanNode> ready = new ArrayDeque<>();
+    pendingInputs.forEach((name, count) -> {
+      if (count == 0) {
+        ready.add(nodes.get(name));
+      }
+    });
+
+    final CompletionService<NodeOutputs> completionService =
+        new ExecutorCompletionService<>(executorService);
+    final Map<Future<NodeOutputs>, RunningNode> running = new HashMap<>();
+    int completed = 0;
+    try {
+      while (completed < nodes.size()) {
+        if (ready.isEmpty() && running.isEmpty()) {
+          throw new IllegalArgumentException(String.format(
+              "Cycle detected in the pipeline of node \"%s\". Template is invalid.",
+              target.getName()));
+        }
+        final NodeOutputs nodeOutputs;
+        if (ready.size() == 1 && running.isEmpty()) {
+          nodeOutputs = runNode(ready.poll(), resultMap);
+        } else {
+          while (!ready.isEmpty()) {
+            final PlanNode node = ready.poll();
+            final Map<ContextKey, OperatorResult> inputs = resolveInputs(node, resultMap);
+            final Future<NodeOutputs> future = completionService.submit(() -> runNode(node,
+                inputs));
+            running.put(future, new RunningNode(node.getName(), System.nanoTime()));
+          }
+          nodeOutputs = awaitNext(completionService, running);
+        }
+
+        completed++;
+        for (final Entry<String, OperatorResult> output : nodeOutputs.outputs.entrySet()) {
+          resultMap.put(new ContextKey(nodeOutputs.nodeName, output.getKey()),
+              output.getValue());
+        }
+        for (final String dependent : dependents.getOrDefault(nodeOutputs.nodeName,
+            emptyList())) {
+          if (pendingInputs.merge(dependent, -1, Integer::sum) == 0) {
+            ready.add(nodes.get(dependent));
+          }
+        }
+      }
+    } finally {
+      running.keySet().forEach(f -> f.cancel(true));
+    }
+  }
+
+  /**
+   * Returns the nodes that have to be executed to compute the target, including the target.
+   * Nodes whose outputs are already in the result map are not recomputed.
+   */
+  private static Map<String, PlanNode> collectDependencies(
+      final Map<String, PlanNode> pipelinePlanNodes,
+      final PlanNode target,
+      final Map<ContextKey, OperatorResult> resultMap) {
+    final Map<String, PlanNode> nodes = new LinkedHashMap<>();
+    final Deque<PlanNode> toVisit = new ArrayDeque<>();
+    toVisit.push(target);
+    while (!toVisit.isEmpty()) {
+      final PlanNode node = toVisit.pop();
+      if (nodes.containsKey(node.getName())) {
+        continue;
+      }
+      nodes.put(node.getName(), node);
+      for (final InputBean input : inputsOf(node)) {
+        final ContextKey contextKey = new ContextKey(input.getSourcePlanNode(),
+            input.getSourceProperty());
+        if (resultMap.containsKey(contextKey)) {
+          continue;
+        }
+        final PlanNode inputPlanNode = pipelinePlanNodes.get(input.getSourcePlanNode());
+        checkArgument(inputPlanNode != null,
+            "sourcePlanNode \"%s\" found in \"%s\" node configuration does not exist. Template is invalid.",
+            input.getSourcePlanNode(),
+            node.getName());
+        toVisit.push(inputPlanNode);
+      }
+    }
+    return nodes;
+  }
+
+  private static Set<String> sourcesToCompute(final PlanNode node, final Set<String> toCompute) {
+    final Set<String> sources = new LinkedHashSet<>();
+    for (final InputBean input : inputsOf(node)) {
+      if (toCompute.contains(input.getSourcePlanNode())) {
+        sources.add(input.getSourcePlanNode());
+      }
+    }
+    return sources;
+  }
+
+  private static List<InputBean> inputsOf(final PlanNode node) {
+    return optional(node.getPlanNodeInputs()).orElse(emptyList());
+  }
+
+  private static Map<ContextKey, OperatorResult> resolveInputs(final PlanNode node,
+      final Map<ContextKey, OperatorResult> resultMap) {
+    final Map<ContextKey, OperatorResult> inputs = new HashMap<>();
+    for (final InputBean input : inputsOf(node)) {
+      final ContextKey contextKey = new ContextKey(input.getSourcePlanNode(),
+          input.getSourceProperty());
+      if (!resultMap.containsKey(contextKey)) {
+        throw new RuntimeException("Missing resultMap key - " + contextKey);
+      }
+      inputs.put(contextKey, resultMap.get(contextKey));
+    }
+    return inputs;
+  }
+
+  private static NodeOutputs runNode(final PlanNode node,
+      final Map<ContextKey, OperatorResult> resultMap) throws Exception {
+    for (final InputBean input : inputsOf(node)) {
+      final ContextKey contextKey = new ContextKey(input.getSourcePlanNode(),
+          input.getSourceProperty());
+      if (!resultMap.containsKey(contextKey)) {
+        throw new RuntimeException("Missing resultMap key - " + contextKey);
+      }
+      node.setInput(input.getTargetProperty(), resultMap.get(contextKey));
+    }
+    final Operator operator = node.buildOperator();
+    operator.execute();
+    return new NodeOutputs(node.getName(), operator.getOutputs());
+  }
+
+  private NodeOutputs awaitNext(final CompletionService<NodeOutputs> completionService,
+      final Map<Future<NodeOutputs>, RunningNode> running) throws Exception {
+    final long timeoutNanos = nodeTimeout.toNanos();
+    while (true) {
+      final long now = System.nanoTime();
+      long remainingNanos = Long.MAX_VALUE;
+      for (final RunningNode runningNode : running.values()) {
+        final long remaining = runningNode.startNanos + timeoutNanos - now;
+        if (remaining <= 0) {
+          throw new TimeoutException(String.format("Plan node \"%s\" timed out after %s",
+              runningNode.nodeName, nodeTimeout));
+        }
+        remainingNanos = Math.min(remainingNanos, remaining);
+      }
+      final Future<NodeOutputs> future = completionService.poll(remainingNanos,
+          TimeUnit.NANOSECONDS);
+      if (future == null) {
+        continue;
+      }
+      final RunningNode runningNode = running.remove(future);
+      try {
+        return future.get();
+      } catch (final ExecutionException e) {
+        LOG.error("Plan node \"{}\" failed", runningNode.nodeName);
+        final Throwable cause = e.getCause();
+        if (cause instanceof Exception) {
+          throw (Exception) cause;
+        }
+        throw e;
+      }
+    }
+  }
+
+  private static class RunningNode {
+
+    private final String nodeName;
+    private final long startNanos;
+
+    private RunningNode(final String nodeName, final long startNanos) {
+      this.nodeName = nodeName;
+      this.startNanos = startNanos;
+    }
+  }
+
+  private static class NodeOutputs {
+
+    private final String nodeName;
+    private final Map<String, OperatorResult> outputs;
+
+    private NodeOutputs(final String nodeName, final Map<String, OperatorResult> outputs) {
+      this.nodeName = nodeName;
+      this.outputs = outputs;
+    }
+  }
+}
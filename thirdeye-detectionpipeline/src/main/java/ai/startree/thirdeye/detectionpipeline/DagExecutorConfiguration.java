@@ -0,0 +1,47 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package ai.startree.thirdeye.detectionpipeline;
+
+import java.time.Duration;
+
+public class DagExecutorConfiguration {
+
+  /**
+   * Number of threads shared by all pipelines to run independent plan nodes concurrently.
+   */
+  private Integer parallelism = 5;
+  /**
+   * Maximum time a plan node is allowed to take on the shared pool, queueing included.
+   */
+  private Duration nodeTimeout = Duration.ofHours(1);
+
+  public Integer getParallelism() {
+    return parallelism;
+  }
+
+  public DagExecutorConfiguration setParallelism(final Integer parallelism) {
+    this.parallelism = parallelism;
+    return this;
+  }
+
+  public Duration getNodeTimeout() {
+    return nodeTimeout;
+  }
+
+  public DagExecutorConfiguration setNodeTimeout(final Duration nodeTimeout) {
+    this.nodeTimeout = nodeTimeout;
+    return this;
+  }
+}
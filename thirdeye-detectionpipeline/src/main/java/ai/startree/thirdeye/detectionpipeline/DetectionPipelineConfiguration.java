@@ -17,6 +17,8 @@ package ai.startree.thirdeye.detectionpipeline;
 public class DetectionPipelineConfiguration {
 
   private ForkJoinConfiguration forkjoin = new ForkJoinConfiguration();
+  private DagExecutorConfiguration dagExecutor = new DagExecutorConfiguration();
+  private TimeSeriesCacheConfiguration timeSeriesCache = new TimeSeriesCacheConfiguration();
 
   public ForkJoinConfiguration getForkjoin() {
     return forkjoin;
@@ -27,4 +29,24 @@ public class DetectionPipelineConfiguration {
     this.forkjoin = forkjoin;
     return this;
   }
+
+  public DagExecutorConfiguration getDagExecutor() {
+    return dagExecutor;
+  }
+
+  public DetectionPipelineConfiguration setDagExecutor(
+      final DagExecutorConfiguration dagExecutor) {
+    this.dagExecutor = dagExecutor;
+    return this;
+  }
+
+  public TimeSeriesCacheConfiguration getTimeSeriesCache() {
+    return timeSeriesCache;
+  }
+
+  public DetectionPipelineConfiguration setTimeSeriesCache(
+      final TimeSeriesCacheConfiguration timeSeriesCache) {
+    this.timeSeriesCache = timeSeriesCache;
+    return this;
+  }
 }
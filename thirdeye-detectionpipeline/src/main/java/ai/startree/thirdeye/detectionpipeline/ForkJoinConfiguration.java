@@ -20,6 +20,21 @@ public class ForkJoinConfiguration {
 
   private Integer parallelism = 5;
   private Duration timeout = Duration.ofHours(1);
+  /**
+   * Max number of items of a single fork join submitted at the same time. Items of other fork
+   * joins can run in between. Null means the parallelism: a fork join can use all the threads.
+   * Set it lower so that the fork joins of other alerts are not queued behind a large one.
+   */
+  private Integer maxItemsInFlight = null;
+  /**
+   * Keep the results of the successful items when some items fail or time out. The fork join
+   * fails only if no item succeeds.
+   */
+  private boolean partialResults = false;
+  /**
+   * Merge the data fetches of the enumeration items that only differ by a filter.
+   */
+  private boolean batchDataFetches = true;
 
   public Integer getParallelism() {
     return parallelism;
@@ -38,4 +53,31 @@ public class ForkJoinConfiguration {
     this.timeout = timeout;
     return this;
   }
+
+  public Integer getMaxItemsInFlight() {
+    return maxItemsInFlight;
+  }
+
+  public ForkJoinConfiguration setMaxItemsInFlight(final Integer maxItemsInFlight) {
+    this.maxItemsInFlight = maxItemsInFlight;
+    return this;
+  }
+
+  public boolean isPartialResults() {
+    return partialResults;
+  }
+
+  public ForkJoinConfiguration setPartialResults(final boolean partialResults) {
+    this.partialResults = partialResults;
+    return this;
+  }
+
+  public boolean isBatchDataFetches() {
+    return batchDataFetches;
+  }
+
+  public ForkJoinConfiguration setBatchDataFetches(final boolean batchDataFetches) {
+    this.batchDataFetches = batchDataFetches;
+    return this;
+  }
 }
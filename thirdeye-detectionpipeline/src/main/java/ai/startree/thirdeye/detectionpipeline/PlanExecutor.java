@@ -20,6 +20,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Collections.emptyList;
 
 import ai.startree.thirdeye.datasource.cache.DataSourceCache;
+import ai.startree.thirdeye.detectionpipeline.components.TimeSeriesCache;
 import ai.startree.thirdeye.spi.datalayer.bao.DatasetConfigManager;
 import ai.startree.thirdeye.spi.datalayer.bao.EventManager;
 import ai.startree.thirdeye.spi.datalayer.dto.PlanNodeBean;
@@ -50,6 +51,9 @@ public class PlanExecutor implements AutoCloseable {
   private final DetectionPipelineConfiguration detectionPipelineConfiguration;
 
   private final ExecutorService subTaskExecutor;
+  private final ExecutorService planNodeExecutor;
+  private final DagExecutor dagExecutor;
+  private final TimeSeriesCache timeSeriesCache;
 
   @VisibleForTesting
   final ApplicationContext applicationContext;
@@ -73,9 +77,26 @@ public class PlanExecutor implements AutoCloseable {
     final int nThreads = detectionPipelineConfiguration.getForkjoin().getParallelism();
     subTaskExecutor = Executors.newFixedThreadPool(nThreads, threadsNamed("fork-join-%d"));
 
+    final DagExecutorConfiguration dagConfig = detectionPipelineConfiguration.getDagExecutor();
+    planNodeExecutor = Executors.newFixedThreadPool(dagConfig.getParallelism(),
+        threadsNamed("plan-node-%d"));
+    dagExecutor = new DagExecutor(planNodeExecutor, dagConfig.getNodeTimeout());
+
+    final TimeSeriesCacheConfiguration timeSeriesCacheConfig = detectionPipelineConfiguration
+        .getTimeSeriesCache();
+    timeSeriesCache = timeSeriesCacheConfig.isEnabled()
+        ? new TimeSeriesCache(timeSeriesCacheConfig)
+        : null;
+
     applicationContext = createApplicationContext();
   }
 
+  /**
+   * Executes the node and its inputs sequentially on the calling thread.
+   *
+   * Used by fork-join items: a fork-join node can hold a thread of the plan node pool while
+   * waiting for its items, so items must not depend on that pool.
+   */
   @VisibleForTesting
   public static void executePlanNode(final Map<String, PlanNode> pipelinePlanNodes,
       final PlanNode node,
@@ -128,7 +149,8 @@ public class PlanExecutor implements AutoCloseable {
         eventManager,
         datasetConfigManager,
         subTaskExecutor,
-        detectionPipelineConfiguration
+        detectionPipelineConfiguration,
+        timeSeriesCache
     );
   }
 
@@ -169,9 +191,9 @@ public class PlanExecutor implements AutoCloseable {
     /* The context stores all the outputs from all the nodes */
     final Map<ContextKey, OperatorResult> resultMap = new HashMap<>();
 
-    /* Execute the DAG */
+    /* Execute the DAG. Independent branches run concurrently */
     final PlanNode rootNode = pipelinePlanNodes.get(ROOT_OPERATOR_KEY);
-    executePlanNode(pipelinePlanNodes, rootNode, resultMap);
+    dagExecutor.execute(pipelinePlanNodes, rootNode, resultMap);
 
     return resultMap;
   }
@@ -195,5 +217,6 @@ public class PlanExecutor implements AutoCloseable {
   @Override
   public void close() throws Exception {
     shutdownExecutionService(subTaskExecutor);
+    shutdownExecutionService(planNodeExecutor);
   }
 }
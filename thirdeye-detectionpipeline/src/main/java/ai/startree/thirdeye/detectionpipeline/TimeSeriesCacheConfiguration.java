@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline;
+
+import java.time.Duration;
+
+public class TimeSeriesCacheConfiguration {
+
+  /**
+   * Reuse the time buckets of previous data fetches. Only data fetches that can be split by time
+   * are cached. See TimeSplittableQuery.
+   */
+  private boolean enabled = true;
+  /**
+   * Memory budget of the cached chunks, estimated from the size of their DataFrame. A chunk holds
+   * one day of a time series. The least recently used chunks are evicted first.
+   */
+  private long maxSizeInBytes = 256L * 1024 * 1024;
+  /**
+   * Time to live of a cached chunk.
+   */
+  private Duration chunkTtl = Duration.ofHours(6);
+  /**
+   * A chunk is cached once it ended at least this long ago. More recent data can still change.
+   */
+  private Duration minChunkAge = Duration.ofDays(1);
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public TimeSeriesCacheConfiguration setEnabled(final boolean enabled) {
+    this.enabled = enabled;
+    return this;
+  }
+
+  public long getMaxSizeInBytes() {
+    return maxSizeInBytes;
+  }
+
+  public TimeSeriesCacheConfiguration setMaxSizeInBytes(final long maxSizeInBytes) {
+    this.maxSizeInBytes = maxSizeInBytes;
+    return this;
+  }
+
+  public Duration getChunkTtl() {
+    return chunkTtl;
+  }
+
+  public TimeSeriesCacheConfiguration setChunkTtl(final Duration chunkTtl) {
+    this.chunkTtl = chunkTtl;
+    return this;
+  }
+
+  public Duration getMinChunkAge() {
+    return minChunkAge;
+  }
+
+  public TimeSeriesCacheConfiguration setMinChunkAge(final Duration minChunkAge) {
+    this.minChunkAge = minChunkAge;
+    return this;
+  }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.components;
+
+import static java.util.Objects.requireNonNull;
+
+import ai.startree.thirdeye.detectionpipeline.spec.DataFetcherSpec;
+import ai.startree.thirdeye.detectionpipeline.sql.batch.BatchQuery;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.detection.DataFetcher;
+import ai.startree.thirdeye.spi.detection.v2.AbstractDataTableImpl;
+import ai.startree.thirdeye.spi.detection.v2.ColumnType;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.joda.time.Interval;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A data fetch shared by the enumeration items of a fork join.
+ *
+ * The batch query is run once, by the first item that needs it. The result is then split by the
+ * key columns of the batch query. If the batch query fails or its result may be truncated, the
+ * batch answers nothing and the items fall back to their own data fetch.
+ */
+public class DataFetchBatch {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DataFetchBatch.class);
+
+  private final DataFetcher<DataFetcherSpec> batchFetcher;
+  private final BatchQuery batchQuery;
+
+  private boolean fetched = false;
+  private DataTable batchResult;
+  private List<Integer> columnIndexes;
+  private Map<List<String>, List<Integer>> rowsByKey;
+
+  public DataFetchBatch(final DataFetcher<DataFetcherSpec> batchFetcher,
+      final BatchQuery batchQuery) {
+    this.batchFetcher = requireNonNull(batchFetcher);
+    this.batchQuery = requireNonNull(batchQuery);
+  }
+
+  /**
+   * @param item index of the item in the batch query
+   * @return the data table of the item, or empty if the batch cannot answer.
+   */
+  public synchronized Optional<DataTable> getDataTable(final int item,
+      final Interval detectionInterval) {
+    if (!fetched) {
+      fetched = true;
+      try {
+        load(batchFetcher.getDataTable(detectionInterval));
+      } catch (final Exception e) {
+        LOG.warn("Batch data fetch failed. Falling back to one fetch per item. Query: {}",
+            batchQuery.getQuery(), e);
+      }
+    }
+    if (batchResult == null) {
+      return Optional.empty();
+    }
+    final List<Integer> rows = rowsByKey.getOrDefault(batchQuery.getKeys().get(item), List.of());
+    return Optional.of(new DataTableView(batchResult, columnIndexes, limit(rows)));
+  }
+
+  private void load(final DataTable result) {
+    final Long limit = batchQuery.getLimit();
+    if (limit != null && result.getRowCount() >= limit) {
+      LOG.warn("Batch data fetch may be truncated: {} rows. Falling back to one fetch per item.",
+          result.getRowCount());
+      return;
+    }
+
+    final List<String> columns = result.getColumns();
+    final List<Integer> keyIndexes = new ArrayList<>();
+    for (final String keyColumn : batchQuery.getKeyColumns()) {
+      final int keyIndex = indexOf(columns, keyColumn);
+      if (keyIndex < 0) {
+        LOG.warn("Key column {} not found in batch data fetch result. Falling back to one fetch per item.",
+            keyColumn);
+        return;
+      }
+      keyIndexes.add(keyIndex);
+    }
+    final List<Integer> valueIndexes = new ArrayList<>();
+    for (int i = 0; i < columns.size(); i++) {
+      if (!keyIndexes.contains(i)) {
+        valueIndexes.add(i);
+      }
+    }
+
+    final Map<List<String>, List<Integer>> rows = new HashMap<>();
+    for (int rowIdx = 0; rowIdx < result.getRowCount(); rowIdx++) {
+      final List<String> key = new ArrayList<>(keyIndexes.size());
+      for (final int keyIndex : keyIndexes) {
+        key.add(result.getString(rowIdx, keyIndex));
+      }
+      rows.computeIfAbsent(key, k -> new ArrayList<>()).add(rowIdx);
+    }
+
+    this.batchResult = result;
+    this.columnIndexes = valueIndexes;
+    this.rowsByKey = rows;
+  }
+
+  private List<Integer> limit(final List<Integer> rows) {
+    final Long itemLimit = batchQuery.getItemLimit();
+    if (itemLimit == null || rows.size() <= itemLimit) {
+      return rows;
+    }
+    return rows.subList(0, itemLimit.intValue());
+  }
+
+  private static int indexOf(final List<String> columns, final String column) {
+    for (int i = 0; i < columns.size(); i++) {
+      if (columns.get(i).equalsIgnoreCase(column)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Read-only view on a subset of the rows and columns of a DataTable.
+   */
+  private static class DataTableView extends AbstractDataTableImpl {
+
+    private final DataTable source;
+    private final List<Integer> columnIndexes;
+    private final List<Integer> rowIndexes;
+    private final List<String> columns = new ArrayList<>();
+    private final List<ColumnType> columnTypes = new ArrayList<>();
+    private DataFrame dataFrame;
+
+    private DataTableView(final DataTable source, final List<Integer> columnIndexes,
+        final List<Integer> rowIndexes) {
+      this.source = source;
+      this.columnIndexes = columnIndexes;
+      this.rowIndexes = rowIndexes;
+      for (final int columnIndex : columnIndexes) {
+        columns.add(source.getColumns().get(columnIndex));
+        columnTypes.add(source.getColumnTypes().get(columnIndex));
+      }
+      addProperties(source.getProperties());
+    }
+
+    @Override
+    public int getRowCount() {
+      return rowIndexes.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+      return columns.size();
+    }
+
+    @Override
+    public List<String> getColumns() {
+      return columns;
+    }
+
+    @Override
+    public List<ColumnType> getColumnTypes() {
+      return columnTypes;
+    }
+
+    @Override
+    public DataFrame getDataFrame() {
+      if (dataFrame == null) {
+        final DataFrame.Builder dfBuilder = DataFrame.builder(columns);
+        for (int rowIdx = 0; rowIdx < getRowCount(); rowIdx++) {
+          dfBuilder.append(DataTable.getRow(this, rowIdx));
+        }
+        dataFrame = dfBuilder.build();
+      }
+      return dataFrame;
+    }
+
+    @Override
+    public Object getObject(final int rowIdx, final int colIdx) {
+      return source.getObject(rowIndexes.get(rowIdx), columnIndexes.get(colIdx));
+    }
+
+    @Override
+    public boolean getBoolean(final int rowIdx, final int colIdx) {
+      return source.getBoolean(rowIndexes.get(rowIdx), columnIndexes.get(colIdx));
+    }
+
+    @Override
+    public String getString(final int rowIdx, final int colIdx) {
+      return source.getString(rowIndexes.get(rowIdx), columnIndexes.get(colIdx));
+    }
+
+    @Override
+    public long getLong(final int rowIdx, final int colIdx) {
+      return source.getLong(rowIndexes.get(rowIdx), columnIndexes.get(colIdx));
+    }
+
+    @Override
+    public double getDouble(final int rowIdx, final int colIdx) {
+      return source.getDouble(rowIndexes.get(rowIdx), columnIndexes.get(colIdx));
+    }
+  }
+}
@@ -34,6 +34,7 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableMap;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.stream.Collectors;
 import org.joda.time.Interval;
 
@@ -50,6 +51,7 @@ public class GenericDataFetcher implements DataFetcher<DataFetcherSpec> {
   private ThirdEyeDataSource thirdEyeDataSource;
   private DatasetConfigDTO datasetConfigDTO;
   private List<QueryPredicate> timeseriesFilters = List.of();
+  private TimeSeriesCache timeSeriesCache;
 
   public String getQuery() {
     return query;
@@ -87,6 +89,8 @@ public class GenericDataFetcher implements DataFetcher<DataFetcherSpec> {
           .getDataSource(dataSource), "data source is unavailable");
     }
 
+    this.timeSeriesCache = dataFetcherSpec.getTimeSeriesCache();
+
     if (!dataFetcherSpec.getTimeseriesFilters().isEmpty()) {
       checkArgument(tableName != null,
           "tableName is not set in DataFetcherSpec. Cannot inject filters without tableName");
@@ -101,11 +105,26 @@ public class GenericDataFetcher implements DataFetcher<DataFetcherSpec> {
   public DataTable getDataTable(Interval detectionInterval) throws Exception {
     String queryWithFilters = injectFilters(query);
     DataSourceRequest preparedRequest = applyMacros(detectionInterval, queryWithFilters);
-    DataTable result = thirdEyeDataSource.fetchDataTable(preparedRequest);
+    DataTable result = fetchDataTable(detectionInterval, queryWithFilters, preparedRequest);
     result.addProperties(preparedRequest.getProperties());
     return result;
   }
 
+  private DataTable fetchDataTable(final Interval detectionInterval,
+      final String queryWithFilters, final DataSourceRequest preparedRequest) throws Exception {
+    if (timeSeriesCache != null) {
+      final Optional<DataTable> cached = timeSeriesCache.getDataTable(thirdEyeDataSource,
+          datasetConfigDTO,
+          queryWithFilters,
+          detectionInterval,
+          preparedRequest.getProperties());
+      if (cached.isPresent()) {
+        return cached.get();
+      }
+    }
+    return thirdEyeDataSource.fetchDataTable(preparedRequest);
+  }
+
   private String injectFilters(final String query) {
     if (timeseriesFilters.isEmpty()) {
       return query;
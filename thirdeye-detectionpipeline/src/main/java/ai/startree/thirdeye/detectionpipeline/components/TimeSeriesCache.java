@@ -0,0 +1,563 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.components;
+
+import static ai.startree.thirdeye.spi.datasource.cache.ResultSetGroupSizeEstimator.estimateSizeInBytes;
+import static ai.startree.thirdeye.spi.datasource.macro.MacroMetadataKeys.GRANULARITY;
+import static ai.startree.thirdeye.spi.datasource.macro.MacroMetadataKeys.MAX_TIME_MILLIS;
+import static ai.startree.thirdeye.spi.datasource.macro.MacroMetadataKeys.MIN_TIME_MILLIS;
+import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
+import static ai.startree.thirdeye.spi.util.TimeUtils.isoPeriod;
+
+import ai.startree.thirdeye.detectionpipeline.TimeSeriesCacheConfiguration;
+import ai.startree.thirdeye.detectionpipeline.sql.macro.MacroEngine;
+import ai.startree.thirdeye.detectionpipeline.sql.macro.TimeSplittableQuery;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.dataframe.Series;
+import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
+import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
+import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
+import ai.startree.thirdeye.spi.detection.v2.AbstractDataTableImpl;
+import ai.startree.thirdeye.spi.detection.v2.ColumnType;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.joda.time.Period;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache of time series data fetches, by day.
+ *
+ * A data fetch that can be split by time (see {@link TimeSplittableQuery}) reuses the days
+ * fetched by previous runs of the same query. Only the missing ranges are queried, with one query
+ * per contiguous range, and the results are stitched back in time order. The ranges are fetched
+ * concurrently with {@link ThirdEyeDataSource#fetchDataTableAsync}. For an hourly alert with
+ * a 28 days lookback, a run only queries the days that are not cached yet.
+ *
+ * A day is cached once it ended at least {@link TimeSeriesCacheConfiguration#getMinChunkAge()}
+ * ago: more recent data can still change. Whenever a result cannot be split safely, the data fetch
+ * falls back to the plain query.
+ */
+public class TimeSeriesCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TimeSeriesCache.class);
+  private static final long DAY_MILLIS = Duration.ofDays(1).toMillis();
+
+  private final Cache<ChunkKey, Chunk> cache;
+  private final Duration minChunkAge;
+
+  public TimeSeriesCache(final TimeSeriesCacheConfiguration configuration) {
+    this.cache = CacheBuilder.newBuilder()
+        .maximumWeight(configuration.getMaxSizeInBytes())
+        .weigher((ChunkKey key, Chunk chunk) -> chunk.sizeInBytes)
+        .expireAfterWrite(configuration.getChunkTtl().toMillis(), TimeUnit.MILLISECONDS)
+        .build();
+    this.minChunkAge = configuration.getMinChunkAge();
+  }
+
+  /**
+   * @param query the query, filters included, before macros are applied
+   * @param properties the macro properties of the query on the detection interval
+   * @return the data table, or empty if the data fetch cannot use the cache.
+   */
+  public Optional<DataTable> getDataTable(final ThirdEyeDataSource dataSource,
+      final @Nullable DatasetConfigDTO datasetConfigDTO,
+      final String query,
+      final Interval detectionInterval,
+      final Map<String, String> properties) throws Exception {
+    if (dataSource.getSqlLanguage() == null || dataSource.getSqlExpressionBuilder() == null
+        || !properties.containsKey(MIN_TIME_MILLIS.toString())
+        || !properties.containsKey(MAX_TIME_MILLIS.toString())
+        || !isSubDaily(properties.get(GRANULARITY.toString()))) {
+      return Optional.empty();
+    }
+    final long granularityMillis = isoPeriod(properties.get(GRANULARITY.toString()))
+        .toStandardDuration().getMillis();
+    final Optional<TimeSplittableQuery> splittableQuery = TimeSplittableQuery.parse(
+        dataSource.getSqlLanguage(), query);
+    if (splittableQuery.isEmpty()) {
+      return Optional.empty();
+    }
+
+    final DateTimeZone timeZone = detectionInterval.getChronology().getZone();
+    final Interval filterInterval = new Interval(
+        Long.parseLong(properties.get(MIN_TIME_MILLIS.toString())),
+        Long.parseLong(properties.get(MAX_TIME_MILLIS.toString())),
+        timeZone);
+    final String datasetName = optional(datasetConfigDTO).map(DatasetConfigDTO::getDataset)
+        .orElse(null);
+    final List<Piece> pieces = split(filterInterval, new ChunkKey(dataSource.getName(),
+        datasetName,
+        query,
+        timeZone.getID(),
+        0L));
+    if (pieces.stream().noneMatch(p -> p.key != null)) {
+      return Optional.empty();
+    }
+
+    final Fetch fetch = new Fetch(dataSource, datasetConfigDTO, query, detectionInterval,
+        splittableQuery.get(), granularityMillis);
+    return fetch.stitch(pieces);
+  }
+
+  /**
+   * Splits the interval by day. Days old enough to be cached get a key.
+   */
+  @VisibleForTesting
+  List<Piece> split(final Interval interval, final ChunkKey queryKey) {
+    final long cacheableEnd = System.currentTimeMillis() - minChunkAge.toMillis();
+    final List<Piece> pieces = new ArrayList<>();
+    DateTime day = interval.getStart().withTimeAtStartOfDay();
+    if (day.isBefore(interval.getStart())) {
+      day = day.plusDays(1);
+    }
+    if (interval.getStart().isBefore(day)) {
+      pieces.add(new Piece(new Interval(interval.getStart(), min(day, interval.getEnd())), null));
+    }
+    while (!day.plusDays(1).isAfter(interval.getEnd())
+        && day.plusDays(1).getMillis() <= cacheableEnd) {
+      pieces.add(new Piece(new Interval(day, day.plusDays(1)),
+          queryKey.withChunkStart(day.getMillis())));
+      day = day.plusDays(1);
+    }
+    if (day.isBefore(interval.getEnd())) {
+      pieces.add(new Piece(new Interval(day, interval.getEnd()), null));
+    }
+    return pieces;
+  }
+
+  private static DateTime min(final DateTime a, final DateTime b) {
+    return a.isBefore(b) ? a : b;
+  }
+
+  /**
+   * Days must be split in whole time buckets.
+   */
+  private static boolean isSubDaily(final @Nullable String granularity) {
+    if (granularity == null) {
+      return false;
+    }
+    try {
+      final Period period = isoPeriod(granularity);
+      if (period.getYears() != 0 || period.getMonths() != 0 || period.getWeeks() != 0) {
+        return false;
+      }
+      final long millis = period.toStandardDuration().getMillis();
+      return millis > 0 && DAY_MILLIS % millis == 0;
+    } catch (final RuntimeException e) {
+      return false;
+    }
+  }
+
+  @VisibleForTesting
+  long size() {
+    return cache.size();
+  }
+
+  /**
+   * A data fetch on the pieces of a time range.
+   */
+  private class Fetch {
+
+    private final ThirdEyeDataSource dataSource;
+    private final @Nullable DatasetConfigDTO datasetConfigDTO;
+    private final String query;
+    private final Interval detectionInterval;
+    private final TimeSplittableQuery splittableQuery;
+    private final long granularityMillis;
+
+    private List<String> columns;
+    private List<ColumnType> columnTypes;
+
+    private Fetch(final ThirdEyeDataSource dataSource,
+        final @Nullable DatasetConfigDTO datasetConfigDTO,
+        final String query,
+        final Interval detectionInterval,
+        final TimeSplittableQuery splittableQuery,
+        final long granularityMillis) {
+      this.dataSource = dataSource;
+      this.datasetConfigDTO = datasetConfigDTO;
+      this.query = query;
+      this.detectionInterval = detectionInterval;
+      this.splittableQuery = splittableQuery;
+      this.granularityMillis = granularityMillis;
+    }
+
+    private Optional<DataTable> stitch(final List<Piece> pieces) throws Exception {
+      /* merge the contiguous pieces that are not cached in ranges and fetch all the ranges concurrently */
+      final List<Segment> segments = new ArrayList<>();
+      int i = 0;
+      while (i < pieces.size()) {
+        final Chunk cached = pieces.get(i).key == null ? null
+            : cache.getIfPresent(pieces.get(i).key);
+        if (cached != null) {
+          segments.add(new Segment(i, i + 1, cached, null));
+          i++;
+          continue;
+        }
+        int j = i + 1;
+        while (j < pieces.size()
+            && (pieces.get(j).key == null || cache.getIfPresent(pieces.get(j).key) == null)) {
+          j++;
+        }
+        final Interval range = new Interval(pieces.get(i).interval.getStart(),
+            pieces.get(j - 1).interval.getEnd());
+        segments.add(new Segment(i, j, null, fetchRange(range)));
+        i = j;
+      }
+
+      final List<DataFrame> dataFrames = new ArrayList<>();
+      final List<Chunk> newChunks = new ArrayList<>();
+      final List<ChunkKey> newChunkKeys = new ArrayList<>();
+      int cachedCount = 0;
+      for (final Segment segment : segments) {
+        if (segment.cached != null) {
+          useColumnsOf(segment.cached.columns, segment.cached.columnTypes);
+          dataFrames.add(segment.cached.dataFrame);
+          cachedCount++;
+          continue;
+        }
+        final List<Piece> rangePieces = pieces.subList(segment.from, segment.to);
+        final DataTable rangeResult = join(segment.rangeResult);
+        useColumnsOf(rangeResult.getColumns(), rangeResult.getColumnTypes());
+        final DataFrame rangeDf = rangeResult.getDataFrame();
+        final Optional<List<Chunk>> rangeChunks = splitByPiece(rangeDf, rangePieces,
+            segment.from == 0);
+        if (rangeChunks.isEmpty()) {
+          return Optional.empty();
+        }
+        for (int k = 0; k < rangePieces.size(); k++) {
+          if (rangePieces.get(k).key != null) {
+            newChunkKeys.add(rangePieces.get(k).key);
+            newChunks.add(rangeChunks.get().get(k));
+          }
+        }
+        dataFrames.add(rangeDf);
+      }
+
+      for (int k = 0; k < newChunks.size(); k++) {
+        cache.put(newChunkKeys.get(k), newChunks.get(k));
+      }
+      LOG.debug("Time series data fetch: {} cached days, {} new days. Query: {}", cachedCount,
+          newChunks.size(), query);
+
+      DataFrame stitched = concatenate(dataFrames);
+      final Long limit = splittableQuery.getLimit();
+      if (limit != null && stitched.size() > limit) {
+        stitched = stitched.slice(0, limit.intValue());
+      }
+      return Optional.of(new DataFrameDataTable(columns, columnTypes, stitched));
+    }
+
+    private CompletableFuture<DataTable> fetchRange(final Interval range) throws Exception {
+      final DataSourceRequest request = new MacroEngine(dataSource.getSqlLanguage(),
+          dataSource.getSqlExpressionBuilder(),
+          detectionInterval,
+          datasetConfigDTO,
+          query)
+          .setTimeFilterInterval(range)
+          .prepareRequest();
+      return dataSource.fetchDataTableAsync(request);
+    }
+
+    private DataTable join(final CompletableFuture<DataTable> rangeResult) throws Exception {
+      try {
+        return rangeResult.get();
+      } catch (final ExecutionException e) {
+        if (e.getCause() instanceof Exception) {
+          throw (Exception) e.getCause();
+        }
+        throw e;
+      }
+    }
+
+    private void useColumnsOf(final List<String> columns, final List<ColumnType> columnTypes) {
+      if (this.columns == null) {
+        this.columns = columns;
+        this.columnTypes = columnTypes;
+      }
+    }
+
+    /**
+     * Splits the result of a range by piece.
+     *
+     * @param openStart whether the range starts at the start of the time filter. The first
+     *     time bucket can start up to one granularity before the time filter.
+     * @return the chunk of each piece, or empty if the rows do not fall in the range: the result
+     *     cannot be split by time.
+     */
+    private Optional<List<Chunk>> splitByPiece(final DataFrame rangeDf, final List<Piece> pieces,
+        final boolean openStart) {
+      final Long limit = splittableQuery.getLimit();
+      if (limit != null && rangeDf.size() >= limit) {
+        LOG.debug("Time series data fetch may be truncated. Falling back to the plain query.");
+        return Optional.empty();
+      }
+      final String timeSeriesName = seriesName(rangeDf, splittableQuery.getTimeColumn());
+      if (timeSeriesName == null) {
+        return Optional.empty();
+      }
+      final LongSeries times;
+      try {
+        times = rangeDf.get(timeSeriesName).getLongs();
+      } catch (final RuntimeException e) {
+        return Optional.empty();
+      }
+
+      final List<List<Integer>> rowsByPiece = new ArrayList<>();
+      pieces.forEach(p -> rowsByPiece.add(new ArrayList<>()));
+      for (int row = 0; row < times.size(); row++) {
+        if (times.isNull(row)) {
+          return Optional.empty();
+        }
+        final int piece = pieceIndex(pieces, times.getLong(row), openStart, granularityMillis);
+        if (piece < 0) {
+          LOG.debug("Time series data fetch cannot be split by time. Falling back to the plain query.");
+          return Optional.empty();
+        }
+        rowsByPiece.get(piece).add(row);
+      }
+
+      final List<Chunk> chunks = new ArrayList<>();
+      for (final List<Integer> rows : rowsByPiece) {
+        final int[] fromIndex = rows.stream().mapToInt(Integer::intValue).toArray();
+        chunks.add(new Chunk(columns, columnTypes, rangeDf.project(fromIndex)));
+      }
+      return Optional.of(chunks);
+    }
+  }
+
+  private static int pieceIndex(final List<Piece> pieces, final long time,
+      final boolean openStart, final long granularityMillis) {
+    for (int i = 0; i < pieces.size(); i++) {
+      final Interval interval = pieces.get(i).interval;
+      /* the first bucket can start before the time filter, but never in a cached piece */
+      final long start = i == 0 && openStart && pieces.get(i).key == null
+          ? interval.getStartMillis() - granularityMillis + 1
+          : interval.getStartMillis();
+      final boolean afterStart = time >= start;
+      if (afterStart && time < interval.getEndMillis()) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  private static @Nullable String seriesName(final DataFrame dataFrame, final String column) {
+    return dataFrame.getSeriesNames().stream()
+        .filter(column::equalsIgnoreCase)
+        .findFirst()
+        .orElse(null);
+  }
+
+  private static DataFrame concatenate(final List<DataFrame> dataFrames) {
+    final List<DataFrame> nonEmpty = dataFrames.stream()
+        .filter(df -> df.size() > 0)
+        .collect(Collectors.toList());
+    if (nonEmpty.isEmpty()) {
+      return dataFrames.get(0).copy();
+    }
+    return nonEmpty.get(0).append(nonEmpty.subList(1, nonEmpty.size()));
+  }
+
+  @VisibleForTesting
+  static class Piece {
+
+    private final Interval interval;
+    /**
+     * Null if the piece is not cached.
+     */
+    private final @Nullable ChunkKey key;
+
+    private Piece(final Interval interval, final @Nullable ChunkKey key) {
+      this.interval = interval;
+      this.key = key;
+    }
+
+    Interval getInterval() {
+      return interval;
+    }
+
+    boolean isCacheable() {
+      return key != null;
+    }
+  }
+
+  @VisibleForTesting
+  static class ChunkKey {
+
+    private final String dataSource;
+    private final @Nullable String dataset;
+    private final String query;
+    private final String timeZone;
+    private final long chunkStart;
+
+    ChunkKey(final String dataSource, final @Nullable String dataset, final String query,
+        final String timeZone, final long chunkStart) {
+      this.dataSource = dataSource;
+      this.dataset = dataset;
+      this.query = query;
+      this.timeZone = timeZone;
+      this.chunkStart = chunkStart;
+    }
+
+    private ChunkKey withChunkStart(final long chunkStart) {
+      return new ChunkKey(dataSource, dataset, query, timeZone, chunkStart);
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof ChunkKey)) {
+        return false;
+      }
+      final ChunkKey that = (ChunkKey) o;
+      return chunkStart == that.chunkStart
+          && dataSource.equals(that.dataSource)
+          && Objects.equals(dataset, that.dataset)
+          && query.equals(that.query)
+          && timeZone.equals(that.timeZone);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(dataSource, dataset, query, timeZone, chunkStart);
+    }
+  }
+
+  /**
+   * Pieces [from, to) served by a cached chunk or by a range fetch.
+   */
+  private static class Segment {
+
+    private final int from;
+    private final int to;
+    private final @Nullable Chunk cached;
+    private final @Nullable CompletableFuture<DataTable> rangeResult;
+
+    private Segment(final int from, final int to, final @Nullable Chunk cached,
+        final @Nullable CompletableFuture<DataTable> rangeResult) {
+      this.from = from;
+      this.to = to;
+      this.cached = cached;
+      this.rangeResult = rangeResult;
+    }
+  }
+
+  private static class Chunk {
+
+    private final List<String> columns;
+    private final List<ColumnType> columnTypes;
+    private final DataFrame dataFrame;
+    private final int sizeInBytes;
+
+    private Chunk(final List<String> columns, final List<ColumnType> columnTypes,
+        final DataFrame dataFrame) {
+      this.columns = columns;
+      this.columnTypes = columnTypes;
+      this.dataFrame = dataFrame;
+      sizeInBytes = (int) Math.min(estimateSizeInBytes(dataFrame), Integer.MAX_VALUE);
+    }
+  }
+
+  /**
+   * DataTable backed by a DataFrame.
+   */
+  private static class DataFrameDataTable extends AbstractDataTableImpl {
+
+    private final List<String> columns;
+    private final List<ColumnType> columnTypes;
+    private final DataFrame dataFrame;
+    private final List<Series> series = new ArrayList<>();
+
+    private DataFrameDataTable(final List<String> columns, final List<ColumnType> columnTypes,
+        final DataFrame dataFrame) {
+      this.columns = columns;
+      this.columnTypes = columnTypes;
+      this.dataFrame = dataFrame;
+      for (final String column : columns) {
+        series.add(dataFrame.get(Objects.requireNonNull(seriesName(dataFrame, column))));
+      }
+    }
+
+    @Override
+    public int getRowCount() {
+      return dataFrame.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+      return columns.size();
+    }
+
+    @Override
+    public List<String> getColumns() {
+      return columns;
+    }
+
+    @Override
+    public List<ColumnType> getColumnTypes() {
+      return columnTypes;
+    }
+
+    @Override
+    public DataFrame getDataFrame() {
+      return dataFrame.copy();
+    }
+
+    @Override
+    public Object getObject(final int rowIdx, final int colIdx) {
+      return series.get(colIdx).getObject(rowIdx);
+    }
+
+    @Override
+    public boolean getBoolean(final int rowIdx, final int colIdx) {
+      return series.get(colIdx).getBoolean(rowIdx) != 0;
+    }
+
+    @Override
+    public String getString(final int rowIdx, final int colIdx) {
+      return series.get(colIdx).getString(rowIdx);
+    }
+
+    @Override
+    public long getLong(final int rowIdx, final int colIdx) {
+      return series.get(colIdx).getLong(rowIdx);
+    }
+
+    @Override
+    public double getDouble(final int rowIdx, final int colIdx) {
+      return series.get(colIdx).getDouble(rowIdx);
+    }
+  }
+}
@@ -15,7 +15,6 @@ package ai.startree.thirdeye.detectionpipeline.operator;
 
 import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
 import static java.util.Collections.emptyMap;
-import static java.util.Objects.requireNonNull;
 
 import ai.startree.thirdeye.detectionpipeline.OperatorContext;
 import ai.startree.thirdeye.detectionpipeline.operator.AnomalyDetectorOperatorResult.Builder;
@@ -29,6 +28,7 @@ public class CombinerOperator extends DetectionPipelineOperator {
 
   public static final String DEFAULT_INPUT_KEY = "input_Combiner";
   public static final String DEFAULT_OUTPUT_KEY = "output_Combiner";
+  private final Map<String, OperatorResult> results = new HashMap<>();
   private Map<String, Object> params;
 
   public CombinerOperator() {
@@ -58,19 +58,26 @@ public class CombinerOperator extends DetectionPipelineOperator {
     params = optional(getPlanNode().getParams()).map(TemplatableMap::valueMap).orElse(emptyMap());
   }
 
+  /**
+   * Adds the outputs of a fork join item. Items can be added as they complete, before execute.
+   *
+   * @param index the index of the enumeration item
+   */
+  public void add(final ForkJoinResultItem result, final int index) {
+    final String prefix = index + ".";
+    result
+        .getResults()
+        .forEach((k, v) -> results.put(prefix + k, wrapIfReqd(result.getEnumerationItem(), v)));
+  }
+
   @Override
   public void execute() throws Exception {
-    final ForkJoinResult forkJoinResult = (ForkJoinResult) requireNonNull(inputMap.get(
-        DEFAULT_INPUT_KEY), "No input to combiner");
-    final var forkJoinResults = forkJoinResult.getResults();
-
-    final Map<String, OperatorResult> results = new HashMap<>();
-    for (int i = 0; i < forkJoinResults.size(); i++) {
-      final var result = forkJoinResults.get(i);
-      final String prefix = i + ".";
-      result
-          .getResults()
-          .forEach((k, v) -> results.put(prefix + k, wrapIfReqd(result.getEnumerationItem(), v)));
+    final ForkJoinResult forkJoinResult = (ForkJoinResult) inputMap.get(DEFAULT_INPUT_KEY);
+    if (forkJoinResult != null) {
+      final var forkJoinResults = forkJoinResult.getResults();
+      for (int i = 0; i < forkJoinResults.size(); i++) {
+        add(forkJoinResults.get(i), i);
+      }
     }
     setOutput(DEFAULT_OUTPUT_KEY, new CombinerResult(results));
   }
@@ -19,7 +19,9 @@ import static java.util.Objects.requireNonNull;
 
 import ai.startree.thirdeye.datasource.cache.DataSourceCache;
 import ai.startree.thirdeye.detectionpipeline.OperatorContext;
+import ai.startree.thirdeye.detectionpipeline.components.DataFetchBatch;
 import ai.startree.thirdeye.detectionpipeline.components.GenericDataFetcher;
+import ai.startree.thirdeye.detectionpipeline.components.TimeSeriesCache;
 import ai.startree.thirdeye.detectionpipeline.spec.DataFetcherSpec;
 import ai.startree.thirdeye.spi.Constants;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
@@ -32,10 +34,17 @@ import ai.startree.thirdeye.spi.detection.v2.DataTable;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 
 public class DataFetcherOperator extends DetectionPipelineOperator {
 
+  public static final String K_DATA_FETCH_BATCH = "dataFetchBatch";
+  public static final String K_DATA_FETCH_BATCH_ITEM = "dataFetchBatchItem";
+  public static final String K_TIME_SERIES_CACHE = "timeSeriesCache";
+
   private DataFetcher<DataFetcherSpec> dataFetcher;
+  private DataFetchBatch dataFetchBatch;
+  private int dataFetchBatchItem;
 
   public DataFetcherOperator() {
     super();
@@ -57,12 +66,20 @@ public class DataFetcherOperator extends DetectionPipelineOperator {
     final Map<String, Object> params = optional(planNode.getParams()).map(TemplatableMap::valueMap)
         .orElse(null);
     final List<Predicate> predicates = optional(context.getPredicates()).orElse(List.of());
-    dataFetcher = createDataFetcher(params, dataSourceCache, datasetDao, predicates);
+    final TimeSeriesCache timeSeriesCache = (TimeSeriesCache) context.getProperties()
+        .get(K_TIME_SERIES_CACHE);
+    dataFetcher = createDataFetcher(params, dataSourceCache, datasetDao, predicates,
+        timeSeriesCache);
+
+    dataFetchBatch = (DataFetchBatch) context.getProperties().get(K_DATA_FETCH_BATCH);
+    if (dataFetchBatch != null) {
+      dataFetchBatchItem = (int) context.getProperties().get(K_DATA_FETCH_BATCH_ITEM);
+    }
   }
 
   protected DataFetcher<DataFetcherSpec> createDataFetcher(final Map<String, Object> params,
       final DataSourceCache dataSourceCache, final DatasetConfigManager datasetDao,
-      final List<Predicate> predicates) {
+      final List<Predicate> predicates, final TimeSeriesCache timeSeriesCache) {
     final Map<String, Object> componentSpec = getComponentSpec(params);
     final DataFetcherSpec spec = requireNonNull(
         AbstractSpec.fromProperties(componentSpec, DataFetcherSpec.class),
@@ -70,6 +87,7 @@ public class DataFetcherOperator extends DetectionPipelineOperator {
     spec.setDataSourceCache(dataSourceCache);
     spec.setDatasetDao(datasetDao);
     spec.setTimeseriesFilters(predicates);
+    spec.setTimeSeriesCache(timeSeriesCache);
 
     final GenericDataFetcher genericDataFetcher = new GenericDataFetcher();
     genericDataFetcher.init(spec);
@@ -79,11 +97,21 @@ public class DataFetcherOperator extends DetectionPipelineOperator {
 
   @Override
   public void execute() throws Exception {
-    final DataTable dataTable = dataFetcher.getDataTable(detectionInterval);
+    final Optional<DataTable> batchDataTable = fetchFromBatch();
+    final DataTable dataTable = batchDataTable.isPresent()
+        ? batchDataTable.get()
+        : dataFetcher.getDataTable(detectionInterval);
     resultMap.put(outputKeyMap.values().iterator().next(),
         dataTable);
   }
 
+  private Optional<DataTable> fetchFromBatch() {
+    if (dataFetchBatch == null) {
+      return Optional.empty();
+    }
+    return dataFetchBatch.getDataTable(dataFetchBatchItem, detectionInterval);
+  }
+
   @Override
   public String getOperatorName() {
     return "DataFetcherOperator";
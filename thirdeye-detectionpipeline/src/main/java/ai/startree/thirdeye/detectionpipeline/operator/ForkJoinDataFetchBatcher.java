@@ -0,0 +1,125 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.operator;
+
+import static ai.startree.thirdeye.detectionpipeline.operator.DetectionPipelineOperator.getComponentSpec;
+
+import ai.startree.thirdeye.datasource.cache.DataSourceCache;
+import ai.startree.thirdeye.detectionpipeline.PlanNode;
+import ai.startree.thirdeye.detectionpipeline.PlanNodeContext;
+import ai.startree.thirdeye.detectionpipeline.components.DataFetchBatch;
+import ai.startree.thirdeye.detectionpipeline.components.GenericDataFetcher;
+import ai.startree.thirdeye.detectionpipeline.plan.DataFetcherPlanNode;
+import ai.startree.thirdeye.detectionpipeline.spec.DataFetcherSpec;
+import ai.startree.thirdeye.detectionpipeline.sql.batch.BatchQuery;
+import ai.startree.thirdeye.detectionpipeline.sql.batch.BatchQueryEngine;
+import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
+import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
+import ai.startree.thirdeye.spi.detection.AbstractSpec;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shares the data fetches of the cloned pipelines of a fork join.
+ *
+ * For each DataFetcher node of the pipeline, the queries of all the enumeration items are merged
+ * in a single batch query when they only differ by equality filters. See {@link BatchQueryEngine}.
+ */
+public class ForkJoinDataFetchBatcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ForkJoinDataFetchBatcher.class);
+
+  /**
+   * @param clonedPipelines the cloned pipeline plan nodes of each enumeration item
+   */
+  public void batch(final List<Map<String, PlanNode>> clonedPipelines) {
+    if (clonedPipelines.size() < 2) {
+      return;
+    }
+    for (final String nodeName : clonedPipelines.get(0).keySet()) {
+      final List<DataFetcherPlanNode> nodes = new ArrayList<>();
+      for (final Map<String, PlanNode> pipeline : clonedPipelines) {
+        final PlanNode node = pipeline.get(nodeName);
+        if (!(node instanceof DataFetcherPlanNode)) {
+          break;
+        }
+        nodes.add((DataFetcherPlanNode) node);
+      }
+      if (nodes.size() == clonedPipelines.size()) {
+        try {
+          batchNodes(nodes);
+        } catch (final Exception e) {
+          LOG.warn("Could not batch the data fetches of node {}. Fetching data per item.",
+              nodeName, e);
+        }
+      }
+    }
+  }
+
+  private void batchNodes(final List<DataFetcherPlanNode> nodes) {
+    final List<DataFetcherSpec> specs = new ArrayList<>();
+    for (final DataFetcherPlanNode node : nodes) {
+      final List<?> predicates = node.getContext().getPredicates();
+      if (predicates != null && !predicates.isEmpty()) {
+        return;
+      }
+      specs.add(AbstractSpec.fromProperties(getComponentSpec(node.getParams()),
+          DataFetcherSpec.class));
+    }
+    final DataFetcherSpec first = specs.get(0);
+    final boolean sameTable = specs.stream().allMatch(
+        s -> s.getQuery() != null
+            && Objects.equals(s.getDataSource(), first.getDataSource())
+            && Objects.equals(s.getTableName(), first.getTableName()));
+    if (!sameTable || first.getDataSource() == null) {
+      return;
+    }
+
+    final PlanNodeContext context = nodes.get(0).getContext();
+    final DataSourceCache dataSourceCache = context.getApplicationContext().getDataSourceCache();
+    final ThirdEyeDataSource dataSource = dataSourceCache.getDataSource(first.getDataSource());
+    final SqlLanguage sqlLanguage = dataSource == null ? null : dataSource.getSqlLanguage();
+    if (sqlLanguage == null) {
+      return;
+    }
+
+    final List<String> queries = specs.stream()
+        .map(DataFetcherSpec::getQuery)
+        .collect(Collectors.toList());
+    final Optional<BatchQuery> batchQuery = new BatchQueryEngine(sqlLanguage, queries)
+        .prepareBatch();
+    if (batchQuery.isEmpty()) {
+      return;
+    }
+
+    first.setQuery(batchQuery.get().getQuery());
+    first.setDataSourceCache(dataSourceCache)
+        .setDatasetDao(context.getApplicationContext().getDatasetConfigManager())
+        .setTimeseriesFilters(List.of())
+        .setTimeSeriesCache(context.getApplicationContext().getTimeSeriesCache());
+    final GenericDataFetcher batchFetcher = new GenericDataFetcher();
+    batchFetcher.init(first);
+
+    final DataFetchBatch dataFetchBatch = new DataFetchBatch(batchFetcher, batchQuery.get());
+    for (int i = 0; i < nodes.size(); i++) {
+      nodes.get(i).setDataFetchBatch(dataFetchBatch, i);
+    }
+  }
+}
@@ -72,11 +72,11 @@ public class ForkJoinOperator extends DetectionPipelineOperator {
     final ForkJoinParallelExecutor parallelExecutor = new ForkJoinParallelExecutor(
         applicationContext.getConfiguration().getForkjoin(),
         applicationContext.getSubTaskExecutor());
-    final var allResults = parallelExecutor.execute(root, enumerationItems);
-
-    /* Combine results */
-    final Map<String, OperatorResult> outputs = runCombiner(new ForkJoinResult(allResults));
-    resultMap.putAll(outputs);
+    /* Combine results as the items complete */
+    final CombinerOperator combinerOp = (CombinerOperator) combiner.buildOperator();
+    parallelExecutor.execute(root, enumerationItems, combinerOp::add);
+    combinerOp.execute();
+    resultMap.putAll(combinerOp.getOutputs());
   }
 
   private String dryRunOutputName() {
@@ -90,15 +90,6 @@ public class ForkJoinOperator extends DetectionPipelineOperator {
     return (EnumeratorResult) outputs.get(EnumeratorOperator.DEFAULT_OUTPUT_KEY);
   }
 
-  private Map<String, OperatorResult> runCombiner(final ForkJoinResult forkJoinResult)
-      throws Exception {
-    final Operator combinerOp = combiner.buildOperator();
-    combinerOp.setInput(CombinerOperator.DEFAULT_INPUT_KEY, forkJoinResult);
-    combinerOp.execute();
-
-    return combinerOp.getOutputs();
-  }
-
   @Override
   public String getOperatorName() {
     return "forkjoin";
@@ -15,6 +15,7 @@
 package ai.startree.thirdeye.detectionpipeline.operator;
 
 import static ai.startree.thirdeye.detectionpipeline.PlanExecutor.executePlanNode;
+import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
 
 import ai.startree.thirdeye.detectionpipeline.ContextKey;
 import ai.startree.thirdeye.detectionpipeline.ForkJoinConfiguration;
@@ -22,19 +23,37 @@ import ai.startree.thirdeye.detectionpipeline.PlanExecutor;
 import ai.startree.thirdeye.detectionpipeline.PlanNode;
 import ai.startree.thirdeye.spi.datalayer.dto.EnumerationItemDTO;
 import ai.startree.thirdeye.spi.detection.v2.OperatorResult;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.function.ObjIntConsumer;
 import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+/**
+ * Runs the cloned pipeline of each enumeration item on the shared sub task executor.
+ *
+ * At most {@link ForkJoinConfiguration#getMaxItemsInFlight()} items of a fork join are submitted
+ * at the same time, so that the items of other fork joins are not queued behind all the items of
+ * a large fork join. Results are consumed in completion order.
+ */
 public class ForkJoinParallelExecutor {
 
+  private static final Logger LOG = LoggerFactory.getLogger(ForkJoinParallelExecutor.class);
+
   private final ForkJoinConfiguration config;
   private final ExecutorService subTaskExecutor;
 
@@ -43,28 +62,58 @@ public class ForkJoinParallelExecutor {
     this.config = config;
   }
 
+  /**
+   * @return the results of the items, in the order of the enumeration items. If partial results
+   *     are enabled, the failed items are not in the list.
+   */
   public List<ForkJoinResultItem> execute(final PlanNode root,
       final List<EnumerationItemDTO> enumerationItems) {
+    final ForkJoinResultItem[] results = new ForkJoinResultItem[enumerationItems.size()];
+    execute(root, enumerationItems, (result, index) -> results[index] = result);
+    return Arrays.stream(results)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Streams the result of each item to the consumer as soon as it is available.
+   *
+   * The consumer is called on the calling thread with the result and the index of the
+   * enumeration item.
+   */
+  public void execute(final PlanNode root,
+      final List<EnumerationItemDTO> enumerationItems,
+      final ObjIntConsumer<ForkJoinResultItem> consumer) {
     final var callables = prepareCallables(root, enumerationItems);
-    return executeAll(callables);
+    executeAll(callables, consumer);
   }
 
   public List<Callable<ForkJoinResultItem>> prepareCallables(
       final PlanNode root, final List<EnumerationItemDTO> enumerationItems) {
     final List<Callable<ForkJoinResultItem>> callables = new ArrayList<>();
 
+    /* Clone all nodes for execution. Feed enumeration result */
+    final List<Map<String, PlanNode>> clonedPipelines = new ArrayList<>();
     for (final var enumerationItem : enumerationItems) {
-      /* Clone all nodes for execution. Feed enumeration result */
-      final Map<String, PlanNode> clonedPipelinePlanNodes = new ForkJoinPipelineBuilder()
+      clonedPipelines.add(new ForkJoinPipelineBuilder()
           .clonePipelinePlanNodes(root
               .getContext()
-              .getPipelinePlanNodes(), enumerationItem);
+              .getPipelinePlanNodes(), enumerationItem));
+    }
+    if (config.isBatchDataFetches()) {
+      new ForkJoinDataFetchBatcher().batch(clonedPipelines);
+    }
+
+    for (int i = 0; i < enumerationItems.size(); i++) {
+      final var enumerationItem = enumerationItems.get(i);
+      final Map<String, PlanNode> clonedPipelinePlanNodes = clonedPipelines.get(i);
 
       /* Get the new root node in the cloned DAG */
       final PlanNode rootClone = clonedPipelinePlanNodes.get(root.getName());
 
       /* Create a callable for parallel execution */
       callables.add((() -> {
+        final long start = System.nanoTime();
         /* The context stores all the outputs from all the nodes */
         final Map<ContextKey, OperatorResult> context = new HashMap<>();
 
@@ -73,26 +122,83 @@ public class ForkJoinParallelExecutor {
 
         /* Return the output */
         return new ForkJoinResultItem(enumerationItem,
-            PlanExecutor.getOutput(context, rootClone.getName()));
+            PlanExecutor.getOutput(context, rootClone.getName()),
+            Duration.ofNanos(System.nanoTime() - start));
       }));
     }
     return callables;
   }
 
-  private List<ForkJoinResultItem> executeAll(final List<Callable<ForkJoinResultItem>> callables) {
-    final var futures = callables.stream()
-        .map(subTaskExecutor::submit)
-        .collect(Collectors.toList());
+  private void executeAll(final List<Callable<ForkJoinResultItem>> callables,
+      final ObjIntConsumer<ForkJoinResultItem> consumer) {
+    final int maxItemsInFlight = maxItemsInFlight(config);
+    final long deadline = System.nanoTime() + config.getTimeout().toNanos();
+    final CompletionService<ForkJoinResultItem> completionService =
+        new ExecutorCompletionService<>(subTaskExecutor);
+    final Map<Future<ForkJoinResultItem>, Integer> running = new HashMap<>();
+
+    int next = 0;
+    int successes = 0;
+    Exception firstFailure = null;
     try {
-
-      final List<ForkJoinResultItem> results = new ArrayList<>();
-      for (final var future : futures) {
-        results.add(future.get(config.getTimeout().getSeconds(), TimeUnit.SECONDS));
+      while (next < callables.size() || !running.isEmpty()) {
+        while (next < callables.size() && running.size() < maxItemsInFlight) {
+          running.put(completionService.submit(callables.get(next)), next);
+          next++;
+        }
+
+        final Future<ForkJoinResultItem> done = completionService.poll(
+            deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (done == null) {
+          final int timedOut = running.size() + callables.size() - next;
+          final TimeoutException e = new TimeoutException(String.format(
+              "Fork join timed out after %s. %d of %d items did not complete.",
+              config.getTimeout(), timedOut, callables.size()));
+          handleFailure(e);
+          LOG.warn(e.getMessage());
+          firstFailure = optional(firstFailure).orElse(e);
+          break;
+        }
+
+        final int index = running.remove(done);
+        try {
+          final ForkJoinResultItem result = done.get();
+          LOG.debug("Fork join item {} completed in {} ms", index,
+              result.getDuration().toMillis());
+          consumer.accept(result, index);
+          successes++;
+        } catch (final ExecutionException e) {
+          handleFailure(e);
+          LOG.warn("Fork join item {} failed. Keeping the results of the other items.", index,
+              e.getCause());
+          firstFailure = optional(firstFailure).orElse(e);
+        }
       }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } finally {
+      running.keySet().forEach(f -> f.cancel(true));
+    }
+
+    if (successes == 0 && firstFailure != null) {
+      throw new RuntimeException(firstFailure);
+    }
+  }
+
+  /**
+   * Defaults to the size of the sub task pool: the cap is opt-in.
+   */
+  static int maxItemsInFlight(final ForkJoinConfiguration config) {
+    return Math.max(1,
+        optional(config.getMaxItemsInFlight()).orElse(config.getParallelism()));
+  }
 
-      return results;
-    } catch (final InterruptedException | ExecutionException | TimeoutException e) {
-      futures.forEach(f -> f.cancel(true));
+  /**
+   * Fails the fork join, unless partial results are enabled.
+   */
+  private void handleFailure(final Exception e) {
+    if (!config.isPartialResults()) {
       throw new RuntimeException(e);
     }
   }
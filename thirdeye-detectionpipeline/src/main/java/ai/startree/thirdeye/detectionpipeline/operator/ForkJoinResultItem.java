@@ -16,17 +16,21 @@ package ai.startree.thirdeye.detectionpipeline.operator;
 
 import ai.startree.thirdeye.spi.datalayer.dto.EnumerationItemDTO;
 import ai.startree.thirdeye.spi.detection.v2.OperatorResult;
+import java.time.Duration;
 import java.util.Map;
 
 public class ForkJoinResultItem {
 
   private final EnumerationItemDTO enumerationItem;
   private final Map<String, OperatorResult> results;
+  private final Duration duration;
 
   public ForkJoinResultItem(final EnumerationItemDTO enumerationItem,
-      final Map<String, OperatorResult> results) {
+      final Map<String, OperatorResult> results,
+      final Duration duration) {
     this.enumerationItem = enumerationItem;
     this.results = results;
+    this.duration = duration;
   }
 
   public EnumerationItemDTO getEnumerationItem() {
@@ -36,4 +40,11 @@ public class ForkJoinResultItem {
   public Map<String, OperatorResult> getResults() {
     return results;
   }
+
+  /**
+   * Time spent executing the item pipeline. Does not include the time spent in the queue.
+   */
+  public Duration getDuration() {
+    return duration;
+  }
 }
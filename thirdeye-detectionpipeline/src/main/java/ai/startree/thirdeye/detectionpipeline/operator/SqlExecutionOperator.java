@@ -18,12 +18,12 @@ import static com.google.common.base.Preconditions.checkArgument;
 
 import ai.startree.thirdeye.detectionpipeline.OperatorContext;
 import ai.startree.thirdeye.detectionpipeline.operator.sql.DataTableToSqlAdapterFactory;
+import ai.startree.thirdeye.detectionpipeline.operator.sql.JdbcConnectionPool;
 import ai.startree.thirdeye.spi.datalayer.dto.PlanNodeBean.OutputBean;
 import ai.startree.thirdeye.spi.detection.v2.DataTable;
 import ai.startree.thirdeye.spi.detection.v2.DataTableToSqlAdapter;
 import ai.startree.thirdeye.util.ThirdEyeUtils;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -45,6 +45,9 @@ public class SqlExecutionOperator extends DetectionPipelineOperator {
    */
   private static final String JDBC_CONNECTION_PARAMS = "jdbc.parameters";
   private static final String DEFAULT_SQL_ENGINE = "HYPERSQL";
+  private static final int MAX_IDLE_CONNECTIONS_PER_ENGINE = 8;
+  private static final JdbcConnectionPool CONNECTION_POOL = new JdbcConnectionPool(
+      MAX_IDLE_CONNECTIONS_PER_ENGINE);
 
   private final List<String> queries = new ArrayList<>();
   private DataTableToSqlAdapter dataTableToSqlAdapter;
@@ -73,28 +76,17 @@ public class SqlExecutionOperator extends DetectionPipelineOperator {
 
   @Override
   public final void execute() throws Exception {
-    Connection connection = getConnection();
-    initTables(connection);
-    runQueries(connection);
-    dataTableToSqlAdapter.tearDown(connection);
-  }
-
-  private Connection getConnection() throws ClassNotFoundException, SQLException {
+    final Connection connection = CONNECTION_POOL.borrow(dataTableToSqlAdapter);
     try {
-      Class.forName(dataTableToSqlAdapter.jdbcDriverClassName());
+      initTables(connection);
+      runQueries(connection);
+      dataTableToSqlAdapter.tearDown(connection);
     } catch (final Exception e) {
-      LOG.error("ERROR: failed to load JDBC driver class {}.",
-          dataTableToSqlAdapter.jdbcDriverClassName(),
-          e);
+      // the state of the connection is unknown - do not reuse it
+      JdbcConnectionPool.close(connection);
       throw e;
     }
-    final Connection connection = DriverManager.getConnection(dataTableToSqlAdapter.jdbcConnection(),
-        dataTableToSqlAdapter.jdbcProperties());
-    LOG.debug("Successfully connected to JDBC connection: {} with driver class: {} ",
-        dataTableToSqlAdapter.jdbcConnection(),
-        dataTableToSqlAdapter.jdbcDriverClassName());
-
-    return connection;
+    CONNECTION_POOL.release(dataTableToSqlAdapter, connection);
   }
 
   private void initTables(final Connection connection) throws SQLException {
@@ -121,9 +113,10 @@ public class SqlExecutionOperator extends DetectionPipelineOperator {
   }
 
   private DataTable runQuery(final String query, final Connection connection) throws SQLException {
-    final Statement stmt = connection.createStatement();
-    final ResultSet resultSet = stmt.executeQuery(query);
-    return ThirdEyeUtils.getDataTableFromResultSet(resultSet);
+    try (final Statement stmt = connection.createStatement();
+        final ResultSet resultSet = stmt.executeQuery(query)) {
+      return ThirdEyeUtils.getDataTableFromResultSet(resultSet);
+    }
   }
 
   @Override
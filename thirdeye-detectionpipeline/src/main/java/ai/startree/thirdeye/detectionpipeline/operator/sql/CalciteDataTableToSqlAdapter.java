@@ -35,6 +35,7 @@ import org.apache.calcite.schema.SchemaPlus;
  * By default, add bigquery functions: to have TIMESTAMP_MILLIS(integer) and UNIX_MILLIS(timestamp)
  * available.
  * Window and analytical functions are supported.
+ * The DataFrames are not copied: Calcite reads the DataFrame series directly.
  */
 public class CalciteDataTableToSqlAdapter implements DataTableToSqlAdapter {
 
@@ -78,7 +79,10 @@ public class CalciteDataTableToSqlAdapter implements DataTableToSqlAdapter {
   }
 
   @Override
-  public void tearDown(final Connection connection) {
-    // nothing to do - GC should be enough
+  public void tearDown(final Connection connection) throws SQLException {
+    // the connection may be reused - do not keep a reference to the dataframes
+    connection.unwrap(CalciteConnection.class)
+        .getRootSchema()
+        .add(DATAFRAME_DATABASE, new DataFrameSchema(Map.of()));
   }
 }
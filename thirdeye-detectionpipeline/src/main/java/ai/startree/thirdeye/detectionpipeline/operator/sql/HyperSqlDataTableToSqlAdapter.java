@@ -17,7 +17,10 @@ import ai.startree.thirdeye.spi.detection.v2.ColumnType;
 import ai.startree.thirdeye.spi.detection.v2.DataTable;
 import ai.startree.thirdeye.spi.detection.v2.DataTableToSqlAdapter;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -26,9 +29,17 @@ import java.util.Properties;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Perform SQL on a DataTable with an in-memory HyperSQL database.
+ *
+ * Tables are session tables: they are only visible to the connection that created them, so
+ * concurrent executions do not conflict, and a connection can be reused once its tables are
+ * dropped. Rows are loaded with batched prepared inserts.
+ */
 public class HyperSqlDataTableToSqlAdapter implements DataTableToSqlAdapter {
 
-  private final Logger LOG = LoggerFactory.getLogger(getClass());
+  private static final Logger LOG = LoggerFactory.getLogger(HyperSqlDataTableToSqlAdapter.class);
+  private static final int INSERT_BATCH_SIZE = 1000;
 
   private final List<String> insertedTable = new ArrayList<>();
 
@@ -36,7 +47,7 @@ public class HyperSqlDataTableToSqlAdapter implements DataTableToSqlAdapter {
 
   @Override
   public String jdbcConnection() {
-    return "jdbc:hsqldb:mem";
+    return "jdbc:hsqldb:mem:thirdeye_sql_execution";
   }
 
   @Override
@@ -60,17 +71,17 @@ public class HyperSqlDataTableToSqlAdapter implements DataTableToSqlAdapter {
 
   @Override
   public void tearDown(final Connection connection) throws SQLException {
-    // Destroy database
     LOG.debug("trying to drop all the tables to clean up the environment.");
     for (final String tableName : insertedTable) {
       destroyTable(connection, tableName);
     }
+    insertedTable.clear();
   }
 
   private void destroyTable(final Connection c, final String tableName) throws SQLException {
-    final String dropTableStatement = "DROP TABLE " + tableName + " IF EXISTS";
-    try {
-      c.prepareCall(dropTableStatement).execute();
+    final String dropTableStatement = "DROP TABLE SESSION." + tableName + " IF EXISTS";
+    try (final Statement statement = c.createStatement()) {
+      statement.execute(dropTableStatement);
     } catch (final SQLException e) {
       LOG.error("Failed to drop table: {} with sql: {}",
           tableName,
@@ -89,17 +100,34 @@ public class HyperSqlDataTableToSqlAdapter implements DataTableToSqlAdapter {
     createTable(c, tableName, dataTable);
 
     // Insert all rows into the table
-    for (int rowIdx = 0; rowIdx < dataTable.getRowCount(); rowIdx++) {
-      final String insertionStatement = getRowInsertionStatement(tableName, rowIdx, dataTable);
-      try {
-        c.prepareCall(insertionStatement).execute();
-      } catch (final SQLException e) {
-        LOG.error("Failed to insert row idx: {}, insertion sql: {}",
-            rowIdx,
-            insertionStatement,
-            e);
-        throw e;
+    final String insertionStatement = getInsertionStatement(tableName, dataTable.getColumnCount());
+    final int[] sqlTypes = dataTable.getColumnTypes().stream()
+        .mapToInt(HyperSqlDataTableToSqlAdapter::getSqlType)
+        .toArray();
+    try (final PreparedStatement statement = c.prepareStatement(insertionStatement)) {
+      for (int rowIdx = 0; rowIdx < dataTable.getRowCount(); rowIdx++) {
+        for (int colIdx = 0; colIdx < dataTable.getColumnCount(); colIdx++) {
+          final Object value = dataTable.getObject(rowIdx, colIdx);
+          if (value == null) {
+            statement.setNull(colIdx + 1, sqlTypes[colIdx]);
+          } else if (sqlTypes[colIdx] == Types.OTHER) {
+            statement.setObject(colIdx + 1, value);
+          } else {
+            statement.setObject(colIdx + 1, value, sqlTypes[colIdx]);
+          }
+        }
+        statement.addBatch();
+        if ((rowIdx + 1) % INSERT_BATCH_SIZE == 0) {
+          statement.executeBatch();
+        }
       }
+      statement.executeBatch();
+    } catch (final SQLException e) {
+      LOG.error("Failed to insert rows in table: {}, insertion sql: {}",
+          tableName,
+          insertionStatement,
+          e);
+      throw e;
     }
   }
 
@@ -108,8 +136,8 @@ public class HyperSqlDataTableToSqlAdapter implements DataTableToSqlAdapter {
     final String tableCreationStatement = getTableCreationStatement(tableName,
         dataTable.getColumns(),
         dataTable.getColumnTypes());
-    try {
-      c.prepareCall(tableCreationStatement).execute();
+    try (final Statement statement = c.createStatement()) {
+      statement.execute(tableCreationStatement);
       LOG.debug("Trying to create table with sql: {}", tableCreationStatement);
     } catch (final SQLException e) {
       LOG.error("Failed to create table: {} with sql: {}",
@@ -120,24 +148,10 @@ public class HyperSqlDataTableToSqlAdapter implements DataTableToSqlAdapter {
     }
   }
 
-  private String getRowInsertionStatement(final String tableName,
-      final int rowIdx,
-      final DataTable dataTable) {
-    final StringBuilder sb = new StringBuilder(
-        "INSERT INTO " + tableName + " VALUES (");
-    for (int colIdx = 0; colIdx < dataTable.getColumnCount(); colIdx++) {
-      final Object value = dataTable.getObject(rowIdx, colIdx);
-
-      // If string, then wrap with quotes
-      final String quoteWith = value instanceof String ? "'" : "";
-      sb
-          .append(quoteWith)
-          .append(value)
-          .append(quoteWith);
-
-      if (colIdx < dataTable.getColumnCount() - 1) {
-        sb.append(", ");
-      }
+  private String getInsertionStatement(final String tableName, final int columnCount) {
+    final StringBuilder sb = new StringBuilder("INSERT INTO SESSION." + tableName + " VALUES (");
+    for (int colIdx = 0; colIdx < columnCount; colIdx++) {
+      sb.append(colIdx == 0 ? "?" : ", ?");
     }
     sb.append(")");
     return sb.toString();
@@ -145,14 +159,14 @@ public class HyperSqlDataTableToSqlAdapter implements DataTableToSqlAdapter {
 
   private String getTableCreationStatement(final String tableName, final List<String> columns,
       final List<ColumnType> columnTypes) {
-    String tableCreationStatement = "CREATE TABLE " + tableName + " (";
+    String tableCreationStatement = "DECLARE LOCAL TEMPORARY TABLE " + tableName + " (";
     for (int i = 0; i < columns.size(); i++) {
       tableCreationStatement += columns.get(i) + " " + getColumnType(columnTypes.get(i));
       if (i < columns.size() - 1) {
         tableCreationStatement += ", ";
       }
     }
-    tableCreationStatement += ")";
+    tableCreationStatement += ") ON COMMIT PRESERVE ROWS";
     return tableCreationStatement;
   }
 
@@ -172,4 +186,23 @@ public class HyperSqlDataTableToSqlAdapter implements DataTableToSqlAdapter {
     }
     return columnType.getType().toString();
   }
+
+  private static int getSqlType(final ColumnType columnType) {
+    switch (columnType.getType()) {
+      case INT:
+      case LONG:
+        return Types.BIGINT;
+      case FLOAT:
+      case DOUBLE:
+        return Types.DOUBLE;
+      case STRING:
+        return Types.VARCHAR;
+      case BYTES:
+      case OBJECT:
+        return Types.VARBINARY;
+      case BOOLEAN:
+        return Types.BOOLEAN;
+    }
+    return Types.OTHER;
+  }
 }
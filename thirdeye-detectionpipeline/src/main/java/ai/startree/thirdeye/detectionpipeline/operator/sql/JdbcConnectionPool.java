@@ -0,0 +1,106 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.operator.sql;
+
+import ai.startree.thirdeye.spi.detection.v2.DataTableToSqlAdapter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the idle jdbc connections of the SQL adapters, so that executions do not pay for a new
+ * connection every time.
+ *
+ * Connections are pooled by driver, jdbc url and properties. A connection must only be released
+ * once the adapter tear down succeeded. At most maxIdlePerKey connections are kept per key, the
+ * others are closed.
+ */
+public class JdbcConnectionPool {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JdbcConnectionPool.class);
+
+  private final int maxIdlePerKey;
+  private final Map<String, Deque<Connection>> idleConnections = new ConcurrentHashMap<>();
+
+  public JdbcConnectionPool(final int maxIdlePerKey) {
+    this.maxIdlePerKey = maxIdlePerKey;
+  }
+
+  public Connection borrow(final DataTableToSqlAdapter adapter)
+      throws ClassNotFoundException, SQLException {
+    final Deque<Connection> idle = idleConnections.get(key(adapter));
+    if (idle != null) {
+      Connection connection;
+      while ((connection = idle.pollFirst()) != null) {
+        if (!connection.isClosed()) {
+          return connection;
+        }
+      }
+    }
+    return connect(adapter);
+  }
+
+  public void release(final DataTableToSqlAdapter adapter, final Connection connection) {
+    final Deque<Connection> idle = idleConnections.computeIfAbsent(key(adapter),
+        k -> new ConcurrentLinkedDeque<>());
+    // size() is not constant time but the deque is small
+    if (idle.size() < maxIdlePerKey) {
+      idle.offerFirst(connection);
+    } else {
+      close(connection);
+    }
+  }
+
+  public static void close(final Connection connection) {
+    try {
+      connection.close();
+    } catch (final SQLException e) {
+      LOG.warn("Failed to close jdbc connection.", e);
+    }
+  }
+
+  private static Connection connect(final DataTableToSqlAdapter adapter)
+      throws ClassNotFoundException, SQLException {
+    try {
+      Class.forName(adapter.jdbcDriverClassName());
+    } catch (final Exception e) {
+      LOG.error("ERROR: failed to load JDBC driver class {}.", adapter.jdbcDriverClassName(), e);
+      throw e;
+    }
+    final Connection connection = DriverManager.getConnection(adapter.jdbcConnection(),
+        adapter.jdbcProperties());
+    LOG.debug("Successfully connected to JDBC connection: {} with driver class: {} ",
+        adapter.jdbcConnection(),
+        adapter.jdbcDriverClassName());
+    return connection;
+  }
+
+  private static String key(final DataTableToSqlAdapter adapter) {
+    // stringPropertyNames includes the default properties
+    final Properties properties = adapter.jdbcProperties();
+    final Map<String, String> sortedProperties = new TreeMap<>();
+    for (final String name : properties.stringPropertyNames()) {
+      sortedProperties.put(name, properties.getProperty(name));
+    }
+    return adapter.jdbcDriverClassName() + "|" + adapter.jdbcConnection() + "|" + sortedProperties;
+  }
+}
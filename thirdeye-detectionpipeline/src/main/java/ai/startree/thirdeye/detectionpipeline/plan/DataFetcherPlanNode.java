@@ -18,6 +18,8 @@ import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
 import ai.startree.thirdeye.datasource.cache.DataSourceCache;
 import ai.startree.thirdeye.detectionpipeline.Operator;
 import ai.startree.thirdeye.detectionpipeline.PlanNodeContext;
+import ai.startree.thirdeye.detectionpipeline.components.DataFetchBatch;
+import ai.startree.thirdeye.detectionpipeline.components.TimeSeriesCache;
 import ai.startree.thirdeye.detectionpipeline.operator.DataFetcherOperator;
 import ai.startree.thirdeye.spi.Constants;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
@@ -30,8 +32,11 @@ import java.util.Map;
 public class DataFetcherPlanNode extends DetectionPipelinePlanNode {
 
   private DataSourceCache dataSourceCache = null;
+  private TimeSeriesCache timeSeriesCache = null;
   private DatasetConfigManager datasetDao = null;
   private List<Predicate> predicates = null;
+  private DataFetchBatch dataFetchBatch = null;
+  private int dataFetchBatchItem = -1;
 
   public DataFetcherPlanNode() {
     super();
@@ -41,6 +46,7 @@ public class DataFetcherPlanNode extends DetectionPipelinePlanNode {
   public void init(final PlanNodeContext planNodeContext) {
     super.init(planNodeContext);
     this.dataSourceCache = planNodeContext.getApplicationContext().getDataSourceCache();
+    this.timeSeriesCache = planNodeContext.getApplicationContext().getTimeSeriesCache();
     this.datasetDao = planNodeContext.getApplicationContext().getDatasetConfigManager();
     this.predicates = planNodeContext.getPredicates();
   }
@@ -55,16 +61,37 @@ public class DataFetcherPlanNode extends DetectionPipelinePlanNode {
     return optional(planNodeBean.getParams()).map(TemplatableMap::valueMap).orElse(null);
   }
 
+  /**
+   * Answer the data fetch with the shared batch, when possible.
+   *
+   * @param item index of this node in the batch
+   */
+  public DataFetcherPlanNode setDataFetchBatch(final DataFetchBatch dataFetchBatch,
+      final int item) {
+    this.dataFetchBatch = dataFetchBatch;
+    this.dataFetchBatchItem = item;
+    return this;
+  }
+
   @Override
   public Operator buildOperator() throws Exception {
+    final ImmutableMap.Builder<String, Object> properties = ImmutableMap.<String, Object>builder()
+        .put(Constants.K_DATA_SOURCE_CACHE, dataSourceCache)
+        .put(Constants.K_DATASET_MANAGER, datasetDao);
+    if (timeSeriesCache != null) {
+      properties.put(DataFetcherOperator.K_TIME_SERIES_CACHE, timeSeriesCache);
+    }
+    if (dataFetchBatch != null) {
+      properties
+          .put(DataFetcherOperator.K_DATA_FETCH_BATCH, dataFetchBatch)
+          .put(DataFetcherOperator.K_DATA_FETCH_BATCH_ITEM, dataFetchBatchItem);
+    }
     final DataFetcherOperator dataFetcherOperator = new DataFetcherOperator();
     dataFetcherOperator.init(createOperatorContext()
         .setDetectionInterval(detectionInterval)
         .setPredicates(predicates)
         .setPlanNode(planNodeBean)
-        .setProperties(ImmutableMap.of(
-            Constants.K_DATA_SOURCE_CACHE, dataSourceCache,
-            Constants.K_DATASET_MANAGER, datasetDao))
+        .setProperties(properties.build())
     );
     return dataFetcherOperator;
   }
@@ -14,6 +14,7 @@
 package ai.startree.thirdeye.detectionpipeline.spec;
 
 import ai.startree.thirdeye.datasource.cache.DataSourceCache;
+import ai.startree.thirdeye.detectionpipeline.components.TimeSeriesCache;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
 import ai.startree.thirdeye.spi.datalayer.bao.DatasetConfigManager;
 import ai.startree.thirdeye.spi.detection.AbstractSpec;
@@ -51,6 +52,11 @@ public class DataFetcherSpec extends AbstractSpec {
    */
   private List<Predicate> timeseriesFilters;
 
+  /**
+   * Set during DataFetcherOperator init. Null if the time series cache is disabled.
+   */
+  private TimeSeriesCache timeSeriesCache;
+
   public String getDataSource() {
     return dataSource;
   }
@@ -104,4 +110,13 @@ public class DataFetcherSpec extends AbstractSpec {
     this.timeseriesFilters = timeseriesFilters;
     return this;
   }
+
+  public TimeSeriesCache getTimeSeriesCache() {
+    return timeSeriesCache;
+  }
+
+  public DataFetcherSpec setTimeSeriesCache(final TimeSeriesCache timeSeriesCache) {
+    this.timeSeriesCache = timeSeriesCache;
+    return this;
+  }
 }
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.detectionpipeline.operator.EchoOperator.EchoResult;
+import ai.startree.thirdeye.spi.datalayer.dto.PlanNodeBean.InputBean;
+import ai.startree.thirdeye.spi.detection.v2.OperatorResult;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class DagExecutorTest {
+
+  private static final String OUTPUT = "output";
+
+  private ExecutorService executorService;
+
+  @BeforeMethod
+  public void setUp() {
+    executorService = Executors.newFixedThreadPool(2);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  @Test
+  public void testIndependentBranchesRunConcurrently() throws Exception {
+    // both branches wait for each other: a sequential execution would time out
+    final CountDownLatch latch = new CountDownLatch(2);
+    final Operation awaitOther = () -> {
+      latch.countDown();
+      if (!latch.await(10, TimeUnit.SECONDS)) {
+        throw new IllegalStateException("branches did not run concurrently");
+      }
+    };
+    final List<String> rootInputs = new ArrayList<>();
+    final Map<String, PlanNode> nodes = nodes(
+        node("current", awaitOther, rootInputs),
+        node("baseline", awaitOther, rootInputs),
+        node("root", () -> {}, rootInputs, "current", "baseline"));
+
+    final Map<ContextKey, OperatorResult> resultMap = new HashMap<>();
+    new DagExecutor(executorService, Duration.ofMinutes(1))
+        .execute(nodes, nodes.get("root"), resultMap);
+
+    assertThat(resultMap).hasSize(3);
+    assertThat(rootInputs).containsExactlyInAnyOrder("current", "baseline");
+    assertThat(((EchoResult) resultMap.get(new ContextKey("root", OUTPUT))).text())
+        .isEqualTo("root");
+  }
+
+  @Test
+  public void testSharedInputIsExecutedOnce() throws Exception {
+    final List<String> executions = new ArrayList<>();
+    final Map<String, PlanNode> nodes = nodes(
+        node("source", () -> executions.add("source"), new ArrayList<>()),
+        node("left", () -> {}, new ArrayList<>(), "source"),
+        node("right", () -> {}, new ArrayList<>(), "source"),
+        node("root", () -> {}, new ArrayList<>(), "left", "right"));
+
+    final Map<ContextKey, OperatorResult> resultMap = new HashMap<>();
+    new DagExecutor(executorService, Duration.ofMinutes(1))
+        .execute(nodes, nodes.get("root"), resultMap);
+
+    assertThat(executions).containsExactly("source");
+    assertThat(resultMap).hasSize(4);
+  }
+
+  @Test
+  public void testNodeTimeout() {
+    final Operation sleep = () -> Thread.sleep(10_000);
+    final Map<String, PlanNode> nodes = nodes(
+        node("slow1", sleep, new ArrayList<>()),
+        node("slow2", sleep, new ArrayList<>()),
+        node("root", () -> {}, new ArrayList<>(), "slow1", "slow2"));
+
+    assertThatThrownBy(() -> new DagExecutor(executorService, Duration.ofMillis(100))
+        .execute(nodes, nodes.get("root"), new HashMap<>()))
+        .isInstanceOf(TimeoutException.class);
+  }
+
+  @Test
+  public void testFailureIsPropagated() {
+    final Map<String, PlanNode> nodes = nodes(
+        node("failing", () -> {
+          throw new IllegalStateException("boom");
+        }, new ArrayList<>()),
+        node("other", () -> {}, new ArrayList<>()),
+        node("root", () -> {}, new ArrayList<>(), "failing", "other"));
+
+    assertThatThrownBy(() -> new DagExecutor(executorService, Duration.ofMinutes(1))
+        .execute(nodes, nodes.get("root"), new HashMap<>()))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessage("boom");
+  }
+
+  @Test
+  public void testMissingSourceNode() {
+    final Map<String, PlanNode> nodes = nodes(
+        node("root", () -> {}, new ArrayList<>(), "missing"));
+
+    assertThatThrownBy(() -> new DagExecutor(executorService, Duration.ofMinutes(1))
+        .execute(nodes, nodes.get("root"), new HashMap<>()))
+        .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  public void testCycle() {
+    final Map<String, PlanNode> nodes = nodes(
+        node("a", () -> {}, new ArrayList<>(), "b"),
+        node("b", () -> {}, new ArrayList<>(), "a"),
+        node("root", () -> {}, new ArrayList<>(), "a"));
+
+    assertThatThrownBy(() -> new DagExecutor(executorService, Duration.ofMinutes(1))
+        .execute(nodes, nodes.get("root"), new HashMap<>()))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessageContaining("Cycle");
+  }
+
+  private static Map<String, PlanNode> nodes(final PlanNode... planNodes) {
+    final Map<String, PlanNode> nodes = new HashMap<>();
+    Arrays.stream(planNodes).forEach(n -> nodes.put(n.getName(), n));
+    return nodes;
+  }
+
+  /**
+   * Builds a node that runs the operation and outputs its name. The names of the inputs it
+   * receives are collected in receivedInputs.
+   */
+  private static PlanNode node(final String name,
+      final Operation operation,
+      final List<String> receivedInputs,
+      final String... sources) {
+    final List<InputBean> inputs = new ArrayList<>();
+    for (final String source : sources) {
+      inputs.add(new InputBean()
+          .setSourcePlanNode(source)
+          .setSourceProperty(OUTPUT)
+          .setTargetProperty(source));
+    }
+    final PlanNode planNode = mock(PlanNode.class);
+    when(planNode.getName()).thenReturn(name);
+    when(planNode.getPlanNodeInputs()).thenReturn(inputs);
+    doAnswer(invocation -> {
+      synchronized (receivedInputs) {
+        receivedInputs.add(invocation.getArgument(0));
+      }
+      return null;
+    }).when(planNode).setInput(anyString(), any());
+
+    final Operator operator = mock(Operator.class);
+    try {
+      doAnswer(invocation -> {
+        operation.run();
+        return null;
+      }).when(operator).execute();
+      when(operator.getOutputs()).thenReturn(Map.of(OUTPUT, new EchoResult(name)));
+      when(planNode.buildOperator()).thenReturn(operator);
+    } catch (final Exception e) {
+      throw new RuntimeException(e);
+    }
+    return planNode;
+  }
+
+  private interface Operation {
+
+    void run() throws Exception;
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.components;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.detectionpipeline.spec.DataFetcherSpec;
+import ai.startree.thirdeye.detectionpipeline.sql.batch.BatchQuery;
+import ai.startree.thirdeye.spi.detection.DataFetcher;
+import ai.startree.thirdeye.spi.detection.v2.ColumnType;
+import ai.startree.thirdeye.spi.detection.v2.ColumnType.ColumnDataType;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import ai.startree.thirdeye.spi.detection.v2.SimpleDataTable;
+import java.util.List;
+import java.util.Optional;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.testng.annotations.Test;
+
+public class DataFetchBatchTest {
+
+  private static final Interval INTERVAL = new Interval(0L, 1000L, DateTimeZone.UTC);
+
+  private static DataTable batchResult() {
+    return new SimpleDataTable(List.of("ts", "met", "__batchKey0"),
+        List.of(new ColumnType(ColumnDataType.LONG),
+            new ColumnType(ColumnDataType.DOUBLE),
+            new ColumnType(ColumnDataType.STRING)),
+        List.of(
+            new Object[]{1L, 1.0, "US"},
+            new Object[]{1L, 2.0, "FR"},
+            new Object[]{2L, 3.0, "US"}));
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testRowsAreSplitByKey() throws Exception {
+    final DataFetcher<DataFetcherSpec> fetcher = mock(DataFetcher.class);
+    when(fetcher.getDataTable(any())).thenReturn(batchResult());
+    final BatchQuery batchQuery = new BatchQuery("batch query", List.of("__batchKey0"),
+        List.of(List.of("US"), List.of("FR"), List.of("DE")), 100L, 300L);
+    final DataFetchBatch batch = new DataFetchBatch(fetcher, batchQuery);
+
+    final DataTable us = batch.getDataTable(0, INTERVAL).orElseThrow();
+    assertThat(us.getColumns()).containsExactly("ts", "met");
+    assertThat(us.getRowCount()).isEqualTo(2);
+    assertThat(us.getDataFrame().getDoubles("met").values()).containsExactly(1.0, 3.0);
+
+    final DataTable fr = batch.getDataTable(1, INTERVAL).orElseThrow();
+    assertThat(fr.getRowCount()).isEqualTo(1);
+    assertThat(fr.getLong(0, 0)).isEqualTo(1L);
+
+    final DataTable de = batch.getDataTable(2, INTERVAL).orElseThrow();
+    assertThat(de.getRowCount()).isEqualTo(0);
+
+    verify(fetcher, times(1)).getDataTable(any());
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testItemLimitIsApplied() throws Exception {
+    final DataFetcher<DataFetcherSpec> fetcher = mock(DataFetcher.class);
+    when(fetcher.getDataTable(any())).thenReturn(batchResult());
+    final BatchQuery batchQuery = new BatchQuery("batch query", List.of("__batchKey0"),
+        List.of(List.of("US")), 1L, 300L);
+
+    final DataTable us = new DataFetchBatch(fetcher, batchQuery).getDataTable(0, INTERVAL)
+        .orElseThrow();
+    assertThat(us.getRowCount()).isEqualTo(1);
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testTruncatedBatchIsNotUsed() throws Exception {
+    final DataFetcher<DataFetcherSpec> fetcher = mock(DataFetcher.class);
+    when(fetcher.getDataTable(any())).thenReturn(batchResult());
+    final BatchQuery batchQuery = new BatchQuery("batch query", List.of("__batchKey0"),
+        List.of(List.of("US"), List.of("FR")), 2L, 3L);
+
+    final Optional<DataTable> us = new DataFetchBatch(fetcher, batchQuery)
+        .getDataTable(0, INTERVAL);
+    assertThat(us).isEmpty();
+  }
+
+  @SuppressWarnings("unchecked")
+  @Test
+  public void testFailedBatchIsNotUsed() throws Exception {
+    final DataFetcher<DataFetcherSpec> fetcher = mock(DataFetcher.class);
+    when(fetcher.getDataTable(any())).thenThrow(new IllegalStateException("boom"));
+    final BatchQuery batchQuery = new BatchQuery("batch query", List.of("__batchKey0"),
+        List.of(List.of("US"), List.of("FR")), 100L, 200L);
+    final DataFetchBatch batch = new DataFetchBatch(fetcher, batchQuery);
+
+    assertThat(batch.getDataTable(0, INTERVAL)).isEmpty();
+    assertThat(batch.getDataTable(1, INTERVAL)).isEmpty();
+    verify(fetcher, times(1)).getDataTable(any());
+  }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.components;
+
+import static ai.startree.thirdeye.spi.datasource.macro.MacroMetadataKeys.MAX_TIME_MILLIS;
+import static ai.startree.thirdeye.spi.datasource.macro.MacroMetadataKeys.MIN_TIME_MILLIS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.detectionpipeline.TimeSeriesCacheConfiguration;
+import ai.startree.thirdeye.detectionpipeline.sql.macro.MacroEngine;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
+import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
+import ai.startree.thirdeye.spi.datasource.macro.SqlExpressionBuilder;
+import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
+import ai.startree.thirdeye.spi.datasource.macro.ThirdEyeSqlParserConfig;
+import ai.startree.thirdeye.spi.datasource.macro.ThirdeyeSqlDialect;
+import ai.startree.thirdeye.spi.detection.v2.ColumnType;
+import ai.startree.thirdeye.spi.detection.v2.ColumnType.ColumnDataType;
+import ai.startree.thirdeye.spi.detection.v2.DataTable;
+import ai.startree.thirdeye.spi.detection.v2.SimpleDataTable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.joda.time.Period;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TimeSeriesCacheTest {
+
+  private static final long HOUR_MILLIS = 3_600_000L;
+  private static final String QUERY = "SELECT __timeGroup(ts, 'EPOCH_MILLIS', 'PT1H') AS ts, "
+      + "SUM(views) AS met FROM pageviews WHERE __timeFilter(ts, 'EPOCH_MILLIS') "
+      + "GROUP BY ts ORDER BY ts LIMIT 1000";
+  private static final SqlLanguage SQL_LANGUAGE = new TestPinotLikeSqlLanguage();
+  private static final SqlExpressionBuilder SQL_EXPRESSION_BUILDER = new SqlExpressionBuilder() {
+    @Override
+    public String getTimeFilterExpression(final String timeColumn, final Interval filterInterval,
+        final String timeColumnFormat) {
+      return String.format("%s >= %d AND %s < %d", timeColumn, filterInterval.getStartMillis(),
+          timeColumn, filterInterval.getEndMillis());
+    }
+
+    @Override
+    public String getTimeGroupExpression(final String timeColumn, final String timeColumnFormat,
+        final Period granularity, @Nullable final String timezone) {
+      return timeColumn;
+    }
+  };
+
+  private ThirdEyeDataSource dataSource;
+  private List<Interval> fetchedRanges;
+  private long timeUnitMillis;
+  private TimeSeriesCache timeSeriesCache;
+  private Interval detectionInterval;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    fetchedRanges = new ArrayList<>();
+    timeUnitMillis = 1;
+    dataSource = mock(ThirdEyeDataSource.class);
+    when(dataSource.getName()).thenReturn("pinot");
+    when(dataSource.getSqlLanguage()).thenReturn(SQL_LANGUAGE);
+    when(dataSource.getSqlExpressionBuilder()).thenReturn(SQL_EXPRESSION_BUILDER);
+    when(dataSource.fetchDataTable(any())).then(i -> hourlyData(i.getArgument(0)));
+    when(dataSource.fetchDataTableAsync(any())).thenCallRealMethod();
+    timeSeriesCache = new TimeSeriesCache(new TimeSeriesCacheConfiguration());
+
+    // from 10 days ago 06:00 to 2 days ago 06:00: 7 full days are old enough to be cached
+    final DateTime today = DateTime.now(DateTimeZone.UTC).withTimeAtStartOfDay();
+    detectionInterval = new Interval(today.minusDays(10).plusHours(6),
+        today.minusDays(2).plusHours(6));
+  }
+
+  /**
+   * One row per hour of the time filter, with the number of hours since epoch as metric.
+   */
+  private DataTable hourlyData(final DataSourceRequest request) {
+    final long start = Long.parseLong(request.getProperties().get(MIN_TIME_MILLIS.toString()));
+    final long end = Long.parseLong(request.getProperties().get(MAX_TIME_MILLIS.toString()));
+    fetchedRanges.add(new Interval(start, end, DateTimeZone.UTC));
+    final List<Object[]> rows = new ArrayList<>();
+    for (long ts = start; ts < end; ts += HOUR_MILLIS) {
+      rows.add(new Object[]{ts / timeUnitMillis, (double) (ts / HOUR_MILLIS)});
+    }
+    return new SimpleDataTable(List.of("ts", "met"),
+        List.of(new ColumnType(ColumnDataType.LONG), new ColumnType(ColumnDataType.DOUBLE)),
+        rows);
+  }
+
+  private Optional<DataTable> fetch(final Interval detectionInterval) throws Exception {
+    final Map<String, String> properties = new MacroEngine(SQL_LANGUAGE,
+        SQL_EXPRESSION_BUILDER,
+        detectionInterval,
+        null,
+        QUERY).prepareRequest().getProperties();
+    return timeSeriesCache.getDataTable(dataSource, null, QUERY, detectionInterval,
+        properties);
+  }
+
+  private static void assertHourly(final DataTable dataTable, final Interval interval) {
+    final DataFrame df = dataTable.getDataFrame();
+    final int hours = (int) (interval.toDurationMillis() / HOUR_MILLIS);
+    assertThat(df.size()).isEqualTo(hours);
+    for (int i = 0; i < hours; i++) {
+      final long ts = interval.getStartMillis() + i * HOUR_MILLIS;
+      assertThat(df.getLong("ts", i)).isEqualTo(ts);
+      assertThat(df.getDouble("met", i)).isEqualTo((double) (ts / HOUR_MILLIS));
+    }
+  }
+
+  @Test
+  public void testFirstFetchIsASingleQuery() throws Exception {
+    final Optional<DataTable> dataTable = fetch(detectionInterval);
+
+    assertThat(dataTable).isPresent();
+    assertHourly(dataTable.get(), detectionInterval);
+    assertThat(fetchedRanges).containsExactly(detectionInterval);
+    assertThat(timeSeriesCache.size()).isEqualTo(7);
+  }
+
+  @Test
+  public void testSlidingWindowOnlyFetchesTheEdges() throws Exception {
+    fetch(detectionInterval);
+    fetchedRanges.clear();
+
+    final Interval nextInterval = new Interval(detectionInterval.getStart().plusHours(1),
+        detectionInterval.getEnd().plusHours(1));
+    final Optional<DataTable> dataTable = fetch(nextInterval);
+
+    assertThat(dataTable).isPresent();
+    assertHourly(dataTable.get(), nextInterval);
+    final DateTime firstCachedDay = detectionInterval.getStart().withTimeAtStartOfDay()
+        .plusDays(1);
+    final DateTime lastCachedDayEnd = firstCachedDay.plusDays(7);
+    assertThat(fetchedRanges).containsExactly(
+        new Interval(nextInterval.getStart(), firstCachedDay),
+        new Interval(lastCachedDayEnd, nextInterval.getEnd()));
+  }
+
+  @Test
+  public void testCacheIsBoundedByMemory() throws Exception {
+    timeSeriesCache = new TimeSeriesCache(new TimeSeriesCacheConfiguration()
+        .setMaxSizeInBytes(1));
+    final Optional<DataTable> dataTable = fetch(detectionInterval);
+
+    assertThat(dataTable).isPresent();
+    assertHourly(dataTable.get(), detectionInterval);
+    assertThat(timeSeriesCache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testRecentDataIsNotCached() throws Exception {
+    final DateTime now = DateTime.now(DateTimeZone.UTC);
+    final Interval recent = new Interval(now.minusHours(20).hourOfDay().roundFloorCopy(),
+        now.hourOfDay().roundFloorCopy());
+
+    assertThat(fetch(recent)).isEmpty();
+    assertThat(fetchedRanges).isEmpty();
+    assertThat(timeSeriesCache.size()).isEqualTo(0);
+  }
+
+  @Test
+  public void testResultNotSplittableByTime() throws Exception {
+    // time bucket in seconds: rows do not fall in the time filter
+    timeUnitMillis = 1000;
+
+    assertThat(fetch(detectionInterval)).isEmpty();
+    assertThat(timeSeriesCache.size()).isEqualTo(0);
+  }
+
+  private static class TestPinotLikeSqlLanguage implements SqlLanguage {
+
+    private static final ThirdEyeSqlParserConfig SQL_PARSER_CONFIG = new ThirdEyeSqlParserConfig.Builder().withLex(
+        "MYSQL_ANSI").withConformance("BABEL").withParserFactory("SqlBabelParserImpl").build();
+
+    private static final ThirdeyeSqlDialect SQL_DIALECT = new ThirdeyeSqlDialect.Builder().withBaseDialect(
+            "AnsiSqlDialect")
+        .withIdentifierQuoteString("\"")
+        .withIdentifierEscapedQuoteString("")
+        .build();
+
+    @Override
+    public ThirdEyeSqlParserConfig getSqlParserConfig() {
+      return SQL_PARSER_CONFIG;
+    }
+
+    @Override
+    public ThirdeyeSqlDialect getSqlDialect() {
+      return SQL_DIALECT;
+    }
+  }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.detectionpipeline.operator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import ai.startree.thirdeye.detectionpipeline.ForkJoinConfiguration;
+import ai.startree.thirdeye.detectionpipeline.PlanNode;
+import ai.startree.thirdeye.spi.datalayer.dto.EnumerationItemDTO;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ForkJoinParallelExecutorTest {
+
+  private ExecutorService executorService;
+
+  @BeforeMethod
+  public void setUp() {
+    executorService = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    executorService.shutdownNow();
+  }
+
+  private static EnumerationItemDTO item(final String name) {
+    return new EnumerationItemDTO().setName(name);
+  }
+
+  private static Callable<ForkJoinResultItem> callable(final EnumerationItemDTO item,
+      final long sleepMillis) {
+    return () -> {
+      Thread.sleep(sleepMillis);
+      return new ForkJoinResultItem(item, Map.of(), Duration.ofMillis(sleepMillis));
+    };
+  }
+
+  private static ForkJoinParallelExecutor executor(final ForkJoinConfiguration config,
+      final ExecutorService executorService,
+      final List<Callable<ForkJoinResultItem>> callables) {
+    return new ForkJoinParallelExecutor(config, executorService) {
+      @Override
+      public List<Callable<ForkJoinResultItem>> prepareCallables(final PlanNode root,
+          final List<EnumerationItemDTO> enumerationItems) {
+        return callables;
+      }
+    };
+  }
+
+  private static List<String> names(final List<ForkJoinResultItem> results) {
+    return results.stream()
+        .map(r -> r.getEnumerationItem().getName())
+        .collect(Collectors.toList());
+  }
+
+  @Test
+  public void testResultsAreStreamedInCompletionOrder() {
+    final List<EnumerationItemDTO> items = List.of(item("slow"), item("fast"));
+    final List<String> streamed = new ArrayList<>();
+    executor(new ForkJoinConfiguration(), executorService, List.of(
+        callable(items.get(0), 300),
+        callable(items.get(1), 0)))
+        .execute(null, items, (result, index) -> streamed.add(result.getEnumerationItem()
+            .getName()));
+
+    assertThat(streamed).containsExactly("fast", "slow");
+  }
+
+  @Test
+  public void testResultsAreReturnedInEnumerationOrder() {
+    final List<EnumerationItemDTO> items = List.of(item("slow"), item("fast"));
+    final List<ForkJoinResultItem> results = executor(new ForkJoinConfiguration(),
+        executorService, List.of(
+            callable(items.get(0), 300),
+            callable(items.get(1), 0)))
+        .execute(null, items);
+
+    assertThat(names(results)).containsExactly("slow", "fast");
+  }
+
+  @Test
+  public void testMaxItemsInFlight() {
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+    final List<EnumerationItemDTO> items = new ArrayList<>();
+    final List<Callable<ForkJoinResultItem>> callables = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      final EnumerationItemDTO item = item("item" + i);
+      items.add(item);
+      callables.add(() -> {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        Thread.sleep(50);
+        inFlight.decrementAndGet();
+        return new ForkJoinResultItem(item, Map.of(), Duration.ZERO);
+      });
+    }
+
+    final List<ForkJoinResultItem> results = executor(
+        new ForkJoinConfiguration().setMaxItemsInFlight(2), executorService, callables)
+        .execute(null, items);
+
+    assertThat(results).hasSize(8);
+    assertThat(maxInFlight.get()).isLessThanOrEqualTo(2);
+  }
+
+  @Test
+  public void testDefaultMaxItemsInFlightIsParallelism() {
+    assertThat(ForkJoinParallelExecutor.maxItemsInFlight(new ForkJoinConfiguration()
+        .setParallelism(8))).isEqualTo(8);
+    assertThat(ForkJoinParallelExecutor.maxItemsInFlight(new ForkJoinConfiguration()
+        .setParallelism(8)
+        .setMaxItemsInFlight(4))).isEqualTo(4);
+    assertThat(ForkJoinParallelExecutor.maxItemsInFlight(new ForkJoinConfiguration()
+        .setParallelism(8)
+        .setMaxItemsInFlight(0))).isEqualTo(1);
+  }
+
+  @Test
+  public void testFailureFailsTheForkJoin() {
+    final List<EnumerationItemDTO> items = List.of(item("ok"), item("failing"));
+    final ForkJoinParallelExecutor executor = executor(new ForkJoinConfiguration(),
+        executorService, List.of(
+            callable(items.get(0), 0),
+            () -> {
+              throw new IllegalStateException("boom");
+            }));
+
+    assertThatThrownBy(() -> executor.execute(null, items))
+        .isInstanceOf(RuntimeException.class)
+        .hasRootCauseInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  public void testPartialResultsOnFailure() {
+    final List<EnumerationItemDTO> items = List.of(item("ok"), item("failing"));
+    final List<ForkJoinResultItem> results = executor(
+        new ForkJoinConfiguration().setPartialResults(true), executorService, List.of(
+            callable(items.get(0), 0),
+            () -> {
+              throw new IllegalStateException("boom");
+            }))
+        .execute(null, items);
+
+    assertThat(names(results)).containsExactly("ok");
+  }
+
+  @Test
+  public void testPartialResultsOnTimeout() {
+    final List<EnumerationItemDTO> items = List.of(item("ok"), item("slow"));
+    final List<ForkJoinResultItem> results = executor(new ForkJoinConfiguration()
+            .setPartialResults(true)
+            .setTimeout(Duration.ofMillis(500)),
+        executorService, List.of(
+            callable(items.get(0), 0),
+            callable(items.get(1), 10_000)))
+        .execute(null, items);
+
+    assertThat(names(results)).containsExactly("ok");
+  }
+
+  @Test
+  public void testAllItemsFailing() {
+    final List<EnumerationItemDTO> items = List.of(item("slow"));
+    final ForkJoinParallelExecutor executor = executor(new ForkJoinConfiguration()
+            .setPartialResults(true)
+            .setTimeout(Duration.ofMillis(100)),
+        executorService, List.of(callable(items.get(0), 10_000)));
+
+    assertThatThrownBy(() -> executor.execute(null, items))
+        .isInstanceOf(RuntimeException.class)
+        .hasCauseInstanceOf(TimeoutException.class);
+  }
+}
@@ -27,7 +27,9 @@ import ai.startree.thirdeye.spi.detection.v2.DataTable;
 import ai.startree.thirdeye.spi.detection.v2.SimpleDataTable;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import org.joda.time.DateTimeZone;
 import org.joda.time.Interval;
@@ -50,6 +52,45 @@ public class SqlExecutionOperatorTest {
     testSqlExecution(ImmutableMap.of("sql.engine", "Calcite"));
   }
 
+  @Test
+  public void testHyperSqlLoadsTablesInBatches() throws Exception {
+    // more rows than the insert batch size, with strings and nulls
+    final int rowCount = 2500;
+    final List<Object[]> rows = new ArrayList<>();
+    for (int i = 0; i < rowCount; i++) {
+      rows.add(new Object[]{(long) i, i % 2 == 0 ? "even" : null, i % 3 == 0 ? null : 1.5});
+    }
+    final DataTable input = new SimpleDataTable(ImmutableList.of("ts", "parity", "met"),
+        ImmutableList.of(new ColumnType(ColumnDataType.LONG),
+            new ColumnType(ColumnDataType.STRING),
+            new ColumnType(ColumnDataType.DOUBLE)),
+        rows);
+
+    // run twice: the second run reuses the pooled connection
+    for (int run = 0; run < 2; run++) {
+      final DetectionPipelineOperator sqlExecutionOperator = new SqlExecutionOperator();
+      sqlExecutionOperator.init(new OperatorContext()
+          .setDetectionInterval(new Interval(0L, 1000L, DateTimeZone.UTC))
+          .setPlanNode(new PlanNodeBean().setName("root")
+              .setType("SqlExecution")
+              .setParams(TemplatableMap.fromValueMap(ImmutableMap.of("sql.engine", "HyperSql",
+                  "sql.queries", ImmutableList.of(
+                      "SELECT COUNT(*) AS n, COUNT(parity) AS p, SUM(met) AS s, MAX(ts) AS m FROM input_data"))))
+              .setInputs(ImmutableList.of())
+              .setOutputs(ImmutableList.of()))
+          .setInputsMap(ImmutableMap.of("input_data", input))
+          .setProperties(ImmutableMap.of()));
+      sqlExecutionOperator.execute();
+
+      final DataFrame df = ((DataTable) sqlExecutionOperator.getOutputs().get("0"))
+          .getDataFrame();
+      assertThat(df.getLong("n", 0)).isEqualTo(rowCount);
+      assertThat(df.getLong("p", 0)).isEqualTo(rowCount / 2);
+      assertThat(df.getDouble("s", 0)).isEqualTo(1.5 * (rowCount - 834));
+      assertThat(df.getLong("m", 0)).isEqualTo(rowCount - 1);
+    }
+  }
+
   private void testSqlExecution(Map<String, Object> customParams) throws Exception {
     Map<String, Object> params = new HashMap<>();
     params.put("sql.queries",
@@ -82,6 +82,15 @@ public class DataSourceBuilder {
     // Timeout before an abandoned(in use) connection can be removed.
     dataSource.setRemoveAbandonedTimeout(600_000);
     dataSource.setRemoveAbandoned(true);
+
+    // ConnectionState skips the driver calls that do not change the autocommit and read-only
+    // state. StatementCache keeps the prepared statements of each connection, keyed by sql.
+    String jdbcInterceptors = "ConnectionState";
+    if (dbConfig.getStatementCacheSize() > 0) {
+      jdbcInterceptors += ";StatementCache(prepared=true,callable=false,max="
+          + dbConfig.getStatementCacheSize() + ")";
+    }
+    dataSource.setJdbcInterceptors(jdbcInterceptors);
     return dataSource;
   }
 }
@@ -13,6 +13,8 @@
  */
 package ai.startree.thirdeye.datalayer;
 
+import static com.google.common.base.Preconditions.checkState;
+
 import ai.startree.thirdeye.datalayer.entity.AbstractEntity;
 import ai.startree.thirdeye.datalayer.entity.AbstractIndexEntity;
 import ai.startree.thirdeye.datalayer.util.GenericResultSetMapper;
@@ -26,8 +28,13 @@ import com.google.inject.Singleton;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Singleton
 public class DatabaseService {
@@ -61,12 +68,84 @@ public class DatabaseService {
 
   public <E extends AbstractEntity> List<E> findAll(final Predicate predicate, final Long limit, final Long offset, final Class<E> clazz, final Connection connection)
       throws Exception {
+    return findAll(predicate, null, false, limit, offset, clazz, connection);
+  }
+
+  /**
+   * @param orderByKey entity field name to sort by. Not sorted if null.
+   */
+  public <E extends AbstractEntity> List<E> findAll(final Predicate predicate,
+      final String orderByKey,
+      final boolean desc,
+      final Long limit,
+      final Long offset,
+      final Class<E> clazz,
+      final Connection connection) throws Exception {
     final long tStart = System.nanoTime();
     try {
       try (final PreparedStatement selectStatement = sqlQueryBuilder
           .createFindByParamsStatementWithLimit(connection,
               clazz,
               predicate,
+              orderByKey,
+              desc,
+              limit,
+              offset)) {
+        try (final ResultSet resultSet = selectStatement.executeQuery()) {
+          return genericResultSetMapper.mapAll(resultSet, clazz);
+        }
+      }
+    } finally {
+      dbReadCallCounter.inc();
+      dbReadDuration.update(System.nanoTime() - tStart);
+    }
+  }
+
+  /**
+   * Reads some columns of the entities matching the predicate. The other fields are not set.
+   *
+   * @param fieldNames entity field names of the columns to read
+   */
+  public <E extends AbstractEntity> List<E> findColumns(final Predicate predicate,
+      final List<String> fieldNames,
+      final Class<E> clazz,
+      final Connection connection) throws Exception {
+    final long tStart = System.nanoTime();
+    try {
+      try (final PreparedStatement selectStatement = sqlQueryBuilder
+          .createFindColumnsStatement(connection, clazz, fieldNames, predicate)) {
+        try (final ResultSet resultSet = selectStatement.executeQuery()) {
+          return genericResultSetMapper.mapAll(resultSet, clazz);
+        }
+      }
+    } finally {
+      dbReadCallCounter.inc();
+      dbReadDuration.update(System.nanoTime() - tStart);
+    }
+  }
+
+  /**
+   * Finds the json entities whose index rows match the predicate, with a single query.
+   *
+   * @param orderByKey entity field name of the index to sort by. Not sorted if null.
+   */
+  public <E extends AbstractEntity> List<E> findAllByIndex(final Predicate predicate,
+      final String orderByKey,
+      final boolean desc,
+      final Long limit,
+      final Long offset,
+      final Class<E> clazz,
+      final Class<? extends AbstractIndexEntity> indexClass,
+      final Connection connection) throws Exception {
+    final long tStart = System.nanoTime();
+    try {
+      try (final PreparedStatement selectStatement = sqlQueryBuilder
+          .createFindJsonEntitiesByIndexStatement(connection,
+              clazz,
+              indexClass,
+              predicate,
+              orderByKey,
+              desc,
               limit,
               offset)) {
         try (final ResultSet resultSet = selectStatement.executeQuery()) {
@@ -104,6 +183,102 @@ public class DatabaseService {
   }
 
 
+  /**
+   * Inserts entities of the same class with a single batch statement.
+   *
+   * @return the generated keys, in the order of the entities. Empty if the table has no
+   *     generated key.
+   */
+  public <E extends AbstractEntity> List<Long> saveAll(final List<E> entities,
+      final Connection connection) throws Exception {
+    if (entities.isEmpty()) {
+      return List.of();
+    }
+    final long tStart = System.nanoTime();
+    try {
+      try (final PreparedStatement batchInsertStmt = sqlQueryBuilder
+          .createBatchInsertStatement(connection, entities)) {
+        final int affectedRows = affectedRows(batchInsertStmt.executeBatch());
+        checkState(affectedRows == entities.size(),
+            "Batch insert of %s entities affected %s rows", entities.size(), affectedRows);
+        final List<Long> generatedKeys = new ArrayList<>(entities.size());
+        try (final ResultSet resultSet = batchInsertStmt.getGeneratedKeys()) {
+          while (resultSet.next()) {
+            generatedKeys.add(resultSet.getLong(1));
+          }
+        }
+        return generatedKeys;
+      }
+    } finally {
+      dbWriteCallCounter.inc();
+      dbWriteDuration.update(System.nanoTime() - tStart);
+    }
+  }
+
+  /**
+   * Updates entities of the same class with batch statements. The existing rows are read with a
+   * single query.
+   *
+   * @return the number of rows updated
+   */
+  public <E extends AbstractEntity> int updateAll(final List<E> entities,
+      final Connection connection) throws Exception {
+    if (entities.isEmpty()) {
+      return 0;
+    }
+    final Class<? extends AbstractEntity> entityClass = entities.get(0).getClass();
+    final String idCol = getIdColumnName(entityClass);
+    final Object[] ids = entities.stream().map(this::getRowId).toArray();
+    final Map<Long, Timestamp> createTimes = new HashMap<>();
+    for (final AbstractEntity dbEntity : findAll(Predicate.IN(idCol, ids), null, null,
+        entityClass, connection)) {
+      createTimes.put(getRowId(dbEntity), dbEntity.getCreateTime());
+    }
+
+    final List<E> existingEntities = new ArrayList<>();
+    final List<Predicate> predicates = new ArrayList<>();
+    for (final E entity : entities) {
+      final Long rowId = getRowId(entity);
+      if (createTimes.containsKey(rowId)) {
+        entity.setCreateTime(createTimes.get(rowId));
+        existingEntities.add(entity);
+        predicates.add(Predicate.EQ(idCol, rowId));
+      }
+    }
+    if (existingEntities.isEmpty()) {
+      return 0;
+    }
+
+    final long tStart = System.nanoTime();
+    final List<PreparedStatement> statements = sqlQueryBuilder.createBatchUpdateStatements(
+        connection, existingEntities, predicates);
+    try {
+      int updatedRows = 0;
+      for (final PreparedStatement statement : statements) {
+        updatedRows += affectedRows(statement.executeBatch());
+      }
+      return updatedRows;
+    } finally {
+      for (final PreparedStatement statement : statements) {
+        statement.close();
+      }
+      dbWriteCallCounter.inc();
+      dbWriteDuration.update(System.nanoTime() - tStart);
+    }
+  }
+
+  /**
+   * Drivers may not report the rows affected by each statement of a batch. Such statements are
+   * counted as one row.
+   */
+  private static int affectedRows(final int[] batchResults) {
+    int affectedRows = 0;
+    for (final int batchResult : batchResults) {
+      affectedRows += batchResult == Statement.SUCCESS_NO_INFO ? 1 : batchResult;
+    }
+    return affectedRows;
+  }
+
   public <E extends AbstractEntity> Integer update(final E entity, final Predicate predicate, final Connection connection)
       throws Exception {
     final E dbEntity = (E) find(entity.getId(), entity.getClass(), connection);
@@ -130,6 +305,30 @@ public class DatabaseService {
     return 0;
   }
 
+  /**
+   * Updates the given columns of all the rows matching the predicate, with a single statement.
+   *
+   * @param fieldsToUpdate entity field names of the columns to update
+   * @return the number of rows updated
+   */
+  public int updateColumns(final AbstractEntity entity, final Set<String> fieldsToUpdate,
+      final Predicate predicate, final Connection connection) throws Exception {
+    final long tStart = System.nanoTime();
+    try (final PreparedStatement updateStatement = sqlQueryBuilder
+        .createUpdateStatement(connection, entity, fieldsToUpdate, predicate)) {
+      return updateStatement.executeUpdate();
+    } finally {
+      dbWriteCallCounter.inc();
+      dbWriteDuration.update(System.nanoTime() - tStart);
+    }
+  }
+
+  private Long getRowId(final AbstractEntity entity) {
+    return entity instanceof AbstractIndexEntity
+        ? ((AbstractIndexEntity) entity).getBaseId()
+        : entity.getId();
+  }
+
   public <E extends AbstractEntity> String getIdColumnName(final Class<E> clazz) {
     return AbstractIndexEntity.class.isAssignableFrom(clazz) ? "baseId" : "id";
   }
@@ -75,6 +75,38 @@ public class DatabaseTransactionService {
     }
   }
 
+  /**
+   * Runs an operation that only reads. The connection is read-only and in autocommit mode: there
+   * is no transaction to commit or roll back. The connection is restored before it is returned to
+   * the pool.
+   */
+  public <T> T executeReadOnly(final DBOperation<T> operation, final T defaultReturn)
+      throws SQLException {
+    dbCallCounter.inc();
+    final Connection connection = dataSource.getConnection();
+    try {
+      connection.setAutoCommit(true);
+      connection.setReadOnly(true);
+      return operation.handle(connection);
+    } catch (final Exception e) {
+      LOG.error("Exception while executing read-only query task", e);
+      dbExceptionCounter.inc();
+      return defaultReturn;
+    } finally {
+      try {
+        connection.setReadOnly(false);
+        connection.setAutoCommit(false);
+      } catch (final SQLException e) {
+        LOG.error("Failed to restore connection state", e);
+      }
+      try {
+        connection.close();
+      } catch (final SQLException e) {
+        LOG.error("Failed to close connection", e);
+      }
+    }
+  }
+
   public interface DBOperation<T> {
     T handle(Connection connection) throws Exception;
   }
@@ -13,6 +13,7 @@
  */
 package ai.startree.thirdeye.datalayer.bao;
 
+import ai.startree.thirdeye.datalayer.dao.EntityCache;
 import ai.startree.thirdeye.datalayer.dao.GenericPojoDao;
 import ai.startree.thirdeye.spi.datalayer.DaoFilter;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
@@ -29,11 +30,23 @@ public abstract class AbstractManagerImpl<E extends AbstractDTO> implements Abst
 
   protected final GenericPojoDao genericPojoDao;
   private final Class<? extends AbstractDTO> dtoClass;
+  // null if the entities are not cached
+  private final EntityCache entityCache;
 
   protected AbstractManagerImpl(final Class<? extends AbstractDTO> dtoClass,
       final GenericPojoDao genericPojoDao) {
+    this(dtoClass, genericPojoDao, null);
+  }
+
+  /**
+   * @param entityCache serves findById, findByName and {@link #findByKey(Predicate)}
+   */
+  protected AbstractManagerImpl(final Class<? extends AbstractDTO> dtoClass,
+      final GenericPojoDao genericPojoDao,
+      final EntityCache entityCache) {
     this.dtoClass = dtoClass;
     this.genericPojoDao = genericPojoDao;
+    this.entityCache = entityCache;
   }
 
   @Override
@@ -66,6 +79,9 @@ public abstract class AbstractManagerImpl<E extends AbstractDTO> implements Abst
 
   @Override
   public E findById(final Long id) {
+    if (entityCache != null) {
+      return (E) entityCache.findById(dtoClass, id);
+    }
     return (E) genericPojoDao.get(id, dtoClass);
   }
 
@@ -76,7 +92,7 @@ public abstract class AbstractManagerImpl<E extends AbstractDTO> implements Abst
 
   @Override
   public List<E> findByName(final String name) {
-    return findByPredicate(Predicate.EQ("name", name));
+    return findByKey(Predicate.EQ("name", name));
   }
 
   @Override
@@ -124,6 +140,17 @@ public abstract class AbstractManagerImpl<E extends AbstractDTO> implements Abst
     return (List<E>) genericPojoDao.get(predicate, dtoClass);
   }
 
+  /**
+   * Same as {@link #findByPredicate(Predicate)}, served from the entity cache if the manager has
+   * one. For lookups by name or other keys.
+   */
+  protected List<E> findByKey(final Predicate predicate) {
+    if (entityCache != null) {
+      return (List<E>) entityCache.findByKey(dtoClass, predicate);
+    }
+    return findByPredicate(predicate);
+  }
+
   @Override
   public List<E> filter(final DaoFilter daoFilter) {
     return genericPojoDao.filter(daoFilter.setBeanClass(dtoClass));
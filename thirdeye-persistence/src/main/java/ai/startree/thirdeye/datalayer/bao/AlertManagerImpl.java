@@ -13,7 +13,10 @@
  */
 package ai.startree.thirdeye.datalayer.bao;
 
+import ai.startree.thirdeye.datalayer.dao.EntityCache;
 import ai.startree.thirdeye.datalayer.dao.GenericPojoDao;
+import ai.startree.thirdeye.datalayer.entity.DetectionConfigIndex;
+import ai.startree.thirdeye.spi.datalayer.CronSchedule;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
 import ai.startree.thirdeye.spi.datalayer.bao.AlertManager;
 import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
@@ -21,6 +24,7 @@ import com.codahale.metrics.CachedGauge;
 import com.codahale.metrics.MetricRegistry;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import java.sql.Timestamp;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
@@ -29,10 +33,22 @@ import java.util.stream.Collectors;
 public class AlertManagerImpl extends AbstractManagerImpl<AlertDTO> implements
     AlertManager {
 
+  private final CronScheduleReader<AlertDTO, DetectionConfigIndex> cronScheduleReader;
+
   @Inject
   public AlertManagerImpl(final GenericPojoDao genericPojoDao,
+      final EntityCache entityCache,
       final MetricRegistry metricRegistry) {
-    super(AlertDTO.class, genericPojoDao);
+    super(AlertDTO.class, genericPojoDao, entityCache);
+    cronScheduleReader = new CronScheduleReader<>(genericPojoDao,
+        AlertDTO.class,
+        index -> new CronSchedule()
+            .setId(index.getBaseId())
+            .setCron(index.getCron())
+            .setActive(index.isActive())
+            .setUpdateTime(index.getUpdateTime()),
+        AlertDTO::getCron,
+        AlertDTO::isActive);
     metricRegistry.register("activeAlertsCount", new CachedGauge<Long>(5, TimeUnit.MINUTES) {
       @Override
       public Long loadValue() {
@@ -78,4 +94,19 @@ public class AlertManagerImpl extends AbstractManagerImpl<AlertDTO> implements
   public Long countActive() {
     return count(Predicate.EQ("active", true));
   }
+
+  @Override
+  public List<Long> findActiveIds() {
+    return cronScheduleReader.findActiveIds();
+  }
+
+  @Override
+  public List<CronSchedule> findSchedulesUpdatedSince(final Timestamp updatedSince) {
+    return cronScheduleReader.findUpdatedSince(updatedSince);
+  }
+
+  @Override
+  public List<CronSchedule> findSchedulesByIds(final List<Long> ids) {
+    return cronScheduleReader.findByIds(ids);
+  }
 }
@@ -13,6 +13,7 @@
  */
 package ai.startree.thirdeye.datalayer.bao;
 
+import ai.startree.thirdeye.datalayer.dao.EntityCache;
 import ai.startree.thirdeye.datalayer.dao.GenericPojoDao;
 import ai.startree.thirdeye.spi.datalayer.bao.AlertTemplateManager;
 import ai.startree.thirdeye.spi.datalayer.dto.AlertTemplateDTO;
@@ -24,7 +25,8 @@ public class AlertTemplateManagerImpl extends AbstractManagerImpl<AlertTemplateD
     implements AlertTemplateManager {
 
   @Inject
-  public AlertTemplateManagerImpl(GenericPojoDao genericPojoDao) {
-    super(AlertTemplateDTO.class, genericPojoDao);
+  public AlertTemplateManagerImpl(final GenericPojoDao genericPojoDao,
+      final EntityCache entityCache) {
+    super(AlertTemplateDTO.class, genericPojoDao, entityCache);
   }
 }
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datalayer.bao;
+
+import ai.startree.thirdeye.datalayer.dao.GenericPojoDao;
+import ai.startree.thirdeye.datalayer.entity.AbstractIndexEntity;
+import ai.startree.thirdeye.spi.datalayer.CronSchedule;
+import ai.startree.thirdeye.spi.datalayer.DaoFilter;
+import ai.startree.thirdeye.spi.datalayer.Predicate;
+import ai.startree.thirdeye.spi.datalayer.dto.AbstractDTO;
+import com.google.common.collect.Lists;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reads the {@link CronSchedule} of alerts and subscription groups from their index table.
+ *
+ * Index rows written before the scheduling fields were indexed, or that the migration could not
+ * backfill, have no cron and no active flag. Their entity is loaded to complete them.
+ */
+class CronScheduleReader<E extends AbstractDTO, I extends AbstractIndexEntity> {
+
+  /**
+   * Max number of ids in the IN clause of a query.
+   */
+  private static final int MAX_IDS_PER_QUERY = 1000;
+
+  private final GenericPojoDao genericPojoDao;
+  private final Class<E> dtoClass;
+  private final Function<I, CronSchedule> indexToSchedule;
+  private final Function<E, String> dtoToCron;
+  private final Function<E, Boolean> dtoToActive;
+
+  CronScheduleReader(final GenericPojoDao genericPojoDao,
+      final Class<E> dtoClass,
+      final Function<I, CronSchedule> indexToSchedule,
+      final Function<E, String> dtoToCron,
+      final Function<E, Boolean> dtoToActive) {
+    this.genericPojoDao = genericPojoDao;
+    this.dtoClass = dtoClass;
+    this.indexToSchedule = indexToSchedule;
+    this.dtoToCron = dtoToCron;
+    this.dtoToActive = dtoToActive;
+  }
+
+  List<Long> findActiveIds() {
+    final List<Long> ids = new ArrayList<>(
+        genericPojoDao.getIdsByPredicate(Predicate.EQ("active", true), dtoClass));
+    final List<Long> notIndexedIds = genericPojoDao.getIdsByPredicate(Predicate.IS_NULL("active"),
+        dtoClass);
+    for (final List<Long> batch : Lists.partition(notIndexedIds, MAX_IDS_PER_QUERY)) {
+      for (final E dto : genericPojoDao.get(batch, dtoClass)) {
+        if (dtoToActive.apply(dto)) {
+          ids.add(dto.getId());
+        }
+      }
+    }
+    return ids;
+  }
+
+  List<CronSchedule> findUpdatedSince(final Timestamp updatedSince) {
+    return find(updatedSince == null ? null : Predicate.GE("updateTime", updatedSince));
+  }
+
+  List<CronSchedule> findByIds(final List<Long> ids) {
+    final List<CronSchedule> schedules = new ArrayList<>(ids.size());
+    for (final List<Long> batch : Lists.partition(ids, MAX_IDS_PER_QUERY)) {
+      schedules.addAll(find(Predicate.IN("baseId", batch.toArray())));
+    }
+    return schedules;
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<CronSchedule> find(final Predicate predicate) {
+    final List<I> indexEntities = (List<I>) genericPojoDao.filterIndexEntities(new DaoFilter()
+        .setBeanClass(dtoClass)
+        .setPredicate(predicate));
+    final List<CronSchedule> schedules = indexEntities.stream()
+        .map(indexToSchedule)
+        .collect(Collectors.toList());
+    complete(schedules);
+    return schedules;
+  }
+
+  private void complete(final List<CronSchedule> schedules) {
+    final Map<Long, CronSchedule> withoutCron = schedules.stream()
+        .filter(s -> s.getCron() == null)
+        .collect(Collectors.toMap(CronSchedule::getId, s -> s));
+    if (withoutCron.isEmpty()) {
+      return;
+    }
+    for (final List<Long> batch : Lists.partition(new ArrayList<>(withoutCron.keySet()),
+        MAX_IDS_PER_QUERY)) {
+      for (final E dto : genericPojoDao.get(batch, dtoClass)) {
+        withoutCron.get(dto.getId())
+            .setCron(dtoToCron.apply(dto))
+            .setActive(dtoToActive.apply(dto));
+      }
+    }
+  }
+}
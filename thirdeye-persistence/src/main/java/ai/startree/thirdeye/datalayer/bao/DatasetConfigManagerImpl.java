@@ -13,6 +13,7 @@
  */
 package ai.startree.thirdeye.datalayer.bao;
 
+import ai.startree.thirdeye.datalayer.dao.EntityCache;
 import ai.startree.thirdeye.datalayer.dao.GenericPojoDao;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
 import ai.startree.thirdeye.spi.datalayer.bao.DatasetConfigManager;
@@ -26,19 +27,20 @@ public class DatasetConfigManagerImpl extends AbstractManagerImpl<DatasetConfigD
     implements DatasetConfigManager {
 
   @Inject
-  public DatasetConfigManagerImpl(GenericPojoDao genericPojoDao) {
-    super(DatasetConfigDTO.class, genericPojoDao);
+  public DatasetConfigManagerImpl(final GenericPojoDao genericPojoDao,
+      final EntityCache entityCache) {
+    super(DatasetConfigDTO.class, genericPojoDao, entityCache);
   }
 
   @Override
   public List<DatasetConfigDTO> findByName(final String name) {
-    return findByPredicate(Predicate.EQ("dataset", name));
+    return findByKey(Predicate.EQ("dataset", name));
   }
 
   @Override
   public DatasetConfigDTO findByDataset(String dataset) {
     Predicate predicate = Predicate.EQ("dataset", dataset);
-    List<DatasetConfigDTO> list = findByPredicate(predicate);
+    List<DatasetConfigDTO> list = findByKey(predicate);
     if (list.size() == 1) {
       return list.iterator().next();
     }
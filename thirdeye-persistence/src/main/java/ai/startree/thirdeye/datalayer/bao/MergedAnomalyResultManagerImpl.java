@@ -19,29 +19,29 @@ import static com.google.common.base.Preconditions.checkArgument;
 import ai.startree.thirdeye.datalayer.dao.GenericPojoDao;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
 import ai.startree.thirdeye.spi.datalayer.bao.MergedAnomalyResultManager;
+import ai.startree.thirdeye.spi.datalayer.dto.AbstractDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.AnomalyFeedbackDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.AnomalyFunctionDTO;
 import ai.startree.thirdeye.spi.datalayer.dto.MergedAnomalyResultDTO;
 import com.codahale.metrics.CachedGauge;
 import com.codahale.metrics.MetricRegistry;
 import com.google.common.base.Preconditions;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.collect.Lists;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.apache.commons.collections4.CollectionUtils;
 import org.slf4j.Logger;
@@ -59,9 +59,10 @@ public class MergedAnomalyResultManagerImpl extends AbstractManagerImpl<MergedAn
 
   private static final String FIND_BY_FUNCTION_ID = "where functionId=:functionId";
 
-  // TODO inject as dependency
-  private static final ExecutorService EXECUTOR_SERVICE = Executors.newFixedThreadPool(10,
-      new ThreadFactoryBuilder().setNameFormat("anomaly-manager-%d").build());
+  /**
+   * Max number of ids in the IN clause of a query.
+   */
+  private static final int MAX_IDS_PER_QUERY = 1000;
 
   @Inject
   public MergedAnomalyResultManagerImpl(final GenericPojoDao genericPojoDao,
@@ -104,6 +105,66 @@ public class MergedAnomalyResultManagerImpl extends AbstractManagerImpl<MergedAn
     }
   }
 
+  @Override
+  public boolean saveAll(final List<MergedAnomalyResultDTO> anomalies) {
+    // children are written before their parents: the parents reference the ids of the children
+    final List<List<MergedAnomalyResultDTO>> levels = new ArrayList<>();
+    final Map<MergedAnomalyResultDTO, Integer> heights = new IdentityHashMap<>();
+    for (final MergedAnomalyResultDTO anomaly : anomalies) {
+      addToLevels(anomaly, levels, heights, Collections.newSetFromMap(new IdentityHashMap<>()));
+    }
+
+    return genericPojoDao.executeBatchWrite(writer -> {
+      for (final List<MergedAnomalyResultDTO> level : levels) {
+        final List<MergedAnomalyResultDTO> toInsert = new ArrayList<>();
+        final List<MergedAnomalyResultDTO> toUpdate = new ArrayList<>();
+        for (final MergedAnomalyResultDTO anomaly : level) {
+          final MergedAnomalyResultDTO mergeAnomalyBean = convertMergeAnomalyDTO2Bean(anomaly);
+          mergeAnomalyBean.setChildIds(optional(anomaly.getChildren())
+              .orElse(Collections.emptySet())
+              .stream()
+              .map(MergedAnomalyResultDTO::getId)
+              .collect(Collectors.toSet()));
+          (anomaly.getId() == null ? toInsert : toUpdate).add(mergeAnomalyBean);
+        }
+        writer.putAll(toInsert);
+        writer.updateAll(toUpdate);
+      }
+    });
+  }
+
+  /**
+   * Adds the anomaly to the level of its height in the anomaly tree. Leaves are at level 0.
+   *
+   * @return the height of the anomaly
+   */
+  private int addToLevels(final MergedAnomalyResultDTO anomaly,
+      final List<List<MergedAnomalyResultDTO>> levels,
+      final Map<MergedAnomalyResultDTO, Integer> heights,
+      final Set<MergedAnomalyResultDTO> ancestors) {
+    final Integer knownHeight = heights.get(anomaly);
+    if (knownHeight != null) {
+      return knownHeight;
+    }
+    if (!ancestors.add(anomaly)) {
+      throw new IllegalArgumentException("Loop detected! Child anomaly referencing ancestor");
+    }
+    int height = 0;
+    for (final MergedAnomalyResultDTO child : optional(anomaly.getChildren())
+        .orElse(Collections.emptySet())) {
+      child.setChild(true);
+      height = Math.max(height, 1 + addToLevels(child, levels, heights, ancestors));
+    }
+    ancestors.remove(anomaly);
+
+    heights.put(anomaly, height);
+    while (levels.size() <= height) {
+      levels.add(new ArrayList<>());
+    }
+    levels.get(height).add(anomaly);
+    return height;
+  }
+
   private Long saveAnomaly(final MergedAnomalyResultDTO mergedAnomalyResultDTO,
       final Set<MergedAnomalyResultDTO> visitedAnomalies) {
     Preconditions.checkNotNull(mergedAnomalyResultDTO);
@@ -170,7 +231,7 @@ public class MergedAnomalyResultManagerImpl extends AbstractManagerImpl<MergedAn
     if (anomaly == null) {
       return null;
     }
-    return decorate(anomaly, new HashSet<>());
+    return decorate(List.of(anomaly)).get(0);
   }
 
   @Override
@@ -281,8 +342,7 @@ public class MergedAnomalyResultManagerImpl extends AbstractManagerImpl<MergedAn
       if (candidate.getChildIds() != null && !candidate.getChildIds().isEmpty()) {
         for (final Long id : candidate.getChildIds()) {
           if (entity.getId().equals(id)) {
-            return decorate(candidate,
-                new HashSet<>(Collections.singleton(candidate.getId())));
+            return decorate(List.of(candidate)).get(0);
           }
         }
       }
@@ -304,69 +364,101 @@ public class MergedAnomalyResultManagerImpl extends AbstractManagerImpl<MergedAn
     return entity;
   }
 
-  public MergedAnomalyResultDTO decorate(final MergedAnomalyResultDTO anomaly,
-      final Set<Long> visitedAnomalyIds) {
-
-    if (anomaly.getFunctionId() != null) {
-      final AnomalyFunctionDTO anomalyFunctionDTO = genericPojoDao
-          .get(anomaly.getFunctionId(), AnomalyFunctionDTO.class);
-      anomaly.setAnomalyFunction(anomalyFunctionDTO);
+  /**
+   * Decorates the anomalies with their anomaly function, feedback and children.
+   *
+   * The anomaly trees are loaded level by level: the children of all the anomalies of a level are
+   * fetched together. The anomaly functions and the feedbacks of all the anomalies are then
+   * fetched together. The number of queries grows with the depth of the trees, not with the number
+   * of anomalies.
+   */
+  private List<MergedAnomalyResultDTO> decorate(final List<MergedAnomalyResultDTO> anomalies) {
+    final Map<Long, MergedAnomalyResultDTO> anomaliesById = new HashMap<>();
+    anomalies.stream()
+        .filter(anomaly -> anomaly.getId() != null)
+        .forEach(anomaly -> anomaliesById.putIfAbsent(anomaly.getId(), anomaly));
+
+    List<MergedAnomalyResultDTO> level = anomalies;
+    while (!level.isEmpty()) {
+      final Set<Long> childIds = level.stream()
+          .map(MergedAnomalyResultDTO::getChildIds)
+          .filter(Objects::nonNull)
+          .flatMap(Set::stream)
+          .filter(id -> id != null && !anomaliesById.containsKey(id))
+          .collect(Collectors.toSet());
+      level = getByIds(childIds, MergedAnomalyResultDTO.class);
+      level.forEach(child -> anomaliesById.put(child.getId(), child));
     }
 
-    if (anomaly.getAnomalyFeedbackId() != null) {
-      final AnomalyFeedbackDTO anomalyFeedbackDTO = genericPojoDao
-          .get(anomaly.getAnomalyFeedbackId(), AnomalyFeedbackDTO.class);
-      anomaly.setFeedback(anomalyFeedbackDTO);
+    final List<MergedAnomalyResultDTO> allAnomalies = new ArrayList<>(anomalies);
+    allAnomalies.addAll(anomaliesById.values());
+    final Map<Long, AnomalyFunctionDTO> functionsById = getByIds(allAnomalies.stream()
+        .map(MergedAnomalyResultDTO::getFunctionId)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toSet()), AnomalyFunctionDTO.class)
+        .stream()
+        .collect(Collectors.toMap(AnomalyFunctionDTO::getId, Function.identity()));
+    final Map<Long, AnomalyFeedbackDTO> feedbacksById = getByIds(allAnomalies.stream()
+        .map(MergedAnomalyResultDTO::getAnomalyFeedbackId)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toSet()), AnomalyFeedbackDTO.class)
+        .stream()
+        .collect(Collectors.toMap(AnomalyFeedbackDTO::getId, Function.identity()));
+    for (final MergedAnomalyResultDTO anomaly : allAnomalies) {
+      if (anomaly.getFunctionId() != null) {
+        anomaly.setAnomalyFunction(functionsById.get(anomaly.getFunctionId()));
+      }
+      if (anomaly.getAnomalyFeedbackId() != null) {
+        anomaly.setFeedback(feedbacksById.get(anomaly.getAnomalyFeedbackId()));
+      }
     }
 
-    visitedAnomalyIds.add(anomaly.getId());
-    anomaly
-        .setChildren(getChildAnomalies(anomaly, visitedAnomalyIds));
-
-    return anomaly;
+    final Set<Long> linkedIds = new HashSet<>();
+    for (final MergedAnomalyResultDTO anomaly : anomalies) {
+      setChildren(anomaly, anomaliesById, linkedIds, new HashSet<>());
+    }
+    return anomalies;
   }
 
-  private Set<MergedAnomalyResultDTO> getChildAnomalies(
-      final MergedAnomalyResultDTO mergedAnomalyResultDTO, final Set<Long> visitedAnomalyIds) {
+  /**
+   * Sets the children of the anomaly and of its descendants. Children referencing an ancestor are
+   * ignored.
+   */
+  private static void setChildren(final MergedAnomalyResultDTO anomaly,
+      final Map<Long, MergedAnomalyResultDTO> anomaliesById,
+      final Set<Long> linkedIds,
+      final Set<Long> ancestorIds) {
+    if (anomaly.getId() != null && !linkedIds.add(anomaly.getId())) {
+      // children already set
+      return;
+    }
+    ancestorIds.add(anomaly.getId());
     final Set<MergedAnomalyResultDTO> children = new HashSet<>();
-    if (mergedAnomalyResultDTO.getChildIds() != null) {
-      for (final Long id : mergedAnomalyResultDTO.getChildIds()) {
-        if (id == null || visitedAnomalyIds.contains(id)) {
-          continue;
-        }
-
-        final MergedAnomalyResultDTO childBean = genericPojoDao.get(id,
-            MergedAnomalyResultDTO.class);
-        final MergedAnomalyResultDTO child = decorate(childBean, visitedAnomalyIds);
-        children.add(child);
+    for (final Long childId : optional(anomaly.getChildIds()).orElse(Collections.emptySet())) {
+      final MergedAnomalyResultDTO child = anomaliesById.get(childId);
+      if (child == null || ancestorIds.contains(childId)) {
+        continue;
       }
+      setChildren(child, anomaliesById, linkedIds, ancestorIds);
+      children.add(child);
     }
-    return children;
+    ancestorIds.remove(anomaly.getId());
+    anomaly.setChildren(children);
+  }
+
+  private <E extends AbstractDTO> List<E> getByIds(final Collection<Long> ids,
+      final Class<E> beanClass) {
+    final List<E> results = new ArrayList<>(ids.size());
+    for (final List<Long> batch : Lists.partition(new ArrayList<>(ids), MAX_IDS_PER_QUERY)) {
+      results.addAll(genericPojoDao.get(batch, beanClass));
+    }
+    return results;
   }
 
   @Override
   public List<MergedAnomalyResultDTO> convertMergedAnomalyBean2DTO(
       final List<MergedAnomalyResultDTO> mergedAnomalyResultBeanList) {
-    final List<Future<MergedAnomalyResultDTO>> mergedAnomalyResultDTOFutureList = new ArrayList<>(
-        mergedAnomalyResultBeanList.size());
-    for (final MergedAnomalyResultDTO mergedAnomalyResultDTO : mergedAnomalyResultBeanList) {
-      final Future<MergedAnomalyResultDTO> future =
-          EXECUTOR_SERVICE.submit(() -> decorate(mergedAnomalyResultDTO,
-              new HashSet<>()));
-      mergedAnomalyResultDTOFutureList.add(future);
-    }
-
-    final List<MergedAnomalyResultDTO> mergedAnomalyResultDTOList = new ArrayList<>(
-        mergedAnomalyResultBeanList.size());
-    for (final Future future : mergedAnomalyResultDTOFutureList) {
-      try {
-        mergedAnomalyResultDTOList.add((MergedAnomalyResultDTO) future.get(60, TimeUnit.SECONDS));
-      } catch (final InterruptedException | TimeoutException | ExecutionException e) {
-        LOG.warn("Failed to convert MergedAnomalyResultDTO from bean: {}", e.toString());
-      }
-    }
-
-    return mergedAnomalyResultDTOList;
+    return decorate(mergedAnomalyResultBeanList);
   }
 
   @Override
@@ -393,8 +485,6 @@ public class MergedAnomalyResultManagerImpl extends AbstractManagerImpl<MergedAn
     return findByPredicate(Predicate.AND(
         Predicate.NEQ("anomalyFeedbackId", 0),
         Predicate.EQ("child", false)
-    )).stream()
-        .map(anomaly -> decorate(anomaly, new HashSet<>()))
-        .collect(Collectors.toList());
+    ));
   }
 }
@@ -13,6 +13,7 @@
  */
 package ai.startree.thirdeye.datalayer.bao;
 
+import ai.startree.thirdeye.datalayer.dao.EntityCache;
 import ai.startree.thirdeye.datalayer.dao.GenericPojoDao;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
 import ai.startree.thirdeye.spi.datalayer.bao.MetricConfigManager;
@@ -35,8 +36,9 @@ public class MetricConfigManagerImpl extends AbstractManagerImpl<MetricConfigDTO
   private static final String FIND_BY_ALIAS_LIKE_PART = " AND alias LIKE :alias__%d";
 
   @Inject
-  public MetricConfigManagerImpl(GenericPojoDao genericPojoDao) {
-    super(MetricConfigDTO.class, genericPojoDao);
+  public MetricConfigManagerImpl(final GenericPojoDao genericPojoDao,
+      final EntityCache entityCache) {
+    super(MetricConfigDTO.class, genericPojoDao, entityCache);
   }
 
   @Override
@@ -58,7 +60,7 @@ public class MetricConfigManagerImpl extends AbstractManagerImpl<MetricConfigDTO
     Predicate datasetPredicate = Predicate.EQ("dataset", dataset);
     Predicate metricNamePredicate = Predicate.EQ("name", metricName);
     Predicate predicate = Predicate.AND(datasetPredicate, metricNamePredicate);
-    List<MetricConfigDTO> list = findByPredicate(predicate);
+    List<MetricConfigDTO> list = findByKey(predicate);
     if (CollectionUtils.isNotEmpty(list)) {
       return list.get(0);
     }
@@ -14,17 +14,47 @@
 package ai.startree.thirdeye.datalayer.bao;
 
 import ai.startree.thirdeye.datalayer.dao.GenericPojoDao;
+import ai.startree.thirdeye.datalayer.entity.DetectionAlertConfigIndex;
+import ai.startree.thirdeye.spi.datalayer.CronSchedule;
 import ai.startree.thirdeye.spi.datalayer.bao.SubscriptionGroupManager;
 import ai.startree.thirdeye.spi.datalayer.dto.SubscriptionGroupDTO;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import java.sql.Timestamp;
+import java.util.List;
 
 @Singleton
 public class SubscriptionGroupManagerImpl extends
     AbstractManagerImpl<SubscriptionGroupDTO> implements SubscriptionGroupManager {
 
+  private final CronScheduleReader<SubscriptionGroupDTO, DetectionAlertConfigIndex> cronScheduleReader;
+
   @Inject
   public SubscriptionGroupManagerImpl(GenericPojoDao genericPojoDao) {
     super(SubscriptionGroupDTO.class, genericPojoDao);
+    cronScheduleReader = new CronScheduleReader<>(genericPojoDao,
+        SubscriptionGroupDTO.class,
+        index -> new CronSchedule()
+            .setId(index.getBaseId())
+            .setCron(index.getCronExpression())
+            .setActive(index.isActive())
+            .setUpdateTime(index.getUpdateTime()),
+        SubscriptionGroupDTO::getCronExpression,
+        SubscriptionGroupDTO::isActive);
+  }
+
+  @Override
+  public List<Long> findActiveIds() {
+    return cronScheduleReader.findActiveIds();
+  }
+
+  @Override
+  public List<CronSchedule> findSchedulesUpdatedSince(final Timestamp updatedSince) {
+    return cronScheduleReader.findUpdatedSince(updatedSince);
+  }
+
+  @Override
+  public List<CronSchedule> findSchedulesByIds(final List<Long> ids) {
+    return cronScheduleReader.findByIds(ids);
   }
 }
@@ -18,6 +18,7 @@ import static ai.startree.thirdeye.spi.Constants.TASK_MAX_DELETES_PER_CLEANUP;
 import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
 
 import ai.startree.thirdeye.datalayer.dao.GenericPojoDao;
+import ai.startree.thirdeye.datalayer.entity.TaskIndex;
 import ai.startree.thirdeye.spi.datalayer.DaoFilter;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
 import ai.startree.thirdeye.spi.datalayer.bao.TaskManager;
@@ -37,6 +38,9 @@ import java.sql.Timestamp;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -68,6 +72,23 @@ public class TaskManagerImpl extends AbstractManagerImpl<TaskDTO> implements Tas
 
   private static final Logger LOG = LoggerFactory.getLogger(TaskManagerImpl.class);
 
+  /**
+   * Number of WAITING tasks read per task to acquire. Leaves room for the tasks claimed
+   * concurrently by other workers.
+   */
+  private static final int ACQUIRE_CANDIDATES_FACTOR = 2;
+
+  /**
+   * Number of windows of WAITING tasks read before giving up when all the tasks read are claimed
+   * by other workers.
+   */
+  private static final int ACQUIRE_MAX_WINDOWS = 3;
+
+  /**
+   * Index columns set when a task is claimed.
+   */
+  private static final Set<String> CLAIM_FIELDS = Set.of("status", "workerId", "startTime");
+
   private final Meter orphanTasksCount;
   private final MetricRegistry metricRegistry;
 
@@ -143,19 +164,95 @@ public class TaskManagerImpl extends AbstractManagerImpl<TaskDTO> implements Tas
       final int expectedVersion) {
     final TaskDTO task = findById(id);
     if (permittedOldStatus.contains(task.getStatus())) {
-      task.setStatus(TaskStatus.RUNNING);
-      task.setWorkerId(workerId);
-      task.setStartTime(System.currentTimeMillis());
-      //increment the version
-      task.setVersion(expectedVersion + 1);
-      final Predicate predicate = Predicate.EQ("version", expectedVersion);
-      final int update = update(task, predicate);
-      return update == 1;
+      return acquire(task, workerId, expectedVersion);
     } else {
       return false;
     }
   }
 
+  @Override
+  public List<TaskDTO> acquireTasksToRun(final Long workerId, final int limit) {
+    final List<TaskDTO> acquired = new ArrayList<>();
+    // when all the WAITING tasks read were claimed by other workers, read the next ones
+    for (int window = 0; window < ACQUIRE_MAX_WINDOWS && acquired.isEmpty(); window++) {
+      final List<Long> candidateIds = genericPojoDao.filterIds(new DaoFilter()
+          .setBeanClass(TaskDTO.class)
+          .setPredicate(Predicate.EQ("status", TaskStatus.WAITING.toString()))
+          .setOrderByKey("startTime")
+          .setLimit(limit * ACQUIRE_CANDIDATES_FACTOR));
+      if (candidateIds.isEmpty()) {
+        break;
+      }
+      // workers look at the same oldest tasks: shuffle to make concurrent claims rarely collide
+      Collections.shuffle(candidateIds);
+      int from = 0;
+      while (from < candidateIds.size() && acquired.size() < limit) {
+        final int to = Math.min(candidateIds.size(), from + limit - acquired.size());
+        final List<TaskDTO> claimed = claim(workerId, candidateIds.subList(from, to));
+        if (claimed == null) {
+          // the claim failed: do not retry in a loop, the caller backs off
+          acquired.sort(Comparator.comparing(TaskDTO::getId));
+          return acquired;
+        }
+        acquired.addAll(claimed);
+        from = to;
+      }
+    }
+    acquired.sort(Comparator.comparing(TaskDTO::getId));
+    return acquired;
+  }
+
+  /**
+   * Claims the WAITING tasks among the ids with a single conditional update of the index table.
+   * The claimed tasks are written in the same transaction.
+   *
+   * @return the claimed tasks. null if the transaction failed.
+   */
+  @Nullable
+  private List<TaskDTO> claim(final Long workerId, final List<Long> taskIds) {
+    final long startTime = System.currentTimeMillis();
+    final TaskIndex claimedColumns = new TaskIndex();
+    claimedColumns.setStatus(TaskStatus.RUNNING.toString());
+    claimedColumns.setWorkerId(workerId);
+    claimedColumns.setStartTime(startTime);
+    final Predicate idPredicate = Predicate.IN("baseId", taskIds.toArray());
+
+    final List<TaskDTO> claimed = new ArrayList<>();
+    final boolean success = genericPojoDao.executeBatchWrite(writer -> {
+      final int claimedCount = writer.updateIndexColumns(claimedColumns,
+          CLAIM_FIELDS,
+          Predicate.AND(idPredicate, Predicate.EQ("status", TaskStatus.WAITING.toString())));
+      if (claimedCount == 0) {
+        return;
+      }
+      final List<TaskDTO> tasks = writer.filter(Predicate.AND(idPredicate,
+              Predicate.EQ("status", TaskStatus.RUNNING.toString()),
+              Predicate.EQ("workerId", workerId),
+              Predicate.EQ("startTime", startTime)),
+          TaskDTO.class);
+      for (final TaskDTO task : tasks) {
+        task.setStatus(TaskStatus.RUNNING);
+        task.setWorkerId(workerId);
+        task.setStartTime(startTime);
+        task.setVersion(task.getVersion() + 1);
+      }
+      writer.updateAll(tasks);
+      claimed.addAll(tasks);
+    });
+    return success ? claimed : null;
+  }
+
+  private boolean acquire(final TaskDTO task, final Long workerId, final int expectedVersion) {
+    task.setStatus(TaskStatus.RUNNING);
+    task.setWorkerId(workerId);
+    task.setStartTime(System.currentTimeMillis());
+    //increment the version
+    task.setVersion(expectedVersion + 1);
+    final Predicate predicate = Predicate.EQ("version", expectedVersion);
+    final int update = update(task, predicate);
+    return update == 1;
+  }
+
   @Override
   public void updateStatusAndTaskEndTime(final Long id, final TaskStatus oldStatus,
       final TaskStatus newStatus,
@@ -0,0 +1,381 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datalayer.dao;
+
+import ai.startree.thirdeye.datalayer.entity.GenericJsonEntity;
+import ai.startree.thirdeye.datalayer.util.DatabaseConfiguration;
+import ai.startree.thirdeye.datalayer.util.EntityCacheConfiguration;
+import ai.startree.thirdeye.spi.datalayer.DaoFilter;
+import ai.startree.thirdeye.spi.datalayer.Predicate;
+import ai.startree.thirdeye.spi.datalayer.dto.AbstractDTO;
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Read-through cache of the entities that are read much more often than they are written:
+ * alerts, alert templates, datasets and metrics. Entities are cached by id and by lookup
+ * predicate, for instance by name.
+ *
+ * Cached entities are kept coherent with the database:
+ * - writes run by the {@link GenericPojoDao} of this instance evict all the cached entities of the
+ * same class before the next read.
+ * - writes of other instances are detected by a check of the database, run at most every
+ * refreshInterval: the number of entities of the class, and the id, version and update time of
+ * the rows updated since the previous check. update_time is set with the clock of the writer:
+ * the check reads the rows updated since UPDATE_TIME_OVERLAP before the latest update time it saw.
+ * Changed entities are evicted. A new id evicts all the entities of the class: the insert may
+ * hide a delete from the count.
+ * - entities are read again after the ttl. It bounds the staleness of the changes the check
+ * cannot see, for instance two updates within the precision of the update_time column, or a
+ * writer clock late by more than UPDATE_TIME_OVERLAP.
+ *
+ * Entities are cached as immutable buffers of JSON tokens. Each read returns a new bean: callers
+ * can modify it without changing the cache.
+ */
+@Singleton
+public class EntityCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(EntityCache.class);
+  /**
+   * Rows updated up to this duration before the latest update time seen are read again by the
+   * next check. Covers the clock difference between ThirdEye instances.
+   */
+  static final Duration UPDATE_TIME_OVERLAP = Duration.ofMinutes(5);
+
+  private final GenericPojoDao genericPojoDao;
+  private final JsonValCodec jsonValCodec;
+  private final EntityCacheConfiguration configuration;
+  private final Map<Class<? extends AbstractDTO>, Section> sections = new ConcurrentHashMap<>();
+  private final Counter hitCounter;
+  private final Counter missCounter;
+
+  @Inject
+  public EntityCache(final GenericPojoDao genericPojoDao,
+      final JsonValCodec jsonValCodec,
+      final DatabaseConfiguration databaseConfiguration,
+      final MetricRegistry metricRegistry) {
+    this(genericPojoDao, jsonValCodec, databaseConfiguration.getEntityCache(), metricRegistry);
+  }
+
+  public EntityCache(final GenericPojoDao genericPojoDao,
+      final JsonValCodec jsonValCodec,
+      final EntityCacheConfiguration configuration,
+      final MetricRegistry metricRegistry) {
+    this.genericPojoDao = genericPojoDao;
+    this.jsonValCodec = jsonValCodec;
+    this.configuration = configuration;
+
+    hitCounter = metricRegistry.counter("entityCacheHitCounter");
+    missCounter = metricRegistry.counter("entityCacheMissCounter");
+  }
+
+  private static boolean sameVersion(final Snapshot snapshot, final GenericJsonEntity row) {
+    return snapshot.version == row.getVersion()
+        && Objects.equals(snapshot.updateTime, row.getUpdateTime());
+  }
+
+  private static boolean sameVersion(final GenericJsonEntity row1, final GenericJsonEntity row2) {
+    return row1.getVersion() == row2.getVersion()
+        && Objects.equals(row1.getUpdateTime(), row2.getUpdateTime());
+  }
+
+  private static Timestamp copy(final Timestamp timestamp) {
+    return timestamp == null ? null : (Timestamp) timestamp.clone();
+  }
+
+  public <E extends AbstractDTO> E findById(final Class<E> beanClass, final Long id) {
+    if (!configuration.isEnabled()) {
+      return genericPojoDao.get(id, beanClass);
+    }
+    try {
+      final Section section = section(beanClass);
+      Snapshot snapshot = section.get(id);
+      if (snapshot != null) {
+        hitCounter.inc();
+        return toBean(snapshot, beanClass);
+      }
+      missCounter.inc();
+      final long generation = section.generation.get();
+      final GenericJsonEntity row = genericPojoDao.getJsonEntity(id, beanClass);
+      if (row == null) {
+        return null;
+      }
+      snapshot = section.put(row, generation);
+      return toBean(snapshot, beanClass);
+    } catch (final IOException e) {
+      LOG.error(e.getMessage(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Finds the entities matching a predicate on the index table. Only non-empty results are
+   * cached.
+   */
+  public <E extends AbstractDTO> List<E> findByKey(final Class<E> beanClass,
+      final Predicate predicate) {
+    if (!configuration.isEnabled()) {
+      return genericPojoDao.get(predicate, beanClass);
+    }
+    try {
+      final Section section = section(beanClass);
+      List<Snapshot> snapshots = section.getByKey(predicate);
+      if (snapshots != null) {
+        hitCounter.inc();
+        return toBeans(snapshots, beanClass);
+      }
+      missCounter.inc();
+      final long generation = section.generation.get();
+      final List<GenericJsonEntity> rows = genericPojoDao.filterJsonEntities(new DaoFilter()
+          .setPredicate(predicate)
+          .setBeanClass(beanClass));
+      snapshots = new ArrayList<>(rows.size());
+      for (final GenericJsonEntity row : rows) {
+        snapshots.add(section.put(row, generation));
+      }
+      if (!snapshots.isEmpty()) {
+        section.putKey(predicate, snapshots, generation);
+      }
+      return toBeans(snapshots, beanClass);
+    } catch (final IOException e) {
+      LOG.error(e.getMessage(), e);
+      return Collections.emptyList();
+    }
+  }
+
+  private Section section(final Class<? extends AbstractDTO> beanClass) {
+    return sections.computeIfAbsent(beanClass, Section::new);
+  }
+
+  private <E extends AbstractDTO> List<E> toBeans(final List<Snapshot> snapshots,
+      final Class<E> beanClass) throws IOException {
+    final List<E> beans = new ArrayList<>(snapshots.size());
+    for (final Snapshot snapshot : snapshots) {
+      beans.add(toBean(snapshot, beanClass));
+    }
+    return beans;
+  }
+
+  private <E extends AbstractDTO> E toBean(final Snapshot snapshot, final Class<E> beanClass)
+      throws IOException {
+    final E bean = jsonValCodec.decode(snapshot.tokens, beanClass);
+    bean.setId(snapshot.id);
+    bean.setVersion(snapshot.version);
+    bean.setCreateTime(copy(snapshot.createTime));
+    bean.setUpdateTime(copy(snapshot.updateTime));
+    return bean;
+  }
+
+  private static class Snapshot {
+
+    private final Long id;
+    private final int version;
+    private final Timestamp createTime;
+    private final Timestamp updateTime;
+    private final TokenBuffer tokens;
+    private final long loadTime;
+
+    private Snapshot(final GenericJsonEntity row, final TokenBuffer tokens, final long loadTime) {
+      id = row.getId();
+      version = row.getVersion();
+      createTime = row.getCreateTime();
+      updateTime = row.getUpdateTime();
+      this.tokens = tokens;
+      this.loadTime = loadTime;
+    }
+  }
+
+  /**
+   * Cached entities of a bean class.
+   *
+   * Loads that started before an eviction must not cache their result: every eviction increments
+   * the generation, and entities loaded in a previous generation are removed.
+   */
+  private class Section {
+
+    private final Class<? extends AbstractDTO> beanClass;
+    private final Map<Long, Snapshot> snapshots = new ConcurrentHashMap<>();
+    private final Map<Predicate, List<Long>> idsByKey = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile long writeCount;
+    private volatile long nextCheck = Long.MIN_VALUE;
+
+    // state of the database check. Guarded by this
+    private long entityCount = -1;
+    private long maxId = -1;
+    private Timestamp lastUpdateTime = null;
+    private Map<Long, GenericJsonEntity> lastUpdatedRows = Collections.emptyMap();
+
+    private Section(final Class<? extends AbstractDTO> beanClass) {
+      this.beanClass = beanClass;
+      writeCount = genericPojoDao.getWriteCount(beanClass);
+    }
+
+    private Snapshot get(final Long id) {
+      refresh();
+      final Snapshot snapshot = snapshots.get(id);
+      if (snapshot != null && isExpired(snapshot)) {
+        snapshots.remove(id, snapshot);
+        return null;
+      }
+      return snapshot;
+    }
+
+    private List<Snapshot> getByKey(final Predicate predicate) {
+      refresh();
+      final List<Long> ids = idsByKey.get(predicate);
+      if (ids == null) {
+        return null;
+      }
+      final List<Snapshot> keySnapshots = new ArrayList<>(ids.size());
+      for (final Long id : ids) {
+        final Snapshot snapshot = snapshots.get(id);
+        if (snapshot == null || isExpired(snapshot)) {
+          idsByKey.remove(predicate, ids);
+          return null;
+        }
+        keySnapshots.add(snapshot);
+      }
+      return keySnapshots;
+    }
+
+    private Snapshot put(final GenericJsonEntity row, final long loadGeneration)
+        throws IOException {
+      final Snapshot snapshot = new Snapshot(row,
+          jsonValCodec.toTokens(row.getJsonVal()),
+          System.currentTimeMillis());
+      snapshots.put(snapshot.id, snapshot);
+      if (generation.get() != loadGeneration) {
+        snapshots.remove(snapshot.id, snapshot);
+      }
+      return snapshot;
+    }
+
+    private void putKey(final Predicate predicate, final List<Snapshot> keySnapshots,
+        final long loadGeneration) {
+      final List<Long> ids = new ArrayList<>(keySnapshots.size());
+      for (final Snapshot snapshot : keySnapshots) {
+        ids.add(snapshot.id);
+      }
+      idsByKey.put(predicate, ids);
+      if (generation.get() != loadGeneration) {
+        idsByKey.remove(predicate, ids);
+      }
+    }
+
+    private boolean isExpired(final Snapshot snapshot) {
+      return System.currentTimeMillis() - snapshot.loadTime > configuration.getTtl();
+    }
+
+    private void refresh() {
+      final long currentWriteCount = genericPojoDao.getWriteCount(beanClass);
+      if (currentWriteCount != writeCount) {
+        synchronized (this) {
+          if (currentWriteCount != writeCount) {
+            evictAll();
+            writeCount = currentWriteCount;
+          }
+        }
+      }
+      // test and test and set
+      if (nextCheck <= System.currentTimeMillis()) {
+        synchronized (this) {
+          if (nextCheck <= System.currentTimeMillis()) {
+            nextCheck = System.currentTimeMillis() + configuration.getRefreshInterval();
+            checkDatabase();
+          }
+        }
+      }
+    }
+
+    private void checkDatabase() {
+      // inserts and deletes
+      final long count = genericPojoDao.count(beanClass);
+      if (count < 0 || count != entityCount) {
+        evictAll();
+        entityCount = count;
+      }
+
+      // updates, and inserts that may hide a delete from the count
+      final Timestamp updatedSince = lastUpdateTime == null
+          ? null
+          : new Timestamp(lastUpdateTime.getTime() - UPDATE_TIME_OVERLAP.toMillis());
+      final List<GenericJsonEntity> rows = genericPojoDao.findVersionsUpdatedSince(beanClass,
+          updatedSince);
+      final List<Long> changedIds = new ArrayList<>();
+      boolean inserted = false;
+      long maxRowId = maxId;
+      Timestamp maxUpdateTime = lastUpdateTime;
+      for (final GenericJsonEntity row : rows) {
+        final Timestamp updateTime = row.getUpdateTime();
+        if (updateTime != null && (maxUpdateTime == null || updateTime.after(maxUpdateTime))) {
+          maxUpdateTime = updateTime;
+        }
+        if (row.getId() > maxRowId) {
+          // ids are auto-incremented: the first check sees all the rows
+          inserted |= maxId >= 0;
+          maxRowId = row.getId();
+        }
+        final GenericJsonEntity previous = lastUpdatedRows.get(row.getId());
+        if (previous != null && sameVersion(previous, row)) {
+          // already seen by the previous check
+          continue;
+        }
+        final Snapshot snapshot = snapshots.get(row.getId());
+        if (snapshot == null || !sameVersion(snapshot, row)) {
+          changedIds.add(row.getId());
+        }
+      }
+      if (inserted) {
+        evictAll();
+      } else if (!changedIds.isEmpty()) {
+        generation.incrementAndGet();
+        changedIds.forEach(snapshots::remove);
+        // an entity that is not cached may now match a lookup
+        idsByKey.clear();
+      }
+
+      // the next check reads these rows again
+      final Map<Long, GenericJsonEntity> updatedRows = new HashMap<>();
+      for (final GenericJsonEntity row : rows) {
+        updatedRows.put(row.getId(), row);
+      }
+      lastUpdatedRows = updatedRows;
+      lastUpdateTime = maxUpdateTime;
+      maxId = maxRowId;
+    }
+
+    private void evictAll() {
+      generation.incrementAndGet();
+      snapshots.clear();
+      idsByKey.clear();
+    }
+  }
+}
@@ -14,6 +14,8 @@
 package ai.startree.thirdeye.datalayer.dao;
 
 import static ai.startree.thirdeye.datalayer.mapper.DtoIndexMapper.toAbstractIndexEntity;
+import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkState;
 import static java.util.Objects.requireNonNull;
 
@@ -27,21 +29,25 @@ import ai.startree.thirdeye.spi.ThirdEyeStatus;
 import ai.startree.thirdeye.spi.datalayer.DaoFilter;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
 import ai.startree.thirdeye.spi.datalayer.dto.AbstractDTO;
-import ai.startree.thirdeye.spi.json.ThirdEyeSerialization;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.base.Preconditions;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.collections4.CollectionUtils;
 import org.reflections.ReflectionUtils;
 import org.slf4j.Logger;
@@ -52,21 +58,37 @@ public class GenericPojoDao {
 
   private static final Logger LOG = LoggerFactory.getLogger(GenericPojoDao.class);
   private static final boolean IS_DEBUG = LOG.isDebugEnabled();
-  private static final ObjectMapper OBJECT_MAPPER = ThirdEyeSerialization.getObjectMapper();
+  private static final List<String> VERSION_FIELDS = List.of("id", "version", "updateTime");
 
   private final DatabaseService databaseService;
   private final DatabaseTransactionService transactionService;
+  private final JsonValCodec jsonValCodec;
+  private final Map<Class<?>, AtomicLong> writeCounts = new ConcurrentHashMap<>();
 
   @Inject
   public GenericPojoDao(final DatabaseService databaseService,
-      final DatabaseTransactionService transactionService) {
+      final DatabaseTransactionService transactionService,
+      final JsonValCodec jsonValCodec) {
     this.databaseService = databaseService;
     this.transactionService = transactionService;
+    this.jsonValCodec = jsonValCodec;
 
     checkState(SubEntities.BEAN_INDEX_MAP.size() == SubEntities.BEAN_TYPE_MAP.size(),
         "Entity Metadata is inconsistent!");
   }
 
+  /**
+   * Number of writes of the bean class run by this dao: inserts, updates and deletes, committed
+   * or not. It changes after the write. Used to invalidate the {@link EntityCache}.
+   */
+  public long getWriteCount(final Class<? extends AbstractDTO> beanClass) {
+    return writeCounter(beanClass).get();
+  }
+
+  private AtomicLong writeCounter(final Class<?> beanClass) {
+    return writeCounts.computeIfAbsent(beanClass, c -> new AtomicLong());
+  }
+
   public Set<Class<? extends AbstractDTO>> getAllBeanClasses() {
     return SubEntities.BEAN_INDEX_MAP.keySet();
   }
@@ -87,9 +109,18 @@ public class GenericPojoDao {
     if(pojo.getId() != null) {
       return null;
     }
+    try {
+      return putInTransaction(pojo);
+    } finally {
+      writeCounter(pojo.getClass()).incrementAndGet();
+    }
+  }
+
+  private <E extends AbstractDTO> Long putInTransaction(final E pojo) {
     try {
       return transactionService.executeTransaction((connection) -> {
-        final GenericJsonEntity genericJsonEntity = toGenericJsonEntity(pojo);
+        final String json = toJsonString(pojo);
+        final GenericJsonEntity genericJsonEntity = toGenericJsonEntity(pojo, json);
         final Class<? extends AbstractIndexEntity> indexClass = SubEntities.BEAN_INDEX_MAP.get(pojo.getClass());
         final Long generatedKey = databaseService.save(genericJsonEntity, connection);
         pojo.setId(generatedKey);
@@ -97,7 +128,7 @@ public class GenericPojoDao {
           final AbstractIndexEntity abstractIndexEntity = toAbstractIndexEntity(
               pojo,
               indexClass,
-              genericJsonEntity.getJsonVal());
+              json);
           abstractIndexEntity.setVersion(1);
           abstractIndexEntity.setCreateTime(new Timestamp(System.currentTimeMillis()));
           return databaseService.save(abstractIndexEntity, connection);
@@ -111,8 +142,39 @@ public class GenericPojoDao {
     }
   }
 
-  private <E extends AbstractDTO> GenericJsonEntity toGenericJsonEntity(final E pojo)
-      throws JsonProcessingException {
+  /**
+   * Runs the inserts and updates of a {@link BatchWriteOperation} in a single transaction. Rows
+   * are written with JDBC batch statements.
+   *
+   * @return false if the transaction failed. Nothing is written and the ids assigned to the
+   *     inserted pojos are reset.
+   */
+  public boolean executeBatchWrite(final BatchWriteOperation operation) {
+    final List<AbstractDTO> insertedPojos = new ArrayList<>();
+    final Set<Class<?>> writtenClasses = new HashSet<>();
+    try {
+      final boolean success = transactionService.executeTransaction((connection) -> {
+        operation.write(new BatchWriter(connection, insertedPojos, writtenClasses));
+        return true;
+      }, false);
+      if (!success) {
+        insertedPojos.forEach(pojo -> pojo.setId(null));
+      }
+      return success;
+    } catch (final SQLException e) {
+      LOG.error(e.getMessage(), e);
+      insertedPojos.forEach(pojo -> pojo.setId(null));
+      return false;
+    } finally {
+      writtenClasses.forEach(beanClass -> writeCounter(beanClass).incrementAndGet());
+    }
+  }
+
+  /**
+   * @param json the JSON of the pojo. See {@link #toJsonString(AbstractDTO)}
+   */
+  private <E extends AbstractDTO> GenericJsonEntity toGenericJsonEntity(final E pojo,
+      final String json) throws IOException {
     GenericJsonEntity ret = new GenericJsonEntity();
     int version = pojo.getVersion() == 0 ? 1 : pojo.getVersion();
     ret.setId(pojo.getId());
@@ -120,13 +182,16 @@ public class GenericPojoDao {
     ret.setUpdateTime(new Timestamp(System.currentTimeMillis()));
     ret.setVersion(version);
     ret.setType(SubEntities.getType(pojo.getClass()));
-    final String jsonVal = toJsonString(pojo);
-    ret.setJsonVal(jsonVal);
+    ret.setJsonVal(jsonValCodec.encode(json));
     return ret;
   }
 
+  /**
+   * The JSON of the pojo. Index tables store it as is. The generic_json_entity table stores it
+   * encoded by the {@link JsonValCodec}.
+   */
   private <E extends AbstractDTO> String toJsonString(final E pojo) throws JsonProcessingException {
-    return OBJECT_MAPPER.writeValueAsString(pojo);
+    return jsonValCodec.toJson(pojo);
   }
 
   /**
@@ -176,7 +241,16 @@ public class GenericPojoDao {
 
   private <E extends AbstractDTO> int addUpdateToConnection(final E pojo, final Predicate predicate) {
     try {
-      final GenericJsonEntity genericJsonEntity = toGenericJsonEntity(pojo);
+      return updateInTransaction(pojo, predicate);
+    } finally {
+      writeCounter(pojo.getClass()).incrementAndGet();
+    }
+  }
+
+  private <E extends AbstractDTO> int updateInTransaction(final E pojo, final Predicate predicate) {
+    try {
+      final String json = toJsonString(pojo);
+      final GenericJsonEntity genericJsonEntity = toGenericJsonEntity(pojo, json);
       final Class<? extends AbstractIndexEntity> indexClass = SubEntities.BEAN_INDEX_MAP.get(pojo.getClass());
       return transactionService.executeTransaction((connection) -> {
         Integer ret = databaseService.update(genericJsonEntity, predicate, connection);
@@ -185,7 +259,7 @@ public class GenericPojoDao {
           if (indexClass != null) {
             final AbstractIndexEntity abstractIndexEntity = toAbstractIndexEntity(pojo,
                 indexClass,
-                genericJsonEntity.getJsonVal());
+                json);
             //updates all columns in the index table by default
             ret = databaseService.update(abstractIndexEntity, null, connection);
           }
@@ -195,7 +269,7 @@ public class GenericPojoDao {
         }
         return ret;
       }, 0);
-    } catch (final JsonProcessingException | SQLException e) {
+    } catch (final IOException | SQLException e) {
       LOG.error(e.getMessage(), e);
       return 0;
     }
@@ -204,7 +278,7 @@ public class GenericPojoDao {
   public <E extends AbstractDTO> List<E> getAll(final Class<E> beanClass) {
     try {
       final Predicate predicate = Predicate.EQ("type", SubEntities.getType(beanClass));
-      final List<GenericJsonEntity> entities = transactionService.executeTransaction(
+      final List<GenericJsonEntity> entities = transactionService.executeReadOnly(
           (connection) -> databaseService.findAll(predicate,
               null,
               null,
@@ -220,22 +294,22 @@ public class GenericPojoDao {
         }
       }
       return ret;
-    } catch (final JsonProcessingException | SQLException e) {
+    } catch (final IOException | SQLException e) {
       LOG.error(e.getMessage(), e);
       return Collections.emptyList();
     }
   }
 
   private <E> E getBean(final GenericJsonEntity entity, final Class<E> beanClass)
-      throws JsonProcessingException {
-    return OBJECT_MAPPER.readValue(entity.getJsonVal(), beanClass);
+      throws IOException {
+    return jsonValCodec.decode(entity.getJsonVal(), beanClass);
   }
 
   public <E extends AbstractDTO> List<E> list(final Class<E> beanClass, final long limit,
       final long offset) {
     try {
       final Predicate predicate = Predicate.EQ("type", SubEntities.getType(beanClass));
-      final List<GenericJsonEntity> entities = transactionService.executeTransaction(
+      final List<GenericJsonEntity> entities = transactionService.executeReadOnly(
           (connection) -> databaseService.findAll(predicate,
               limit,
               offset,
@@ -251,7 +325,7 @@ public class GenericPojoDao {
         }
       }
       return result;
-    } catch (final JsonProcessingException | SQLException e) {
+    } catch (final IOException | SQLException e) {
       LOG.error(e.getMessage(), e);
       return Collections.emptyList();
     }
@@ -261,7 +335,7 @@ public class GenericPojoDao {
     final Class<? extends AbstractIndexEntity> indexClass = SubEntities.BEAN_INDEX_MAP.get(
           beanClass);
     try {
-      return transactionService.executeTransaction(
+      return transactionService.executeReadOnly(
           (connection) -> databaseService.count(null, indexClass, connection),
           -1L);
     } catch (SQLException e) {
@@ -274,7 +348,7 @@ public class GenericPojoDao {
     final Class<? extends AbstractIndexEntity> indexClass = SubEntities.BEAN_INDEX_MAP.get(
           beanClass);
     try {
-      return transactionService.executeTransaction(
+      return transactionService.executeReadOnly(
           (connection) -> databaseService.count(predicate, indexClass, connection),
           -1L);
     } catch (SQLException e) {
@@ -285,7 +359,31 @@ public class GenericPojoDao {
 
   public <E extends AbstractDTO> E get(final Long id, final Class<E> pojoClass) {
     try {
-      final GenericJsonEntity genericJsonEntity = transactionService.executeTransaction(
+      final GenericJsonEntity genericJsonEntity = getJsonEntity(id, pojoClass);
+      if (genericJsonEntity == null) {
+        return null;
+      }
+      final E e = getBean(genericJsonEntity, pojoClass);
+      e.setId(genericJsonEntity.getId());
+      e.setVersion(genericJsonEntity.getVersion());
+      e.setCreateTime(genericJsonEntity.getCreateTime());
+      e.setUpdateTime(genericJsonEntity.getUpdateTime());
+      return e;
+    } catch (final IOException e) {
+      LOG.error(e.getMessage(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Reads the row of a pojo in the generic_json_entity table, without decoding it.
+   *
+   * @return null if the row does not exist or is not of the pojo class
+   */
+  public GenericJsonEntity getJsonEntity(final Long id,
+      final Class<? extends AbstractDTO> pojoClass) {
+    try {
+      final GenericJsonEntity genericJsonEntity = transactionService.executeReadOnly(
           (connection) -> databaseService.find(id, GenericJsonEntity.class, connection),
           null);
       if (genericJsonEntity == null) {
@@ -296,21 +394,40 @@ public class GenericPojoDao {
       if (!type.equals(genericJsonEntity.getType())) {
         return null;
       }
-      final E e = getBean(genericJsonEntity, pojoClass);
-      e.setId(genericJsonEntity.getId());
-      e.setVersion(genericJsonEntity.getVersion());
-      e.setCreateTime(genericJsonEntity.getCreateTime());
-      e.setUpdateTime(genericJsonEntity.getUpdateTime());
-      return e;
-    } catch (final JsonProcessingException | SQLException e) {
+      return genericJsonEntity;
+    } catch (final SQLException e) {
       LOG.error(e.getMessage(), e);
       return null;
     }
   }
 
+  /**
+   * Reads the id, version and update time of the rows of a pojo class in the generic_json_entity
+   * table that were updated at or after the given time. The json is not read.
+   *
+   * @param updatedSince all rows if null
+   */
+  public List<GenericJsonEntity> findVersionsUpdatedSince(
+      final Class<? extends AbstractDTO> pojoClass, final Timestamp updatedSince) {
+    final Predicate typePredicate = Predicate.EQ("type", SubEntities.getType(pojoClass));
+    final Predicate predicate = updatedSince == null
+        ? typePredicate
+        : Predicate.AND(typePredicate, Predicate.GE("updateTime", updatedSince));
+    try {
+      return transactionService.executeReadOnly(
+          (connection) -> databaseService.findColumns(predicate,
+              VERSION_FIELDS,
+              GenericJsonEntity.class,
+              connection), Collections.emptyList());
+    } catch (final SQLException e) {
+      LOG.error(e.getMessage(), e);
+      return Collections.emptyList();
+    }
+  }
+
   public Object getRaw(final Long id) {
     try {
-      final GenericJsonEntity genericJsonEntity = transactionService.executeTransaction(
+      final GenericJsonEntity genericJsonEntity = transactionService.executeReadOnly(
           (connection) -> databaseService.find(id, GenericJsonEntity.class, connection),
           null);
       Object e = null;
@@ -318,7 +435,7 @@ public class GenericPojoDao {
         e = getBean(genericJsonEntity, Object.class);
       }
       return e;
-    } catch (final JsonProcessingException | SQLException e) {
+    } catch (final IOException | SQLException e) {
       LOG.error(e.getMessage(), e);
       return null;
     }
@@ -327,41 +444,76 @@ public class GenericPojoDao {
   public <E extends AbstractDTO> List<E> get(final List<Long> idList, final Class<E> pojoClass) {
     try {
       final Predicate predicate = Predicate.IN("id", idList.toArray());
-      final List<GenericJsonEntity> genericJsonEntities = transactionService.executeTransaction(
+      final List<GenericJsonEntity> genericJsonEntities = transactionService.executeReadOnly(
           (connection) -> databaseService.findAll(predicate,
               null,
               null,
               GenericJsonEntity.class,
               connection), Collections.emptyList());
-      final List<E> result = new ArrayList<>();
-      if (CollectionUtils.isNotEmpty(genericJsonEntities)) {
-        for (final GenericJsonEntity genericJsonEntity : genericJsonEntities) {
-          final E e = getBean(genericJsonEntity, pojoClass);
-          e.setId(genericJsonEntity.getId());
-          e.setVersion(genericJsonEntity.getVersion());
-          e.setUpdateTime(genericJsonEntity.getUpdateTime());
-          result.add(e);
-        }
-      }
-      return result;
-    } catch (final JsonProcessingException | SQLException e) {
+      return toPojos(genericJsonEntities, pojoClass);
+    } catch (final IOException | SQLException e) {
       LOG.error(e.getMessage(), e);
       return Collections.emptyList();
     }
   }
 
+  private <E extends AbstractDTO> List<E> toPojos(
+      final List<GenericJsonEntity> genericJsonEntities, final Class<E> pojoClass)
+      throws IOException {
+    final List<E> result = new ArrayList<>();
+    if (CollectionUtils.isNotEmpty(genericJsonEntities)) {
+      for (final GenericJsonEntity genericJsonEntity : genericJsonEntities) {
+        final E e = getBean(genericJsonEntity, pojoClass);
+        e.setId(genericJsonEntity.getId());
+        e.setVersion(genericJsonEntity.getVersion());
+        e.setCreateTime(genericJsonEntity.getCreateTime());
+        e.setUpdateTime(genericJsonEntity.getUpdateTime());
+        result.add(e);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Reads the pojos whose index rows match the filter with a single query. The order, limit and
+   * offset of the filter are applied on the index table.
+   */
   @SuppressWarnings("unchecked")
   public <E extends AbstractDTO> List<E> filter(final DaoFilter daoFilter) {
     requireNonNull(daoFilter.getPredicate(),
         "If the predicate is null, you can just do "
             + "getAll() which doesn't need to fetch IDs first");
 
-    final Class<? extends AbstractDTO> beanClass = daoFilter.getBeanClass();
-    final List<Long> ids = filterIds(daoFilter);
-    if (ids.isEmpty()) {
+    final Class<E> beanClass = (Class<E>) daoFilter.getBeanClass();
+    try {
+      return toPojos(filterJsonEntities(daoFilter), beanClass);
+    } catch (final IOException e) {
+      LOG.error(e.getMessage(), e);
+      return Collections.emptyList();
+    }
+  }
+
+  /**
+   * Same as {@link #filter(DaoFilter)}, without decoding the rows of the generic_json_entity
+   * table.
+   */
+  public List<GenericJsonEntity> filterJsonEntities(final DaoFilter daoFilter) {
+    final Class<? extends AbstractIndexEntity> indexClass = SubEntities.BEAN_INDEX_MAP.get(
+        daoFilter.getBeanClass());
+    try {
+      return transactionService.executeReadOnly(
+          (connection) -> databaseService.findAllByIndex(daoFilter.getPredicate(),
+              daoFilter.getOrderByKey(),
+              daoFilter.isDesc(),
+              optional(daoFilter.getLimit()).map(Integer::longValue).orElse(null),
+              optional(daoFilter.getOffset()).map(Integer::longValue).orElse(null),
+              GenericJsonEntity.class,
+              indexClass,
+              connection), Collections.emptyList());
+    } catch (final SQLException e) {
+      LOG.error(e.getMessage(), e);
       return Collections.emptyList();
     }
-    return (List<E>) get(ids, beanClass);
   }
 
   /**
@@ -372,7 +524,7 @@ public class GenericPojoDao {
     final Class<? extends AbstractIndexEntity> indexClass = SubEntities.BEAN_INDEX_MAP.get(
           pojoClass);
     try {
-      final List<? extends AbstractIndexEntity> indexEntities = transactionService.executeTransaction(
+      final List<? extends AbstractIndexEntity> indexEntities = transactionService.executeReadOnly(
           (connection) -> databaseService.runSQL(
               parameterizedSQL,
               parameterMap,
@@ -406,8 +558,7 @@ public class GenericPojoDao {
   }
 
   public <E extends AbstractDTO> List<E> get(final Predicate predicate, final Class<E> pojoClass) {
-    final List<Long> idsToFind = getIdsByPredicate(predicate, pojoClass);
-    return get(idsToFind, pojoClass);
+    return filter(new DaoFilter().setPredicate(predicate).setBeanClass(pojoClass));
   }
 
   public <E extends AbstractDTO> List<Long> getIdsByPredicate(final Predicate predicate,
@@ -416,24 +567,29 @@ public class GenericPojoDao {
   }
 
   public List<Long> filterIds(final DaoFilter daoFilter) {
-    //apply the predicates and fetch the primary key ids
-      final Class<? extends AbstractIndexEntity> indexClass = SubEntities.BEAN_INDEX_MAP.get(
-          daoFilter.getBeanClass());
+    final List<Long> idsToReturn = new ArrayList<>();
+    for (final AbstractIndexEntity entity : filterIndexEntities(daoFilter)) {
+      idsToReturn.add(entity.getBaseId());
+    }
+    return idsToReturn;
+  }
+
+  /**
+   * Applies the filter on the index table of the bean class. Nothing is read from the
+   * generic_json_entity table.
+   */
+  public List<? extends AbstractIndexEntity> filterIndexEntities(final DaoFilter daoFilter) {
+    final Class<? extends AbstractIndexEntity> indexClass = SubEntities.BEAN_INDEX_MAP.get(
+        daoFilter.getBeanClass());
     try {
-      //find the matching ids
-      final List<? extends AbstractIndexEntity> indexEntities = transactionService.executeTransaction(
+      return transactionService.executeReadOnly(
           (connection) -> databaseService.findAll(daoFilter.getPredicate(),
-              null,
-              null,
+              daoFilter.getOrderByKey(),
+              daoFilter.isDesc(),
+              optional(daoFilter.getLimit()).map(Integer::longValue).orElse(null),
+              optional(daoFilter.getOffset()).map(Integer::longValue).orElse(null),
               indexClass,
               connection), Collections.emptyList());
-      final List<Long> idsToReturn = new ArrayList<>();
-      if (CollectionUtils.isNotEmpty(indexEntities)) {
-        for (final AbstractIndexEntity entity : indexEntities) {
-          idsToReturn.add(entity.getBaseId());
-        }
-      }
-      return idsToReturn;
     } catch (SQLException e) {
       LOG.error(e.getMessage(), e);
       return Collections.emptyList();
@@ -451,7 +607,7 @@ public class GenericPojoDao {
   private void dumpTable(final Class<? extends AbstractEntity> entityClass) {
     if (IS_DEBUG) {
       try {
-        final List<? extends AbstractEntity> entities = transactionService.executeTransaction(
+        final List<? extends AbstractEntity> entities = transactionService.executeReadOnly(
             (connection) -> databaseService.findAll(null,
                 null,
                 null,
@@ -474,6 +630,15 @@ public class GenericPojoDao {
       final Class<E> pojoClass) {
     final Class<? extends AbstractIndexEntity> indexEntityClass = SubEntities.BEAN_INDEX_MAP.get(
         pojoClass);
+    try {
+      return deleteInTransaction(idsToDelete, indexEntityClass);
+    } finally {
+      writeCounter(pojoClass).incrementAndGet();
+    }
+  }
+
+  private int deleteInTransaction(final List<Long> idsToDelete,
+      final Class<? extends AbstractIndexEntity> indexEntityClass) {
     try {
       return transactionService.executeTransaction((connection) -> {
         // delete entry from base table
@@ -498,4 +663,134 @@ public class GenericPojoDao {
     final List<Long> idsToDelete = getIdsByPredicate(predicate, pojoClass);
     return delete(idsToDelete, pojoClass);
   }
+
+  public interface BatchWriteOperation {
+
+    void write(BatchWriter writer) throws Exception;
+  }
+
+  /**
+   * Writes pojos in the transaction of a {@link BatchWriteOperation}. Any failure rolls back the
+   * whole transaction.
+   */
+  public class BatchWriter {
+
+    private final Connection connection;
+    private final List<AbstractDTO> insertedPojos;
+    private final Set<Class<?>> writtenClasses;
+
+    private BatchWriter(final Connection connection, final List<AbstractDTO> insertedPojos,
+        final Set<Class<?>> writtenClasses) {
+      this.connection = connection;
+      this.insertedPojos = insertedPojos;
+      this.writtenClasses = writtenClasses;
+    }
+
+    /**
+     * Inserts new pojos and sets their ids.
+     */
+    public <E extends AbstractDTO> void putAll(final List<E> pojos) throws Exception {
+      for (final List<E> samePojoClass : groupByClass(pojos).values()) {
+        final List<String> jsons = new ArrayList<>(samePojoClass.size());
+        final List<GenericJsonEntity> jsonEntities = new ArrayList<>(samePojoClass.size());
+        for (final E pojo : samePojoClass) {
+          checkArgument(pojo.getId() == null, "Cannot insert a pojo with an id: %s", pojo);
+          final String json = toJsonString(pojo);
+          jsons.add(json);
+          jsonEntities.add(toGenericJsonEntity(pojo, json));
+        }
+        final List<Long> generatedKeys = databaseService.saveAll(jsonEntities, connection);
+        checkState(generatedKeys.size() == samePojoClass.size(),
+            "Expected %s generated keys. Got %s", samePojoClass.size(), generatedKeys.size());
+        for (int i = 0; i < samePojoClass.size(); i++) {
+          samePojoClass.get(i).setId(generatedKeys.get(i));
+          insertedPojos.add(samePojoClass.get(i));
+        }
+
+        final Class<? extends AbstractIndexEntity> indexClass = SubEntities.BEAN_INDEX_MAP
+            .get(samePojoClass.get(0).getClass());
+        if (indexClass != null) {
+          final List<AbstractIndexEntity> indexEntities = new ArrayList<>(samePojoClass.size());
+          for (int i = 0; i < samePojoClass.size(); i++) {
+            final AbstractIndexEntity indexEntity = toAbstractIndexEntity(samePojoClass.get(i),
+                indexClass,
+                jsons.get(i));
+            indexEntity.setVersion(1);
+            indexEntity.setCreateTime(new Timestamp(System.currentTimeMillis()));
+            indexEntities.add(indexEntity);
+          }
+          databaseService.saveAll(indexEntities, connection);
+        }
+      }
+    }
+
+    /**
+     * Updates existing pojos.
+     */
+    public <E extends AbstractDTO> void updateAll(final List<E> pojos) throws Exception {
+      for (final List<E> samePojoClass : groupByClass(pojos).values()) {
+        final List<String> jsons = new ArrayList<>(samePojoClass.size());
+        final List<GenericJsonEntity> jsonEntities = new ArrayList<>(samePojoClass.size());
+        for (final E pojo : samePojoClass) {
+          checkArgument(pojo.getId() != null, "Need an ID to update the DB entity: %s", pojo);
+          final String json = toJsonString(pojo);
+          jsons.add(json);
+          jsonEntities.add(toGenericJsonEntity(pojo, json));
+        }
+        final int updatedRows = databaseService.updateAll(jsonEntities, connection);
+        checkState(updatedRows == samePojoClass.size(),
+            "Expected %s rows to update. Updated %s", samePojoClass.size(), updatedRows);
+
+        final Class<? extends AbstractIndexEntity> indexClass = SubEntities.BEAN_INDEX_MAP
+            .get(samePojoClass.get(0).getClass());
+        if (indexClass != null) {
+          final List<AbstractIndexEntity> indexEntities = new ArrayList<>(samePojoClass.size());
+          for (int i = 0; i < samePojoClass.size(); i++) {
+            indexEntities.add(toAbstractIndexEntity(samePojoClass.get(i),
+                indexClass,
+                jsons.get(i)));
+          }
+          //updates all columns in the index table by default
+          databaseService.updateAll(indexEntities, connection);
+        }
+      }
+    }
+
+    /**
+     * Updates the given columns of the index rows matching the predicate, with a single
+     * statement. The rows of the generic_json_entity table are not updated.
+     *
+     * @param fieldsToUpdate entity field names of the index columns to update
+     * @return the number of index rows updated
+     */
+    public int updateIndexColumns(final AbstractIndexEntity indexEntity,
+        final Set<String> fieldsToUpdate, final Predicate predicate) throws Exception {
+      return databaseService.updateColumns(indexEntity, fieldsToUpdate, predicate, connection);
+    }
+
+    /**
+     * Reads the pojos whose index rows match the predicate. Sees the writes of the transaction.
+     */
+    public <E extends AbstractDTO> List<E> filter(final Predicate predicate,
+        final Class<E> beanClass) throws Exception {
+      final List<GenericJsonEntity> jsonEntities = databaseService.findAllByIndex(predicate,
+          null,
+          false,
+          null,
+          null,
+          GenericJsonEntity.class,
+          SubEntities.BEAN_INDEX_MAP.get(beanClass),
+          connection);
+      return toPojos(jsonEntities, beanClass);
+    }
+
+    private <E extends AbstractDTO> Map<Class<?>, List<E>> groupByClass(final List<E> pojos) {
+      final Map<Class<?>, List<E>> pojosByClass = new LinkedHashMap<>();
+      for (final E pojo : pojos) {
+        pojosByClass.computeIfAbsent(pojo.getClass(), c -> new ArrayList<>()).add(pojo);
+      }
+      writtenClasses.addAll(pojosByClass.keySet());
+      return pojosByClass;
+    }
+  }
 }
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datalayer.dao;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import ai.startree.thirdeye.datalayer.util.DatabaseConfiguration;
+import ai.startree.thirdeye.spi.json.ThirdEyeSerialization;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Base64;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Encodes and decodes the entities stored in the json_val column of generic_json_entity.
+ *
+ * Entities are serialized to JSON. With the {@link JsonValFormat#DEFLATE} format, documents
+ * larger than {@link #COMPRESSION_THRESHOLD} characters are compressed and stored behind a format
+ * marker. Rows are decoded based on their marker, not on the configured format: rows written in
+ * any format stay readable when the format changes.
+ *
+ * Beans are bound with the Afterburner module: properties are accessed through generated
+ * bytecode instead of reflection.
+ *
+ * Compressed rows are not JSON for the database: MySQL JSON_* functions, such as the JSON_VALID
+ * backfill of the V1_98_0 migration, skip them or fail on them.
+ */
+@Singleton
+public class JsonValCodec {
+
+  static final String DEFLATE_MARKER = "~deflate:";
+  static final int COMPRESSION_THRESHOLD = 1024;
+
+  private static final ObjectMapper OBJECT_MAPPER = ThirdEyeSerialization.getObjectMapper()
+      .copy()
+      .registerModule(new AfterburnerModule());
+
+  private final JsonValFormat format;
+
+  @Inject
+  public JsonValCodec(final DatabaseConfiguration databaseConfiguration) {
+    this(databaseConfiguration.getJsonValFormat());
+  }
+
+  public JsonValCodec(final JsonValFormat format) {
+    this.format = format;
+  }
+
+  public String toJson(final Object pojo) throws JsonProcessingException {
+    return OBJECT_MAPPER.writeValueAsString(pojo);
+  }
+
+  /**
+   * @param json JSON of an entity. See {@link #toJson(Object)}
+   * @return the value to store in json_val
+   */
+  public String encode(final String json) throws IOException {
+    if (format == JsonValFormat.JSON || json.length() < COMPRESSION_THRESHOLD) {
+      return json;
+    }
+    final ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length() / 4);
+    final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (final DeflaterOutputStream out = new DeflaterOutputStream(bytes, deflater)) {
+      out.write(json.getBytes(UTF_8));
+    } finally {
+      deflater.end();
+    }
+    return DEFLATE_MARKER + Base64.getEncoder().encodeToString(bytes.toByteArray());
+  }
+
+  /**
+   * @param jsonVal value of json_val, in any format
+   */
+  public <E> E decode(final String jsonVal, final Class<E> beanClass) throws IOException {
+    try (final JsonParser parser = createParser(jsonVal)) {
+      return OBJECT_MAPPER.readValue(parser, beanClass);
+    }
+  }
+
+  /**
+   * Parses json_val once into a buffer of JSON tokens. Beans can then be bound from the buffer
+   * any number of times, concurrently, without decompressing or tokenizing the JSON again. See
+   * {@link #decode(TokenBuffer, Class)}
+   *
+   * @param jsonVal value of json_val, in any format
+   */
+  public TokenBuffer toTokens(final String jsonVal) throws IOException {
+    try (final JsonParser parser = createParser(jsonVal)) {
+      final TokenBuffer tokens = new TokenBuffer(parser);
+      parser.nextToken();
+      tokens.copyCurrentStructure(parser);
+      return tokens;
+    }
+  }
+
+  /**
+   * @param tokens buffer returned by {@link #toTokens(String)}. It is not modified.
+   */
+  public <E> E decode(final TokenBuffer tokens, final Class<E> beanClass) throws IOException {
+    try (final JsonParser parser = tokens.asParser(OBJECT_MAPPER)) {
+      return OBJECT_MAPPER.readValue(parser, beanClass);
+    }
+  }
+
+  private static JsonParser createParser(final String jsonVal) throws IOException {
+    if (!jsonVal.startsWith(DEFLATE_MARKER)) {
+      return OBJECT_MAPPER.getFactory().createParser(jsonVal);
+    }
+    final byte[] compressed = Base64.getDecoder()
+        .decode(jsonVal.substring(DEFLATE_MARKER.length()));
+    final InputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed));
+    // closing the parser closes the stream
+    return OBJECT_MAPPER.getFactory().createParser(in);
+  }
+}
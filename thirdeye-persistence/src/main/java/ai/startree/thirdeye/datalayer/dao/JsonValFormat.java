@@ -0,0 +1,30 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datalayer.dao;
+
+/**
+ * Storage format of the entities in the json_val column of generic_json_entity.
+ */
+public enum JsonValFormat {
+  /**
+   * Plain JSON text.
+   */
+  JSON,
+  /**
+   * Deflate compressed JSON, stored as base64 text behind a "~deflate:" marker. Small documents
+   * are stored as plain JSON. Compressed rows cannot be read by MySQL JSON_* functions: queries
+   * and migrations on json_val only see the plain JSON rows.
+   */
+  DEFLATE
+}
@@ -16,6 +16,8 @@ package ai.startree.thirdeye.datalayer.entity;
 public class DetectionAlertConfigIndex extends AbstractIndexEntity {
 
   String name;
+  boolean active;
+  String cronExpression;
 
   public String getName() {
     return name;
@@ -24,6 +26,20 @@ public class DetectionAlertConfigIndex extends AbstractIndexEntity {
   public void setName(String name) {
     this.name = name;
   }
-}
 
+  public boolean isActive() {
+    return active;
+  }
+
+  public void setActive(boolean active) {
+    this.active = active;
+  }
+
+  public String getCronExpression() {
+    return cronExpression;
+  }
 
+  public void setCronExpression(String cronExpression) {
+    this.cronExpression = cronExpression;
+  }
+}
@@ -13,6 +13,7 @@
  */
 package ai.startree.thirdeye.datalayer.util;
 
+import ai.startree.thirdeye.datalayer.dao.JsonValFormat;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.google.common.collect.Maps;
 import java.util.Map;
@@ -25,6 +26,10 @@ public class DatabaseConfiguration {
   private String url;
   private String driver;
   private Map<String, String> properties = Maps.newLinkedHashMap();
+  private JsonValFormat jsonValFormat = JsonValFormat.JSON;
+  private EntityMapperType entityMapper = EntityMapperType.GENERATED;
+  private int statementCacheSize = 500;
+  private EntityCacheConfiguration entityCache = new EntityCacheConfiguration();
 
   public String getUser() {
     return user;
@@ -71,4 +76,40 @@ public class DatabaseConfiguration {
     this.properties = properties;
     return this;
   }
+
+  public JsonValFormat getJsonValFormat() {
+    return jsonValFormat;
+  }
+
+  public DatabaseConfiguration setJsonValFormat(final JsonValFormat jsonValFormat) {
+    this.jsonValFormat = jsonValFormat;
+    return this;
+  }
+
+  public EntityMapperType getEntityMapper() {
+    return entityMapper;
+  }
+
+  public DatabaseConfiguration setEntityMapper(final EntityMapperType entityMapper) {
+    this.entityMapper = entityMapper;
+    return this;
+  }
+
+  public int getStatementCacheSize() {
+    return statementCacheSize;
+  }
+
+  public DatabaseConfiguration setStatementCacheSize(final int statementCacheSize) {
+    this.statementCacheSize = statementCacheSize;
+    return this;
+  }
+
+  public EntityCacheConfiguration getEntityCache() {
+    return entityCache;
+  }
+
+  public DatabaseConfiguration setEntityCache(final EntityCacheConfiguration entityCache) {
+    this.entityCache = entityCache;
+    return this;
+  }
 }
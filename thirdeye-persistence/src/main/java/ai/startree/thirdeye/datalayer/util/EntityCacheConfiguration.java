@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datalayer.util;
+
+/**
+ * Configuration of the entity cache of alerts, alert templates, datasets and metrics.
+ */
+public class EntityCacheConfiguration {
+
+  private boolean enabled = true;
+  /**
+   * Minimum time in milliseconds between two checks of the database for entities changed by
+   * other ThirdEye instances.
+   */
+  private long refreshInterval = 5_000;
+  /**
+   * Time in milliseconds after which an entity is read from the database again, even if no change
+   * was detected.
+   */
+  private long ttl = 300_000;
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public EntityCacheConfiguration setEnabled(final boolean enabled) {
+    this.enabled = enabled;
+    return this;
+  }
+
+  public long getRefreshInterval() {
+    return refreshInterval;
+  }
+
+  public EntityCacheConfiguration setRefreshInterval(final long refreshInterval) {
+    this.refreshInterval = refreshInterval;
+    return this;
+  }
+
+  public long getTtl() {
+    return ttl;
+  }
+
+  public EntityCacheConfiguration setTtl(final long ttl) {
+    this.ttl = ttl;
+    return this;
+  }
+}
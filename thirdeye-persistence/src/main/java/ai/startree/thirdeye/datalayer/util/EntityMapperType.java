@@ -0,0 +1,29 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datalayer.util;
+
+/**
+ * Implementation used to map the rows of the entity tables to entities.
+ */
+public enum EntityMapperType {
+  /**
+   * Rows are read with typed JDBC getters and set on the entity fields with method handles. The
+   * mappers are built at startup from the column mapping of {@link EntityMappingHolder}.
+   */
+  GENERATED,
+  /**
+   * Rows are converted to a Jackson tree, then bound to the entity. Kept for comparison.
+   */
+  JACKSON
+}
@@ -43,6 +43,8 @@ public class EntityMappingHolder {
   final Map<String, LinkedHashMap<String, ColumnInfo>> columnInfoPerTable = new HashMap<>();
   //DB NAME to ENTITY NAME mapping
   final Map<String, BiMap<String, String>> columnMappingPerTable = new HashMap<>();
+  final Map<Class<? extends AbstractEntity>, EntityRowMapper<?>> rowMapperPerEntity =
+      new HashMap<>();
 
   private static List<Field> getAllFields(List<Field> fields, final Class<?> type) {
     fields.addAll(Arrays.asList(type.getDeclaredFields()));
@@ -86,8 +88,8 @@ public class EntityMappingHolder {
     return fields;
   }
 
-  public void register(final Connection connection,
-      final Class<? extends AbstractEntity> entityClass,
+  public <E extends AbstractEntity> void register(final Connection connection,
+      final Class<E> entityClass,
       String tableName) throws Exception {
     tableName = tableName.toLowerCase();
     final DatabaseMetaData databaseMetaData = connection.getMetaData();
@@ -99,6 +101,7 @@ public class EntityMappingHolder {
 
     populateColumnInfoMap(entityClass, tableName, columnInfoMap);
     columnInfoPerTable.put(tableName, columnInfoMap);
+    rowMapperPerEntity.put(entityClass, new EntityRowMapper<>(entityClass, columnInfoMap));
   }
 
   private void populateColumnInfoMap(final Class<? extends AbstractEntity> entityClass,
@@ -0,0 +1,210 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datalayer.util;
+
+import static java.lang.invoke.MethodType.methodType;
+
+import ai.startree.thirdeye.datalayer.entity.AbstractEntity;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.sql.Clob;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the rows of a ResultSet to entities of a given class, without Jackson.
+ *
+ * For each column, the value is read with the JDBC getter of the field type and set on the
+ * entity with a method handle. Like the Jackson mapper, SQL NULL values are not set.
+ */
+class EntityRowMapper<E extends AbstractEntity> {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+  private final MethodHandle constructor;
+  private final Map<String, ColumnReader> readerPerColumn = new HashMap<>();
+
+  EntityRowMapper(final Class<E> entityClass, final Map<String, ColumnInfo> columnInfoMap) {
+    try {
+      final MethodHandles.Lookup lookup = MethodHandles.lookup();
+      constructor = lookup.findConstructor(entityClass, methodType(void.class))
+          .asType(methodType(Object.class));
+      for (final ColumnInfo columnInfo : columnInfoMap.values()) {
+        if (columnInfo.getField() != null) {
+          readerPerColumn.put(columnInfo.getColumnNameInDB(), columnReader(lookup, columnInfo));
+        }
+      }
+    } catch (final ReflectiveOperationException e) {
+      throw new IllegalStateException("Unable to build the row mapper of " + entityClass, e);
+    }
+  }
+
+  private static ColumnReader columnReader(final MethodHandles.Lookup lookup,
+      final ColumnInfo columnInfo) throws ReflectiveOperationException {
+    final Field field = columnInfo.getField();
+    final Class<?> type = field.getType();
+    final MethodHandle setter = lookup.unreflectSetter(field);
+    if (type == long.class) {
+      final MethodHandle longSetter = setter.asType(methodType(void.class, Object.class,
+          long.class));
+      return (rs, i, entity) -> {
+        final long value = rs.getLong(i);
+        if (!rs.wasNull()) {
+          longSetter.invokeExact(entity, value);
+        }
+      };
+    } else if (type == int.class) {
+      final MethodHandle intSetter = setter.asType(methodType(void.class, Object.class,
+          int.class));
+      return (rs, i, entity) -> {
+        final int value = rs.getInt(i);
+        if (!rs.wasNull()) {
+          intSetter.invokeExact(entity, value);
+        }
+      };
+    } else if (type == double.class) {
+      final MethodHandle doubleSetter = setter.asType(methodType(void.class, Object.class,
+          double.class));
+      return (rs, i, entity) -> {
+        final double value = rs.getDouble(i);
+        if (!rs.wasNull()) {
+          doubleSetter.invokeExact(entity, value);
+        }
+      };
+    } else if (type == boolean.class) {
+      final MethodHandle booleanSetter = setter.asType(methodType(void.class, Object.class,
+          boolean.class));
+      return (rs, i, entity) -> {
+        final boolean value = rs.getBoolean(i);
+        if (!rs.wasNull()) {
+          booleanSetter.invokeExact(entity, value);
+        }
+      };
+    }
+
+    final MethodHandle objectSetter = setter.asType(methodType(void.class, Object.class,
+        Object.class));
+    final ValueGetter getter = valueGetter(lookup, type, columnInfo.getSqlType());
+    return (rs, i, entity) -> {
+      final Object value = getter.get(rs, i);
+      if (value != null) {
+        objectSetter.invokeExact(entity, value);
+      }
+    };
+  }
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private static ValueGetter valueGetter(final MethodHandles.Lookup lookup, final Class<?> type,
+      final int sqlType) throws ReflectiveOperationException {
+    if (type == Long.class) {
+      return (rs, i) -> nullIfWasNull(rs, rs.getLong(i));
+    } else if (type == Integer.class) {
+      return (rs, i) -> nullIfWasNull(rs, rs.getInt(i));
+    } else if (type == Double.class) {
+      return (rs, i) -> nullIfWasNull(rs, rs.getDouble(i));
+    } else if (type == Boolean.class) {
+      return (rs, i) -> nullIfWasNull(rs, rs.getBoolean(i));
+    } else if (type == java.sql.Timestamp.class) {
+      return ResultSet::getTimestamp;
+    } else if (type == String.class) {
+      return sqlType == Types.CLOB ? EntityRowMapper::getClobString : ResultSet::getString;
+    } else if (type.isEnum()) {
+      final Class<? extends Enum> enumType = (Class<? extends Enum>) type;
+      return (rs, i) -> {
+        final String value = rs.getString(i);
+        return value == null ? null : Enum.valueOf(enumType, value);
+      };
+    }
+
+    final MethodHandle fromString = stringConstructor(lookup, type);
+    if (fromString != null) {
+      // for instance DimensionMap
+      return (rs, i) -> {
+        final String value = rs.getString(i);
+        return value == null ? null : fromString.invokeExact(value);
+      };
+    }
+    return (rs, i) -> {
+      final String value = rs.getString(i);
+      return value == null ? null : OBJECT_MAPPER.convertValue(value, type);
+    };
+  }
+
+  private static MethodHandle stringConstructor(final MethodHandles.Lookup lookup,
+      final Class<?> type) {
+    try {
+      return lookup.findConstructor(type, methodType(void.class, String.class))
+          .asType(methodType(Object.class, String.class));
+    } catch (final NoSuchMethodException | IllegalAccessException e) {
+      return null;
+    }
+  }
+
+  private static Object nullIfWasNull(final ResultSet rs, final Object value)
+      throws SQLException {
+    return rs.wasNull() ? null : value;
+  }
+
+  private static String getClobString(final ResultSet rs, final int i) throws SQLException {
+    final Clob clob = rs.getClob(i);
+    return clob == null ? null : clob.getSubString(1, (int) clob.length());
+  }
+
+  @SuppressWarnings("unchecked")
+  List<E> mapAll(final ResultSet rs) throws Exception {
+    final ResultSetMetaData resultSetMetaData = rs.getMetaData();
+    final ColumnReader[] readers = new ColumnReader[resultSetMetaData.getColumnCount()];
+    for (int i = 0; i < readers.length; i++) {
+      readers[i] = readerPerColumn.get(resultSetMetaData.getColumnLabel(i + 1).toLowerCase());
+    }
+
+    final List<E> entityList = new ArrayList<>();
+    try {
+      while (rs.next()) {
+        final Object entity = constructor.invokeExact();
+        for (int i = 0; i < readers.length; i++) {
+          if (readers[i] != null) {
+            readers[i].read(rs, i + 1, entity);
+          }
+        }
+        entityList.add((E) entity);
+      }
+    } catch (final Exception | Error e) {
+      throw e;
+    } catch (final Throwable t) {
+      throw new IllegalStateException(t);
+    }
+    return entityList;
+  }
+
+  @FunctionalInterface
+  private interface ColumnReader {
+
+    void read(ResultSet rs, int columnIndex, Object entity) throws Throwable;
+  }
+
+  @FunctionalInterface
+  private interface ValueGetter {
+
+    Object get(ResultSet rs, int columnIndex) throws Throwable;
+  }
+}
@@ -32,10 +32,18 @@ import java.util.List;
 public class GenericResultSetMapper {
 
   private final EntityMappingHolder entityMappingHolder;
+  private final EntityMapperType entityMapperType;
 
   @Inject
-  public GenericResultSetMapper(final EntityMappingHolder entityMappingHolder) {
+  public GenericResultSetMapper(final EntityMappingHolder entityMappingHolder,
+      final DatabaseConfiguration databaseConfiguration) {
+    this(entityMappingHolder, databaseConfiguration.getEntityMapper());
+  }
+
+  public GenericResultSetMapper(final EntityMappingHolder entityMappingHolder,
+      final EntityMapperType entityMapperType) {
     this.entityMappingHolder = entityMappingHolder;
+    this.entityMapperType = entityMapperType;
   }
 
   public <E extends AbstractEntity> E mapSingle(final ResultSet rs,
@@ -53,8 +61,21 @@ public class GenericResultSetMapper {
     return toEntityList(rs, entityClass);
   }
 
+  @SuppressWarnings("unchecked")
   private <E extends AbstractEntity> List<E> toEntityList(final ResultSet rs,
       final Class<E> entityClass) throws Exception {
+    if (entityMapperType == EntityMapperType.GENERATED) {
+      final EntityRowMapper<E> rowMapper = (EntityRowMapper<E>) entityMappingHolder
+          .rowMapperPerEntity.get(entityClass);
+      if (rowMapper != null) {
+        return rowMapper.mapAll(rs);
+      }
+    }
+    return toEntityListWithJackson(rs, entityClass);
+  }
+
+  private <E extends AbstractEntity> List<E> toEntityListWithJackson(final ResultSet rs,
+      final Class<E> entityClass) throws Exception {
     final String tableName =
         entityMappingHolder.tableToEntityNameMap.inverse().get(entityClass.getSimpleName());
     final LinkedHashMap<String, ColumnInfo> columnInfoMap =
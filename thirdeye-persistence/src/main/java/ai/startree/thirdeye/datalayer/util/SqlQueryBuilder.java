@@ -13,6 +13,7 @@
  */
 package ai.startree.thirdeye.datalayer.util;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Objects.requireNonNull;
 
@@ -95,6 +96,32 @@ public class SqlQueryBuilder {
 
   public PreparedStatement createInsertStatement(final Connection conn, final String tableName,
       final AbstractEntity entity) throws Exception {
+    final PreparedStatement preparedStatement = prepareInsertStatement(conn, tableName);
+    setInsertParameters(conn, preparedStatement, tableName, entity);
+    return preparedStatement;
+  }
+
+  /**
+   * Creates a single insert statement for entities of the same class. Each entity is a batch.
+   * Generated keys are returned in the order of the entities.
+   */
+  public PreparedStatement createBatchInsertStatement(final Connection conn,
+      final List<? extends AbstractEntity> entities) throws Exception {
+    checkArgument(!entities.isEmpty(), "no entity to insert");
+    final String tableName = requireNonNull(entityMappingHolder.tableToEntityNameMap.inverse()
+        .get(entities.get(0).getClass().getSimpleName()));
+    final PreparedStatement preparedStatement = prepareInsertStatement(conn, tableName);
+    for (final AbstractEntity entity : entities) {
+      checkArgument(entity.getClass().equals(entities.get(0).getClass()),
+          "a batch insert is only for entities of the same class");
+      setInsertParameters(conn, preparedStatement, tableName, entity);
+      preparedStatement.addBatch();
+    }
+    return preparedStatement;
+  }
+
+  private PreparedStatement prepareInsertStatement(final Connection conn, final String tableName)
+      throws Exception {
     if (!insertSqlMap.containsKey(tableName)) {
       final String insertSql = generateInsertSql(tableName,
           entityMappingHolder.columnInfoPerTable.get(tableName.toLowerCase()));
@@ -102,8 +129,12 @@ public class SqlQueryBuilder {
     }
 
     final String sql = insertSqlMap.get(tableName);
-    final PreparedStatement preparedStatement =
-        conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+    return conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+  }
+
+  private void setInsertParameters(final Connection conn,
+      final PreparedStatement preparedStatement, final String tableName,
+      final AbstractEntity entity) throws Exception {
     final LinkedHashMap<String, ColumnInfo> columnInfoMap =
         entityMappingHolder.columnInfoPerTable.get(tableName);
     int parameterIndex = 1;
@@ -126,19 +157,64 @@ public class SqlQueryBuilder {
         }
       }
     }
-    return preparedStatement;
   }
 
   public PreparedStatement createUpdateStatement(final Connection connection, final AbstractEntity entity,
       final Set<String> fieldsToUpdate, final Predicate predicate) throws Exception {
     final String tableName =
         entityMappingHolder.tableToEntityNameMap.inverse().get(entity.getClass().getSimpleName());
+    final List<Pair<String, Object>> parametersList = new ArrayList<>();
+    final String sql = generateUpdateSql(tableName, entity, fieldsToUpdate, predicate,
+        parametersList);
+    final PreparedStatement prepareStatement = connection.prepareStatement(sql);
+    setUpdateParameters(prepareStatement, tableName, parametersList);
+    return prepareStatement;
+  }
+
+  /**
+   * Creates the update statements of entities of the same class. Updates with the same sql are
+   * batched in the same statement.
+   *
+   * @param predicates the predicate of each entity
+   */
+  public List<PreparedStatement> createBatchUpdateStatements(final Connection connection,
+      final List<? extends AbstractEntity> entities, final List<Predicate> predicates)
+      throws Exception {
+    checkArgument(entities.size() == predicates.size(), "one predicate is required per entity");
+    final Map<String, PreparedStatement> statements = new LinkedHashMap<>();
+    try {
+      for (int i = 0; i < entities.size(); i++) {
+        final AbstractEntity entity = entities.get(i);
+        final String tableName = entityMappingHolder.tableToEntityNameMap.inverse()
+            .get(entity.getClass().getSimpleName());
+        final List<Pair<String, Object>> parametersList = new ArrayList<>();
+        final String sql = generateUpdateSql(tableName, entity, null, predicates.get(i),
+            parametersList);
+        PreparedStatement statement = statements.get(sql);
+        if (statement == null) {
+          statement = connection.prepareStatement(sql);
+          statements.put(sql, statement);
+        }
+        setUpdateParameters(statement, tableName, parametersList);
+        statement.addBatch();
+      }
+    } catch (final Exception e) {
+      for (final PreparedStatement statement : statements.values()) {
+        statement.close();
+      }
+      throw e;
+    }
+    return new ArrayList<>(statements.values());
+  }
+
+  private String generateUpdateSql(final String tableName, final AbstractEntity entity,
+      final Set<String> fieldsToUpdate, final Predicate predicate,
+      final List<Pair<String, Object>> parametersList) throws Exception {
     final LinkedHashMap<String, ColumnInfo> columnInfoMap =
         entityMappingHolder.columnInfoPerTable.get(tableName);
 
     final StringBuilder sqlBuilder = new StringBuilder("UPDATE " + tableName + " SET ");
     String delim = "";
-    final List<Pair<String, Object>> parametersList = new ArrayList<>();
     for (final ColumnInfo columnInfo : columnInfoMap.values()) {
       final String columnNameInDB = columnInfo.getColumnNameInDB();
       if (!AUTO_UPDATE_COLUMN_SET.contains(columnNameInDB)
@@ -162,14 +238,19 @@ public class SqlQueryBuilder {
     final StringBuilder whereClause = new StringBuilder(" WHERE ");
     generateWhereClause(entityNameToDBNameMapping, predicate, parametersList, whereClause);
     sqlBuilder.append(whereClause);
+    return sqlBuilder.toString();
+  }
+
+  private void setUpdateParameters(final PreparedStatement prepareStatement,
+      final String tableName, final List<Pair<String, Object>> parametersList) throws Exception {
+    final LinkedHashMap<String, ColumnInfo> columnInfoMap =
+        entityMappingHolder.columnInfoPerTable.get(tableName);
     int parameterIndex = 1;
-    final PreparedStatement prepareStatement = connection.prepareStatement(sqlBuilder.toString());
     for (final Pair<String, Object> paramEntry : parametersList) {
       final String dbFieldName = paramEntry.getKey();
       final ColumnInfo info = columnInfoMap.get(dbFieldName);
       prepareStatement.setObject(parameterIndex++, paramEntry.getValue(), info.getSqlType());
     }
-    return prepareStatement;
   }
 
   public PreparedStatement createDeleteStatement(final Connection connection,
@@ -202,17 +283,40 @@ public class SqlQueryBuilder {
   public PreparedStatement createFindByParamsStatementWithLimit(final Connection connection,
       final Class<? extends AbstractEntity> entityClass, final Predicate predicate, final Long limit, final Long offset)
       throws Exception {
+    return createFindByParamsStatementWithLimit(connection,
+        entityClass,
+        predicate,
+        null,
+        false,
+        limit,
+        offset);
+  }
+
+  /**
+   * @param orderByKey entity field name to sort by. Not sorted if null.
+   */
+  public PreparedStatement createFindByParamsStatementWithLimit(final Connection connection,
+      final Class<? extends AbstractEntity> entityClass, final Predicate predicate,
+      final String orderByKey, final boolean desc, final Long limit, final Long offset)
+      throws Exception {
     final String tableName = entityMappingHolder.tableToEntityNameMap.inverse()
         .get(entityClass.getSimpleName());
     final StringBuilder sqlBuilder = new StringBuilder("SELECT * FROM " + tableName);
     final List<Pair<String, Object>> parametersList = new ArrayList<>();
+    final BiMap<String, String> entityNameToDBNameMapping =
+        entityMappingHolder.columnMappingPerTable.get(tableName).inverse();
     if(predicate != null) {
-      final BiMap<String, String> entityNameToDBNameMapping =
-          entityMappingHolder.columnMappingPerTable.get(tableName).inverse();
       final StringBuilder whereClause = new StringBuilder(" WHERE ");
       generateWhereClause(entityNameToDBNameMapping, predicate, parametersList, whereClause);
       sqlBuilder.append(whereClause);
     }
+    if (orderByKey != null) {
+      final String orderByColumn = entityNameToDBNameMapping.get(orderByKey);
+      checkNotNull(orderByColumn, String.format("Found field '%s' but expected %s",
+          orderByKey,
+          entityNameToDBNameMapping.keySet()));
+      sqlBuilder.append(" ORDER BY ").append(orderByColumn).append(desc ? " DESC" : " ASC");
+    }
     if (limit != null) {
       sqlBuilder.append(" LIMIT ").append(limit);
     }
@@ -235,6 +339,117 @@ public class SqlQueryBuilder {
     return prepareStatement;
   }
 
+  /**
+   * Selects some columns of the rows matching the predicate. The other fields of the mapped
+   * entities are not set.
+   *
+   * @param fieldNames entity field names of the columns to select
+   */
+  public PreparedStatement createFindColumnsStatement(final Connection connection,
+      final Class<? extends AbstractEntity> entityClass, final List<String> fieldNames,
+      final Predicate predicate) throws Exception {
+    final String tableName = entityMappingHolder.tableToEntityNameMap.inverse()
+        .get(entityClass.getSimpleName());
+    final BiMap<String, String> entityNameToDBNameMapping =
+        entityMappingHolder.columnMappingPerTable.get(tableName).inverse();
+    final StringBuilder sqlBuilder = new StringBuilder("SELECT ");
+    String delim = "";
+    for (final String fieldName : fieldNames) {
+      final String column = entityNameToDBNameMapping.get(fieldName);
+      checkNotNull(column, String.format("Found field '%s' but expected %s",
+          fieldName,
+          entityNameToDBNameMapping.keySet()));
+      sqlBuilder.append(delim).append(column);
+      delim = ", ";
+    }
+    sqlBuilder.append(" FROM ").append(tableName);
+    final List<Pair<String, Object>> parametersList = new ArrayList<>();
+    if (predicate != null) {
+      final StringBuilder whereClause = new StringBuilder(" WHERE ");
+      generateWhereClause(entityNameToDBNameMapping, predicate, parametersList, whereClause);
+      sqlBuilder.append(whereClause);
+    }
+    final PreparedStatement prepareStatement = connection.prepareStatement(sqlBuilder.toString());
+    int parameterIndex = 1;
+    final LinkedHashMap<String, ColumnInfo> columnInfoMap =
+        entityMappingHolder.columnInfoPerTable.get(tableName);
+    for (final Pair<String, Object> pair : parametersList) {
+      final ColumnInfo info = columnInfoMap.get(pair.getKey());
+      prepareStatement.setObject(parameterIndex++, pair.getValue(), info.getSqlType());
+    }
+    return prepareStatement;
+  }
+
+  /**
+   * Selects the rows of the json entity table whose index rows match the predicate, with a single
+   * query. The filter, order, limit and offset are applied on the index table in a derived table,
+   * which is then joined to the json entity table.
+   *
+   * @param orderByKey entity field name of the index to sort by. Not sorted if null.
+   */
+  public PreparedStatement createFindJsonEntitiesByIndexStatement(final Connection connection,
+      final Class<? extends AbstractEntity> jsonEntityClass,
+      final Class<? extends AbstractEntity> indexClass, final Predicate predicate,
+      final String orderByKey, final boolean desc, final Long limit, final Long offset)
+      throws Exception {
+    final String jsonTableName = entityMappingHolder.tableToEntityNameMap.inverse()
+        .get(jsonEntityClass.getSimpleName());
+    final String indexTableName = entityMappingHolder.tableToEntityNameMap.inverse()
+        .get(indexClass.getSimpleName());
+    final BiMap<String, String> entityNameToDBNameMapping =
+        entityMappingHolder.columnMappingPerTable.get(indexTableName).inverse();
+    final String baseIdColumn = entityNameToDBNameMapping.get("baseId");
+    String orderByColumn = null;
+    if (orderByKey != null) {
+      orderByColumn = entityNameToDBNameMapping.get(orderByKey);
+      checkNotNull(orderByColumn, String.format("Found field '%s' but expected %s",
+          orderByKey,
+          entityNameToDBNameMapping.keySet()));
+    }
+
+    final StringBuilder sqlBuilder = new StringBuilder("SELECT j.* FROM (SELECT ")
+        .append(baseIdColumn);
+    if (orderByColumn != null && !orderByColumn.equals(baseIdColumn)) {
+      sqlBuilder.append(", ").append(orderByColumn);
+    }
+    sqlBuilder.append(" FROM ").append(indexTableName);
+    final List<Pair<String, Object>> parametersList = new ArrayList<>();
+    if (predicate != null) {
+      final StringBuilder whereClause = new StringBuilder(" WHERE ");
+      generateWhereClause(entityNameToDBNameMapping, predicate, parametersList, whereClause);
+      sqlBuilder.append(whereClause);
+    }
+    final String direction = desc ? " DESC" : " ASC";
+    if (orderByColumn != null) {
+      sqlBuilder.append(" ORDER BY ").append(orderByColumn).append(direction);
+    }
+    if (limit != null) {
+      sqlBuilder.append(" LIMIT ").append(limit);
+    }
+    if (offset != null) {
+      sqlBuilder.append(" OFFSET ").append(offset);
+    }
+    sqlBuilder.append(") i INNER JOIN ").append(jsonTableName).append(" j ON j.id = i.")
+        .append(baseIdColumn);
+    // the order of a derived table is not kept by the join
+    if (orderByColumn != null) {
+      sqlBuilder.append(" ORDER BY i.").append(orderByColumn).append(direction);
+    }
+
+    final PreparedStatement prepareStatement = connection.prepareStatement(sqlBuilder.toString());
+    int parameterIndex = 1;
+    final LinkedHashMap<String, ColumnInfo> columnInfoMap =
+        entityMappingHolder.columnInfoPerTable.get(indexTableName);
+    for (final Pair<String, Object> pair : parametersList) {
+      final String dbFieldName = pair.getKey();
+      final ColumnInfo info = columnInfoMap.get(dbFieldName);
+      checkNotNull(info,
+          String.format("Found field '%s' but expected %s", dbFieldName, columnInfoMap.keySet()));
+      prepareStatement.setObject(parameterIndex++, pair.getValue(), info.getSqlType());
+    }
+    return prepareStatement;
+  }
+
   public PreparedStatement createCountStatement(final Connection connection, final Predicate predicate,
       final Class<? extends AbstractEntity> entityClass) throws Exception {
     final String tableName =
@@ -333,6 +548,9 @@ public class SqlQueryBuilder {
         parametersList.add(ImmutablePair.of(columnName, pair.getLeft()));
         parametersList.add(ImmutablePair.of(columnName, pair.getRight()));
         break;
+      case IS_NULL:
+        whereClause.append(columnName).append(" ").append(predicate.getOper().toString());
+        break;
       default:
         throw new RuntimeException("Unsupported predicate type:" + predicate.getOper());
     }
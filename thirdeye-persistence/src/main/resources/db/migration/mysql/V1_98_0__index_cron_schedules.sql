@@ -0,0 +1,32 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+-- scheduling fields of alerts and subscription groups, read by the cron schedulers
+ALTER TABLE detection_config_index ADD COLUMN cron VARCHAR(256) DEFAULT NULL;
+CREATE INDEX detection_config_update_time_idx ON detection_config_index (update_time);
+
+ALTER TABLE detection_alert_config_index ADD COLUMN active BOOLEAN DEFAULT NULL;
+ALTER TABLE detection_alert_config_index ADD COLUMN cron_expression VARCHAR(256) DEFAULT NULL;
+CREATE INDEX detection_alert_config_active_idx ON detection_alert_config_index (active);
+CREATE INDEX detection_alert_config_update_time_idx ON detection_alert_config_index (update_time);
+
+-- backfill. Rows that are not plain JSON are left empty and completed by the application.
+UPDATE detection_config_index i JOIN generic_json_entity g ON i.base_id = g.id
+SET i.cron = JSON_UNQUOTE(JSON_EXTRACT(g.json_val, '$.cron'))
+WHERE JSON_VALID(g.json_val);
+
+UPDATE detection_alert_config_index i JOIN generic_json_entity g ON i.base_id = g.id
+SET i.cron_expression = JSON_UNQUOTE(JSON_EXTRACT(g.json_val, '$.cronExpression')),
+    i.active          = JSON_UNQUOTE(JSON_EXTRACT(g.json_val, '$.active')) = 'true'
+WHERE JSON_VALID(g.json_val);
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datalayer.bao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import ai.startree.thirdeye.datalayer.MySqlTestDatabase;
+import ai.startree.thirdeye.spi.datalayer.CronSchedule;
+import ai.startree.thirdeye.spi.datalayer.bao.AlertManager;
+import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
+import java.sql.Timestamp;
+import java.util.List;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class TestAlertManager {
+
+  private AlertManager alertManager;
+
+  @BeforeClass
+  void beforeClass() {
+    alertManager = MySqlTestDatabase.sharedInjector().getInstance(AlertManager.class);
+  }
+
+  @AfterClass
+  void clean() {
+    alertManager.findAll().forEach(alertManager::delete);
+  }
+
+  private static AlertDTO alert(final String name, final String cron, final boolean active) {
+    final AlertDTO alert = new AlertDTO();
+    alert.setName(name);
+    alert.setCron(cron);
+    alert.setActive(active);
+    return alert;
+  }
+
+  @Test
+  public void testFindSchedules() throws InterruptedException {
+    final long id1 = alertManager.save(alert("alert1", "0 0 * * * ? *", true));
+    final long id2 = alertManager.save(alert("alert2", "0 0 0 * * ? *", false));
+
+    assertThat(alertManager.findActiveIds()).containsExactly(id1);
+    final List<CronSchedule> schedules = alertManager.findSchedulesByIds(List.of(id1, id2));
+    assertThat(schedules).extracting(CronSchedule::getId).containsExactlyInAnyOrder(id1, id2);
+    final CronSchedule schedule1 = schedules.stream()
+        .filter(s -> s.getId() == id1)
+        .findFirst()
+        .orElseThrow();
+    assertThat(schedule1.getCron()).isEqualTo("0 0 * * * ? *");
+    assertThat(schedule1.isActive()).isTrue();
+    assertThat(schedule1.getUpdateTime()).isNotNull();
+
+    // update times are stored with a precision of a second
+    Thread.sleep(2000);
+    final Timestamp updatedSince = new Timestamp(System.currentTimeMillis() / 1000 * 1000);
+    final AlertDTO alert2 = alertManager.findById(id2);
+    alert2.setCron("0 0 1 * * ? *");
+    alertManager.update(alert2);
+
+    assertThat(alertManager.findSchedulesUpdatedSince(updatedSince))
+        .extracting(CronSchedule::getId, CronSchedule::getCron)
+        .containsExactly(tuple(id2, "0 0 1 * * ? *"));
+    assertThat(alertManager.findSchedulesUpdatedSince(null)).hasSize(2);
+  }
+}
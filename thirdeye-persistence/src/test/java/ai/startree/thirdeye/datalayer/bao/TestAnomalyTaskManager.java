@@ -13,6 +13,7 @@
  */
 package ai.startree.thirdeye.datalayer.bao;
 
+import static java.util.stream.Collectors.toSet;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import ai.startree.thirdeye.aspect.TimeProvider;
@@ -188,6 +189,30 @@ public class TestAnomalyTaskManager {
     Assert.assertTrue(timeoutTasksWithinOneDays.size() > 0);
   }
 
+  @Test(dependsOnMethods = {"testFindByStatusWithinDays", "testFindTimeoutTasksWithinDays"})
+  public void testAcquireTasksToRun() throws JsonProcessingException {
+    JobDTO testAnomalyJobSpec = DatalayerTestUtils.getTestJobSpec();
+    jobDAO.save(testAnomalyJobSpec);
+    taskDAO.save(getTestTaskSpec(testAnomalyJobSpec));
+    taskDAO.save(getTestTaskSpec(testAnomalyJobSpec));
+    final int waitingCount = taskDAO
+        .findByStatusOrderByCreateTime(TaskStatus.WAITING, Integer.MAX_VALUE, true).size();
+
+    final List<TaskDTO> acquired = taskDAO.acquireTasksToRun(1L, 2);
+    Assert.assertEquals(acquired.size(), 2);
+    for (final TaskDTO task : acquired) {
+      final TaskDTO saved = taskDAO.findById(task.getId());
+      Assert.assertEquals(saved.getStatus(), TaskStatus.RUNNING);
+      Assert.assertEquals(saved.getWorkerId(), Long.valueOf(1L));
+      Assert.assertEquals(saved.getVersion(), task.getVersion());
+    }
+
+    final List<TaskDTO> acquiredByOtherWorker = taskDAO.acquireTasksToRun(2L, waitingCount);
+    Assert.assertEquals(acquiredByOtherWorker.size(), waitingCount - 2);
+    final Set<Long> acquiredIds = acquired.stream().map(TaskDTO::getId).collect(toSet());
+    Assert.assertTrue(acquiredByOtherWorker.stream().noneMatch(t -> acquiredIds.contains(t.getId())));
+  }
+
   TaskDTO getTestTaskSpec(JobDTO anomalyJobSpec) throws JsonProcessingException {
     TaskDTO jobSpec = new TaskDTO();
     jobSpec.setJobName("Test_Anomaly_Task");
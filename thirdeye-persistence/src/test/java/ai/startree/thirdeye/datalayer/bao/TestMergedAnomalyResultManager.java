@@ -218,6 +218,48 @@ public class TestMergedAnomalyResultManager {
     Assert.assertEquals(readChildren.get(1).getChildren().iterator().next().getEndTime(), 1800);
   }
 
+  @Test
+  public void testFindByIdsLoadsAnomalyTrees() {
+    final AnomalyFeedbackDTO feedback = new AnomalyFeedbackDTO()
+        .setComment("shared feedback")
+        .setFeedbackType(AnomalyFeedbackType.ANOMALY);
+    final List<Long> parentIds = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      MergedAnomalyResultDTO parent = new MergedAnomalyResultDTO();
+      parent.setStartTime(1000);
+      parent.setEndTime(2000);
+
+      MergedAnomalyResultDTO child = new MergedAnomalyResultDTO();
+      child.setStartTime(1000);
+      child.setEndTime(1500);
+
+      MergedAnomalyResultDTO grandChild = new MergedAnomalyResultDTO();
+      grandChild.setStartTime(1100 + i);
+      grandChild.setEndTime(1200);
+
+      child.setChildren(new HashSet<>(Collections.singletonList(grandChild)));
+      parent.setChildren(new HashSet<>(Collections.singletonList(child)));
+      parentIds.add(this.mergedAnomalyResultDAO.save(parent));
+
+      parent.setFeedback(feedback);
+      this.mergedAnomalyResultDAO.updateAnomalyFeedback(parent);
+    }
+
+    final List<MergedAnomalyResultDTO> read = this.mergedAnomalyResultDAO.findByIds(parentIds);
+
+    Assert.assertEquals(read.size(), 3);
+    for (final MergedAnomalyResultDTO parent : read) {
+      Assert.assertEquals(parent.getFeedback().getComment(), "shared feedback");
+      Assert.assertEquals(parent.getChildren().size(), 1);
+      final MergedAnomalyResultDTO child = parent.getChildren().iterator().next();
+      Assert.assertEquals(child.getFeedback().getComment(), "shared feedback");
+      Assert.assertEquals(child.getChildren().size(), 1);
+      final MergedAnomalyResultDTO grandChild = child.getChildren().iterator().next();
+      Assert.assertTrue(grandChild.isChild());
+      Assert.assertTrue(grandChild.getChildren().isEmpty());
+    }
+  }
+
   @Test
   public void testUpdateToAnomalyHierarchy() {
     MergedAnomalyResultDTO parent = new MergedAnomalyResultDTO();
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datalayer.bao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+import ai.startree.thirdeye.datalayer.MySqlTestDatabase;
+import ai.startree.thirdeye.spi.datalayer.CronSchedule;
+import ai.startree.thirdeye.spi.datalayer.bao.SubscriptionGroupManager;
+import ai.startree.thirdeye.spi.datalayer.dto.SubscriptionGroupDTO;
+import com.google.inject.Injector;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import javax.sql.DataSource;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class TestSubscriptionGroupManager {
+
+  private SubscriptionGroupManager subscriptionGroupManager;
+  private DataSource dataSource;
+
+  @BeforeClass
+  void beforeClass() {
+    final Injector injector = MySqlTestDatabase.sharedInjector();
+    subscriptionGroupManager = injector.getInstance(SubscriptionGroupManager.class);
+    dataSource = injector.getInstance(DataSource.class);
+  }
+
+  @AfterClass
+  void clean() {
+    subscriptionGroupManager.findAll().forEach(subscriptionGroupManager::delete);
+  }
+
+  private static SubscriptionGroupDTO subscriptionGroup(final String name, final String cron,
+      final boolean active) {
+    return new SubscriptionGroupDTO()
+        .setName(name)
+        .setCronExpression(cron)
+        .setActive(active);
+  }
+
+  @Test
+  public void testSchedulesNotIndexedAreCompletedFromTheEntity() throws Exception {
+    final long id1 = subscriptionGroupManager.save(
+        subscriptionGroup("group1", "0 0 * * * ? *", true));
+    final long id2 = subscriptionGroupManager.save(
+        subscriptionGroup("group2", "0 0 0 * * ? *", false));
+    // index rows the migration could not backfill
+    try (final Connection connection = dataSource.getConnection();
+        final PreparedStatement statement = connection.prepareStatement(
+            "UPDATE detection_alert_config_index SET active = NULL, cron_expression = NULL")) {
+      statement.executeUpdate();
+    }
+
+    assertThat(subscriptionGroupManager.findActiveIds()).containsExactly(id1);
+    assertThat(subscriptionGroupManager.findSchedulesByIds(List.of(id1, id2)))
+        .extracting(CronSchedule::getId, CronSchedule::getCron, CronSchedule::isActive)
+        .containsExactlyInAnyOrder(
+            tuple(id1, "0 0 * * * ? *", true),
+            tuple(id2, "0 0 0 * * ? *", false));
+  }
+}
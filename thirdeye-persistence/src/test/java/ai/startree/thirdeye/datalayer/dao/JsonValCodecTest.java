@@ -0,0 +1,96 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datalayer.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ai.startree.thirdeye.spi.datalayer.dto.MergedAnomalyResultDTO;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import org.testng.annotations.Test;
+
+public class JsonValCodecTest {
+
+  private static MergedAnomalyResultDTO anomaly(final int propertyCount) {
+    final MergedAnomalyResultDTO anomaly = new MergedAnomalyResultDTO()
+        .setMetric("views");
+    anomaly.setStartTime(1000L);
+    anomaly.setEndTime(2000L);
+    final Map<String, String> properties = new HashMap<>();
+    for (int i = 0; i < propertyCount; i++) {
+      properties.put("property" + i, "value" + i);
+    }
+    anomaly.setProperties(properties);
+    return anomaly;
+  }
+
+  @Test
+  public void testJsonFormat() throws Exception {
+    final JsonValCodec codec = new JsonValCodec(JsonValFormat.JSON);
+    final String json = codec.toJson(anomaly(100));
+
+    final String jsonVal = codec.encode(json);
+    assertThat(jsonVal).isEqualTo(json);
+    assertThat(codec.decode(jsonVal, MergedAnomalyResultDTO.class)).isEqualTo(anomaly(100));
+  }
+
+  @Test
+  public void testDeflateFormat() throws Exception {
+    final JsonValCodec codec = new JsonValCodec(JsonValFormat.DEFLATE);
+    final String json = codec.toJson(anomaly(100));
+
+    final String jsonVal = codec.encode(json);
+    assertThat(jsonVal).startsWith(JsonValCodec.DEFLATE_MARKER);
+    assertThat(jsonVal.length()).isLessThan(json.length());
+    final MergedAnomalyResultDTO decoded = codec.decode(jsonVal, MergedAnomalyResultDTO.class);
+    assertThat(decoded).isEqualTo(anomaly(100));
+    assertThat(decoded.getProperties()).isEqualTo(anomaly(100).getProperties());
+  }
+
+  @Test
+  public void testSmallDocumentsAreNotCompressed() throws Exception {
+    final JsonValCodec codec = new JsonValCodec(JsonValFormat.DEFLATE);
+    final String json = codec.toJson(anomaly(1));
+
+    assertThat(json.length()).isLessThan(JsonValCodec.COMPRESSION_THRESHOLD);
+    assertThat(codec.encode(json)).isEqualTo(json);
+  }
+
+  @Test
+  public void testRowsOfAnyFormatAreReadable() throws Exception {
+    final JsonValCodec jsonCodec = new JsonValCodec(JsonValFormat.JSON);
+    final JsonValCodec deflateCodec = new JsonValCodec(JsonValFormat.DEFLATE);
+    final String json = jsonCodec.toJson(anomaly(100));
+
+    assertThat(deflateCodec.decode(jsonCodec.encode(json), MergedAnomalyResultDTO.class))
+        .isEqualTo(anomaly(100));
+    assertThat(jsonCodec.decode(deflateCodec.encode(json), MergedAnomalyResultDTO.class))
+        .isEqualTo(anomaly(100));
+  }
+
+  @Test
+  public void testDecodeFromTokens() throws Exception {
+    final JsonValCodec codec = new JsonValCodec(JsonValFormat.DEFLATE);
+    final TokenBuffer tokens = codec.toTokens(codec.encode(codec.toJson(anomaly(100))));
+
+    final MergedAnomalyResultDTO first = codec.decode(tokens, MergedAnomalyResultDTO.class);
+    final MergedAnomalyResultDTO second = codec.decode(tokens, MergedAnomalyResultDTO.class);
+    assertThat(first).isEqualTo(anomaly(100));
+    assertThat(second.getProperties()).isEqualTo(anomaly(100).getProperties());
+    // each decode returns a new bean
+    first.getProperties().clear();
+    assertThat(second.getProperties()).isEqualTo(anomaly(100).getProperties());
+  }
+}
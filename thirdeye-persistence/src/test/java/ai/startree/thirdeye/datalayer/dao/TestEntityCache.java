@@ -0,0 +1,150 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datalayer.dao;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ai.startree.thirdeye.datalayer.MySqlTestDatabase;
+import ai.startree.thirdeye.datalayer.util.EntityCacheConfiguration;
+import ai.startree.thirdeye.spi.datalayer.Predicate;
+import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.Injector;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.List;
+import javax.sql.DataSource;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class TestEntityCache {
+
+  private static final Predicate PAGEVIEWS = Predicate.EQ("dataset", "pageviews");
+  private static final Predicate CLICKS = Predicate.EQ("dataset", "clicks");
+
+  // the dao of this instance, and the dao of another ThirdEye instance on the same database
+  private GenericPojoDao dao;
+  private GenericPojoDao otherInstanceDao;
+  private EntityCache cache;
+  private DataSource dataSource;
+
+  @BeforeClass
+  void beforeClass() {
+    final Injector injector = MySqlTestDatabase.sharedInjector();
+    dao = injector.getInstance(GenericPojoDao.class);
+    dataSource = injector.getInstance(DataSource.class);
+    otherInstanceDao = MySqlTestDatabase.sharedInjector().getInstance(GenericPojoDao.class);
+    cache = new EntityCache(dao,
+        injector.getInstance(JsonValCodec.class),
+        new EntityCacheConfiguration().setRefreshInterval(0),
+        new MetricRegistry());
+  }
+
+  @AfterClass(alwaysRun = true)
+  public void afterClass() {
+    dao.deleteByPredicate(Predicate.NEQ("dataset", "null"), DatasetConfigDTO.class);
+  }
+
+  @Test
+  public void testReadsReturnNewBeans() {
+    final Long id = dao.put(new DatasetConfigDTO().setDataset("pageviews").setDataSource("pinot"));
+
+    final DatasetConfigDTO first = cache.findById(DatasetConfigDTO.class, id);
+    assertThat(first.getId()).isEqualTo(id);
+    assertThat(first.getDataSource()).isEqualTo("pinot");
+    first.setDataSource("modified");
+
+    final DatasetConfigDTO second = cache.findById(DatasetConfigDTO.class, id);
+    assertThat(second.getDataSource()).isEqualTo("pinot");
+    assertThat(cache.findByKey(DatasetConfigDTO.class, PAGEVIEWS))
+        .extracting(DatasetConfigDTO::getId)
+        .containsExactly(id);
+  }
+
+  @Test(dependsOnMethods = "testReadsReturnNewBeans")
+  public void testWritesOfThisInstance() {
+    final DatasetConfigDTO dataset = cache.findByKey(DatasetConfigDTO.class, PAGEVIEWS).get(0);
+    dataset.setDataSource("mysql");
+    dao.update(dataset);
+
+    assertThat(cache.findById(DatasetConfigDTO.class, dataset.getId()).getDataSource())
+        .isEqualTo("mysql");
+  }
+
+  @Test(dependsOnMethods = "testWritesOfThisInstance")
+  public void testWritesOfOtherInstances() throws InterruptedException {
+    final DatasetConfigDTO dataset = cache.findByKey(DatasetConfigDTO.class, PAGEVIEWS).get(0);
+    // update times are stored with a precision of a second
+    Thread.sleep(2000);
+    dataset.setDataSource("pinot");
+    otherInstanceDao.update(dataset);
+
+    assertThat(cache.findById(DatasetConfigDTO.class, dataset.getId()).getDataSource())
+        .isEqualTo("pinot");
+
+    otherInstanceDao.delete(dataset.getId(), DatasetConfigDTO.class);
+    assertThat(cache.findById(DatasetConfigDTO.class, dataset.getId())).isNull();
+    assertThat(cache.findByKey(DatasetConfigDTO.class, PAGEVIEWS)).isEmpty();
+
+    final Long id = otherInstanceDao.put(new DatasetConfigDTO().setDataset("pageviews"));
+    final List<DatasetConfigDTO> datasets = cache.findByKey(DatasetConfigDTO.class, PAGEVIEWS);
+    assertThat(datasets).extracting(DatasetConfigDTO::getId).containsExactly(id);
+  }
+
+  @Test
+  public void testUpdateOfOtherInstanceWithClockLate() throws Exception {
+    final Long id = dao.put(new DatasetConfigDTO().setDataset("clicks").setDataSource("pinot"));
+    assertThat(cache.findById(DatasetConfigDTO.class, id).getDataSource()).isEqualTo("pinot");
+
+    final DatasetConfigDTO dataset = otherInstanceDao.get(id, DatasetConfigDTO.class);
+    dataset.setDataSource("mysql");
+    otherInstanceDao.update(dataset);
+    // the clock of the other instance is one minute late
+    setUpdateTime(id, System.currentTimeMillis() - 60_000);
+
+    assertThat(cache.findById(DatasetConfigDTO.class, id).getDataSource()).isEqualTo("mysql");
+    assertThat(cache.findByKey(DatasetConfigDTO.class, CLICKS))
+        .extracting(DatasetConfigDTO::getDataSource)
+        .containsExactly("mysql");
+    otherInstanceDao.delete(id, DatasetConfigDTO.class);
+  }
+
+  @Test
+  public void testDeleteAndInsertOfOtherInstance() {
+    final Long deletedId = dao.put(new DatasetConfigDTO().setDataset("views"));
+    assertThat(cache.findById(DatasetConfigDTO.class, deletedId)).isNotNull();
+
+    // the number of datasets does not change
+    otherInstanceDao.delete(deletedId, DatasetConfigDTO.class);
+    final Long insertedId = otherInstanceDao.put(new DatasetConfigDTO().setDataset("views"));
+
+    assertThat(cache.findById(DatasetConfigDTO.class, deletedId)).isNull();
+    assertThat(cache.findById(DatasetConfigDTO.class, insertedId)).isNotNull();
+    otherInstanceDao.delete(insertedId, DatasetConfigDTO.class);
+  }
+
+  private void setUpdateTime(final Long id, final long updateTime) throws SQLException {
+    try (final Connection connection = dataSource.getConnection();
+        final PreparedStatement statement = connection.prepareStatement(
+            "UPDATE generic_json_entity SET update_time = ? WHERE id = ?")) {
+      statement.setTimestamp(1, new Timestamp(updateTime));
+      statement.setLong(2, id);
+      statement.executeUpdate();
+      connection.commit();
+    }
+  }
+}
@@ -16,6 +16,7 @@ package ai.startree.thirdeye.datalayer.dao;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import ai.startree.thirdeye.datalayer.MySqlTestDatabase;
+import ai.startree.thirdeye.spi.datalayer.DaoFilter;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
 import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
 import java.util.List;
@@ -85,7 +86,28 @@ public class TestGenericPojoDao {
     assertThat(dtoAfterUpdate.get(0).getId()).isEqualTo(idBeforeUpdate);
   }
 
-  @Test(dependsOnMethods = "updateEntityTest", timeOut = 60000L)
+  @Test(dependsOnMethods = "saveEntityTest", timeOut = 60000L)
+  public void filterEntityTest() {
+    final DaoFilter filter = new DaoFilter()
+        .setBeanClass(DataSourceDTO.class)
+        .setPredicate(Predicate.IN(NAME, TEST_NAMES.toArray()))
+        .setOrderByKey(NAME)
+        .setDesc(true)
+        .setLimit(1);
+    List<DataSourceDTO> dtos = dao.filter(filter);
+    assertThat(dtos.size()).isEqualTo(1);
+    assertThat(dtos.get(0).getName()).isEqualTo(TEST_NAMES.get(1));
+    assertThat(dtos.get(0).getVersion()).isEqualTo(1);
+
+    dtos = dao.filter(filter.setOffset(1));
+    assertThat(dtos.size()).isEqualTo(1);
+    assertThat(dtos.get(0).getName()).isEqualTo(TEST_NAMES.get(0));
+
+    dtos = dao.filter(filter.setDesc(false).setLimit(null).setOffset(null));
+    assertThat(dtos).extracting(DataSourceDTO::getName).containsExactlyElementsOf(TEST_NAMES);
+  }
+
+  @Test(dependsOnMethods = {"updateEntityTest", "filterEntityTest"}, timeOut = 60000L)
   public void deleteEntityTest() {
     int deletedEntries = dao.deleteByPredicate(
         Predicate.IN(NAME, TEST_NAMES.toArray()),
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.datalayer.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ai.startree.thirdeye.datalayer.entity.AbstractEntity;
+import ai.startree.thirdeye.datalayer.entity.GenericJsonEntity;
+import ai.startree.thirdeye.datalayer.entity.JobIndex;
+import ai.startree.thirdeye.datalayer.entity.MergedAnomalyResultIndex;
+import ai.startree.thirdeye.spi.task.TaskType;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+public class GenericResultSetMapperTest {
+
+  private Connection connection;
+  private GenericResultSetMapper generatedMapper;
+  private GenericResultSetMapper jacksonMapper;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    connection = DriverManager.getConnection("jdbc:hsqldb:mem:GenericResultSetMapperTest", "SA",
+        "");
+    try (final Statement statement = connection.createStatement()) {
+      statement.execute("CREATE TABLE merged_anomaly_result_index (id bigint, function_id bigint, "
+          + "detection_config_id bigint, anomaly_feedback_id bigint, metric_id bigint, "
+          + "start_time bigint, end_time bigint, collection varchar(200), metric varchar(200), "
+          + "dimensions varchar(1023), notified boolean, child boolean, "
+          + "enumeration_item_id bigint, base_id bigint, create_time timestamp, "
+          + "update_time timestamp, version int)");
+      statement.execute("INSERT INTO merged_anomaly_result_index VALUES (1, 0, 10, NULL, 0, "
+          + "1000, 2000, 'pageviews', 'views', '{\"country\":\"US\"}', true, false, 7, 1, "
+          + "TIMESTAMP '2022-01-01 00:00:00', TIMESTAMP '2022-01-02 00:00:00', 1)");
+      statement.execute("INSERT INTO merged_anomaly_result_index VALUES (2, 0, 10, 5, 0, "
+          + "3000, 4000, 'pageviews', NULL, '', false, true, NULL, 2, NULL, NULL, NULL)");
+      statement.execute("CREATE TABLE job_index (id bigint, name varchar(200), "
+          + "status varchar(100), type varchar(100), config_id bigint, "
+          + "schedule_start_time bigint, schedule_end_time bigint, base_id bigint, "
+          + "create_time timestamp, update_time timestamp, version int)");
+      statement.execute("INSERT INTO job_index VALUES (1, 'job', 'SCHEDULED', 'DETECTION', NULL, "
+          + "1000, 2000, 1, NULL, NULL, 0)");
+      statement.execute("CREATE TABLE generic_json_entity (id bigint, json_val clob, "
+          + "type varchar(100), create_time timestamp, update_time timestamp, version int)");
+      statement.execute("INSERT INTO generic_json_entity VALUES (1, '{\"name\":\"alert\"}', "
+          + "'AlertDTO', NULL, NULL, 0)");
+    }
+
+    final EntityMappingHolder entityMappingHolder = new EntityMappingHolder();
+    entityMappingHolder.register(connection, MergedAnomalyResultIndex.class,
+        "merged_anomaly_result_index");
+    entityMappingHolder.register(connection, JobIndex.class, "job_index");
+    entityMappingHolder.register(connection, GenericJsonEntity.class, "generic_json_entity");
+    generatedMapper = new GenericResultSetMapper(entityMappingHolder, EntityMapperType.GENERATED);
+    jacksonMapper = new GenericResultSetMapper(entityMappingHolder, EntityMapperType.JACKSON);
+  }
+
+  @AfterClass(alwaysRun = true)
+  public void tearDown() throws Exception {
+    try (final Statement statement = connection.createStatement()) {
+      statement.execute("SHUTDOWN");
+    }
+    connection.close();
+  }
+
+  private <E extends AbstractEntity> List<E> mapAll(final GenericResultSetMapper mapper,
+      final String table, final Class<E> entityClass) throws Exception {
+    try (final Statement statement = connection.createStatement();
+        final ResultSet resultSet = statement.executeQuery(
+            "SELECT * FROM " + table + " ORDER BY id")) {
+      return mapper.mapAll(resultSet, entityClass);
+    }
+  }
+
+  @Test
+  public void testAnomalyIndex() throws Exception {
+    final List<MergedAnomalyResultIndex> entities = mapAll(generatedMapper,
+        "merged_anomaly_result_index", MergedAnomalyResultIndex.class);
+
+    assertThat(entities).hasSize(2);
+    final MergedAnomalyResultIndex first = entities.get(0);
+    assertThat(first.getId()).isEqualTo(1L);
+    assertThat(first.getDetectionConfigId()).isEqualTo(10L);
+    assertThat(first.getAnomalyFeedbackId()).isEqualTo(0L);
+    assertThat(first.getDimensions().size()).isEqualTo(1);
+    assertThat(first.getDimensions().get("country")).isEqualTo("US");
+    assertThat(first.isNotified()).isTrue();
+    assertThat(first.getEnumerationItemId()).isEqualTo(7L);
+    assertThat(first.getCreateTime()).isEqualTo(Timestamp.valueOf("2022-01-01 00:00:00"));
+    assertThat(first.getVersion()).isEqualTo(1);
+    final MergedAnomalyResultIndex second = entities.get(1);
+    assertThat(second.getMetric()).isNull();
+    assertThat(second.getEnumerationItemId()).isNull();
+    assertThat(second.getCreateTime()).isNull();
+    assertThat(second.isChild()).isTrue();
+
+    assertThat(entities).usingRecursiveFieldByFieldElementComparator()
+        .containsExactlyElementsOf(mapAll(jacksonMapper, "merged_anomaly_result_index",
+            MergedAnomalyResultIndex.class));
+  }
+
+  @Test
+  public void testEnumColumn() throws Exception {
+    final List<JobIndex> entities = mapAll(generatedMapper, "job_index", JobIndex.class);
+
+    assertThat(entities).hasSize(1);
+    assertThat(entities.get(0).getType()).isEqualTo(TaskType.DETECTION);
+    assertThat(entities.get(0).getConfigId()).isEqualTo(0L);
+    assertThat(entities).usingRecursiveFieldByFieldElementComparator()
+        .containsExactlyElementsOf(mapAll(jacksonMapper, "job_index", JobIndex.class));
+  }
+
+  @Test
+  public void testClobColumn() throws Exception {
+    final List<GenericJsonEntity> entities = mapAll(generatedMapper, "generic_json_entity",
+        GenericJsonEntity.class);
+
+    assertThat(entities).hasSize(1);
+    assertThat(entities.get(0).getJsonVal()).isEqualTo("{\"name\":\"alert\"}");
+    assertThat(entities).usingRecursiveFieldByFieldElementComparator()
+        .containsExactlyElementsOf(mapAll(jacksonMapper, "generic_json_entity",
+            GenericJsonEntity.class));
+  }
+}
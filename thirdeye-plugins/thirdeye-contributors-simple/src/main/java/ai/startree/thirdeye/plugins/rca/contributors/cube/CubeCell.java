@@ -0,0 +1,70 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.rca.contributors.cube;
+
+/**
+ * A scored cell of a {@link Cuboid}.
+ */
+class CubeCell {
+
+  private final Cuboid cuboid;
+  private final int index;
+  private final double valueChangePercentage;
+  private final double contributionChangePercentage;
+  private final double contributionToOverallChangePercentage;
+  private final double cost;
+
+  CubeCell(final Cuboid cuboid, final int index, final double valueChangePercentage,
+      final double contributionChangePercentage,
+      final double contributionToOverallChangePercentage, final double cost) {
+    this.cuboid = cuboid;
+    this.index = index;
+    this.valueChangePercentage = valueChangePercentage;
+    this.contributionChangePercentage = contributionChangePercentage;
+    this.contributionToOverallChangePercentage = contributionToOverallChangePercentage;
+    this.cost = cost;
+  }
+
+  public Cuboid getCuboid() {
+    return cuboid;
+  }
+
+  public int getIndex() {
+    return index;
+  }
+
+  public double getBaselineValue() {
+    return cuboid.getBaselineValue(index);
+  }
+
+  public double getCurrentValue() {
+    return cuboid.getCurrentValue(index);
+  }
+
+  public double getValueChangePercentage() {
+    return valueChangePercentage;
+  }
+
+  public double getContributionChangePercentage() {
+    return contributionChangePercentage;
+  }
+
+  public double getContributionToOverallChangePercentage() {
+    return contributionToOverallChangePercentage;
+  }
+
+  public double getCost() {
+    return cost;
+  }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.rca.contributors.cube;
+
+import static ai.startree.thirdeye.plugins.rca.contributors.simple.Cost.BAlANCED_SIMPLE;
+import static ai.startree.thirdeye.plugins.rca.contributors.simple.Cost.MINIMUM_CONTRIBUTION_OF_INTEREST_PERCENTAGE;
+
+import ai.startree.thirdeye.plugins.rca.contributors.simple.Cost;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CubeConfiguration {
+
+  private Cost costFunction = BAlANCED_SIMPLE;
+  /**
+   * Maximum number of rows fetched for each dimension combination.
+   */
+  private int limit = 1000;
+  /**
+   * Maximum number of dimension combinations fetched. Combinations of fewer dimensions come
+   * first. Within a level, combinations whose parents contribute the most to the overall change
+   * come first.
+   */
+  private int maxCuboids = 64;
+  /**
+   * Maximum number of dimension combination queries in flight. The baseline and the current
+   * queries of a combination count as two.
+   */
+  private int maxConcurrentQueries = 8;
+  /**
+   * A combination of dimension values is only explored if all its parents contribute at least
+   * this percentage to the overall change.
+   */
+  private double minContributionToOverallChangePercentage = MINIMUM_CONTRIBUTION_OF_INTEREST_PERCENTAGE;
+
+  public Cost getCostFunction() {
+    return costFunction;
+  }
+
+  public CubeConfiguration setCostFunction(final Cost costFunction) {
+    this.costFunction = costFunction;
+    return this;
+  }
+
+  public int getLimit() {
+    return limit;
+  }
+
+  public CubeConfiguration setLimit(final int limit) {
+    this.limit = limit;
+    return this;
+  }
+
+  public int getMaxCuboids() {
+    return maxCuboids;
+  }
+
+  public CubeConfiguration setMaxCuboids(final int maxCuboids) {
+    this.maxCuboids = maxCuboids;
+    return this;
+  }
+
+  public int getMaxConcurrentQueries() {
+    return maxConcurrentQueries;
+  }
+
+  public CubeConfiguration setMaxConcurrentQueries(final int maxConcurrentQueries) {
+    this.maxConcurrentQueries = maxConcurrentQueries;
+    return this;
+  }
+
+  public double getMinContributionToOverallChangePercentage() {
+    return minContributionToOverallChangePercentage;
+  }
+
+  public CubeConfiguration setMinContributionToOverallChangePercentage(
+      final double minContributionToOverallChangePercentage) {
+    this.minContributionToOverallChangePercentage = minContributionToOverallChangePercentage;
+    return this;
+  }
+}
@@ -0,0 +1,486 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.rca.contributors.cube;
+
+import static ai.startree.thirdeye.spi.Constants.COL_VALUE;
+import static ai.startree.thirdeye.spi.datasource.loader.AggregationLoader.COL_AGGREGATION_ONLY_ROWS_COUNT;
+import static ai.startree.thirdeye.spi.rca.Stats.computeContributionChangePercentage;
+import static ai.startree.thirdeye.spi.rca.Stats.computeContributionToOverallChangePercentage;
+import static ai.startree.thirdeye.spi.rca.Stats.computeValueChangePercentage;
+import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
+
+import ai.startree.thirdeye.plugins.rca.contributors.simple.Cost;
+import ai.startree.thirdeye.spi.api.AnalysisRunInfo;
+import ai.startree.thirdeye.spi.api.DimensionAnalysisResultApi;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.datalayer.Predicate;
+import ai.startree.thirdeye.spi.datalayer.Templatable;
+import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
+import ai.startree.thirdeye.spi.datasource.loader.AggregationLoader;
+import ai.startree.thirdeye.spi.metric.MetricSlice;
+import ai.startree.thirdeye.spi.rca.ContributorsFinder;
+import ai.startree.thirdeye.spi.rca.ContributorsFinderResult;
+import ai.startree.thirdeye.spi.rca.ContributorsSearchConfiguration;
+import com.google.common.annotations.VisibleForTesting;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Breakdown by combinations of dimensions, up to the search depth and respecting hierarchies.
+ * The cube is fetched level by level, by increasing number of dimensions, for the baseline and
+ * the current timeframes. A combination of dimension values is only explored if all its parents
+ * are of interest: a combination of dimensions is only fetched if each of its parents has cells
+ * of interest, and the query is filtered on the dimension values of these cells.
+ * Cells are searched for the top cells by cost as the levels are fetched.
+ */
+public class CubeContributorsFinder implements ContributorsFinder {
+
+  private static final Logger LOG = LoggerFactory.getLogger(CubeContributorsFinder.class);
+  private static final long TIMEOUT = 600000;
+  /**
+   * Maximum number of values in the IN filter of a dimension. The dimension is not filtered
+   * above it.
+   */
+  private static final int MAX_FILTER_VALUES = 100;
+  private static final String NULL_KEY = String.valueOf((Object) null);
+
+  private final AggregationLoader aggregationLoader;
+  private final CubeConfiguration configuration;
+
+  public CubeContributorsFinder(final AggregationLoader aggregationLoader,
+      final CubeConfiguration configuration) {
+    this.aggregationLoader = aggregationLoader;
+    this.configuration = configuration;
+  }
+
+  @Override
+  public ContributorsFinderResult search(final ContributorsSearchConfiguration searchConfiguration)
+      throws Exception {
+    final MetricSlice baselineSlice = MetricSlice.from(searchConfiguration.getMetricConfigDTO(),
+        searchConfiguration.getBaselineInterval(),
+        searchConfiguration.getFilters(),
+        searchConfiguration.getDatasetConfigDTO());
+    final MetricSlice currentSlice = MetricSlice.from(searchConfiguration.getMetricConfigDTO(),
+        searchConfiguration.getCurrentInterval(),
+        searchConfiguration.getFilters(),
+        searchConfiguration.getDatasetConfigDTO());
+
+    final List<Future<DataFrame>> futures = new ArrayList<>();
+    try {
+      final Future<DataFrame> baselineTotalFuture = aggregationLoader.loadAggregateAsync(
+          baselineSlice, List.of(), -1);
+      futures.add(baselineTotalFuture);
+      final Future<DataFrame> currentTotalFuture = aggregationLoader.loadAggregateAsync(
+          currentSlice, List.of(), -1);
+      futures.add(currentTotalFuture);
+      final DataFrame baselineTotalDf = baselineTotalFuture.get(TIMEOUT, TimeUnit.MILLISECONDS);
+      if (!hasData(baselineTotalDf)) {
+        return cannotComputeResult(
+            "No data in the baseline timeframe. Cannot compute top contributors. You may try with a different baseline offset.");
+      }
+      final DataFrame currentTotalDf = currentTotalFuture.get(TIMEOUT, TimeUnit.MILLISECONDS);
+      if (!hasData(currentTotalDf)) {
+        return cannotComputeResult(
+            "No data in the current timeframe. Cannot compute top contributors. Data collect is stopped or broken for this metric.");
+      }
+      final double baselineTotal = total(baselineTotalDf);
+      final double currentTotal = total(currentTotalDf);
+
+      final List<String> dimensions = DimensionCube.orderDimensions(
+          cubeDimensions(searchConfiguration),
+          searchConfiguration.getHierarchies());
+      final DimensionCube cube = new DimensionCube(dimensions,
+          searchConfiguration.getHierarchies());
+      final TopCellsSearch topCellsSearch = new TopCellsSearch(baselineTotal,
+          currentTotal,
+          searchConfiguration.getSummarySize(),
+          searchConfiguration.isDoOneSideError());
+      final int depth = Math.max(searchConfiguration.getDepth(), 1);
+      List<CuboidRequest> requests = cube.firstLevelDimensions()
+          .stream()
+          .map(d -> new CuboidRequest(d, List.of(), 0))
+          .collect(Collectors.toList());
+      int fetchedCuboids = 0;
+      for (int level = 1; level <= depth && !requests.isEmpty(); level++) {
+        final int remainingCuboids = configuration.getMaxCuboids() - fetchedCuboids;
+        if (requests.size() > remainingCuboids) {
+          LOG.warn("Dimension cube of '{}' capped to {} dimension combinations",
+              searchConfiguration.getMetricConfigDTO().getName(), configuration.getMaxCuboids());
+          requests = requests.subList(0, Math.max(remainingCuboids, 0));
+          if (requests.isEmpty()) {
+            break;
+          }
+        }
+        final List<Cuboid> cuboids = fetchCuboids(requests, baselineSlice, currentSlice, futures);
+        fetchedCuboids += cuboids.size();
+        for (final Cuboid cuboid : cuboids) {
+          cube.add(cuboid);
+          topCellsSearch.search(cube, cuboid);
+        }
+        requests = level < depth ? childRequests(cube, cuboids, topCellsSearch) : List.of();
+      }
+
+      return new CubeContributorsFinderResult(topCellsSearch.getTopCells(),
+          dimensions,
+          baselineTotal,
+          currentTotal,
+          searchConfiguration.getMetricConfigDTO().getName(),
+          searchConfiguration.getDatasetConfigDTO().getDataset());
+    } finally {
+      // no-op for completed queries
+      futures.forEach(f -> f.cancel(true));
+    }
+  }
+
+  /**
+   * Fetches the baseline and current aggregates of a level of the cube.
+   */
+  private List<Cuboid> fetchCuboids(final List<CuboidRequest> requests,
+      final MetricSlice baselineSlice, final MetricSlice currentSlice,
+      final List<Future<DataFrame>> futures) throws Exception {
+    LOG.info("Querying dimension cube '{}' for dimension combinations '{}'",
+        currentSlice,
+        requests.stream().map(r -> r.dimensions).collect(Collectors.toList()));
+    final List<Callable<Future<DataFrame>>> queries = new ArrayList<>(2 * requests.size());
+    for (final CuboidRequest request : requests) {
+      queries.add(() -> aggregationLoader.loadAggregateAsync(
+          request.filter(baselineSlice),
+          request.dimensions,
+          configuration.getLimit()));
+      queries.add(() -> aggregationLoader.loadAggregateAsync(
+          request.filter(currentSlice),
+          request.dimensions,
+          configuration.getLimit()));
+    }
+    final List<DataFrame> results = fetchAll(queries, futures);
+
+    final List<Cuboid> cuboids = new ArrayList<>(requests.size());
+    for (int i = 0; i < requests.size(); i++) {
+      cuboids.add(new Cuboid(requests.get(i).dimensions,
+          results.get(2 * i),
+          results.get(2 * i + 1),
+          configuration.getLimit()));
+    }
+    return cuboids;
+  }
+
+  /**
+   * Sends the queries and returns their results, in the order of the queries. At most
+   * maxConcurrentQueries queries are in flight: a query is sent when the oldest query in flight
+   * completes.
+   *
+   * @param futures the sent queries are added to it, to be cancelled on failure
+   */
+  private List<DataFrame> fetchAll(final List<Callable<Future<DataFrame>>> queries,
+      final List<Future<DataFrame>> futures) throws Exception {
+    final int maxConcurrentQueries = Math.max(configuration.getMaxConcurrentQueries(), 1);
+    final List<Future<DataFrame>> sent = new ArrayList<>(queries.size());
+    final List<DataFrame> results = new ArrayList<>(queries.size());
+    for (final Callable<Future<DataFrame>> query : queries) {
+      if (sent.size() - results.size() >= maxConcurrentQueries) {
+        results.add(sent.get(results.size()).get(TIMEOUT, TimeUnit.MILLISECONDS));
+      }
+      final Future<DataFrame> future = query.call();
+      futures.add(future);
+      sent.add(future);
+    }
+    while (results.size() < sent.size()) {
+      results.add(sent.get(results.size()).get(TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+    return results;
+  }
+
+  /**
+   * Lists the combinations of one more dimension whose parents all have cells of interest.
+   * Each dimension is filtered on its values in the cells of interest of the parents.
+   *
+   * @return requests ordered by decreasing contribution of the cells of interest of their
+   *     parents
+   */
+  @VisibleForTesting
+  static List<CuboidRequest> childRequests(final DimensionCube cube, final List<Cuboid> cuboids,
+      final TopCellsSearch topCellsSearch) {
+    final Set<List<String>> candidates = new LinkedHashSet<>();
+    for (final Cuboid cuboid : cuboids) {
+      if (topCellsSearch.hasCellsOfInterest(cuboid)) {
+        candidates.addAll(cube.childDimensions(cuboid.getDimensions()));
+      }
+    }
+
+    final List<CuboidRequest> requests = new ArrayList<>();
+    for (final List<String> candidate : candidates) {
+      final Map<String, Set<String>> valuesOfInterest = new HashMap<>();
+      double interest = 0;
+      boolean parentsAreOfInterest = true;
+      for (int p = 0; p < candidate.size() && parentsAreOfInterest; p++) {
+        final List<String> parentDimensions = DimensionCube.parentDimensions(candidate, p);
+        if (!cube.isValid(parentDimensions)) {
+          // eg a child of a hierarchy alone
+          continue;
+        }
+        final Cuboid parent = cube.getCuboid(parentDimensions);
+        if (parent == null || !topCellsSearch.hasCellsOfInterest(parent)) {
+          parentsAreOfInterest = false;
+          continue;
+        }
+        interest += topCellsSearch.contributionOfCellsOfInterest(parent);
+        for (int d = 0; d < parentDimensions.size(); d++) {
+          final Set<String> parentValues = topCellsSearch.valuesOfInterest(parent, d);
+          valuesOfInterest.merge(parentDimensions.get(d), parentValues, (v1, v2) -> {
+            v1.retainAll(v2);
+            return v1;
+          });
+        }
+      }
+      if (!parentsAreOfInterest) {
+        continue;
+      }
+      final List<Predicate> predicates = new ArrayList<>();
+      boolean empty = false;
+      for (final Entry<String, Set<String>> e : valuesOfInterest.entrySet()) {
+        final Set<String> values = e.getValue();
+        empty |= values.isEmpty();
+        // null values cannot be filtered with IN
+        if (values.size() <= MAX_FILTER_VALUES && !values.contains(NULL_KEY)) {
+          predicates.add(Predicate.IN(e.getKey(), values.stream().sorted().toArray(String[]::new)));
+        }
+      }
+      if (!empty) {
+        requests.add(new CuboidRequest(candidate, predicates, interest));
+      }
+    }
+    requests.sort(Comparator.comparingDouble((CuboidRequest r) -> r.interest).reversed());
+    return requests;
+  }
+
+  /**
+   * Top k search on the cube. Cuboids are searched by increasing number of dimensions. A cell is
+   * only scored if all its parent cells contribute enough to the overall change. Cells that
+   * cannot enter the top k are not kept. Cells cut by the query limit are not scored.
+   */
+  @VisibleForTesting
+  class TopCellsSearch {
+
+    private final double baselineTotal;
+    private final double currentTotal;
+    private final int summarySize;
+    private final boolean doOneSideError;
+    private final boolean changeIsUp;
+    private final PriorityQueue<CubeCell> topCells = new PriorityQueue<>(
+        Comparator.comparingDouble(CubeCell::getCost));
+    private final Map<Cuboid, boolean[]> ofInterest = new HashMap<>();
+
+    TopCellsSearch(final double baselineTotal, final double currentTotal,
+        final int summarySize, final boolean doOneSideError) {
+      this.baselineTotal = baselineTotal;
+      this.currentTotal = currentTotal;
+      this.summarySize = summarySize;
+      this.doOneSideError = doOneSideError;
+      changeIsUp = currentTotal >= baselineTotal;
+    }
+
+    void search(final DimensionCube cube, final Cuboid cuboid) {
+      final Cost costFunction = configuration.getCostFunction();
+      final List<Cuboid> parents = new ArrayList<>();
+      final List<boolean[]> parentsOfInterest = new ArrayList<>();
+      for (int p = 0; p < cuboid.getDimensions().size(); p++) {
+        final Cuboid parent = cube.getParent(cuboid, p);
+        parents.add(parent);
+        parentsOfInterest.add(parent == null ? null : ofInterest.get(parent));
+      }
+
+      final boolean[] cuboidOfInterest = new boolean[cuboid.size()];
+      for (int cell = 0; cell < cuboid.size(); cell++) {
+        if (!cuboid.isComplete(cell)
+            || !parentsAreOfInterest(cuboid.getKey(cell), parents, parentsOfInterest)) {
+          continue;
+        }
+        final double baseline = cuboid.getBaselineValue(cell);
+        final double current = cuboid.getCurrentValue(cell);
+        final double contributionToOverallChangePercentage = contributionToOverallChangePercentage(
+            cuboid,
+            cell);
+        cuboidOfInterest[cell] = Math.abs(contributionToOverallChangePercentage)
+            >= configuration.getMinContributionToOverallChangePercentage();
+
+        if (doOneSideError && (current - baseline >= 0) != changeIsUp) {
+          continue;
+        }
+        final double valueChangePercentage = computeValueChangePercentage(baseline, current);
+        final double contributionChangePercentage = computeContributionChangePercentage(baseline,
+            current,
+            baselineTotal,
+            currentTotal);
+        double cost = costFunction.compute(valueChangePercentage,
+            contributionChangePercentage,
+            contributionToOverallChangePercentage);
+        if (Double.isNaN(cost)) {
+          cost = 0;
+        }
+        if (topCells.size() < summarySize) {
+          topCells.add(new CubeCell(cuboid, cell, valueChangePercentage,
+              contributionChangePercentage, contributionToOverallChangePercentage, cost));
+        } else if (!topCells.isEmpty() && cost > topCells.peek().getCost()) {
+          topCells.poll();
+          topCells.add(new CubeCell(cuboid, cell, valueChangePercentage,
+              contributionChangePercentage, contributionToOverallChangePercentage, cost));
+        }
+      }
+      ofInterest.put(cuboid, cuboidOfInterest);
+    }
+
+    private double contributionToOverallChangePercentage(final Cuboid cuboid, final int cell) {
+      return computeContributionToOverallChangePercentage(cuboid.getBaselineValue(cell),
+          cuboid.getCurrentValue(cell),
+          baselineTotal,
+          currentTotal);
+    }
+
+    boolean hasCellsOfInterest(final Cuboid cuboid) {
+      final boolean[] cuboidOfInterest = ofInterest.get(cuboid);
+      if (cuboidOfInterest != null) {
+        for (final boolean cellOfInterest : cuboidOfInterest) {
+          if (cellOfInterest) {
+            return true;
+          }
+        }
+      }
+      return false;
+    }
+
+    double contributionOfCellsOfInterest(final Cuboid cuboid) {
+      final boolean[] cuboidOfInterest = ofInterest.get(cuboid);
+      double contribution = 0;
+      for (int cell = 0; cell < cuboidOfInterest.length; cell++) {
+        if (cuboidOfInterest[cell]) {
+          contribution += Math.abs(contributionToOverallChangePercentage(cuboid, cell));
+        }
+      }
+      return contribution;
+    }
+
+    /**
+     * @return the values of the dimension at the given position in the cells of interest
+     */
+    Set<String> valuesOfInterest(final Cuboid cuboid, final int dimensionPosition) {
+      final boolean[] cuboidOfInterest = ofInterest.get(cuboid);
+      final Set<String> values = new HashSet<>();
+      for (int cell = 0; cell < cuboidOfInterest.length; cell++) {
+        if (cuboidOfInterest[cell]) {
+          values.add(cuboid.getKey(cell).get(dimensionPosition));
+        }
+      }
+      return values;
+    }
+
+    /**
+     * @return top cells, ordered by decreasing cost
+     */
+    List<CubeCell> getTopCells() {
+      return topCells.stream()
+          .sorted(Comparator.comparingDouble(CubeCell::getCost).reversed())
+          .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Query of a combination of dimensions, filtered on the dimension values of interest.
+   */
+  @VisibleForTesting
+  static class CuboidRequest {
+
+    final List<String> dimensions;
+    final List<Predicate> predicates;
+    // contribution to the overall change of the cells of interest of the parents
+    final double interest;
+
+    CuboidRequest(final List<String> dimensions, final List<Predicate> predicates,
+        final double interest) {
+      this.dimensions = dimensions;
+      this.predicates = predicates;
+      this.interest = interest;
+    }
+
+    MetricSlice filter(final MetricSlice slice) {
+      if (predicates.isEmpty()) {
+        return slice;
+      }
+      final List<Predicate> slicePredicates = new ArrayList<>(slice.getPredicates());
+      slicePredicates.addAll(predicates);
+      return MetricSlice.from(slice.getMetricConfigDTO(),
+          slice.getInterval(),
+          slicePredicates,
+          slice.getDatasetConfigDTO());
+    }
+  }
+
+  private static boolean parentsAreOfInterest(final List<String> key, final List<Cuboid> parents,
+      final List<boolean[]> parentsOfInterest) {
+    for (int p = 0; p < parents.size(); p++) {
+      final Cuboid parent = parents.get(p);
+      if (parent == null) {
+        // parent combination is not in the cube - eg a child of a hierarchy alone
+        continue;
+      }
+      final List<String> parentKey = new ArrayList<>(key);
+      parentKey.remove(p);
+      final int parentCell = parent.indexOf(parentKey);
+      if (parentCell < 0 || !parentsOfInterest.get(p)[parentCell]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static List<String> cubeDimensions(
+      final ContributorsSearchConfiguration searchConfiguration) {
+    final DatasetConfigDTO datasetConfigDTO = searchConfiguration.getDatasetConfigDTO();
+    final List<String> dimensions = new ArrayList<>(optional(datasetConfigDTO.getDimensions()).map(
+        Templatable::value).orElse(List.of()));
+    dimensions.removeAll(searchConfiguration.getFilters()
+        .stream()
+        .map(Predicate::getLhs)
+        .collect(Collectors.toList()));
+    dimensions.remove(datasetConfigDTO.getTimeColumn());
+    return dimensions;
+  }
+
+  private static boolean hasData(final DataFrame aggregate) {
+    return aggregate.size() > 0 && aggregate.getLong(COL_AGGREGATION_ONLY_ROWS_COUNT, 0) > 0;
+  }
+
+  private static double total(final DataFrame aggregate) {
+    final double total = aggregate.getDouble(COL_VALUE, 0);
+    return Double.isNaN(total) ? 0 : total;
+  }
+
+  private ContributorsFinderResult cannotComputeResult(final String message) {
+    return () -> new DimensionAnalysisResultApi()
+        .setAnalysisRunInfo(new AnalysisRunInfo().setSuccess(false).setMessage(message));
+  }
+}
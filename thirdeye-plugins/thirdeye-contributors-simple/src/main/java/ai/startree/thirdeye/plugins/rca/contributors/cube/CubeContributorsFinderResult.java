@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.rca.contributors.cube;
+
+import static ai.startree.thirdeye.spi.api.DimensionAnalysisResultApi.ALL;
+
+import ai.startree.thirdeye.spi.api.DatasetApi;
+import ai.startree.thirdeye.spi.api.DimensionAnalysisResultApi;
+import ai.startree.thirdeye.spi.api.MetricApi;
+import ai.startree.thirdeye.spi.api.cube.SummaryResponseRow;
+import ai.startree.thirdeye.spi.rca.ContributorsFinderResult;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class CubeContributorsFinderResult implements ContributorsFinderResult {
+
+  private final List<CubeCell> cells;
+  private final List<String> cubeDimensions;
+  private final double baselineTotal;
+  private final double currentTotal;
+  private final String metricName;
+  private final String datasetName;
+
+  CubeContributorsFinderResult(final List<CubeCell> cells, final List<String> cubeDimensions,
+      final double baselineTotal, final double currentTotal, final String metricName,
+      final String datasetName) {
+    this.cells = cells;
+    this.cubeDimensions = cubeDimensions;
+    this.baselineTotal = baselineTotal;
+    this.currentTotal = currentTotal;
+    this.metricName = metricName;
+    this.datasetName = datasetName;
+  }
+
+  @Override
+  public DimensionAnalysisResultApi getDimensionAnalysisResult() {
+    // only keep the dimensions used by the top cells, in cube order
+    final List<String> dimensions = cubeDimensions.stream()
+        .filter(d -> cells.stream().anyMatch(c -> c.getCuboid().getDimensions().contains(d)))
+        .collect(Collectors.toList());
+    final Map<String, Integer> dimensionToIndex = new HashMap<>();
+    for (int i = 0; i < dimensions.size(); i++) {
+      dimensionToIndex.put(dimensions.get(i), i);
+    }
+
+    final List<SummaryResponseRow> responseRows = new ArrayList<>();
+    for (final CubeCell cell : cells) {
+      final List<String> names = new ArrayList<>(Collections.nCopies(dimensions.size(), ALL));
+      final List<String> cellDimensions = cell.getCuboid().getDimensions();
+      final List<String> cellValues = cell.getCuboid().getKey(cell.getIndex());
+      for (int d = 0; d < cellDimensions.size(); d++) {
+        names.set(dimensionToIndex.get(cellDimensions.get(d)), cellValues.get(d));
+      }
+
+      final SummaryResponseRow row = new SummaryResponseRow();
+      row.setNames(names)
+          .setCost(cell.getCost())
+          .setBaselineValue(cell.getBaselineValue())
+          .setCurrentValue(cell.getCurrentValue())
+          .setChangePercentage(cell.getValueChangePercentage())
+          .setContributionChangePercentage(cell.getContributionChangePercentage())
+          .setContributionToOverallChangePercentage(
+              cell.getContributionToOverallChangePercentage());
+      responseRows.add(row);
+    }
+
+    return new DimensionAnalysisResultApi()
+        .setDimensions(dimensions)
+        .setResponseRows(responseRows)
+        .setBaselineTotal(baselineTotal)
+        .setCurrentTotal(currentTotal)
+        .setMetric(new MetricApi().setDataset(new DatasetApi().setName(datasetName))
+            .setName(metricName));
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.rca.contributors.cube;
+
+import static ai.startree.thirdeye.spi.Constants.COL_VALUE;
+
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Baseline and current aggregates for one combination of dimensions.
+ * Cells are indexed by their dimension values, values are stored in primitive arrays.
+ *
+ * Baseline and current rows are fetched separately, each up to a limit. When a side reaches the
+ * limit, a cell missing from that side has an unknown value: the cell is not complete.
+ */
+class Cuboid {
+
+  private final List<String> dimensions;
+  private final List<List<String>> keys = new ArrayList<>();
+  private final Map<List<String>, Integer> cellIndex = new HashMap<>();
+  private final double[] baselineValues;
+  private final double[] currentValues;
+  private final BitSet inBaseline = new BitSet();
+  private final BitSet inCurrent = new BitSet();
+  private final boolean baselineTruncated;
+  private final boolean currentTruncated;
+
+  /**
+   * @param limit maximum number of rows fetched for each of baseline and current. -1 if none.
+   */
+  Cuboid(final List<String> dimensions, final DataFrame baseline, final DataFrame current,
+      final int limit) {
+    this.dimensions = dimensions;
+    final int capacity = baseline.size() + current.size();
+    final double[] baselineBuffer = new double[capacity];
+    final double[] currentBuffer = new double[capacity];
+    addValues(baseline, baselineBuffer, inBaseline);
+    addValues(current, currentBuffer, inCurrent);
+    baselineValues = Arrays.copyOf(baselineBuffer, keys.size());
+    currentValues = Arrays.copyOf(currentBuffer, keys.size());
+    baselineTruncated = limit > 0 && baseline.size() >= limit;
+    currentTruncated = limit > 0 && current.size() >= limit;
+  }
+
+  private void addValues(final DataFrame df, final double[] values, final BitSet present) {
+    for (int i = 0; i < df.size(); i++) {
+      final String[] key = new String[dimensions.size()];
+      for (int d = 0; d < key.length; d++) {
+        key[d] = String.valueOf(df.getString(dimensions.get(d), i));
+      }
+      final int cell = cellIndex.computeIfAbsent(List.of(key), k -> {
+        keys.add(k);
+        return keys.size() - 1;
+      });
+      present.set(cell);
+      final double value = df.getDouble(COL_VALUE, i);
+      if (!Double.isNaN(value)) {
+        values[cell] += value;
+      }
+    }
+  }
+
+  public List<String> getDimensions() {
+    return dimensions;
+  }
+
+  public int size() {
+    return keys.size();
+  }
+
+  public List<String> getKey(final int cell) {
+    return keys.get(cell);
+  }
+
+  /**
+   * @return the index of the cell with the given dimension values, -1 if not in the cuboid.
+   */
+  public int indexOf(final List<String> key) {
+    final Integer cell = cellIndex.get(key);
+    return cell == null ? -1 : cell;
+  }
+
+  /**
+   * @return false if the baseline or current value of the cell was cut by the limit
+   */
+  public boolean isComplete(final int cell) {
+    return (inBaseline.get(cell) || !baselineTruncated)
+        && (inCurrent.get(cell) || !currentTruncated);
+  }
+
+  public double getBaselineValue(final int cell) {
+    return baselineValues[cell];
+  }
+
+  public double getCurrentValue(final int cell) {
+    return currentValues[cell];
+  }
+}
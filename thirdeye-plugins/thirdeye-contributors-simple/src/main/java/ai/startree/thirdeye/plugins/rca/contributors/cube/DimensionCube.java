@@ -0,0 +1,149 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.rca.contributors.cube;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * In-memory cube: one {@link Cuboid} per combination of dimensions, up to a given depth.
+ * Cuboids are added level by level, by increasing number of dimensions.
+ * A combination that contains a dimension of a hierarchy must contain its parent in the
+ * hierarchy: {continent, country} is valid, {country} alone is not.
+ */
+class DimensionCube {
+
+  private final List<String> dimensions;
+  private final Map<String, String> parentOf = new HashMap<>();
+  private final List<Cuboid> cuboids = new ArrayList<>();
+  private final Map<List<String>, Cuboid> cuboidByDimensions = new HashMap<>();
+
+  /**
+   * @param dimensions dimensions of the cube, in display order. See {@link
+   *     #orderDimensions(List, List)}
+   */
+  DimensionCube(final List<String> dimensions, final @Nullable List<List<String>> hierarchies) {
+    this.dimensions = dimensions;
+    if (hierarchies != null) {
+      for (final List<String> hierarchy : hierarchies) {
+        for (int i = 1; i < hierarchy.size(); i++) {
+          if (dimensions.contains(hierarchy.get(i - 1))) {
+            parentOf.put(hierarchy.get(i), hierarchy.get(i - 1));
+          }
+        }
+      }
+    }
+  }
+
+  public List<String> getDimensions() {
+    return dimensions;
+  }
+
+  public List<Cuboid> getCuboids() {
+    return cuboids;
+  }
+
+  public void add(final Cuboid cuboid) {
+    cuboids.add(cuboid);
+    cuboidByDimensions.put(cuboid.getDimensions(), cuboid);
+  }
+
+  /**
+   * @return the cuboid with one dimension less than the given one. The removed dimension is
+   *     the one at the given position. Null if that combination is not valid or not fetched.
+   */
+  public @Nullable Cuboid getParent(final Cuboid cuboid, final int removedPosition) {
+    return getCuboid(parentDimensions(cuboid.getDimensions(), removedPosition));
+  }
+
+  public @Nullable Cuboid getCuboid(final List<String> combination) {
+    return cuboidByDimensions.get(combination);
+  }
+
+  static List<String> parentDimensions(final List<String> combination,
+      final int removedPosition) {
+    final List<String> parentDimensions = new ArrayList<>(combination);
+    parentDimensions.remove(removedPosition);
+    return parentDimensions;
+  }
+
+  /**
+   * @return the valid combinations of one dimension
+   */
+  public List<List<String>> firstLevelDimensions() {
+    final List<List<String>> combinations = new ArrayList<>();
+    for (final String dimension : dimensions) {
+      if (isValid(List.of(dimension))) {
+        combinations.add(List.of(dimension));
+      }
+    }
+    return combinations;
+  }
+
+  /**
+   * @return the valid combinations of one more dimension than the given one, with dimensions in
+   *     cube order
+   */
+  public List<List<String>> childDimensions(final List<String> combination) {
+    final List<List<String>> children = new ArrayList<>();
+    for (final String dimension : dimensions) {
+      if (combination.contains(dimension)) {
+        continue;
+      }
+      final List<String> child = new ArrayList<>(combination.size() + 1);
+      for (final String d : dimensions) {
+        if (d.equals(dimension) || combination.contains(d)) {
+          child.add(d);
+        }
+      }
+      if (isValid(child)) {
+        children.add(List.copyOf(child));
+      }
+    }
+    return children;
+  }
+
+  public boolean isValid(final List<String> combination) {
+    return combination.stream()
+        .allMatch(d -> !parentOf.containsKey(d) || combination.contains(parentOf.get(d)));
+  }
+
+  /**
+   * Orders dimensions so that dimensions of a hierarchy are consecutive and in hierarchy order.
+   * Other dimensions keep their order.
+   */
+  static List<String> orderDimensions(final List<String> dimensions,
+      final @Nullable List<List<String>> hierarchies) {
+    if (hierarchies == null || hierarchies.isEmpty()) {
+      return dimensions;
+    }
+    final Set<String> ordered = new LinkedHashSet<>();
+    for (final String dimension : dimensions) {
+      if (ordered.contains(dimension)) {
+        continue;
+      }
+      final List<String> hierarchy = hierarchies.stream()
+          .filter(h -> h.contains(dimension))
+          .findFirst()
+          .orElse(List.of(dimension));
+      hierarchy.stream().filter(dimensions::contains).forEach(ordered::add);
+    }
+    return new ArrayList<>(ordered);
+  }
+}
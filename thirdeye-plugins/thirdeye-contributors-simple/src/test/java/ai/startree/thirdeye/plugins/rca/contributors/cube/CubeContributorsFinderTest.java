@@ -0,0 +1,300 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.rca.contributors.cube;
+
+import static ai.startree.thirdeye.spi.Constants.COL_VALUE;
+import static ai.startree.thirdeye.spi.api.DimensionAnalysisResultApi.ALL;
+import static ai.startree.thirdeye.spi.datasource.loader.AggregationLoader.COL_AGGREGATION_ONLY_ROWS_COUNT;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.spi.api.DimensionAnalysisResultApi;
+import ai.startree.thirdeye.spi.api.cube.SummaryResponseRow;
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.dataframe.StringSeries;
+import ai.startree.thirdeye.spi.datalayer.Predicate;
+import ai.startree.thirdeye.spi.datalayer.Predicate.OPER;
+import ai.startree.thirdeye.spi.datalayer.Templatable;
+import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
+import ai.startree.thirdeye.spi.datalayer.dto.MetricConfigDTO;
+import ai.startree.thirdeye.spi.datasource.loader.AggregationLoader;
+import ai.startree.thirdeye.spi.metric.MetricSlice;
+import ai.startree.thirdeye.spi.rca.ContributorsSearchConfiguration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.joda.time.Interval;
+import org.mockito.ArgumentCaptor;
+import org.testng.annotations.Test;
+
+public class CubeContributorsFinderTest {
+
+  private static final Interval BASELINE_INTERVAL = new Interval(
+      new DateTime(2022, 1, 1, 0, 0, 0, DateTimeZone.UTC),
+      new DateTime(2022, 2, 1, 0, 0, 0, DateTimeZone.UTC));
+  private static final Interval CURRENT_INTERVAL = new Interval(
+      new DateTime(2022, 1, 8, 0, 0, 0, DateTimeZone.UTC),
+      new DateTime(2022, 2, 8, 0, 0, 0, DateTimeZone.UTC));
+
+  private static final MetricConfigDTO METRIC_CONFIG_DTO = new MetricConfigDTO();
+  private static final DatasetConfigDTO DATASET_CONFIG_DTO = new DatasetConfigDTO()
+      .setDimensions(Templatable.of(List.of("os", "browser")));
+  private static final List<Predicate> FILTERS = List.of();
+
+  private static DataFrame total(final double value, final long rowsCount) {
+    return new DataFrame()
+        .addSeries(COL_VALUE, DoubleSeries.buildFrom(value))
+        .addSeries(COL_AGGREGATION_ONLY_ROWS_COUNT, LongSeries.buildFrom(rowsCount));
+  }
+
+  private static DataFrame breakdown(final String dimension, final List<String> values,
+      final double... metricValues) {
+    return new DataFrame()
+        .addSeries(dimension, StringSeries.buildFrom(values.toArray(new String[0])))
+        .addSeries(COL_VALUE, DoubleSeries.buildFrom(metricValues));
+  }
+
+  private static void mockSlice(final AggregationLoader aggregationLoader,
+      final Interval interval, final DataFrame total, final DataFrame os, final DataFrame browser,
+      final DataFrame osBrowser) throws Exception {
+    when(aggregationLoader.loadAggregateAsync(inInterval(interval), eq(List.of()), anyInt()))
+        .thenReturn(CompletableFuture.completedFuture(total));
+    when(aggregationLoader.loadAggregateAsync(inInterval(interval), eq(List.of("os")), anyInt()))
+        .thenReturn(CompletableFuture.completedFuture(os));
+    when(aggregationLoader.loadAggregateAsync(inInterval(interval), eq(List.of("browser")),
+        anyInt()))
+        .thenReturn(CompletableFuture.completedFuture(browser));
+    when(aggregationLoader.loadAggregateAsync(inInterval(interval), eq(List.of("os", "browser")),
+        anyInt()))
+        .thenReturn(CompletableFuture.completedFuture(osBrowser));
+  }
+
+  // queries of combinations of dimensions add filters to the slice
+  private static MetricSlice inInterval(final Interval interval) {
+    return argThat(slice -> slice != null && slice.getInterval().equals(interval));
+  }
+
+  private static DataFrame osBrowser(final double... metricValues) {
+    return breakdown("os", List.of("android", "android", "osx", "osx"), metricValues)
+        .addSeries("browser", StringSeries.buildFrom("chrome", "safari", "chrome", "safari"));
+  }
+
+  private static ContributorsSearchConfiguration searchConfiguration(final int summarySize) {
+    return new ContributorsSearchConfiguration(METRIC_CONFIG_DTO,
+        DATASET_CONFIG_DTO,
+        CURRENT_INTERVAL,
+        BASELINE_INTERVAL,
+        summarySize,
+        2,
+        false,
+        FILTERS,
+        null);
+  }
+
+  @Test
+  public void testSearchFindsMultiDimensionalContributor() throws Exception {
+    final AggregationLoader aggregationLoader = mock(AggregationLoader.class);
+    // the change is fully explained by osx x safari
+    mockSlice(aggregationLoader, BASELINE_INTERVAL, total(100, 4),
+        breakdown("os", List.of("android", "osx"), 40, 60),
+        breakdown("browser", List.of("chrome", "safari"), 80, 20),
+        osBrowser(30, 10, 50, 10));
+    mockSlice(aggregationLoader, CURRENT_INTERVAL, total(150, 4),
+        breakdown("os", List.of("android", "osx"), 40, 110),
+        breakdown("browser", List.of("chrome", "safari"), 80, 70),
+        osBrowser(30, 10, 50, 60));
+
+    final DimensionAnalysisResultApi result = new CubeContributorsFinder(aggregationLoader,
+        new CubeConfiguration()).search(searchConfiguration(2)).getDimensionAnalysisResult();
+
+    assertThat(result.getDimensions()).containsExactly("os", "browser");
+    assertThat(result.getBaselineTotal()).isEqualTo(100);
+    assertThat(result.getCurrentTotal()).isEqualTo(150);
+    final List<SummaryResponseRow> rows = result.getResponseRows();
+    assertThat(rows).hasSize(2);
+    assertThat(rows.get(0).getNames()).containsExactly("osx", "safari");
+    assertThat(rows.get(0).getBaselineValue()).isEqualTo(10);
+    assertThat(rows.get(0).getCurrentValue()).isEqualTo(60);
+    assertThat(rows.get(1).getNames()).containsExactly(ALL, "safari");
+    assertThat(rows.get(0).getCost()).isGreaterThanOrEqualTo(rows.get(1).getCost());
+
+    // the os x browser queries only fetch the children of osx and safari
+    final ArgumentCaptor<MetricSlice> sliceCaptor = ArgumentCaptor.forClass(MetricSlice.class);
+    verify(aggregationLoader, times(2)).loadAggregateAsync(sliceCaptor.capture(),
+        eq(List.of("os", "browser")),
+        anyInt());
+    for (final MetricSlice slice : sliceCaptor.getAllValues()) {
+      assertThat(slice.getPredicates()).hasSize(2);
+      for (final Predicate predicate : slice.getPredicates()) {
+        assertThat(predicate.getOper()).isEqualTo(OPER.IN);
+        assertThat((String[]) predicate.getRhs()).containsExactly(
+            predicate.getLhs().equals("os") ? "osx" : "safari");
+      }
+    }
+  }
+
+  @Test
+  public void testSearchDoesNotExploreChildrenOfCellsWithoutChange() throws Exception {
+    final AggregationLoader aggregationLoader = mock(AggregationLoader.class);
+    // android x safari changes a lot relatively, but android and safari alone do not change
+    mockSlice(aggregationLoader, BASELINE_INTERVAL, total(100, 4),
+        breakdown("os", List.of("android", "osx"), 50, 50),
+        breakdown("browser", List.of("chrome", "safari"), 50, 50),
+        osBrowser(10, 40, 40, 10));
+    mockSlice(aggregationLoader, CURRENT_INTERVAL, total(100, 4),
+        breakdown("os", List.of("android", "osx"), 50, 50),
+        breakdown("browser", List.of("chrome", "safari"), 50, 50),
+        osBrowser(40, 10, 10, 40));
+
+    final DimensionAnalysisResultApi result = new CubeContributorsFinder(aggregationLoader,
+        new CubeConfiguration()).search(searchConfiguration(10)).getDimensionAnalysisResult();
+
+    assertThat(result.getResponseRows()).hasSize(4);
+    assertThat(result.getResponseRows()).allMatch(r -> r.getNames().contains(ALL));
+    verify(aggregationLoader, never()).loadAggregateAsync(any(),
+        eq(List.of("os", "browser")),
+        anyInt());
+  }
+
+  @Test
+  public void testSearchDoesNotScoreCellsCutByTheLimit() throws Exception {
+    final AggregationLoader aggregationLoader = mock(AggregationLoader.class);
+    // the baseline os query is cut by the limit: the baseline value of ios is unknown
+    mockSlice(aggregationLoader, BASELINE_INTERVAL, total(100, 4),
+        breakdown("os", List.of("android", "osx"), 60, 30),
+        breakdown("browser", List.of("chrome", "safari"), 50, 50),
+        osBrowser(30, 30, 15, 15));
+    mockSlice(aggregationLoader, CURRENT_INTERVAL, total(150, 4),
+        breakdown("os", List.of("ios", "android"), 90, 60),
+        breakdown("browser", List.of("chrome", "safari"), 75, 75),
+        osBrowser(30, 30, 15, 15));
+
+    final DimensionAnalysisResultApi result = new CubeContributorsFinder(aggregationLoader,
+        new CubeConfiguration().setLimit(2)).search(searchConfiguration(10))
+        .getDimensionAnalysisResult();
+
+    assertThat(result.getResponseRows())
+        .noneMatch(r -> r.getNames().contains("ios") || r.getNames().contains("osx"));
+  }
+
+  @Test
+  public void testMaxCuboidsCapsFetchedCombinations() throws Exception {
+    final AggregationLoader aggregationLoader = mock(AggregationLoader.class);
+    mockSlice(aggregationLoader, BASELINE_INTERVAL, total(100, 4),
+        breakdown("os", List.of("android", "osx"), 40, 60),
+        breakdown("browser", List.of("chrome", "safari"), 80, 20),
+        osBrowser(30, 10, 50, 10));
+    mockSlice(aggregationLoader, CURRENT_INTERVAL, total(150, 4),
+        breakdown("os", List.of("android", "osx"), 40, 110),
+        breakdown("browser", List.of("chrome", "safari"), 80, 70),
+        osBrowser(30, 10, 50, 60));
+
+    new CubeContributorsFinder(aggregationLoader, new CubeConfiguration().setMaxCuboids(2))
+        .search(searchConfiguration(2));
+
+    verify(aggregationLoader, never()).loadAggregateAsync(any(),
+        eq(List.of("os", "browser")),
+        anyInt());
+  }
+
+  @Test
+  public void testMaxConcurrentQueriesCapsQueriesInFlight() throws Exception {
+    final AggregationLoader aggregationLoader = mock(AggregationLoader.class);
+    mockSlice(aggregationLoader, BASELINE_INTERVAL, total(100, 4),
+        breakdown("os", List.of("android", "osx"), 40, 60),
+        breakdown("browser", List.of("chrome", "safari"), 80, 20),
+        osBrowser(30, 10, 50, 10));
+    mockSlice(aggregationLoader, CURRENT_INTERVAL, total(150, 4),
+        breakdown("os", List.of("android", "osx"), 40, 110),
+        breakdown("browser", List.of("chrome", "safari"), 80, 70),
+        osBrowser(30, 10, 50, 60));
+    // completes the queries later, to count the queries in flight
+    final AtomicInteger inFlight = new AtomicInteger();
+    final AtomicInteger maxInFlight = new AtomicInteger();
+    final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    final AggregationLoader delayedLoader = mock(AggregationLoader.class);
+    when(delayedLoader.loadAggregateAsync(any(), any(), anyInt())).thenAnswer(i -> {
+      maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+      final DataFrame result = aggregationLoader.loadAggregateAsync(i.getArgument(0),
+          i.getArgument(1), i.getArgument(2)).get();
+      final CompletableFuture<DataFrame> future = new CompletableFuture<>();
+      executor.schedule(() -> {
+        inFlight.decrementAndGet();
+        future.complete(result);
+      }, 10, TimeUnit.MILLISECONDS);
+      return future;
+    });
+
+    try {
+      new CubeContributorsFinder(delayedLoader, new CubeConfiguration().setMaxConcurrentQueries(2))
+          .search(searchConfiguration(2));
+    } finally {
+      executor.shutdownNow();
+    }
+
+    // without the cap, the 4 queries of the first level are in flight at once
+    assertThat(maxInFlight.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testSearchReturnsErrorIfEmptyDataForBaselineTimeframe() throws Exception {
+    final AggregationLoader aggregationLoader = mock(AggregationLoader.class);
+    final DataFrame empty = new DataFrame();
+    mockSlice(aggregationLoader, BASELINE_INTERVAL, total(0, 0), empty, empty, empty);
+    mockSlice(aggregationLoader, CURRENT_INTERVAL, total(150, 4), empty, empty, empty);
+
+    final DimensionAnalysisResultApi result = new CubeContributorsFinder(aggregationLoader,
+        new CubeConfiguration()).search(searchConfiguration(2)).getDimensionAnalysisResult();
+
+    assertThat(result.getAnalysisRunInfo().isSuccess()).isFalse();
+    assertThat(result.getAnalysisRunInfo().getMessage()).contains("baseline");
+  }
+
+  @Test
+  public void testCombinationsRespectHierarchies() {
+    final DimensionCube cube = new DimensionCube(List.of("continent", "country", "browser"),
+        List.of(List.of("continent", "country")));
+
+    assertThat(cube.firstLevelDimensions()).containsExactly(
+        List.of("continent"),
+        List.of("browser"));
+    assertThat(cube.childDimensions(List.of("continent"))).containsExactly(
+        List.of("continent", "country"),
+        List.of("continent", "browser"));
+    assertThat(cube.childDimensions(List.of("browser"))).containsExactly(
+        List.of("continent", "browser"));
+  }
+
+  @Test
+  public void testOrderDimensionsGroupsHierarchies() {
+    assertThat(DimensionCube.orderDimensions(List.of("country", "browser", "continent"),
+        List.of(List.of("continent", "country"))))
+        .containsExactly("continent", "country", "browser");
+  }
+}
@@ -48,6 +48,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import javax.annotation.Nullable;
 import org.apache.commons.collections4.MapUtils;
@@ -441,6 +442,11 @@ public class MockThirdEyeDataSource implements ThirdEyeDataSource {
     return this.delegate.fetchDataTable(request);
   }
 
+  @Override
+  public CompletableFuture<DataTable> fetchDataTableAsync(final DataSourceRequest request) {
+    return this.delegate.fetchDataTableAsync(request);
+  }
+
   @Override
   public List<String> getDatasets() throws Exception {
     return new ArrayList<>(this.datasets.keySet());
@@ -40,8 +40,6 @@ import ai.startree.thirdeye.spi.detection.Pattern;
 import ai.startree.thirdeye.spi.detection.v2.DataTable;
 import java.util.Map;
 import java.util.Set;
-import org.joda.time.DateTime;
-import org.joda.time.DateTimeZone;
 import org.joda.time.Interval;
 import org.joda.time.Period;
 import org.joda.time.ReadableInterval;
@@ -185,20 +183,21 @@ public class MeanVarianceRuleDetector implements AnomalyDetector<MeanVarianceRul
     final long[] resultTimeArray = new long[size];
     final double[] errorArray = new double[size];
 
-    // todo cyril compute mean and std in a single pass
-    // https://nestedsoftware.com/2018/03/20/calculating-a-moving-average-on-streaming-data-5a7k.22879.html
-    // https://en.wikipedia.org/wiki/Algorithms_for_calculating_variance#Welford's_online_algorithm
+    final LongSeries inputTimes = inputDF.getLongs(COL_TIME);
+    // todo cyril implement median
+    final RollingMeanVariance rollingMeanVariance = new RollingMeanVariance(inputTimes.values(),
+        inputDF.getDoubles(COL_VALUE).values(),
+        lookback,
+        seasonality.toStandardDuration().getMillis());
+    int indexEnd = 0;
     for (int k = 0; k < size; k++) {
       final long forecastTime = forecastDF.getLong(COL_TIME, k);
-      final DataFrame lookbackDf = getLookbackDf(inputDF, forecastTime);
-      final DoubleSeries periodMask = buildPeriodMask(lookbackDf, forecastTime);
-      // todo cyril implement median
-      final double mean = lookbackDf.getDoubles(COL_VALUE).multiply(periodMask).mean().value();
-      final double std = lookbackDf.getDoubles(COL_VALUE).multiply(periodMask).std().value();
+      indexEnd = indexOf(inputTimes, forecastTime, indexEnd);
+      rollingMeanVariance.moveTo(indexEnd);
       //calculate baseline, error , upper and lower bound for prediction window.
       resultTimeArray[k] = forecastTime;
-      baselineArray[k] = mean;
-      errorArray[k] = sigma(sensitivity) * std;
+      baselineArray[k] = rollingMeanVariance.mean();
+      errorArray[k] = sigma(sensitivity) * rollingMeanVariance.std();
       upperBoundArray[k] = baselineArray[k] + errorArray[k];
       lowerBoundArray[k] = baselineArray[k] - errorArray[k];
     }
@@ -216,47 +215,19 @@ public class MeanVarianceRuleDetector implements AnomalyDetector<MeanVarianceRul
     return resultDF;
   }
 
-  private DoubleSeries buildPeriodMask(final DataFrame lookbackDf, final long forecastTime) {
-    if (seasonality.equals(Period.ZERO)) {
-      // no seasonality --> no mask
-      return DoubleSeries.fillValues(lookbackDf.size(), 1);
-    }
-    // fixme cyril this implem does not not fail at DST - but datetimeZone is hardcoded to UTC so not DST
-    DateTime forecastDateTime = new DateTime(forecastTime, DateTimeZone.UTC);
-    DoubleSeries.Builder mask = DoubleSeries.builder();
-    LongSeries lookbackEpochs = lookbackDf.get(COL_TIME).getLongs();
-    for (int idx = 0; idx < lookbackEpochs.size(); idx++) {
-      DateTime lookbackDateTime = new DateTime(lookbackEpochs.get(idx), DateTimeZone.UTC);
-      mask.addValues(isSeasonalityMatch(forecastDateTime, lookbackDateTime) ? 1. : null);
-    }
-    return mask.build();
-  }
-
-  private boolean isSeasonalityMatch(final DateTime dt1, final DateTime dt2) {
-    final boolean isSameTimeInDay =
-        dt1.getHourOfDay() == dt2.getHourOfDay() && dt1.getMinuteOfHour() == dt2.getMinuteOfHour()
-            && dt1.getSecondOfMinute() == dt2.getSecondOfMinute()
-            && dt1.getMillisOfSecond() == dt2.getMillisOfSecond();
-    if (seasonality.equals(Period.days(7))) {
-      return isSameTimeInDay && dt1.getDayOfWeek() == dt2.getDayOfWeek();
-    } else if (seasonality.equals(Period.days(1))) {
-      return isSameTimeInDay;
-    } else {
-      throw new UnsupportedOperationException();
+  /**
+   * Forecast times are in the same order as the input times: look for the time from the
+   * previous index first.
+   */
+  private static int indexOf(final LongSeries times, final long time, final int fromIndex) {
+    for (int i = fromIndex; i < times.size(); i++) {
+      if (times.getLong(i) == time) {
+        return i;
+      }
     }
-  }
-
-  private DataFrame getLookbackDf(final DataFrame inputDF, final long endTimeMillis) {
-    final int indexEnd = inputDF.getLongs(COL_TIME).find(endTimeMillis);
-    checkArgument(indexEnd != -1,
+    final int index = times.find(time);
+    checkArgument(index != -1,
         "Could not find index of endTime. endTime should exist in inputDf. This should not happen.");
-
-    DataFrame loobackDf = DataFrame.builder(COL_TIME, COL_VALUE).build();
-    final int indexStart = indexEnd - lookback;
-    checkArgument(indexStart >= 0,
-        "Invalid index. Insufficient data to compute mean/variance on lookback. index: "
-            + indexStart);
-    loobackDf = loobackDf.append(inputDF.slice(indexStart, indexEnd));
-    return loobackDf;
+    return index;
   }
 }
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.detectors;
+
+import static ai.startree.thirdeye.spi.dataframe.DoubleSeries.isNull;
+import static com.google.common.base.Preconditions.checkArgument;
+
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Rolling mean and standard deviation on a time series, computed in a single pass.
+ *
+ * For a row {@code end}, the window is made of the {@code lookback} rows before {@code end}
+ * that are in the same seasonality phase as {@code end}: rows whose time differs from the time
+ * of {@code end} by a multiple of the seasonality period. Null values are ignored.
+ *
+ * The rows are grouped by phase once. Each phase keeps a window on its own rows, maintained
+ * with Welford's online algorithm: rows entering the window are added, rows leaving the window
+ * are removed. When rows are queried in increasing order, every row is added and removed at
+ * most once, so the total cost is O(n) whatever the lookback.
+ */
+public class RollingMeanVariance {
+
+  private final double[] values;
+  private final int lookback;
+
+  /** phase of each row */
+  private final int[] phaseOf;
+  /** rows of each phase, in increasing order: rows of phase p are in [phaseStart[p], phaseStart[p+1]) */
+  private final int[] phaseRows;
+  private final int[] phaseStart;
+
+  /** window of each phase, as positions in phaseRows: [windowLo[p], windowHi[p]) */
+  private final int[] windowLo;
+  private final int[] windowHi;
+  private final int[] count;
+  private final double[] mean;
+  private final double[] m2;
+
+  private int currentPhase = -1;
+
+  /**
+   * @param times time of each row, in epoch millis
+   * @param values value of each row. {@link DoubleSeries#NULL} values are ignored.
+   * @param lookback number of rows before the queried row to consider
+   * @param seasonalityMillis seasonality period in millis. 0 for no seasonality.
+   */
+  public RollingMeanVariance(final long[] times, final double[] values, final int lookback,
+      final long seasonalityMillis) {
+    checkArgument(times.length == values.length, "times and values must have the same size");
+    checkArgument(lookback > 0, "lookback must be positive");
+    checkArgument(seasonalityMillis >= 0, "seasonality must be positive or 0");
+    this.values = values;
+    this.lookback = lookback;
+
+    final int size = times.length;
+    phaseOf = new int[size];
+    final Map<Long, Integer> phaseIds = new HashMap<>();
+    for (int i = 0; i < size; i++) {
+      final long phase = seasonalityMillis == 0 ? 0 : Math.floorMod(times[i], seasonalityMillis);
+      phaseOf[i] = phaseIds.computeIfAbsent(phase, p -> phaseIds.size());
+    }
+
+    final int nPhases = phaseIds.size();
+    phaseStart = new int[nPhases + 1];
+    for (int i = 0; i < size; i++) {
+      phaseStart[phaseOf[i] + 1]++;
+    }
+    for (int p = 0; p < nPhases; p++) {
+      phaseStart[p + 1] += phaseStart[p];
+    }
+    phaseRows = new int[size];
+    final int[] next = new int[nPhases];
+    System.arraycopy(phaseStart, 0, next, 0, nPhases);
+    for (int i = 0; i < size; i++) {
+      phaseRows[next[phaseOf[i]]++] = i;
+    }
+
+    windowLo = new int[nPhases];
+    windowHi = new int[nPhases];
+    System.arraycopy(phaseStart, 0, windowLo, 0, nPhases);
+    System.arraycopy(phaseStart, 0, windowHi, 0, nPhases);
+    count = new int[nPhases];
+    mean = new double[nPhases];
+    m2 = new double[nPhases];
+  }
+
+  /**
+   * Moves the window to the rows [end - lookback, end) of the phase of end.
+   * Call {@link #mean()} and {@link #std()} to get the statistics of the window.
+   */
+  public RollingMeanVariance moveTo(final int end) {
+    checkArgument(end - lookback >= 0,
+        "Invalid index. Insufficient data to compute mean/variance on lookback. index: "
+            + (end - lookback));
+    final int p = phaseOf[end];
+    final int start = end - lookback;
+    if (windowLo[p] > phaseStart[p] && phaseRows[windowLo[p] - 1] >= start
+        || windowHi[p] > phaseStart[p] && phaseRows[windowHi[p] - 1] >= end) {
+      // the window moves backward - not expected for forecasts in time order: restart the phase
+      reset(p);
+    }
+    final int phaseEnd = phaseStart[p + 1];
+    while (windowHi[p] < phaseEnd && phaseRows[windowHi[p]] < end) {
+      add(p, values[phaseRows[windowHi[p]++]]);
+    }
+    while (windowLo[p] < windowHi[p] && phaseRows[windowLo[p]] < start) {
+      remove(p, values[phaseRows[windowLo[p]++]]);
+    }
+    currentPhase = p;
+    return this;
+  }
+
+  /**
+   * @return the mean of the window, or {@link DoubleSeries#NULL} if the window has no value.
+   */
+  public double mean() {
+    return count[currentPhase] > 0 ? mean[currentPhase] : DoubleSeries.NULL;
+  }
+
+  /**
+   * @return the sample standard deviation of the window, or {@link DoubleSeries#NULL} if the
+   *     window has less than 2 values.
+   */
+  public double std() {
+    final int n = count[currentPhase];
+    return n > 1 ? Math.sqrt(m2[currentPhase] / (n - 1)) : DoubleSeries.NULL;
+  }
+
+  private void reset(final int p) {
+    windowLo[p] = phaseStart[p];
+    windowHi[p] = phaseStart[p];
+    count[p] = 0;
+    mean[p] = 0;
+    m2[p] = 0;
+  }
+
+  private void add(final int p, final double value) {
+    if (isNull(value)) {
+      return;
+    }
+    count[p]++;
+    final double delta = value - mean[p];
+    mean[p] += delta / count[p];
+    m2[p] += delta * (value - mean[p]);
+  }
+
+  private void remove(final int p, final double value) {
+    if (isNull(value)) {
+      return;
+    }
+    count[p]--;
+    if (count[p] == 0) {
+      mean[p] = 0;
+      m2[p] = 0;
+      return;
+    }
+    final double delta = value - mean[p];
+    mean[p] -= delta / count[p];
+    // rounding errors can make m2 slightly negative when the remaining values are all equal
+    m2[p] = Math.max(0, m2[p] - delta * (value - mean[p]));
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.detectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.testng.annotations.Test;
+
+public class RollingMeanVarianceTest {
+
+  private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+  private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+  private static long[] hourlyTimes(final int size, final Random random) {
+    final long[] times = new long[size];
+    long time = 1609459200000L;
+    for (int i = 0; i < size; i++) {
+      times[i] = time;
+      // some missing hours
+      time += random.nextInt(10) == 0 ? 2 * HOUR : HOUR;
+    }
+    return times;
+  }
+
+  private static double[] randomValues(final int size, final Random random) {
+    final double[] values = new double[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = random.nextInt(20) == 0 ? DoubleSeries.NULL : 1000 + 100 * random.nextGaussian();
+    }
+    return values;
+  }
+
+  private static void assertSameAsNaive(final long[] times, final double[] values,
+      final int lookback, final long seasonality, final int end,
+      final RollingMeanVariance rolling) {
+    final DoubleSeries.Builder window = DoubleSeries.builder();
+    for (int i = end - lookback; i < end; i++) {
+      if (seasonality == 0 || (times[end] - times[i]) % seasonality == 0) {
+        window.addValues(values[i]);
+      }
+    }
+    final DoubleSeries expected = window.build();
+    rolling.moveTo(end);
+    assertStat(rolling.mean(), expected.mean().value());
+    assertStat(rolling.std(), expected.std().value());
+  }
+
+  private static void assertStat(final double actual, final double expected) {
+    if (DoubleSeries.isNull(expected)) {
+      assertThat(DoubleSeries.isNull(actual)).isTrue();
+    } else {
+      assertThat(actual).isCloseTo(expected, within(1e-6));
+    }
+  }
+
+  @Test
+  public void testNoSeasonality() {
+    final Random random = new Random(1);
+    final long[] times = hourlyTimes(500, random);
+    final double[] values = randomValues(500, random);
+    final RollingMeanVariance rolling = new RollingMeanVariance(times, values, 48, 0);
+
+    for (int end = 48; end < times.length; end++) {
+      assertSameAsNaive(times, values, 48, 0, end, rolling);
+    }
+  }
+
+  @Test
+  public void testDailySeasonality() {
+    final Random random = new Random(2);
+    final long[] times = hourlyTimes(2000, random);
+    final double[] values = randomValues(2000, random);
+    final RollingMeanVariance rolling = new RollingMeanVariance(times, values, 14 * 24, DAY);
+
+    for (int end = 14 * 24; end < times.length; end += 1 + random.nextInt(3)) {
+      assertSameAsNaive(times, values, 14 * 24, DAY, end, rolling);
+    }
+  }
+
+  @Test
+  public void testWindowMovingBackward() {
+    final Random random = new Random(3);
+    final long[] times = hourlyTimes(1000, random);
+    final double[] values = randomValues(1000, random);
+    final RollingMeanVariance rolling = new RollingMeanVariance(times, values, 7 * 24, DAY);
+
+    for (final int end : new int[]{900, 400, 990, 168, 500, 499}) {
+      assertSameAsNaive(times, values, 7 * 24, DAY, end, rolling);
+    }
+  }
+
+  @Test
+  public void testNotEnoughValues() {
+    final long[] times = {0, HOUR, 2 * HOUR, 3 * HOUR};
+    final double[] values = {1., DoubleSeries.NULL, DoubleSeries.NULL, 3.};
+    final RollingMeanVariance rolling = new RollingMeanVariance(times, values, 2, 0);
+
+    assertThat(rolling.moveTo(2).mean()).isEqualTo(1.);
+    assertThat(DoubleSeries.isNull(rolling.std())).isTrue();
+    assertThat(DoubleSeries.isNull(rolling.moveTo(3).mean())).isTrue();
+  }
+}
@@ -14,17 +14,27 @@
 package ai.startree.thirdeye.plugins.datasource.pinot;
 
 import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.dataframe.Series;
+import ai.startree.thirdeye.spi.dataframe.StringSeries;
 import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeDataFrameResultSet;
 import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeResultSet;
 import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeResultSetGroup;
 import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeResultSetMetaData;
 import ai.startree.thirdeye.spi.detection.v2.ColumnType;
 import ai.startree.thirdeye.spi.detection.v2.ColumnType.ColumnDataType;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.cache.CacheLoader;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import javax.inject.Inject;
 import javax.inject.Singleton;
+import org.apache.pinot.client.AsyncPinotConnection;
 import org.apache.pinot.client.Connection;
 import org.apache.pinot.client.PinotClientException;
 import org.apache.pinot.client.Request;
@@ -40,6 +50,10 @@ public class PinotResponseCacheLoader extends CacheLoader<PinotQuery, ThirdEyeRe
 
   private static final String SQL_QUERY_FORMAT = "sql";
   private static final String PQL_QUERY_FORMAT = "pql";
+  /**
+   * Dimension values are repeated across rows and across cached responses.
+   */
+  private static final Interner<String> STRING_INTERNER = Interners.newWeakInterner();
   private final PinotConnectionManager pinotConnectionManager;
 
   @Inject
@@ -91,13 +105,80 @@ public class PinotResponseCacheLoader extends CacheLoader<PinotQuery, ThirdEyeRe
     return new ColumnType(ColumnDataType.STRING);
   }
 
+  /**
+   * Builds the series of a column, using the Pinot column type when available.
+   *
+   * Numeric columns are parsed directly into long or double arrays. Other columns are kept as
+   * interned strings and their type is inferred from the values.
+   */
+  private static Series toSeries(final ResultSet resultSet, final int columnIdx,
+      final int rowCount) {
+    switch (pinotColumnDataType(resultSet, columnIdx)) {
+      case "INT":
+      case "LONG":
+        final long[] longs = new long[rowCount];
+        for (int rowIdx = 0; rowIdx < rowCount; rowIdx++) {
+          longs[rowIdx] = getLong(resultSet, rowIdx, columnIdx);
+        }
+        return LongSeries.buildFrom(longs);
+      case "FLOAT":
+      case "DOUBLE":
+        final double[] doubles = new double[rowCount];
+        for (int rowIdx = 0; rowIdx < rowCount; rowIdx++) {
+          doubles[rowIdx] = getDouble(resultSet, rowIdx, columnIdx);
+        }
+        return DoubleSeries.buildFrom(doubles);
+      default:
+        final String[] values = new String[rowCount];
+        for (int rowIdx = 0; rowIdx < rowCount; rowIdx++) {
+          try {
+            values[rowIdx] = intern(resultSet.getString(rowIdx, columnIdx));
+          } catch (Exception e) {
+            // Do nothing and subsequently insert a null value to the current series.
+          }
+        }
+        return StringSeries.buildFrom(values).toInferredType();
+    }
+  }
+
+  private static String pinotColumnDataType(final ResultSet resultSet, final int columnIdx) {
+    try {
+      return String.valueOf(resultSet.getColumnDataType(columnIdx));
+    } catch (Throwable e) {
+      // Pinot client doesn't provide type for pql
+      return "";
+    }
+  }
+
+  private static long getLong(final ResultSet resultSet, final int rowIdx, final int columnIdx) {
+    try {
+      return StringSeries.getLong(resultSet.getString(rowIdx, columnIdx));
+    } catch (Exception e) {
+      return LongSeries.NULL;
+    }
+  }
+
+  private static double getDouble(final ResultSet resultSet, final int rowIdx,
+      final int columnIdx) {
+    try {
+      return StringSeries.getDouble(resultSet.getString(rowIdx, columnIdx));
+    } catch (Exception e) {
+      return DoubleSeries.NULL;
+    }
+  }
+
+  private static String intern(final String value) {
+    return value == null ? null : STRING_INTERNER.intern(value);
+  }
+
   /**
    * Constructs a {@link ThirdEyeDataFrameResultSet} from any Pinot's {@link ResultSet}.
    *
    * @param resultSet A result set from Pinot.
    * @return an unified {@link ThirdEyeDataFrameResultSet}.
    */
-  private static ThirdEyeDataFrameResultSet fromPinotResultSet(ResultSet resultSet) {
+  @VisibleForTesting
+  static ThirdEyeDataFrameResultSet fromPinotResultSet(ResultSet resultSet) {
     // Build the meta data of this result set
     List<String> groupKeyColumnNames = new ArrayList<>();
     List<ColumnType> groupKeyColumnTypes = new ArrayList<>();
@@ -135,43 +216,25 @@ public class PinotResponseCacheLoader extends CacheLoader<PinotQuery, ThirdEyeRe
             groupKeyColumnTypes,
             metricColumnTypes);
 
-    // Build the DataFrame
-    List<String> columnNameWithDataType = new ArrayList<>();
-    //   Always cast dimension values to STRING type
-    for (String groupColumnName : thirdEyeResultSetMetaData.getGroupKeyColumnNames()) {
-      columnNameWithDataType.add(groupColumnName + ":STRING");
-    }
-    columnNameWithDataType.addAll(thirdEyeResultSetMetaData.getMetricColumnNames());
-    DataFrame.Builder dfBuilder = DataFrame.builder(columnNameWithDataType);
-    int rowCount = resultSet.getRowCount();
-    int metricColumnCount = resultSet.getColumnCount();
-    int totalColumnCount = groupByColumnCount + metricColumnCount;
-    // Dump the values in ResultSet to the DataFrame
-    for (int rowIdx = 0; rowIdx < rowCount; rowIdx++) {
-      String[] columnsOfTheRow = new String[totalColumnCount];
-      // GroupBy column value(i.e., dimension values)
-      for (int groupByColumnIdx = 0; groupByColumnIdx < groupByColumnCount; groupByColumnIdx++) {
-        String valueString = null;
-        try {
-          valueString = resultSet.getGroupKeyString(rowIdx, groupByColumnIdx);
-        } catch (Exception e) {
-          // Do nothing and subsequently insert a null value to the current series.
-        }
-        columnsOfTheRow[groupByColumnIdx] = valueString;
-      }
-      // Metric column's value
-      for (int metricColumnIdx = 0; metricColumnIdx < metricColumnCount; metricColumnIdx++) {
-        String valueString = null;
+    // Build the DataFrame column by column
+    final int rowCount = resultSet.getRowCount();
+    final DataFrame dataFrame = new DataFrame();
+    for (int groupByColumnIdx = 0; groupByColumnIdx < groupByColumnCount; groupByColumnIdx++) {
+      //   Always cast dimension values to STRING type
+      final String[] values = new String[rowCount];
+      for (int rowIdx = 0; rowIdx < rowCount; rowIdx++) {
         try {
-          valueString = resultSet.getString(rowIdx, metricColumnIdx);
+          values[rowIdx] = intern(resultSet.getGroupKeyString(rowIdx, groupByColumnIdx));
         } catch (Exception e) {
           // Do nothing and subsequently insert a null value to the current series.
         }
-        columnsOfTheRow[metricColumnIdx + groupByColumnCount] = valueString;
       }
-      dfBuilder.append(columnsOfTheRow);
+      dataFrame.addSeries(groupKeyColumnNames.get(groupByColumnIdx), StringSeries.buildFrom(values));
+    }
+    for (int metricColumnIdx = 0; metricColumnIdx < resultSet.getColumnCount(); metricColumnIdx++) {
+      dataFrame.addSeries(metricColumnNames.get(metricColumnIdx),
+          toSeries(resultSet, metricColumnIdx, rowCount));
     }
-    DataFrame dataFrame = dfBuilder.build();
     // Build ThirdEye's result set
     return new ThirdEyeDataFrameResultSet(thirdEyeResultSetMetaData, dataFrame);
   }
@@ -181,19 +244,11 @@ public class PinotResponseCacheLoader extends CacheLoader<PinotQuery, ThirdEyeRe
     try {
       final Connection connection = pinotConnectionManager.get();
       final long start = System.currentTimeMillis();
-      final String queryFormat = pinotQuery.isUseSql() ? SQL_QUERY_FORMAT : PQL_QUERY_FORMAT;
       final ResultSetGroup resultSetGroup = connection.execute(
           pinotQuery.getTableName(),
-          new Request(queryFormat, pinotQuery.getQuery())
+          toRequest(pinotQuery)
       );
-
-      /* Log slow queries. anything greater than 1s */
-      final long end = System.currentTimeMillis();
-      final long duration = end - start;
-      if (duration > 1000) {
-        LOG.info("Query:{}  took:{}ms",
-            pinotQuery.getQuery().replace('\n', ' '), duration);
-      }
+      logIfSlow(pinotQuery, start);
 
       return toThirdEyeResultSetGroup(resultSetGroup);
     } catch (final PinotClientException cause) {
@@ -201,4 +256,49 @@ public class PinotResponseCacheLoader extends CacheLoader<PinotQuery, ThirdEyeRe
       throw new PinotClientException("Error when running pql:" + pinotQuery.getQuery(), cause);
     }
   }
+
+  /**
+   * Asynchronous variant of {@link #load(PinotQuery)}. No thread waits for the broker response
+   * when the connection supports it.
+   */
+  public CompletableFuture<ThirdEyeResultSetGroup> loadAsync(final PinotQuery pinotQuery) {
+    final Connection connection = pinotConnectionManager.get();
+    if (!(connection instanceof AsyncPinotConnection)) {
+      try {
+        return CompletableFuture.completedFuture(load(pinotQuery));
+      } catch (final PinotClientException e) {
+        return CompletableFuture.failedFuture(e);
+      }
+    }
+    final long start = System.currentTimeMillis();
+    return ((AsyncPinotConnection) connection)
+        .executeCompletableAsync(pinotQuery.getTableName(), toRequest(pinotQuery))
+        .handle((resultSetGroup, throwable) -> {
+          if (throwable != null) {
+            final Throwable cause = throwable instanceof CompletionException
+                ? throwable.getCause()
+                : throwable;
+            LOG.error("Error when running pql:" + pinotQuery.getQuery(), cause);
+            throw new PinotClientException("Error when running pql:" + pinotQuery.getQuery(),
+                cause);
+          }
+          logIfSlow(pinotQuery, start);
+          return toThirdEyeResultSetGroup(resultSetGroup);
+        });
+  }
+
+  private static Request toRequest(final PinotQuery pinotQuery) {
+    final String queryFormat = pinotQuery.isUseSql() ? SQL_QUERY_FORMAT : PQL_QUERY_FORMAT;
+    return new Request(queryFormat, pinotQuery.getQuery());
+  }
+
+  private static void logIfSlow(final PinotQuery pinotQuery, final long start) {
+    /* Log slow queries. anything greater than 1s */
+    final long end = System.currentTimeMillis();
+    final long duration = end - start;
+    if (duration > 1000) {
+      LOG.info("Query:{}  took:{}ms",
+          pinotQuery.getQuery().replace('\n', ' '), duration);
+    }
+  }
 }
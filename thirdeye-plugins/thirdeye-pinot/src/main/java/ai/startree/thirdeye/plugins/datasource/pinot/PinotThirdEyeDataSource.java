@@ -15,30 +15,25 @@ package ai.startree.thirdeye.plugins.datasource.pinot;
 
 import static java.util.Objects.requireNonNull;
 
-import ai.startree.thirdeye.spi.Constants;
 import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
 import ai.startree.thirdeye.spi.datasource.DataSourceRequest;
-import ai.startree.thirdeye.spi.datasource.RelationalQuery;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSourceContext;
+import ai.startree.thirdeye.spi.datasource.cache.DefaultResponseCache;
+import ai.startree.thirdeye.spi.datasource.cache.ResponseCache;
+import ai.startree.thirdeye.spi.datasource.cache.ResponseCacheStats;
 import ai.startree.thirdeye.spi.datasource.macro.SqlExpressionBuilder;
 import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
 import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeResultSet;
 import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeResultSetGroup;
 import ai.startree.thirdeye.spi.detection.v2.DataTable;
-import com.google.common.base.Preconditions;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
-import com.google.common.cache.Weigher;
 import com.google.common.collect.ImmutableList;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
 import javax.inject.Inject;
 import javax.inject.Singleton;
-import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -53,7 +48,8 @@ public class PinotThirdEyeDataSource implements ThirdEyeDataSource {
   private final SqlExpressionBuilder sqlExpressionBuilder;
   private final SqlLanguage sqlLanguage;
   private final PinotDatasetOnboarder pinotDatasetOnboarder;
-  private final LoadingCache<RelationalQuery, ThirdEyeResultSetGroup> pinotResponseCache;
+  private final ResponseCache<PinotQuery> pinotResponseCache;
+  private final PinotResponseCacheLoader pinotResponseCacheLoader;
   private final PinotConnectionManager pinotConnectionManager;
 
   @Inject
@@ -71,53 +67,8 @@ public class PinotThirdEyeDataSource implements ThirdEyeDataSource {
     this.name = context.getDataSourceDTO().getName();
     this.pinotConnectionManager = pinotConnectionManager;
 
-    /* Uses LoadingCache to cache queries */
-    pinotResponseCache = buildResponseCache(pinotResponseCacheLoader);
-  }
-
-
-  public static LoadingCache<RelationalQuery, ThirdEyeResultSetGroup> buildResponseCache(
-      CacheLoader cacheLoader) {
-    Preconditions.checkNotNull(cacheLoader, "A cache loader is required.");
-
-    // ResultSetGroup Cache. The size of this cache is limited by the total number of buckets in all ResultSetGroup.
-    // We estimate that 1 bucket (including overhead) consumes 1KB and this cache is allowed to use up to 50% of max
-    // heap space.
-    long maxBucketNumber = getApproximateMaxBucketNumber(
-        Constants.DEFAULT_HEAP_PERCENTAGE_FOR_RESULTSETGROUP_CACHE);
-    LOG.debug("Max bucket number for {}'s cache is set to {}", cacheLoader,
-        maxBucketNumber);
-
-    return CacheBuilder.newBuilder()
-        .expireAfterWrite(15, TimeUnit.MINUTES)
-        .maximumWeight(maxBucketNumber)
-        .weigher(
-            (Weigher<RelationalQuery, ThirdEyeResultSetGroup>) (relationalQuery, resultSetGroup) -> {
-              int resultSetCount = resultSetGroup.size();
-              int weight = 0;
-              for (int idx = 0; idx < resultSetCount; ++idx) {
-                ThirdEyeResultSet resultSet = resultSetGroup.get(idx);
-                weight += ((resultSet.getColumnCount() + resultSet.getGroupKeyLength()) * resultSet
-                    .getRowCount());
-              }
-              return weight;
-            })
-        .build(cacheLoader);
-  }
-
-  private static long getApproximateMaxBucketNumber(int percentage) {
-    long jvmMaxMemoryInBytes = Runtime.getRuntime().maxMemory();
-    if (jvmMaxMemoryInBytes == Long.MAX_VALUE) { // Check upper bound
-      jvmMaxMemoryInBytes = Constants.DEFAULT_UPPER_BOUND_OF_RESULTSETGROUP_CACHE_SIZE_IN_MB
-          * FileUtils.ONE_MB; // MB to Bytes
-    } else { // Check lower bound
-      long lowerBoundInBytes = Constants.DEFAULT_LOWER_BOUND_OF_RESULTSETGROUP_CACHE_SIZE_IN_MB
-          * FileUtils.ONE_MB; // MB to Bytes
-      if (jvmMaxMemoryInBytes < lowerBoundInBytes) {
-        jvmMaxMemoryInBytes = lowerBoundInBytes;
-      }
-    }
-    return (jvmMaxMemoryInBytes / 102400) * percentage;
+    this.pinotResponseCacheLoader = pinotResponseCacheLoader;
+    pinotResponseCache = DefaultResponseCache.build(pinotResponseCacheLoader);
   }
 
   @Override
@@ -158,17 +109,30 @@ public class PinotThirdEyeDataSource implements ThirdEyeDataSource {
   @Override
   public DataTable fetchDataTable(final DataSourceRequest request) throws Exception {
     try {
-      // Use pinot SQL.
-      final ThirdEyeResultSet thirdEyeResultSet = executeSQL(new PinotQuery(
-          request.getQuery(),
-          request.getTable(),
-          true)).get(0);
+      final ThirdEyeResultSet thirdEyeResultSet = executeSQL(toPinotQuery(request)).get(0);
       return new ThirdEyeResultSetDataTable(thirdEyeResultSet);
     } catch (final ExecutionException e) {
       throw e;
     }
   }
 
+  @Override
+  public CompletableFuture<DataTable> fetchDataTableAsync(final DataSourceRequest request) {
+    final PinotQuery pinotQuery = toPinotQuery(request);
+    return pinotResponseCache.getAsync(pinotQuery, pinotResponseCacheLoader::loadAsync)
+        .thenApply(resultSetGroup -> new ThirdEyeResultSetDataTable(resultSetGroup.get(0)));
+  }
+
+  private static PinotQuery toPinotQuery(final DataSourceRequest request) {
+    // Use pinot SQL.
+    final PinotQuery pinotQuery = new PinotQuery(
+        request.getQuery(),
+        request.getTable(),
+        true);
+    pinotQuery.setMaxTimeMillis(request);
+    return pinotQuery;
+  }
+
   @Override
   public boolean validate() {
     try {
@@ -228,4 +192,9 @@ public class PinotThirdEyeDataSource implements ThirdEyeDataSource {
   public SqlExpressionBuilder getSqlExpressionBuilder() {
     return sqlExpressionBuilder;
   }
+
+  @Override
+  public ResponseCacheStats getResponseCacheStats() {
+    return pinotResponseCache.stats();
+  }
 }
@@ -14,6 +14,11 @@
 package ai.startree.thirdeye.plugins.datasource.pinot;
 
 import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.dataframe.Series;
+import ai.startree.thirdeye.spi.dataframe.StringSeries;
+import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeDataFrameResultSet;
 import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeResultSet;
 import ai.startree.thirdeye.spi.detection.v2.AbstractDataTableImpl;
 import ai.startree.thirdeye.spi.detection.v2.ColumnType;
@@ -104,11 +109,64 @@ public class ThirdEyeResultSetDataTable extends AbstractDataTableImpl {
 
   public DataFrame getDataFrame() {
     if (dataFrame == null) {
-      dataFrame = generateDataFrame();
+      dataFrame = thirdEyeResultSet instanceof ThirdEyeDataFrameResultSet
+          ? fromDataFrameResultSet((ThirdEyeDataFrameResultSet) thirdEyeResultSet)
+          : generateDataFrame();
     }
     return dataFrame;
   }
 
+  /**
+   * Reuses the typed series of the result set instead of going through row objects. The series
+   * types are the ones generateDataFrame would infer.
+   */
+  private DataFrame fromDataFrameResultSet(final ThirdEyeDataFrameResultSet resultSet) {
+    final DataFrame source = resultSet.getDataFrame();
+    final DataFrame df = new DataFrame();
+    for (int columnIdx = 0; columnIdx < getColumnCount(); columnIdx++) {
+      final String column = columns.get(columnIdx);
+      final Series series = source.get(column);
+      final ColumnDataType type = columnIdx < groupKeyLength
+          ? ColumnDataType.STRING
+          : columnTypes.get(columnIdx).getType();
+      final Series inferred = series.isEmpty() ? series : inferType(series, type);
+      // never share the series of the cached result set
+      df.addSeries(column, inferred == series ? series.copy() : inferred);
+    }
+    return df;
+  }
+
+  private static Series inferType(final Series series, final ColumnDataType type) {
+    switch (type) {
+      case STRING:
+        return series instanceof StringSeries
+            ? ((StringSeries) series).toInferredType()
+            : series;
+      case BOOLEAN:
+        return series.getBooleans();
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        if (series instanceof LongSeries) {
+          return series;
+        }
+        final DoubleSeries doubles = series.getDoubles();
+        return isIntegral(doubles) ? doubles.getLongs() : doubles;
+      default:
+        return series;
+    }
+  }
+
+  private static boolean isIntegral(final DoubleSeries series) {
+    for (final double value : series.values()) {
+      if (!DoubleSeries.isNull(value) && (long) value != value) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   @Override
   public Object getObject(final int rowIdx, final int colIdx) {
     if (colIdx < groupKeyLength) {
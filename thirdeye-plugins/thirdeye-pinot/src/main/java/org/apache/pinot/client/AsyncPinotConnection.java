@@ -0,0 +1,56 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package org.apache.pinot.client;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Pinot connection that can run queries without blocking a thread.
+ *
+ * {@link Connection} only exposes a blocking {@link java.util.concurrent.Future} and hides its broker selector and
+ * transport. This connection keeps them to send the query with the non-blocking
+ * {@link ForkedJsonAsyncHttpPinotClientTransport}.
+ */
+public class AsyncPinotConnection extends Connection {
+
+  private final BrokerSelector brokerSelector;
+  private final ForkedJsonAsyncHttpPinotClientTransport transport;
+
+  AsyncPinotConnection(final BrokerSelector brokerSelector,
+      final ForkedJsonAsyncHttpPinotClientTransport transport) {
+    super(brokerSelector, transport);
+    this.brokerSelector = brokerSelector;
+    this.transport = transport;
+  }
+
+  /**
+   * Non-blocking variant of {@link Connection#execute(String, Request)}.
+   */
+  public CompletableFuture<ResultSetGroup> executeCompletableAsync(final String tableName,
+      final Request request) {
+    final String brokerHostPort = brokerSelector.selectBroker(tableName);
+    if (brokerHostPort == null) {
+      return CompletableFuture.failedFuture(new PinotClientException(
+          "Could not find broker to query for table: " + tableName));
+    }
+    return transport.executePinotQueryCompletableAsync(brokerHostPort, request)
+        .thenApply(response -> {
+          if (response.hasExceptions()) {
+            throw new PinotClientException(
+                "Query had processing exceptions: \n" + response.getExceptions());
+          }
+          return new ResultSetGroup(response);
+        });
+  }
+}
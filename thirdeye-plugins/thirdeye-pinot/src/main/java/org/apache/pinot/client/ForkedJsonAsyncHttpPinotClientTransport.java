@@ -20,6 +20,7 @@ import com.fasterxml.jackson.databind.node.ObjectNode;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
@@ -77,28 +78,8 @@ public class ForkedJsonAsyncHttpPinotClientTransport implements PinotClientTrans
   public Future<BrokerResponse> executePinotQueryAsync(String brokerAddress,
       final Request request) {
     try {
-      ObjectNode json = JsonNodeFactory.instance.objectNode();
-      String queryFormat = request.getQueryFormat();
-      json.put(queryFormat, request.getQuery());
-
-      final String url;
-      if (queryFormat.equalsIgnoreCase("sql")) {
-        url = _scheme + "://" + brokerAddress + "/query/sql";
-        json.put("queryOptions", "groupByMode=sql;responseFormat=sql");
-      } else {
-        url = _scheme + "://" + brokerAddress + "/query";
-      }
-
-      BoundRequestBuilder requestBuilder = _httpClient.preparePost(url);
-
-      if (_headers != null) {
-        _headers.forEach((k, v) -> requestBuilder.addHeader(k, v));
-      }
-
-      final Future<Response> response =
-          requestBuilder.addHeader("Content-Type", "application/json; charset=utf-8")
-              .setBody(json.toString())
-              .execute();
+      final String url = url(brokerAddress, request);
+      final Future<Response> response = prepareRequest(url, request).execute();
 
       return new BrokerResponseFuture(
           response,
@@ -110,6 +91,65 @@ public class ForkedJsonAsyncHttpPinotClientTransport implements PinotClientTrans
     }
   }
 
+  /**
+   * Non-blocking variant of {@link #executePinotQueryAsync(String, Request)}: no thread waits
+   * for the broker response. The response is parsed off the http client IO threads.
+   */
+  public CompletableFuture<BrokerResponse> executePinotQueryCompletableAsync(
+      final String brokerAddress, final Request request) {
+    try {
+      final String url = url(brokerAddress, request);
+      LOGGER.debug("Sending query {} to {}", request.getQuery(), url);
+      return prepareRequest(url, request)
+          .execute()
+          .toCompletableFuture()
+          .orTimeout(brokerResponseTimeoutMs, TimeUnit.MILLISECONDS)
+          .thenApplyAsync(ForkedJsonAsyncHttpPinotClientTransport::toBrokerResponse);
+    } catch (Exception e) {
+      return CompletableFuture.failedFuture(new PinotClientException(e));
+    }
+  }
+
+  private String url(final String brokerAddress, final Request request) {
+    if (request.getQueryFormat().equalsIgnoreCase("sql")) {
+      return _scheme + "://" + brokerAddress + "/query/sql";
+    }
+    return _scheme + "://" + brokerAddress + "/query";
+  }
+
+  private BoundRequestBuilder prepareRequest(final String url, final Request request) {
+    ObjectNode json = JsonNodeFactory.instance.objectNode();
+    String queryFormat = request.getQueryFormat();
+    json.put(queryFormat, request.getQuery());
+    if (queryFormat.equalsIgnoreCase("sql")) {
+      json.put("queryOptions", "groupByMode=sql;responseFormat=sql");
+    }
+
+    BoundRequestBuilder requestBuilder = _httpClient.preparePost(url);
+
+    if (_headers != null) {
+      _headers.forEach((k, v) -> requestBuilder.addHeader(k, v));
+    }
+
+    return requestBuilder.addHeader("Content-Type", "application/json; charset=utf-8")
+        .setBody(json.toString());
+  }
+
+  private static BrokerResponse toBrokerResponse(final Response httpResponse) {
+    LOGGER.debug("Completed query, HTTP status is {}", httpResponse.getStatusCode());
+
+    if (httpResponse.getStatusCode() != 200) {
+      throw new PinotClientException(
+          "Pinot returned HTTP status " + httpResponse.getStatusCode() + ", expected 200");
+    }
+    try {
+      String responseBody = httpResponse.getResponseBody(StandardCharsets.UTF_8);
+      return BrokerResponse.fromJson(OBJECT_READER.readTree(responseBody));
+    } catch (IOException e) {
+      throw new PinotClientException(e);
+    }
+  }
+
   @Override
   public BrokerResponse executeQuery(String brokerAddress, Request request)
       throws PinotClientException {
@@ -183,16 +223,7 @@ public class ForkedJsonAsyncHttpPinotClientTransport implements PinotClientTrans
         LOGGER.debug("Sending query {} to {}", _query, _url);
 
         Response httpResponse = _response.get(timeout, unit);
-
-        LOGGER.debug("Completed query, HTTP status is {}", httpResponse.getStatusCode());
-
-        if (httpResponse.getStatusCode() != 200) {
-          throw new PinotClientException(
-              "Pinot returned HTTP status " + httpResponse.getStatusCode() + ", expected 200");
-        }
-
-        String responseBody = httpResponse.getResponseBody(StandardCharsets.UTF_8);
-        return BrokerResponse.fromJson(OBJECT_READER.readTree(responseBody));
+        return toBrokerResponse(httpResponse);
       } catch (Exception e) {
         throw new ExecutionException(e);
       }
@@ -30,16 +30,17 @@ public class PinotConnectionBuilder {
 
   public Connection createConnection(final PinotThirdEyeDataSourceConfig config) {
     final String brokerUrl = config.getBrokerUrl();
-    final PinotClientTransport transport = buildTransport(config);
+    final ForkedJsonAsyncHttpPinotClientTransport transport = buildTransport(config);
 
     final Connection connection;
     if (brokerUrl != null && brokerUrl.trim().length() > 0) {
-      connection = ConnectionFactory.fromHostList(singletonList(brokerUrl), transport);
+      connection = new AsyncPinotConnection(new SimpleBrokerSelector(singletonList(brokerUrl)),
+          transport);
       LOG.info("Created pinot transport with brokers [{}]", brokerUrl);
     } else {
-      connection = ConnectionFactory.fromZookeeper(String.format("%s/%s",
+      connection = new AsyncPinotConnection(new DynamicBrokerSelector(String.format("%s/%s",
           config.getZookeeperUrl(),
-          config.getClusterName()), transport);
+          config.getClusterName())), transport);
       LOG.info("Created pinot transport with controller {}:{}",
           config.getControllerHost(),
           config.getControllerPort());
@@ -47,7 +48,7 @@ public class PinotConnectionBuilder {
     return connection;
   }
 
-  private PinotClientTransport buildTransport(
+  private ForkedJsonAsyncHttpPinotClientTransport buildTransport(
       final PinotThirdEyeDataSourceConfig config) {
     final ThirdEyeJsonAsyncHttpPinotClientTransportFactory factory =
         new ThirdEyeJsonAsyncHttpPinotClientTransportFactory();
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.plugins.datasource.pinot;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.DoubleSeries;
+import ai.startree.thirdeye.spi.dataframe.LongSeries;
+import ai.startree.thirdeye.spi.dataframe.Series.SeriesType;
+import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeDataFrameResultSet;
+import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeResultSetGroup;
+import java.util.concurrent.CompletableFuture;
+import org.apache.pinot.client.AsyncPinotConnection;
+import org.apache.pinot.client.PinotClientException;
+import org.apache.pinot.client.ResultSet;
+import org.apache.pinot.client.ResultSetGroup;
+import org.testng.annotations.Test;
+
+public class PinotResponseCacheLoaderTest {
+
+  private static final String[] COLUMNS = {"ts", "country", "views", "ratio", "zip"};
+  private static final String[] TYPES = {"LONG", "STRING", "INT", "DOUBLE", "STRING"};
+  private static final String[][] ROWS = {
+      {"1000", "US", "10", "0.5", "94000"},
+      {"2000", "FR", "null", "1.0", "75000"},
+      {"3000", "US", "30", "NaN", "10000"},
+  };
+
+  private static ResultSet resultTable() {
+    final ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.getGroupKeyLength()).thenReturn(0);
+    when(resultSet.getRowCount()).thenReturn(ROWS.length);
+    when(resultSet.getColumnCount()).thenReturn(COLUMNS.length);
+    when(resultSet.getColumnName(anyInt())).then(i -> COLUMNS[(int) i.getArgument(0)]);
+    when(resultSet.getColumnDataType(anyInt())).then(i -> TYPES[(int) i.getArgument(0)]);
+    when(resultSet.getString(anyInt(), anyInt())).then(
+        i -> ROWS[(int) i.getArgument(0)][(int) i.getArgument(1)]);
+    return resultSet;
+  }
+
+  @Test
+  public void testColumnsAreTyped() {
+    final ThirdEyeDataFrameResultSet resultSet = PinotResponseCacheLoader.fromPinotResultSet(
+        resultTable());
+    final DataFrame df = resultSet.getDataFrame();
+
+    assertThat(df.getSeriesNames()).containsExactlyInAnyOrder(COLUMNS);
+    assertThat(df.get("ts").type()).isEqualTo(SeriesType.LONG);
+    assertThat(df.getLongs("ts").values()).containsExactly(1000L, 2000L, 3000L);
+    assertThat(df.get("views").type()).isEqualTo(SeriesType.LONG);
+    assertThat(df.getLongs("views").values()).containsExactly(10L, LongSeries.NULL, 30L);
+    assertThat(df.get("ratio").type()).isEqualTo(SeriesType.DOUBLE);
+    assertThat(df.getDoubles("ratio").values()).containsExactly(0.5, 1.0, DoubleSeries.NULL);
+    assertThat(df.get("country").type()).isEqualTo(SeriesType.STRING);
+    assertThat(df.getStrings("country").values()).containsExactly("US", "FR", "US");
+    // STRING columns keep the type inference of the DataFrame builder
+    assertThat(df.get("zip").type()).isEqualTo(SeriesType.LONG);
+  }
+
+  @Test
+  public void testDimensionValuesAreInterned() {
+    final DataFrame df = PinotResponseCacheLoader.fromPinotResultSet(resultTable())
+        .getDataFrame();
+
+    final String[] countries = df.getStrings("country").values();
+    assertThat(countries[0]).isSameAs(countries[2]);
+  }
+
+  @Test
+  public void testGroupKeysAreStrings() {
+    final ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.getGroupKeyLength()).thenReturn(1);
+    when(resultSet.getGroupKeyColumnName(0)).thenReturn("zip");
+    when(resultSet.getGroupKeyString(0, 0)).thenReturn(new String("94000"));
+    when(resultSet.getGroupKeyString(1, 0)).thenReturn(new String("94000"));
+    when(resultSet.getRowCount()).thenReturn(2);
+    when(resultSet.getColumnCount()).thenReturn(1);
+    when(resultSet.getColumnName(0)).thenReturn("sum_views");
+    when(resultSet.getColumnDataType(0)).thenThrow(new UnsupportedOperationException());
+    when(resultSet.getString(0, 0)).thenReturn("1.0");
+    when(resultSet.getString(1, 0)).thenReturn("2.0");
+
+    final DataFrame df = PinotResponseCacheLoader.fromPinotResultSet(resultSet).getDataFrame();
+
+    assertThat(df.get("zip").type()).isEqualTo(SeriesType.STRING);
+    assertThat(df.getStrings("zip").values()[0]).isSameAs(df.getStrings("zip").values()[1]);
+    assertThat(df.get("sum_views").type()).isEqualTo(SeriesType.DOUBLE);
+    assertThat(df.getDoubles("sum_views").values()).containsExactly(1.0, 2.0);
+  }
+
+  @Test
+  public void testDataTableReusesTypedSeries() {
+    final ThirdEyeDataFrameResultSet resultSet = PinotResponseCacheLoader.fromPinotResultSet(
+        resultTable());
+    final DataFrame df = new ThirdEyeResultSetDataTable(resultSet).getDataFrame();
+
+    assertThat(df.getSeriesNames()).containsExactly(COLUMNS);
+    assertThat(df.get("ts").type()).isEqualTo(SeriesType.LONG);
+    assertThat(df.get("ratio").type()).isEqualTo(SeriesType.DOUBLE);
+    assertThat(df.get("country").type()).isEqualTo(SeriesType.STRING);
+    assertThat(df.get("zip").type()).isEqualTo(SeriesType.LONG);
+    // the cached result set is not shared
+    assertThat(df.getLongs("ts").values()).isNotSameAs(
+        resultSet.getDataFrame().getLongs("ts").values());
+  }
+
+  @Test
+  public void testLoadAsyncDoesNotBlock() throws Exception {
+    final CompletableFuture<ResultSetGroup> response = new CompletableFuture<>();
+    final AsyncPinotConnection connection = mock(AsyncPinotConnection.class);
+    when(connection.executeCompletableAsync(any(), any())).thenReturn(response);
+    final PinotConnectionManager connectionManager = mock(PinotConnectionManager.class);
+    when(connectionManager.get()).thenReturn(connection);
+    final PinotResponseCacheLoader loader = new PinotResponseCacheLoader(connectionManager);
+
+    final CompletableFuture<ThirdEyeResultSetGroup> result = loader.loadAsync(
+        new PinotQuery("select * from table", "table", true));
+    assertThat(result).isNotDone();
+
+    final ResultSetGroup resultSetGroup = mock(ResultSetGroup.class);
+    when(resultSetGroup.getResultSetCount()).thenReturn(1);
+    final ResultSet resultSet = resultTable();
+    when(resultSetGroup.getResultSet(0)).thenReturn(resultSet);
+    response.complete(resultSetGroup);
+
+    assertThat(result.get().get(0).getRowCount()).isEqualTo(3);
+    assertThat(result.get().get(0).getLong(1, 0)).isEqualTo(2000L);
+  }
+
+  @Test
+  public void testLoadAsyncFailure() {
+    final AsyncPinotConnection connection = mock(AsyncPinotConnection.class);
+    when(connection.executeCompletableAsync(any(), any())).thenReturn(
+        CompletableFuture.failedFuture(new PinotClientException("broker down")));
+    final PinotConnectionManager connectionManager = mock(PinotConnectionManager.class);
+    when(connectionManager.get()).thenReturn(connection);
+
+    final CompletableFuture<ThirdEyeResultSetGroup> result = new PinotResponseCacheLoader(
+        connectionManager).loadAsync(new PinotQuery("select * from table", "table", true));
+    assertThat(result).isCompletedExceptionally();
+  }
+}
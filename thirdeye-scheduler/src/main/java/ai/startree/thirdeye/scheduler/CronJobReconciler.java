@@ -0,0 +1,192 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.scheduler;
+
+import static ai.startree.thirdeye.scheduler.JobSchedulerService.getIdFromJobKey;
+import static ai.startree.thirdeye.spi.Constants.CRON_TIMEZONE;
+
+import ai.startree.thirdeye.spi.datalayer.CronSchedule;
+import ai.startree.thirdeye.spi.datalayer.bao.CronScheduleManager;
+import ai.startree.thirdeye.spi.task.TaskType;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TimeZone;
+import org.quartz.CronScheduleBuilder;
+import org.quartz.CronTrigger;
+import org.quartz.Job;
+import org.quartz.JobBuilder;
+import org.quartz.JobDetail;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.Trigger;
+import org.quartz.TriggerBuilder;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reconciles the Quartz jobs of a task type with the cron schedules in the database.
+ *
+ * A run reads the ids of the active entities and the schedules updated since the previous run.
+ * Both are read from the index table: entities are not loaded. Then the job set is diffed in
+ * bulk: jobs of entities that are deleted or inactive are stopped, active entities that are not
+ * scheduled are started, and jobs whose cron changed are restarted.
+ */
+public class CronJobReconciler {
+
+  /**
+   * Update times are set by the clock of the server that writes the entity, before the commit.
+   * Runs overlap by this duration to catch late commits and late clocks.
+   */
+  static final Duration UPDATE_TIME_OVERLAP = Duration.ofMinutes(5);
+
+  private static final Logger LOG = LoggerFactory.getLogger(CronJobReconciler.class);
+
+  private final Scheduler scheduler;
+  private final CronScheduleManager cronScheduleManager;
+  private final TaskType taskType;
+  private final Class<? extends Job> jobClass;
+
+  private Timestamp lastUpdateTime = null;
+
+  public CronJobReconciler(final Scheduler scheduler,
+      final CronScheduleManager cronScheduleManager,
+      final TaskType taskType,
+      final Class<? extends Job> jobClass) {
+    this.scheduler = scheduler;
+    this.cronScheduleManager = cronScheduleManager;
+    this.taskType = taskType;
+    this.jobClass = jobClass;
+  }
+
+  public synchronized void reconcile() throws SchedulerException {
+    final Set<Long> activeIds = new HashSet<>(cronScheduleManager.findActiveIds());
+    final Map<Long, JobKey> scheduledJobs = new HashMap<>();
+    for (final JobKey jobKey : getScheduledJobs()) {
+      scheduledJobs.put(getIdFromJobKey(jobKey.getName()), jobKey);
+    }
+
+    for (final Map.Entry<Long, JobKey> scheduledJob : scheduledJobs.entrySet()) {
+      if (!activeIds.contains(scheduledJob.getKey())) {
+        LOG.info("Found a scheduled {} job, but deleted or inactive in the database: {}",
+            taskType, scheduledJob.getKey());
+        stopJob(scheduledJob.getValue());
+      }
+    }
+
+    final Map<Long, CronSchedule> schedules = new HashMap<>();
+    for (final CronSchedule schedule : findUpdatedSchedules()) {
+      schedules.put(schedule.getId(), schedule);
+    }
+    final List<Long> notScheduledIds = new ArrayList<>();
+    for (final Long id : activeIds) {
+      if (!scheduledJobs.containsKey(id) && !schedules.containsKey(id)) {
+        notScheduledIds.add(id);
+      }
+    }
+    if (!notScheduledIds.isEmpty()) {
+      for (final CronSchedule schedule : cronScheduleManager.findSchedulesByIds(notScheduledIds)) {
+        schedules.put(schedule.getId(), schedule);
+      }
+    }
+
+    for (final CronSchedule schedule : schedules.values()) {
+      if (schedule.getCron() == null) {
+        LOG.warn("No cron for {} id {}. Skipping it.", taskType, schedule.getId());
+        continue;
+      }
+      if (activeIds.contains(schedule.getId())) {
+        try {
+          startOrUpdateJob(schedule, scheduledJobs.get(schedule.getId()));
+        } catch (final Exception e) {
+          LOG.error("Error creating/updating {} job for id {}", taskType, schedule.getId(), e);
+        }
+      }
+    }
+  }
+
+  private List<CronSchedule> findUpdatedSchedules() {
+    final Timestamp updatedSince = lastUpdateTime == null
+        ? null
+        : new Timestamp(lastUpdateTime.getTime() - UPDATE_TIME_OVERLAP.toMillis());
+    final List<CronSchedule> schedules = cronScheduleManager.findSchedulesUpdatedSince(
+        updatedSince);
+    for (final CronSchedule schedule : schedules) {
+      final Timestamp updateTime = schedule.getUpdateTime();
+      if (updateTime != null && (lastUpdateTime == null || updateTime.after(lastUpdateTime))) {
+        lastUpdateTime = updateTime;
+      }
+    }
+    return schedules;
+  }
+
+  private void startOrUpdateJob(final CronSchedule schedule, final JobKey scheduledJobKey)
+      throws SchedulerException {
+    if (scheduledJobKey == null) {
+      startJob(schedule);
+      return;
+    }
+    final String cronInSchedule = getCron(scheduledJobKey);
+    if (!Objects.equals(schedule.getCron(), cronInSchedule)) {
+      LOG.info("Cron expression for {} job {} has been changed from {} to {}. "
+              + "Restarting schedule",
+          taskType, schedule.getId(), cronInSchedule, schedule.getCron());
+      stopJob(scheduledJobKey);
+      startJob(schedule);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private String getCron(final JobKey jobKey) throws SchedulerException {
+    final List<Trigger> triggers = (List<Trigger>) scheduler.getTriggersOfJob(jobKey);
+    return triggers.isEmpty() ? null : ((CronTrigger) triggers.get(0)).getCronExpression();
+  }
+
+  private void startJob(final CronSchedule schedule) throws SchedulerException {
+    final JobDetail job = JobBuilder.newJob(jobClass)
+        .withIdentity(getJobKey(schedule.getId()))
+        .build();
+    final Trigger trigger = TriggerBuilder.newTrigger()
+        .withSchedule(CronScheduleBuilder.cronSchedule(schedule.getCron())
+            .inTimeZone(TimeZone.getTimeZone(CRON_TIMEZONE)))
+        .build();
+    scheduler.scheduleJob(job, trigger);
+    LOG.info("Scheduled {} job {}", taskType, job.getKey().getName());
+  }
+
+  private void stopJob(final JobKey jobKey) {
+    try {
+      scheduler.deleteJob(jobKey);
+      LOG.info("Stopped {} job {}", taskType, jobKey.getName());
+    } catch (final SchedulerException e) {
+      LOG.error("Error stopping job {}", jobKey, e);
+    }
+  }
+
+  public JobKey getJobKey(final Long id) {
+    return new JobKey(String.format("%s_%d", taskType, id), taskType.toString());
+  }
+
+  public Set<JobKey> getScheduledJobs() throws SchedulerException {
+    return scheduler.getJobKeys(GroupMatcher.jobGroupEquals(taskType.toString()));
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.scheduler;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.scheduler.job.DetectionPipelineJob;
+import ai.startree.thirdeye.spi.datalayer.CronSchedule;
+import ai.startree.thirdeye.spi.datalayer.bao.AlertManager;
+import ai.startree.thirdeye.spi.task.TaskType;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Properties;
+import org.quartz.CronTrigger;
+import org.quartz.Scheduler;
+import org.quartz.impl.StdSchedulerFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class CronJobReconcilerTest {
+
+  private static final String CRON = "0 0 * * * ? *";
+  private static final String NEW_CRON = "0 0 0 * * ? *";
+
+  private Scheduler scheduler;
+  private AlertManager alertManager;
+  private CronJobReconciler reconciler;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    final Properties properties = new Properties();
+    properties.setProperty("org.quartz.scheduler.instanceName", "CronJobReconcilerTest");
+    properties.setProperty("org.quartz.threadPool.threadCount", "1");
+    scheduler = new StdSchedulerFactory(properties).getScheduler();
+    alertManager = mock(AlertManager.class);
+    reconciler = new CronJobReconciler(scheduler, alertManager, TaskType.DETECTION,
+        DetectionPipelineJob.class);
+  }
+
+  @AfterMethod
+  public void tearDown() throws Exception {
+    scheduler.shutdown();
+  }
+
+  private static CronSchedule schedule(final long id, final String cron, final long updateTime) {
+    return new CronSchedule()
+        .setId(id)
+        .setCron(cron)
+        .setActive(true)
+        .setUpdateTime(new Timestamp(updateTime));
+  }
+
+  private String scheduledCron(final long id) throws Exception {
+    return ((CronTrigger) scheduler.getTriggersOfJob(reconciler.getJobKey(id)).get(0))
+        .getCronExpression();
+  }
+
+  @Test
+  public void testActiveEntitiesAreScheduled() throws Exception {
+    when(alertManager.findActiveIds()).thenReturn(List.of(1L, 2L));
+    when(alertManager.findSchedulesUpdatedSince(null)).thenReturn(List.of(
+        schedule(1L, CRON, 1000L),
+        schedule(2L, CRON, 2000L),
+        schedule(3L, CRON, 3000L).setActive(false)));
+
+    reconciler.reconcile();
+
+    assertThat(reconciler.getScheduledJobs()).containsExactlyInAnyOrder(
+        reconciler.getJobKey(1L), reconciler.getJobKey(2L));
+    verify(alertManager, never()).findSchedulesByIds(anyList());
+  }
+
+  @Test
+  public void testOnlyUpdatedSchedulesAreRead() throws Exception {
+    when(alertManager.findActiveIds()).thenReturn(List.of(1L, 2L));
+    when(alertManager.findSchedulesUpdatedSince(null)).thenReturn(List.of(
+        schedule(1L, CRON, 1000L),
+        schedule(2L, CRON, 2_000_000L)));
+    reconciler.reconcile();
+
+    final Timestamp updatedSince = new Timestamp(
+        2_000_000L - CronJobReconciler.UPDATE_TIME_OVERLAP.toMillis());
+    when(alertManager.findSchedulesUpdatedSince(updatedSince)).thenReturn(List.of(
+        schedule(2L, NEW_CRON, 2_000_001L)));
+    reconciler.reconcile();
+
+    assertThat(scheduledCron(1L)).isEqualTo(CRON);
+    assertThat(scheduledCron(2L)).isEqualTo(NEW_CRON);
+    verify(alertManager, never()).findSchedulesByIds(anyList());
+  }
+
+  @Test
+  public void testInactiveAndDeletedEntitiesAreStopped() throws Exception {
+    when(alertManager.findActiveIds()).thenReturn(List.of(1L, 2L));
+    when(alertManager.findSchedulesUpdatedSince(null)).thenReturn(List.of(
+        schedule(1L, CRON, 1000L),
+        schedule(2L, CRON, 2000L)));
+    reconciler.reconcile();
+
+    when(alertManager.findActiveIds()).thenReturn(List.of(1L));
+    when(alertManager.findSchedulesUpdatedSince(any())).thenReturn(List.of());
+    reconciler.reconcile();
+
+    assertThat(reconciler.getScheduledJobs()).containsExactly(reconciler.getJobKey(1L));
+  }
+
+  @Test
+  public void testActiveEntitiesNotScheduledAreRetried() throws Exception {
+    when(alertManager.findActiveIds()).thenReturn(List.of(1L));
+    when(alertManager.findSchedulesUpdatedSince(null)).thenReturn(List.of(
+        schedule(1L, "not a cron", 1000L)));
+    reconciler.reconcile();
+    assertThat(reconciler.getScheduledJobs()).isEmpty();
+
+    when(alertManager.findSchedulesUpdatedSince(any())).thenReturn(List.of());
+    when(alertManager.findSchedulesByIds(List.of(1L))).thenReturn(List.of(
+        schedule(1L, CRON, 1000L)));
+    reconciler.reconcile();
+
+    assertThat(reconciler.getScheduledJobs()).containsExactly(reconciler.getJobKey(1L));
+  }
+
+  @Test
+  public void testSchedulesWithoutCronAreSkipped() throws Exception {
+    when(alertManager.findActiveIds()).thenReturn(List.of(1L, 2L));
+    when(alertManager.findSchedulesUpdatedSince(null)).thenReturn(List.of(
+        schedule(1L, null, 1000L),
+        schedule(2L, CRON, 2000L)));
+    reconciler.reconcile();
+
+    assertThat(reconciler.getScheduledJobs()).containsExactly(reconciler.getJobKey(2L));
+  }
+}
@@ -37,7 +37,10 @@ import javax.ws.rs.core.MultivaluedMap;
 
 public class DaoFilterBuilder {
 
-  private static final ImmutableSet<String> KEYWORDS = ImmutableSet.of("limit");
+  /**
+   * Query parameters that are not filters. "after" and "fields" are read by the CrudResource.
+   */
+  private static final ImmutableSet<String> KEYWORDS = ImmutableSet.of("limit", "after", "fields");
   private static final ImmutableMap<String, OPER> OPERATOR_MAP = ImmutableMap.<String, OPER>builder()
       .put("eq", OPER.EQ)
       .put("gt", OPER.GT)
@@ -100,6 +103,9 @@ public class DaoFilterBuilder {
       final Object[] objects = e.getValue().toArray();
       predicates.add(toPredicate(columnName, objects));
     }
+    if (predicates.isEmpty()) {
+      return null;
+    }
     return Predicate.AND(predicates.toArray(new Predicate[]{}));
   }
 }
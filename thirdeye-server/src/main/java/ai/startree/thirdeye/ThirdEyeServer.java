@@ -23,6 +23,8 @@ import ai.startree.thirdeye.auth.AuthDisabledRequestFilter;
 import ai.startree.thirdeye.auth.ThirdEyePrincipal;
 import ai.startree.thirdeye.config.ThirdEyeServerConfiguration;
 import ai.startree.thirdeye.datalayer.DataSourceBuilder;
+import ai.startree.thirdeye.datasource.cache.DataSourceCache;
+import ai.startree.thirdeye.datasource.loader.DefaultAggregationLoader;
 import ai.startree.thirdeye.detectionpipeline.PlanExecutor;
 import ai.startree.thirdeye.healthcheck.DatabaseHealthCheck;
 import ai.startree.thirdeye.json.ThirdEyeJsonProcessingExceptionMapper;
@@ -171,6 +173,12 @@ public class ThirdEyeServer extends Application<ThirdEyeServerConfiguration> {
 
         /* Shutdown the Plan Executor threads */
         injector.getInstance(PlanExecutor.class).close();
+
+        /* Shutdown the breakdown query threads */
+        injector.getInstance(DefaultAggregationLoader.class).close();
+
+        /* Shutdown the data source refresh and query threads */
+        injector.getInstance(DataSourceCache.class).close();
       }
     };
   }
@@ -33,7 +33,7 @@ public class ThirdEyeServerConfiguration extends Configuration {
   private AuthConfiguration authConfiguration;
 
   @JsonProperty("database")
-  private DatabaseConfiguration databaseConfiguration;
+  private DatabaseConfiguration databaseConfiguration = new DatabaseConfiguration();
 
   @JsonProperty("swagger")
   private SwaggerBundleConfiguration swaggerBundleConfiguration;
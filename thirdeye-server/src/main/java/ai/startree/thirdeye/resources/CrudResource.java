@@ -35,14 +35,26 @@ import ai.startree.thirdeye.spi.datalayer.DaoFilter;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
 import ai.startree.thirdeye.spi.datalayer.bao.AbstractManager;
 import ai.startree.thirdeye.spi.datalayer.dto.AbstractDTO;
+import ai.startree.thirdeye.spi.json.ThirdEyeSerialization;
 import com.codahale.metrics.annotation.Timed;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.collect.AbstractIterator;
 import com.google.common.collect.ImmutableMap;
 import io.dropwizard.auth.Auth;
 import io.swagger.annotations.ApiParam;
 import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.ws.rs.DELETE;
@@ -64,6 +76,11 @@ import org.slf4j.LoggerFactory;
 public abstract class CrudResource<ApiT extends ThirdEyeCrudApi<ApiT>, DtoT extends AbstractDTO> {
 
   private static final Logger log = LoggerFactory.getLogger(CrudResource.class);
+  private static final ObjectMapper OBJECT_MAPPER = ThirdEyeSerialization.getObjectMapper();
+  /**
+   * Number of entities loaded from the database at a time when listing entities.
+   */
+  static final int PAGE_SIZE = 1000;
 
   protected final AbstractManager<DtoT> dtoManager;
   protected final ImmutableMap<String, String> apiToIndexMap;
@@ -107,7 +124,10 @@ public abstract class CrudResource<ApiT extends ThirdEyeCrudApi<ApiT>, DtoT exte
     updated.setId(id);
     updateGateKeeper(principal, existing, updated);
 
-    // ready to be persisted to db.
+    dtoManager.update(updated);
+
+    // Allow downstream classes to react to the persisted changes
+    postUpdatedDto(existing, updated);
     return updated;
   }
 
@@ -149,6 +169,17 @@ public abstract class CrudResource<ApiT extends ThirdEyeCrudApi<ApiT>, DtoT exte
     // By default, do nothing.
   }
 
+  /**
+   * Called after the updated object is persisted. Use it for side effects that must not be
+   * visible before the update, for instance cache evictions.
+   *
+   * @param existing the old object
+   * @param updated the persisted object
+   */
+  protected void postUpdatedDto(final DtoT existing, final DtoT updated) {
+    // By default, do nothing.
+  }
+
   protected DtoT toDto(final ApiT api) {
     throw new UnsupportedOperationException("Not implemented");
   }
@@ -189,6 +220,17 @@ public abstract class CrudResource<ApiT extends ThirdEyeCrudApi<ApiT>, DtoT exte
     dtoManager.delete(dto);
   }
 
+  /**
+   * Lists the entities by ascending id. The response is streamed: entities are loaded from the
+   * database {@link #PAGE_SIZE} at a time, as the response is written.
+   *
+   * Query parameters:
+   * - limit: max number of entities to return
+   * - after: keyset cursor. Only entities with an id greater than this value are returned. Pass
+   * the id of the last entity of a page to get the next page.
+   * - fields: comma separated list of the top level fields to return. All fields by default.
+   * - any field of the apiToIndexMap: filter
+   */
   @GET
   @Timed
   @Produces(MediaType.APPLICATION_JSON)
@@ -197,12 +239,80 @@ public abstract class CrudResource<ApiT extends ThirdEyeCrudApi<ApiT>, DtoT exte
       @Context UriInfo uriInfo
   ) {
     final MultivaluedMap<String, String> queryParameters = uriInfo.getQueryParameters();
-    final List<DtoT> results = queryParameters.size() > 0
-        ? dtoManager.filter(new DaoFilterBuilder(apiToIndexMap).buildFilter(queryParameters))
-        : dtoManager.findAll();
+    final DaoFilter daoFilter = new DaoFilterBuilder(apiToIndexMap).buildFilter(queryParameters);
+    final long after = optional(queryParameters.getFirst("after"))
+        .map(Long::valueOf)
+        .orElse(0L);
+    final Set<String> fields = parseFields(queryParameters.get("fields"));
 
     final RequestCache cache = createRequestCache();
-    return respondOk(results.stream().map(dto -> toApi(dto, cache)));
+    final Stream<ApiT> results = streamByPages(daoFilter, after).map(dto -> toApi(dto, cache));
+    if (fields.isEmpty()) {
+      return respondOk(results);
+    }
+    return Response.ok(results.map(api -> project(api, fields))).build();
+  }
+
+  /**
+   * Streams the entities matching the filter by ascending id, starting after the given id.
+   * A page is only loaded when the previous one is consumed.
+   */
+  private Stream<DtoT> streamByPages(final DaoFilter daoFilter, final long after) {
+    final Integer limit = daoFilter.getLimit();
+    final Iterator<DtoT> iterator = new AbstractIterator<>() {
+      private long cursor = after;
+      private int count = 0;
+      private boolean lastPage = false;
+      private Iterator<DtoT> page = Collections.emptyIterator();
+
+      @Override
+      protected DtoT computeNext() {
+        if (limit != null && count >= limit) {
+          return endOfData();
+        }
+        if (!page.hasNext()) {
+          if (lastPage) {
+            return endOfData();
+          }
+          final int pageSize = limit == null ? PAGE_SIZE : Math.min(PAGE_SIZE, limit - count);
+          final Predicate afterCursor = Predicate.GT("baseId", cursor);
+          final List<DtoT> dtos = dtoManager.filter(new DaoFilter()
+              .setPredicate(daoFilter.getPredicate() == null
+                  ? afterCursor
+                  : Predicate.AND(daoFilter.getPredicate(), afterCursor))
+              .setOrderByKey("baseId")
+              .setLimit(pageSize));
+          lastPage = dtos.size() < pageSize;
+          page = dtos.iterator();
+          if (!page.hasNext()) {
+            return endOfData();
+          }
+        }
+        final DtoT dto = page.next();
+        cursor = dto.getId();
+        count++;
+        return dto;
+      }
+    };
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+        Spliterator.ORDERED | Spliterator.NONNULL), false);
+  }
+
+  private static Set<String> parseFields(@Nullable final List<String> fieldsParams) {
+    if (fieldsParams == null) {
+      return Set.of();
+    }
+    return fieldsParams.stream()
+        .flatMap(fields -> Arrays.stream(fields.split(",")))
+        .map(String::trim)
+        .filter(field -> !field.isEmpty())
+        .collect(Collectors.toSet());
+  }
+
+  private static ObjectNode project(final Object api, final Set<String> fields) {
+    final ObjectNode node = OBJECT_MAPPER.valueToTree(api);
+    node.retain(fields);
+    return node;
   }
 
   @GET
@@ -286,7 +396,6 @@ public abstract class CrudResource<ApiT extends ThirdEyeCrudApi<ApiT>, DtoT exte
     final RequestCache cache = createRequestCache();
     return list.stream()
         .map(o -> updateDto(principal, o))
-        .peek(dtoManager::update)
         .map(dto -> toApi(dto, cache))
         .collect(Collectors.toList());
   }
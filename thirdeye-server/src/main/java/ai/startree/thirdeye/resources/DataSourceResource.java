@@ -97,11 +97,10 @@ public class DataSourceResource extends CrudResource<DataSourceApi, DataSourceDT
   }
 
   @Override
-  protected void prepareUpdatedDto(
-      final ThirdEyePrincipal principal,
-      final DataSourceDTO existing,
-      final DataSourceDTO updated) {
+  protected void postUpdatedDto(final DataSourceDTO existing, final DataSourceDTO updated) {
+    // evicted after the update: a concurrent reload cannot cache the old version
     dataSourceCache.removeDataSource(existing.getName());
+    dataSourceCache.removeDataSource(updated.getName());
   }
 
   @POST
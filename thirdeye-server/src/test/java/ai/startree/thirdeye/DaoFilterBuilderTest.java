@@ -18,8 +18,12 @@ import static ai.startree.thirdeye.DaoFilterBuilder.toPredicate;
 import static ai.startree.thirdeye.spi.util.Pair.pair;
 import static org.assertj.core.api.Assertions.assertThat;
 
+import ai.startree.thirdeye.spi.datalayer.DaoFilter;
 import ai.startree.thirdeye.spi.datalayer.Predicate;
 import ai.startree.thirdeye.spi.datalayer.Predicate.OPER;
+import com.google.common.collect.ImmutableMap;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
 import org.testng.annotations.Test;
 
 public class DaoFilterBuilderTest {
@@ -32,6 +36,23 @@ public class DaoFilterBuilderTest {
     assertThat(toPair("[lte]-1")).isEqualTo(pair(OPER.LE, "-1"));
   }
 
+  @Test
+  public void testKeywordsAreNotFilters() {
+    final MultivaluedMap<String, String> queryParameters = new MultivaluedHashMap<>();
+    queryParameters.putSingle("limit", "10");
+    queryParameters.putSingle("after", "100");
+    queryParameters.putSingle("fields", "id,name");
+    final DaoFilter daoFilter = new DaoFilterBuilder(ImmutableMap.of("name", "name"))
+        .buildFilter(queryParameters);
+    assertThat(daoFilter.getLimit()).isEqualTo(10);
+    assertThat(daoFilter.getPredicate()).isNull();
+
+    queryParameters.putSingle("name", "abcd");
+    assertThat(new DaoFilterBuilder(ImmutableMap.of("name", "name"))
+        .buildFilter(queryParameters)
+        .getPredicate()).isEqualTo(Predicate.AND(Predicate.AND(Predicate.EQ("name", "abcd"))));
+  }
+
   @Test
   public void testToOrPredicate() {
     assertThat(toPredicate("col", new Object[]{
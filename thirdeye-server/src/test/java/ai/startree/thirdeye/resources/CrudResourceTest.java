@@ -18,18 +18,31 @@ import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import ai.startree.thirdeye.auth.ThirdEyePrincipal;
 import ai.startree.thirdeye.datalayer.bao.AbstractManagerImpl;
 import ai.startree.thirdeye.datalayer.dao.GenericPojoDao;
 import ai.startree.thirdeye.spi.api.ThirdEyeCrudApi;
+import ai.startree.thirdeye.spi.datalayer.DaoFilter;
+import ai.startree.thirdeye.spi.datalayer.Predicate;
 import ai.startree.thirdeye.spi.datalayer.dto.AbstractDTO;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.common.collect.ImmutableMap;
 import com.nimbusds.jwt.JWTClaimsSet;
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.ws.rs.core.MultivaluedHashMap;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.UriInfo;
+import org.mockito.ArgumentCaptor;
 import org.mockito.stubbing.Answer;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
@@ -96,6 +109,69 @@ public class CrudResourceTest {
     assertThat(responseApi.getCreateTime().before(responseApi.getUpdateTime())).isTrue();
   }
 
+  @Test
+  public void getAllStreamsByPagesTest() {
+    final DummyManager pagedManager = mock(DummyManager.class);
+    when(pagedManager.filter(any(DaoFilter.class)))
+        .thenReturn(dtos(1, CrudResource.PAGE_SIZE))
+        .thenReturn(dtos(CrudResource.PAGE_SIZE + 1, 2));
+    final DummyResource pagedResource = new DummyResource(pagedManager, ImmutableMap.of());
+
+    final Stream<?> response = (Stream<?>) pagedResource.getAll(getPrincipal(emails.get(0)),
+        uriInfo(new MultivaluedHashMap<>())).getEntity();
+    verify(pagedManager, never()).filter(any(DaoFilter.class));
+
+    assertThat(response.count()).isEqualTo(CrudResource.PAGE_SIZE + 2);
+    final ArgumentCaptor<DaoFilter> filters = ArgumentCaptor.forClass(DaoFilter.class);
+    verify(pagedManager, times(2)).filter(filters.capture());
+    assertThat(filters.getAllValues().get(0).getPredicate()).isEqualTo(Predicate.GT("baseId", 0L));
+    assertThat(filters.getAllValues().get(1).getPredicate())
+        .isEqualTo(Predicate.GT("baseId", (long) CrudResource.PAGE_SIZE));
+    assertThat(filters.getAllValues().get(1).getOrderByKey()).isEqualTo("baseId");
+  }
+
+  @Test
+  public void getAllWithLimitAndFieldsTest() {
+    final DummyManager pagedManager = mock(DummyManager.class);
+    when(pagedManager.filter(any(DaoFilter.class))).thenReturn(dtos(11, 2));
+    final DummyResource pagedResource = new DummyResource(pagedManager, ImmutableMap.of());
+    final MultivaluedMap<String, String> queryParameters = new MultivaluedHashMap<>();
+    queryParameters.putSingle("limit", "2");
+    queryParameters.putSingle("after", "10");
+    queryParameters.putSingle("fields", "id,data");
+
+    final List<?> response = ((Stream<?>) pagedResource.getAll(getPrincipal(emails.get(0)),
+        uriInfo(queryParameters)).getEntity()).collect(Collectors.toList());
+
+    assertThat(response).hasSize(2);
+    final ObjectNode first = (ObjectNode) response.get(0);
+    assertThat(first.get("id").asLong()).isEqualTo(11L);
+    assertThat(first.get("data").asText()).isEqualTo("data11");
+    assertThat(first.has("createdBy")).isFalse();
+
+    final ArgumentCaptor<DaoFilter> filter = ArgumentCaptor.forClass(DaoFilter.class);
+    verify(pagedManager, times(1)).filter(filter.capture());
+    assertThat(filter.getValue().getPredicate()).isEqualTo(Predicate.GT("baseId", 10L));
+    assertThat(filter.getValue().getLimit()).isEqualTo(2);
+  }
+
+  private static List<DummyDto> dtos(final long firstId, final int count) {
+    final List<DummyDto> dtos = new ArrayList<>();
+    for (long id = firstId; id < firstId + count; id++) {
+      final DummyDto dto = new DummyDto().setData("data" + id);
+      dto.setId(id);
+      dto.setCreatedBy("tester");
+      dtos.add(dto);
+    }
+    return dtos;
+  }
+
+  private static UriInfo uriInfo(final MultivaluedMap<String, String> queryParameters) {
+    final UriInfo uriInfo = mock(UriInfo.class);
+    when(uriInfo.getQueryParameters()).thenReturn(queryParameters);
+    return uriInfo;
+  }
+
   private ThirdEyePrincipal getPrincipal(String name) {
     return new ThirdEyePrincipal(new JWTClaimsSet.Builder().claim(NAME_CLAIM, name).build());
   }
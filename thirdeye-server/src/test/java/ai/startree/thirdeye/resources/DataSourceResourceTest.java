@@ -14,6 +14,9 @@
 package ai.startree.thirdeye.resources;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -21,11 +24,15 @@ import ai.startree.thirdeye.auth.ThirdEyePrincipal;
 import ai.startree.thirdeye.core.DataSourceOnboarder;
 import ai.startree.thirdeye.datasource.cache.DataSourceCache;
 import ai.startree.thirdeye.spi.ThirdEyeStatus;
+import ai.startree.thirdeye.spi.api.DataSourceApi;
 import ai.startree.thirdeye.spi.api.StatusApi;
 import ai.startree.thirdeye.spi.api.StatusListApi;
 import ai.startree.thirdeye.spi.datalayer.bao.DataSourceManager;
+import ai.startree.thirdeye.spi.datalayer.dto.DataSourceDTO;
 import ai.startree.thirdeye.spi.datasource.ThirdEyeDataSource;
+import java.util.List;
 import javax.ws.rs.core.Response;
+import org.mockito.InOrder;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -35,13 +42,15 @@ public class DataSourceResourceTest {
   private final ThirdEyePrincipal principal = new ThirdEyePrincipal("test");
   private ThirdEyeDataSource dataSource;
   private DataSourceCache dataSourceCache;
+  private DataSourceManager dataSourceManager;
   private DataSourceResource dataSourceResource;
 
   @BeforeMethod
   void setup() {
     dataSource = mock(ThirdEyeDataSource.class);
     dataSourceCache = mock(DataSourceCache.class);
-    dataSourceResource = new DataSourceResource(mock(DataSourceManager.class),
+    dataSourceManager = mock(DataSourceManager.class);
+    dataSourceResource = new DataSourceResource(dataSourceManager,
         dataSourceCache,
         mock(DataSourceOnboarder.class));
   }
@@ -73,4 +82,20 @@ public class DataSourceResourceTest {
     final StatusApi statusApi = entity.getList().get(0);
     assertThat(statusApi.getCode()).isEqualTo(ThirdEyeStatus.ERR_DATASOURCE_VALIDATION_FAILED);
   }
+
+  @Test
+  public void testUpdateEvictsTheDataSourceAfterTheUpdate() {
+    final DataSourceDTO existing = new DataSourceDTO().setName(dataSourceName).setType("pinot");
+    existing.setId(1L);
+    when(dataSourceManager.findById(1L)).thenReturn(existing);
+
+    dataSourceResource.internalEditMultiple(principal, List.of(new DataSourceApi()
+        .setId(1L)
+        .setName(dataSourceName)
+        .setType("pinot")));
+
+    final InOrder inOrder = inOrder(dataSourceManager, dataSourceCache);
+    inOrder.verify(dataSourceManager).update(any(DataSourceDTO.class));
+    inOrder.verify(dataSourceCache, atLeastOnce()).removeDataSource(dataSourceName);
+  }
 }
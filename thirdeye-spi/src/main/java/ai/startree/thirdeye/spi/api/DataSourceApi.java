@@ -28,6 +28,10 @@ public class DataSourceApi implements ThirdEyeCrudApi<DataSourceApi> {
   private String type;
   private Map<String, Object> properties;
   private List<DataSourceMetaApi> metaList;
+  /**
+   * Maximum number of queries run concurrently on the data source. Unlimited if null.
+   */
+  private Integer maxConcurrentQueries;
 
   @Override
   public Long getId() {
@@ -78,6 +82,15 @@ public class DataSourceApi implements ThirdEyeCrudApi<DataSourceApi> {
     return this;
   }
 
+  public Integer getMaxConcurrentQueries() {
+    return maxConcurrentQueries;
+  }
+
+  public DataSourceApi setMaxConcurrentQueries(final Integer maxConcurrentQueries) {
+    this.maxConcurrentQueries = maxConcurrentQueries;
+    return this;
+  }
+
   @Override
   public String toString() {
     return ToStringBuilder.reflectionToString(this);
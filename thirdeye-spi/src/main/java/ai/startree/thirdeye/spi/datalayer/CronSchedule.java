@@ -0,0 +1,64 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.datalayer;
+
+import java.sql.Timestamp;
+
+/**
+ * The scheduling fields of an entity run on a cron: alerts and subscription groups. Read from the
+ * index tables, without loading the entity.
+ */
+public class CronSchedule {
+
+  private Long id;
+  private String cron;
+  private boolean active;
+  private Timestamp updateTime;
+
+  public Long getId() {
+    return id;
+  }
+
+  public CronSchedule setId(final Long id) {
+    this.id = id;
+    return this;
+  }
+
+  public String getCron() {
+    return cron;
+  }
+
+  public CronSchedule setCron(final String cron) {
+    this.cron = cron;
+    return this;
+  }
+
+  public boolean isActive() {
+    return active;
+  }
+
+  public CronSchedule setActive(final boolean active) {
+    this.active = active;
+    return this;
+  }
+
+  public Timestamp getUpdateTime() {
+    return updateTime;
+  }
+
+  public CronSchedule setUpdateTime(final Timestamp updateTime) {
+    this.updateTime = updateTime;
+    return this;
+  }
+}
@@ -16,7 +16,7 @@ package ai.startree.thirdeye.spi.datalayer.bao;
 import ai.startree.thirdeye.spi.datalayer.dto.AlertDTO;
 import java.util.List;
 
-public interface AlertManager extends AbstractManager<AlertDTO> {
+public interface AlertManager extends AbstractManager<AlertDTO>, CronScheduleManager {
 
   List<AlertDTO> findAllActive();
 
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.datalayer.bao;
+
+import ai.startree.thirdeye.spi.datalayer.CronSchedule;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Manager of entities run on a cron. The schedules are read from the index table.
+ */
+public interface CronScheduleManager {
+
+  List<Long> findActiveIds();
+
+  /**
+   * @param updatedSince lower bound of the update time, inclusive. All schedules if null.
+   */
+  List<CronSchedule> findSchedulesUpdatedSince(Timestamp updatedSince);
+
+  List<CronSchedule> findSchedulesByIds(List<Long> ids);
+}
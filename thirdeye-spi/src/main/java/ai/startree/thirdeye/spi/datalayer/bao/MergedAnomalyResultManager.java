@@ -22,6 +22,13 @@ public interface MergedAnomalyResultManager extends AbstractManager<MergedAnomal
 
   List<MergedAnomalyResultDTO> findByFunctionId(Long functionId);
 
+  /**
+   * Saves anomalies and their children in a single transaction, with batch statements.
+   *
+   * @return false if the anomalies could not be saved. Nothing is saved then.
+   */
+  boolean saveAll(List<MergedAnomalyResultDTO> anomalies);
+
   /**
    * TODO spyne Refactor. Have a AnomalyFilter object to handle these. Else we'll keep adding params and methods.
    * @return filtered list of anomalies
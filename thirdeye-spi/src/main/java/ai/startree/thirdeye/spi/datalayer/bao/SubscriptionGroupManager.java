@@ -15,6 +15,7 @@ package ai.startree.thirdeye.spi.datalayer.bao;
 
 import ai.startree.thirdeye.spi.datalayer.dto.SubscriptionGroupDTO;
 
-public interface SubscriptionGroupManager extends AbstractManager<SubscriptionGroupDTO> {
+public interface SubscriptionGroupManager extends AbstractManager<SubscriptionGroupDTO>,
+    CronScheduleManager {
 
 }
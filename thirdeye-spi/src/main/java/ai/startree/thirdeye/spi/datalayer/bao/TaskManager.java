@@ -46,6 +46,16 @@ public interface TaskManager extends AbstractManager<TaskDTO> {
   boolean updateStatusAndWorkerId(Long workerId, Long id, Set<TaskStatus> allowedOldStatus,
       int expectedVersion);
 
+  /**
+   * Moves up to limit WAITING tasks to RUNNING for the given worker. Tasks are claimed with a
+   * conditional update on their status, so a task is never acquired by two workers. When the
+   * tasks read were all claimed by other workers, the next WAITING tasks are read.
+   *
+   * @return the acquired tasks, oldest first. May be less than limit. Empty if no WAITING task
+   *     was found.
+   */
+  List<TaskDTO> acquireTasksToRun(Long workerId, int limit);
+
   void updateStatusAndTaskEndTime(Long id, TaskStatus oldStatus, TaskStatus newStatus,
       Long taskEndTime, String message);
 
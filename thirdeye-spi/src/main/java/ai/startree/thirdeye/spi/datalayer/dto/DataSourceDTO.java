@@ -29,6 +29,10 @@ public class DataSourceDTO extends AbstractDTO {
   private String type;
   private Map<String, Object> properties = new HashMap<>();
   private List<DataSourceMetaBean> metaList = new ArrayList<>();
+  /**
+   * Maximum number of queries run concurrently on the data source. Unlimited if null.
+   */
+  private Integer maxConcurrentQueries;
 
   public String getName() {
     return name;
@@ -68,6 +72,15 @@ public class DataSourceDTO extends AbstractDTO {
     return this;
   }
 
+  public Integer getMaxConcurrentQueries() {
+    return maxConcurrentQueries;
+  }
+
+  public DataSourceDTO setMaxConcurrentQueries(final Integer maxConcurrentQueries) {
+    this.maxConcurrentQueries = maxConcurrentQueries;
+    return this;
+  }
+
   @Override
   public String toString() {
     return ToStringBuilder.reflectionToString(this);
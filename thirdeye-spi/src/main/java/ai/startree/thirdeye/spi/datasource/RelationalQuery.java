@@ -13,9 +13,18 @@
  */
 package ai.startree.thirdeye.spi.datasource;
 
+import static ai.startree.thirdeye.spi.datasource.macro.MacroMetadataKeys.MAX_TIME_MILLIS;
+import static ai.startree.thirdeye.spi.util.SpiUtils.optional;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
 public abstract class RelationalQuery {
 
   protected String query;
+  /**
+   * End of the time range read by the query, if known. Not part of the query identity.
+   */
+  private @Nullable Long maxTimeMillis;
 
   public RelationalQuery(String query) {
     this.query = query;
@@ -29,6 +38,27 @@ public abstract class RelationalQuery {
     this.query = query;
   }
 
+  public @Nullable Long getMaxTimeMillis() {
+    return maxTimeMillis;
+  }
+
+  public RelationalQuery setMaxTimeMillis(final @Nullable Long maxTimeMillis) {
+    this.maxTimeMillis = maxTimeMillis;
+    return this;
+  }
+
+  /**
+   * Sets the end of the time range read by the query from the metadata of the request, if the
+   * macros of the request gave it.
+   */
+  public RelationalQuery setMaxTimeMillis(final DataSourceRequest request) {
+    optional(request.getProperties())
+        .map(p -> p.get(MAX_TIME_MILLIS.toString()))
+        .map(Long::parseLong)
+        .ifPresent(this::setMaxTimeMillis);
+    return this;
+  }
+
   @Override
   public int hashCode() {
     return query.hashCode();
@@ -14,10 +14,12 @@
 package ai.startree.thirdeye.spi.datasource;
 
 import ai.startree.thirdeye.spi.datalayer.dto.DatasetConfigDTO;
+import ai.startree.thirdeye.spi.datasource.cache.ResponseCacheStats;
 import ai.startree.thirdeye.spi.datasource.macro.SqlExpressionBuilder;
 import ai.startree.thirdeye.spi.datasource.macro.SqlLanguage;
 import ai.startree.thirdeye.spi.detection.v2.DataTable;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public interface ThirdEyeDataSource {
 
@@ -56,6 +58,21 @@ public interface ThirdEyeDataSource {
 
   DataTable fetchDataTable(DataSourceRequest request) throws Exception;
 
+  /**
+   * Asynchronous variant of {@link #fetchDataTable(DataSourceRequest)}.
+   *
+   * The default implementation runs the synchronous fetch on the calling thread and returns a
+   * completed future. Data sources with a non-blocking client should override it so that no
+   * thread waits on the query.
+   */
+  default CompletableFuture<DataTable> fetchDataTableAsync(final DataSourceRequest request) {
+    try {
+      return CompletableFuture.completedFuture(fetchDataTable(request));
+    } catch (final Exception e) {
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
   /**
    * Returns boolean value to validate the health of data source
    *
@@ -81,4 +98,11 @@ public interface ThirdEyeDataSource {
   default SqlExpressionBuilder getSqlExpressionBuilder() {
     return null;
   }
+
+  /**
+   * Returns the statistics of the response cache, or null if the data source has no cache.
+   */
+  default ResponseCacheStats getResponseCacheStats() {
+    return null;
+  }
 }
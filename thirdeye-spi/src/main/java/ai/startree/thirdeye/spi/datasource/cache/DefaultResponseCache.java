@@ -0,0 +1,233 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.datasource.cache;
+
+import static java.util.Objects.requireNonNull;
+
+import ai.startree.thirdeye.spi.Constants;
+import ai.startree.thirdeye.spi.datasource.RelationalQuery;
+import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeResultSetGroup;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.cache.RemovalNotification;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Default {@link ResponseCache}, on a Guava cache.
+ *
+ * Entries are weighed by their estimated heap size. The time to live of an entry depends on the
+ * time range of its query: a range that ended long ago is not expected to change and is kept
+ * longer than a range that is still open.
+ */
+public class DefaultResponseCache<Q extends RelationalQuery> implements ResponseCache<Q> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(DefaultResponseCache.class);
+
+  public static final Duration DEFAULT_OPEN_RANGE_TTL = Duration.ofMinutes(15);
+  public static final Duration DEFAULT_CLOSED_RANGE_TTL = Duration.ofHours(6);
+  /**
+   * A time range is considered closed when it ended at least this long ago.
+   */
+  public static final Duration DEFAULT_CLOSED_RANGE_DELAY = Duration.ofDays(1);
+
+  private final LoadingCache<Q, Entry> cache;
+  private final Ticker ticker;
+  private final Duration openRangeTtl;
+  private final Duration closedRangeDelay;
+  private final AtomicLong sizeInBytes = new AtomicLong();
+  private final AtomicLong expiredCount = new AtomicLong();
+  /**
+   * Asynchronous loads in flight. Concurrent requests of the same query share the same load.
+   */
+  private final Map<Q, CompletableFuture<ThirdEyeResultSetGroup>> asyncLoads =
+      new ConcurrentHashMap<>();
+
+  @VisibleForTesting
+  DefaultResponseCache(final CacheLoader<? super Q, ThirdEyeResultSetGroup> cacheLoader,
+      final long maxSizeInBytes,
+      final Duration openRangeTtl,
+      final Duration closedRangeTtl,
+      final Duration closedRangeDelay,
+      final Ticker ticker) {
+    requireNonNull(cacheLoader, "A cache loader is required.");
+    this.ticker = ticker;
+    this.openRangeTtl = openRangeTtl;
+    this.closedRangeDelay = closedRangeDelay;
+    this.cache = CacheBuilder.newBuilder()
+        .expireAfterWrite(closedRangeTtl.toNanos(), TimeUnit.NANOSECONDS)
+        .maximumWeight(maxSizeInBytes)
+        .weigher((Q query, Entry entry) -> (int) Math.min(entry.sizeInBytes, Integer.MAX_VALUE))
+        .removalListener(this::onRemoval)
+        .ticker(ticker)
+        .recordStats()
+        .build(new CacheLoader<>() {
+          @Override
+          public Entry load(final Q query) throws Exception {
+            return newEntry(query, cacheLoader.load(query));
+          }
+        });
+  }
+
+  /**
+   * Builds a cache that can use {@link Constants#DEFAULT_HEAP_PERCENTAGE_FOR_RESULTSETGROUP_CACHE}
+   * percent of the heap.
+   */
+  public static <Q extends RelationalQuery> DefaultResponseCache<Q> build(
+      final CacheLoader<? super Q, ThirdEyeResultSetGroup> cacheLoader) {
+    final long maxSizeInBytes = getMaxSizeInBytes(
+        Constants.DEFAULT_HEAP_PERCENTAGE_FOR_RESULTSETGROUP_CACHE);
+    LOG.debug("Max size of {}'s cache is set to {} bytes", cacheLoader, maxSizeInBytes);
+    return new DefaultResponseCache<>(cacheLoader,
+        maxSizeInBytes,
+        DEFAULT_OPEN_RANGE_TTL,
+        DEFAULT_CLOSED_RANGE_TTL,
+        DEFAULT_CLOSED_RANGE_DELAY,
+        Ticker.systemTicker());
+  }
+
+  private static long getMaxSizeInBytes(final int percentage) {
+    long jvmMaxMemoryInBytes = Runtime.getRuntime().maxMemory();
+    if (jvmMaxMemoryInBytes == Long.MAX_VALUE) { // Check upper bound
+      jvmMaxMemoryInBytes = Constants.DEFAULT_UPPER_BOUND_OF_RESULTSETGROUP_CACHE_SIZE_IN_MB
+          * FileUtils.ONE_MB; // MB to Bytes
+    } else { // Check lower bound
+      final long lowerBoundInBytes = Constants.DEFAULT_LOWER_BOUND_OF_RESULTSETGROUP_CACHE_SIZE_IN_MB
+          * FileUtils.ONE_MB; // MB to Bytes
+      if (jvmMaxMemoryInBytes < lowerBoundInBytes) {
+        jvmMaxMemoryInBytes = lowerBoundInBytes;
+      }
+    }
+    return jvmMaxMemoryInBytes / 100 * percentage;
+  }
+
+  @Override
+  public ThirdEyeResultSetGroup get(final Q query) throws ExecutionException {
+    final Entry entry = cache.get(query);
+    if (ticker.read() < entry.expirationNanos) {
+      return entry.resultSetGroup;
+    }
+    // open range entry that outlived its ttl
+    cache.asMap().remove(query, entry);
+    expiredCount.incrementAndGet();
+    return cache.get(query).resultSetGroup;
+  }
+
+  @Override
+  public CompletableFuture<ThirdEyeResultSetGroup> getAsync(final Q query,
+      final Function<? super Q, CompletableFuture<ThirdEyeResultSetGroup>> asyncLoader) {
+    final Entry entry = cache.getIfPresent(query);
+    if (entry != null) {
+      if (ticker.read() < entry.expirationNanos) {
+        return CompletableFuture.completedFuture(entry.resultSetGroup);
+      }
+      // open range entry that outlived its ttl
+      cache.asMap().remove(query, entry);
+      expiredCount.incrementAndGet();
+    }
+
+    final CompletableFuture<ThirdEyeResultSetGroup> load = new CompletableFuture<>();
+    final CompletableFuture<ThirdEyeResultSetGroup> inFlight = asyncLoads.putIfAbsent(query, load);
+    if (inFlight != null) {
+      return inFlight.copy();
+    }
+    CompletableFuture<ThirdEyeResultSetGroup> response;
+    try {
+      response = asyncLoader.apply(query);
+    } catch (final RuntimeException e) {
+      response = CompletableFuture.failedFuture(e);
+    }
+    response.whenComplete((resultSetGroup, throwable) -> {
+      if (throwable == null) {
+        cache.put(query, newEntry(query, resultSetGroup));
+      }
+      asyncLoads.remove(query, load);
+      if (throwable == null) {
+        load.complete(resultSetGroup);
+      } else {
+        load.completeExceptionally(throwable);
+      }
+    });
+    return load.copy();
+  }
+
+  @Override
+  public void refresh(final Q query) {
+    cache.refresh(query);
+  }
+
+  @Override
+  public void invalidateAll() {
+    cache.invalidateAll();
+  }
+
+  @Override
+  public ResponseCacheStats stats() {
+    final CacheStats stats = cache.stats();
+    // expired open range entries are counted as hits by the underlying cache
+    final long expired = expiredCount.get();
+    return new ResponseCacheStats(stats.hitCount() - expired,
+        stats.missCount(),
+        stats.evictionCount() + expired,
+        cache.size(),
+        sizeInBytes.get());
+  }
+
+  private Entry newEntry(final Q query, final ThirdEyeResultSetGroup resultSetGroup) {
+    final long now = ticker.read();
+    final Long maxTimeMillis = query.getMaxTimeMillis();
+    final boolean closedRange = maxTimeMillis != null
+        && maxTimeMillis <= System.currentTimeMillis() - closedRangeDelay.toMillis();
+    // closed range entries are expired by the underlying cache
+    final long expirationNanos = closedRange ? Long.MAX_VALUE : now + openRangeTtl.toNanos();
+    final Entry entry = new Entry(resultSetGroup,
+        ResultSetGroupSizeEstimator.estimateSizeInBytes(resultSetGroup),
+        expirationNanos);
+    sizeInBytes.addAndGet(entry.sizeInBytes);
+    return entry;
+  }
+
+  private void onRemoval(final RemovalNotification<Q, Entry> notification) {
+    if (notification.getValue() != null) {
+      sizeInBytes.addAndGet(-notification.getValue().sizeInBytes);
+    }
+  }
+
+  private static class Entry {
+
+    private final ThirdEyeResultSetGroup resultSetGroup;
+    private final long sizeInBytes;
+    private final long expirationNanos;
+
+    private Entry(final ThirdEyeResultSetGroup resultSetGroup, final long sizeInBytes,
+        final long expirationNanos) {
+      this.resultSetGroup = resultSetGroup;
+      this.sizeInBytes = sizeInBytes;
+      this.expirationNanos = expirationNanos;
+    }
+  }
+}
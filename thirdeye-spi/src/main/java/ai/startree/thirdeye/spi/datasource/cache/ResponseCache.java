@@ -0,0 +1,52 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.datasource.cache;
+
+import ai.startree.thirdeye.spi.datasource.RelationalQuery;
+import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeResultSetGroup;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * Cache of data source responses, by query.
+ *
+ * Implementations can use the end of the time range of a query, see
+ * {@link RelationalQuery#getMaxTimeMillis()}, to keep the responses of past ranges longer.
+ *
+ * @see DefaultResponseCache
+ */
+public interface ResponseCache<Q extends RelationalQuery> {
+
+  /**
+   * Returns the cached response of the query, loaded on a cache miss.
+   */
+  ThirdEyeResultSetGroup get(Q query) throws ExecutionException;
+
+  /**
+   * Asynchronous variant of {@link #get(RelationalQuery)}. On a cache miss, the response is
+   * loaded with the given asynchronous loader, then cached.
+   */
+  CompletableFuture<ThirdEyeResultSetGroup> getAsync(Q query,
+      Function<? super Q, CompletableFuture<ThirdEyeResultSetGroup>> asyncLoader);
+
+  /**
+   * Reloads the response of the query.
+   */
+  void refresh(Q query);
+
+  void invalidateAll();
+
+  ResponseCacheStats stats();
+}
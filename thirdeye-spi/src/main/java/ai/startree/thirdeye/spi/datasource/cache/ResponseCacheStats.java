@@ -0,0 +1,64 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.datasource.cache;
+
+/**
+ * Counters of a data source response cache, since the cache creation.
+ */
+public class ResponseCacheStats {
+
+  private final long hitCount;
+  private final long missCount;
+  private final long evictionCount;
+  private final long entryCount;
+  private final long sizeInBytes;
+
+  public ResponseCacheStats(final long hitCount,
+      final long missCount,
+      final long evictionCount,
+      final long entryCount,
+      final long sizeInBytes) {
+    this.hitCount = hitCount;
+    this.missCount = missCount;
+    this.evictionCount = evictionCount;
+    this.entryCount = entryCount;
+    this.sizeInBytes = sizeInBytes;
+  }
+
+  public long getHitCount() {
+    return hitCount;
+  }
+
+  public long getMissCount() {
+    return missCount;
+  }
+
+  /**
+   * Number of entries removed because of the size limit or of their time to live.
+   */
+  public long getEvictionCount() {
+    return evictionCount;
+  }
+
+  public long getEntryCount() {
+    return entryCount;
+  }
+
+  /**
+   * Estimated heap size of the cached responses.
+   */
+  public long getSizeInBytes() {
+    return sizeInBytes;
+  }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.datasource.cache;
+
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.dataframe.Series;
+import ai.startree.thirdeye.spi.dataframe.StringSeries;
+import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeDataFrameResultSet;
+import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeResultSet;
+import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeResultSetGroup;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Estimates the heap size of a {@link ThirdEyeResultSetGroup} or of a {@link DataFrame}.
+ *
+ * Sizes assume a 64-bit JVM with compressed references. Strings shared between rows, for
+ * instance interned dimension values, are counted once.
+ */
+public class ResultSetGroupSizeEstimator {
+
+  private static final long RESULT_SET_OVERHEAD = 256;
+  private static final long SERIES_OVERHEAD = 64;
+  private static final long ARRAY_HEADER = 16;
+  private static final long REFERENCE = 4;
+  private static final long STRING_OVERHEAD = 40;
+  private static final long OBJECT_VALUE = 16;
+
+  public static long estimateSizeInBytes(final ThirdEyeResultSetGroup resultSetGroup) {
+    final Set<String> countedStrings = Collections.newSetFromMap(new IdentityHashMap<>());
+    long size = RESULT_SET_OVERHEAD;
+    for (final ThirdEyeResultSet resultSet : resultSetGroup.getResultSets()) {
+      size += RESULT_SET_OVERHEAD;
+      if (resultSet instanceof ThirdEyeDataFrameResultSet) {
+        size += estimateSizeInBytes(((ThirdEyeDataFrameResultSet) resultSet).getDataFrame(),
+            countedStrings);
+      } else {
+        size += estimateSizeInBytes(resultSet, countedStrings);
+      }
+    }
+    return size;
+  }
+
+  public static long estimateSizeInBytes(final DataFrame dataFrame) {
+    return estimateSizeInBytes(dataFrame, Collections.newSetFromMap(new IdentityHashMap<>()));
+  }
+
+  private static long estimateSizeInBytes(final DataFrame dataFrame,
+      final Set<String> countedStrings) {
+    long size = 0;
+    for (final Series series : dataFrame.getSeries().values()) {
+      size += SERIES_OVERHEAD + ARRAY_HEADER;
+      switch (series.type()) {
+        case LONG:
+        case DOUBLE:
+          size += 8L * series.size();
+          break;
+        case BOOLEAN:
+          size += series.size();
+          break;
+        case STRING:
+          for (final String value : ((StringSeries) series).values()) {
+            size += REFERENCE + stringSize(value, countedStrings);
+          }
+          break;
+        default:
+          size += (REFERENCE + OBJECT_VALUE) * series.size();
+      }
+    }
+    return size;
+  }
+
+  private static long estimateSizeInBytes(final ThirdEyeResultSet resultSet,
+      final Set<String> countedStrings) {
+    long size = 0;
+    for (int rowIdx = 0; rowIdx < resultSet.getRowCount(); rowIdx++) {
+      for (int columnIdx = 0; columnIdx < resultSet.getGroupKeyLength(); columnIdx++) {
+        size += REFERENCE
+            + stringSize(resultSet.getGroupKeyColumnValue(rowIdx, columnIdx), countedStrings);
+      }
+      for (int columnIdx = 0; columnIdx < resultSet.getColumnCount(); columnIdx++) {
+        size += REFERENCE + stringSize(resultSet.getString(rowIdx, columnIdx), countedStrings);
+      }
+    }
+    return size;
+  }
+
+  private static long stringSize(final String value, final Set<String> countedStrings) {
+    if (value == null || !countedStrings.add(value)) {
+      return 0;
+    }
+    // latin-1 strings use one byte per character since java 9
+    return STRING_OVERHEAD + value.length();
+  }
+}
@@ -48,7 +48,8 @@ public interface AggregationLoader {
    *
    * @param slice metric slice
    * @param dimensions dimension names to group by
-   * @param limit top k element limit ({@code -1} for default)
+   * @param limit top k element limit ({@code -1} for default). Groups are ordered by decreasing
+   *     value: the limit keeps the largest groups.
    * @return aggregates data frame
    */
   Future<DataFrame> loadAggregateAsync(MetricSlice slice, List<String> dimensions, int limit) throws Exception;
@@ -37,6 +37,12 @@ public class MacroFunctionContext {
   /**Used by macro function to quote identifiers in AUTO mode.*/
   private Function<String, String> identifierQuoter;
 
+  /**
+   * If set, the time filter macro filters on this interval instead of the detection interval
+   * minus the lookbacks. Used to fetch a sub range of a query.
+   */
+  private Interval timeFilterInterval;
+
   public SqlExpressionBuilder getSqlExpressionBuilder() {
     return sqlExpressionBuilder;
   }
@@ -95,4 +101,13 @@ public class MacroFunctionContext {
     this.identifierQuoter = identifierQuoter;
     return this;
   }
+
+  public Interval getTimeFilterInterval() {
+    return timeFilterInterval;
+  }
+
+  public MacroFunctionContext setTimeFilterInterval(final Interval timeFilterInterval) {
+    this.timeFilterInterval = timeFilterInterval;
+    return this;
+  }
 }
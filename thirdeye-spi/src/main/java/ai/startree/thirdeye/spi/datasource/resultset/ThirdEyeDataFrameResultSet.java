@@ -162,6 +162,14 @@ public class ThirdEyeDataFrameResultSet extends AbstractThirdEyeResultSet {
     return metaDataAllColumns.equals(dataFrame.getSeries().keySet());
   }
 
+  /**
+   * The DataFrame backing this result set. It may be shared with a cache: copy it before any
+   * in-place modification.
+   */
+  public DataFrame getDataFrame() {
+    return dataFrame;
+  }
+
   @Override
   public int getRowCount() {
     return dataFrame.size();
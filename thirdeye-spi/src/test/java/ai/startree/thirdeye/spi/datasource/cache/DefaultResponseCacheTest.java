@@ -0,0 +1,206 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.spi.datasource.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ai.startree.thirdeye.spi.dataframe.DataFrame;
+import ai.startree.thirdeye.spi.datasource.RelationalQuery;
+import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeDataFrameResultSet;
+import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeResultSetGroup;
+import ai.startree.thirdeye.spi.datasource.resultset.ThirdEyeResultSetMetaData;
+import ai.startree.thirdeye.spi.detection.v2.ColumnType;
+import ai.startree.thirdeye.spi.detection.v2.ColumnType.ColumnDataType;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheLoader;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class DefaultResponseCacheTest {
+
+  private static final Duration OPEN_RANGE_TTL = Duration.ofMinutes(15);
+  private static final Duration CLOSED_RANGE_TTL = Duration.ofHours(6);
+  private static final Duration CLOSED_RANGE_DELAY = Duration.ofDays(1);
+
+  private FakeTicker ticker;
+  private AtomicInteger loadCount;
+  private ResponseCache<TestQuery> responseCache;
+
+  @BeforeMethod
+  public void setUp() {
+    ticker = new FakeTicker();
+    loadCount = new AtomicInteger();
+    responseCache = new DefaultResponseCache<>(new CacheLoader<>() {
+      @Override
+      public ThirdEyeResultSetGroup load(final TestQuery query) {
+        loadCount.incrementAndGet();
+        return resultSetGroup(100);
+      }
+    }, Long.MAX_VALUE, OPEN_RANGE_TTL, CLOSED_RANGE_TTL, CLOSED_RANGE_DELAY, ticker);
+  }
+
+  private static ThirdEyeResultSetGroup resultSetGroup(final int rowCount) {
+    final long[] values = new long[rowCount];
+    final DataFrame dataFrame = new DataFrame().addSeries("value", values);
+    final ThirdEyeResultSetMetaData metaData = new ThirdEyeResultSetMetaData(List.of(),
+        List.of("value"), List.of(), List.of(new ColumnType(ColumnDataType.LONG)));
+    return new ThirdEyeResultSetGroup(List.of(new ThirdEyeDataFrameResultSet(metaData,
+        dataFrame)));
+  }
+
+  private static TestQuery query(final String sql, final Long maxTimeMillis) {
+    final TestQuery query = new TestQuery(sql);
+    query.setMaxTimeMillis(maxTimeMillis);
+    return query;
+  }
+
+  @Test
+  public void testOpenRangeExpiresAfterOpenRangeTtl() throws Exception {
+    final TestQuery query = query("select open", System.currentTimeMillis());
+    responseCache.get(query);
+    ticker.advance(OPEN_RANGE_TTL.minusMinutes(1));
+    responseCache.get(query);
+    assertThat(loadCount.get()).isEqualTo(1);
+
+    ticker.advance(Duration.ofMinutes(2));
+    responseCache.get(query);
+    assertThat(loadCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testUnknownRangeIsConsideredOpen() throws Exception {
+    final TestQuery query = query("select unknown", null);
+    responseCache.get(query);
+    ticker.advance(OPEN_RANGE_TTL.plusMinutes(1));
+    responseCache.get(query);
+    assertThat(loadCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testClosedRangeIsKeptLonger() throws Exception {
+    final long twoDaysAgo = System.currentTimeMillis() - Duration.ofDays(2).toMillis();
+    final TestQuery query = query("select closed", twoDaysAgo);
+    responseCache.get(query);
+    ticker.advance(CLOSED_RANGE_TTL.minusMinutes(1));
+    responseCache.get(query);
+    assertThat(loadCount.get()).isEqualTo(1);
+
+    ticker.advance(Duration.ofMinutes(2));
+    responseCache.get(query);
+    assertThat(loadCount.get()).isEqualTo(2);
+  }
+
+  @Test
+  public void testStats() throws Exception {
+    final TestQuery query = query("select open", null);
+    responseCache.get(query);
+    responseCache.get(query);
+    ticker.advance(OPEN_RANGE_TTL.plusMinutes(1));
+    responseCache.get(query);
+
+    final ResponseCacheStats stats = responseCache.stats();
+    assertThat(stats.getHitCount()).isEqualTo(1);
+    assertThat(stats.getMissCount()).isEqualTo(2);
+    assertThat(stats.getEvictionCount()).isEqualTo(1);
+    assertThat(stats.getEntryCount()).isEqualTo(1);
+    assertThat(stats.getSizeInBytes()).isEqualTo(
+        ResultSetGroupSizeEstimator.estimateSizeInBytes(resultSetGroup(100)));
+  }
+
+  @Test
+  public void testSizeIsReleasedOnInvalidation() throws Exception {
+    responseCache.get(query("select 1", null));
+    responseCache.get(query("select 2", null));
+    assertThat(responseCache.stats().getSizeInBytes()).isEqualTo(
+        2 * ResultSetGroupSizeEstimator.estimateSizeInBytes(resultSetGroup(100)));
+
+    responseCache.invalidateAll();
+    assertThat(responseCache.stats().getSizeInBytes()).isEqualTo(0);
+  }
+
+  @Test
+  public void testSizeEstimateGrowsWithRows() {
+    final long small = ResultSetGroupSizeEstimator.estimateSizeInBytes(resultSetGroup(10));
+    final long large = ResultSetGroupSizeEstimator.estimateSizeInBytes(resultSetGroup(1010));
+    assertThat(large - small).isEqualTo(8 * 1000);
+  }
+
+  @Test
+  public void testGetAsyncLoadsOnceAndCaches() throws Exception {
+    final TestQuery query = query("select async", null);
+    final CompletableFuture<ThirdEyeResultSetGroup> response = new CompletableFuture<>();
+    final AtomicInteger asyncLoadCount = new AtomicInteger();
+    final CompletableFuture<ThirdEyeResultSetGroup> first = responseCache.getAsync(query, q -> {
+      asyncLoadCount.incrementAndGet();
+      return response;
+    });
+    final CompletableFuture<ThirdEyeResultSetGroup> second = responseCache.getAsync(query, q -> {
+      asyncLoadCount.incrementAndGet();
+      return response;
+    });
+    assertThat(first).isNotDone();
+    assertThat(second).isNotDone();
+
+    response.complete(resultSetGroup(10));
+    assertThat(first.get().get(0).getRowCount()).isEqualTo(10);
+    assertThat(second.get().get(0).getRowCount()).isEqualTo(10);
+    assertThat(asyncLoadCount.get()).isEqualTo(1);
+
+    // cached - served without load
+    assertThat(responseCache.getAsync(query, q -> {
+      throw new IllegalStateException("should not be loaded");
+    })).isCompleted();
+    assertThat(responseCache.get(query).get(0).getRowCount()).isEqualTo(10);
+    assertThat(loadCount.get()).isEqualTo(0);
+  }
+
+  @Test
+  public void testGetAsyncFailureIsNotCached() {
+    final TestQuery query = query("select failing", null);
+    final CompletableFuture<ThirdEyeResultSetGroup> failed = responseCache.getAsync(query,
+        q -> CompletableFuture.failedFuture(new IllegalStateException("boom")));
+    assertThat(failed).isCompletedExceptionally();
+
+    final CompletableFuture<ThirdEyeResultSetGroup> retried = responseCache.getAsync(query,
+        q -> CompletableFuture.completedFuture(resultSetGroup(10)));
+    assertThat(retried).isCompleted();
+    assertThat(responseCache.stats().getEntryCount()).isEqualTo(1);
+  }
+
+  private static class TestQuery extends RelationalQuery {
+
+    private TestQuery(final String query) {
+      super(query);
+    }
+  }
+
+  private static class FakeTicker extends Ticker {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    @Override
+    public long read() {
+      return nanos.get();
+    }
+
+    private void advance(final Duration duration) {
+      nanos.addAndGet(duration.toNanos());
+    }
+  }
+}
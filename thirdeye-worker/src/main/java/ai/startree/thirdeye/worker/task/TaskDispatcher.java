@@ -0,0 +1,177 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.worker.task;
+
+import ai.startree.thirdeye.spi.datalayer.bao.TaskManager;
+import ai.startree.thirdeye.spi.datalayer.dto.TaskDTO;
+import ai.startree.thirdeye.spi.task.TaskStatus;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Acquires tasks for the {@link TaskDriverRunnable} of this worker.
+ *
+ * A single dispatcher polls the database. It waits for runnables to be idle, acquires as many
+ * tasks as there are idle runnables in one batch, and hands them over with an in-process queue.
+ * Runnables never poll the database and a burst of tasks is drained at the speed of the runnables.
+ */
+public class TaskDispatcher implements Runnable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(TaskDispatcher.class);
+  private static final Random RANDOM = new Random();
+  private static final long SHUTDOWN_CHECK_INTERVAL_MILLIS = 1000;
+
+  private final TaskManager taskManager;
+  private final TaskDriverConfiguration config;
+  private final long workerId;
+  private final TaskDriverThreadPoolManager taskDriverThreadPoolManager;
+
+  private final BlockingQueue<TaskDTO> acquiredTasks = new LinkedBlockingQueue<>();
+  private final Semaphore idleRunnables = new Semaphore(0);
+
+  public TaskDispatcher(final TaskContext taskContext) {
+    taskManager = taskContext.getTaskManager();
+    config = taskContext.getConfig();
+    workerId = taskContext.getWorkerId();
+    taskDriverThreadPoolManager = taskContext.getTaskDriverThreadPoolManager();
+  }
+
+  @Override
+  public void run() {
+    while (!isShutdown()) {
+      final int idleCount = waitForIdleRunnables();
+      if (idleCount == 0) {
+        continue;
+      }
+      final List<TaskDTO> tasks = acquireTasks(idleCount);
+      final int acquiredCount = tasks == null ? 0 : tasks.size();
+      idleRunnables.release(idleCount - acquiredCount);
+      if (acquiredCount > 0) {
+        acquiredTasks.addAll(tasks);
+      } else {
+        sleep(tasks == null);
+      }
+    }
+    failUnstartedTasks();
+    LOG.info("TaskDispatcher safely quitting.");
+  }
+
+  /**
+   * Called by an idle runnable. Blocks until a task is acquired for it.
+   *
+   * @return null if system is shutting down.
+   */
+  public TaskDTO nextTask() {
+    requestTasks(1);
+    TaskDTO taskDTO = null;
+    while (taskDTO == null && !isShutdown()) {
+      taskDTO = pollTask();
+    }
+    // a task already acquired must be executed
+    return taskDTO == null ? acquiredTasks.poll() : taskDTO;
+  }
+
+  /**
+   * Asks for count more tasks. The tasks requested by all the runnables are acquired in batches.
+   * Get the tasks with {@link #pollTask()}.
+   */
+  public void requestTasks(final int count) {
+    idleRunnables.release(count);
+  }
+
+  /**
+   * Waits for an acquired task, up to a second.
+   *
+   * @return null if no task was acquired in time.
+   */
+  public TaskDTO pollTask() {
+    try {
+      return acquiredTasks.poll(SHUTDOWN_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return acquiredTasks.poll();
+    }
+  }
+
+  private boolean isShutdown() {
+    return taskDriverThreadPoolManager.isShutdown();
+  }
+
+  /**
+   * @return the number of idle runnables, at most the fetch size cap. 0 on timeout.
+   */
+  private int waitForIdleRunnables() {
+    try {
+      if (!idleRunnables.tryAcquire(SHUTDOWN_CHECK_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)) {
+        return 0;
+      }
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return 0;
+    }
+    final int idleCount = 1 + idleRunnables.drainPermits();
+    final int batchSize = Math.min(idleCount, config.getTaskFetchSizeCap());
+    idleRunnables.release(idleCount - batchSize);
+    return batchSize;
+  }
+
+  /**
+   * @return null if the tasks could not be fetched
+   */
+  private List<TaskDTO> acquireTasks(final int count) {
+    try {
+      return taskManager.acquireTasksToRun(workerId, count);
+    } catch (final Exception e) {
+      LOG.error("Exception found in acquiring new tasks", e);
+    }
+    return null;
+  }
+
+  private void sleep(final boolean hasFetchError) {
+    final long sleepTime = hasFetchError
+        ? config.getTaskFailureDelay().toMillis()
+        : config.getNoTaskDelay().toMillis() + RANDOM
+            .nextInt((int) config.getRandomDelayCap().toMillis());
+    // sleep for few seconds if not tasks found - avoid cpu thrashing
+    // the random delay spreads the polling of the workers
+    try {
+      Thread.sleep(sleepTime);
+    } catch (final InterruptedException e) {
+      if (!isShutdown()) {
+        LOG.warn(e.getMessage(), e);
+      }
+    }
+  }
+
+  private void failUnstartedTasks() {
+    TaskDTO taskDTO;
+    while ((taskDTO = acquiredTasks.poll()) != null) {
+      try {
+        taskManager.updateStatusAndTaskEndTime(taskDTO.getId(),
+            TaskStatus.RUNNING,
+            TaskStatus.FAILED,
+            System.currentTimeMillis(),
+            "Task acquired but not started before the worker shutdown");
+      } catch (final Exception e) {
+        LOG.error("Exception: updating status of task {} to FAILED", taskDTO.getId(), e);
+      }
+    }
+  }
+}
@@ -83,9 +83,13 @@ public class TaskDriver {
   }
 
   private void runTasksInParallel() {
-    for (int i = 0; i < config.getMaxParallelTasks(); i++) {
+    final TaskDispatcher taskDispatcher = new TaskDispatcher(taskContext);
+    taskDriverThreadPoolManager.getTaskWatcherExecutorService().submit(taskDispatcher);
+    // in async execution, a single runnable runs maxParallelTasks tasks concurrently
+    final int runnableCount = config.isAsyncExecutionEnabled() ? 1 : config.getMaxParallelTasks();
+    for (int i = 0; i < runnableCount; i++) {
       taskDriverThreadPoolManager.getTaskWatcherExecutorService()
-          .submit(new TaskDriverRunnable(taskContext));
+          .submit(new TaskDriverRunnable(taskContext, taskDispatcher));
     }
   }
 
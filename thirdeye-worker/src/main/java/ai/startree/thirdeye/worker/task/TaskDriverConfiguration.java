@@ -30,6 +30,15 @@ public class TaskDriverConfiguration {
 
   private int taskFetchSizeCap = 50;
   private int maxParallelTasks = 5;
+  /*
+   * When enabled, tasks are not watched by a blocked thread each: a single runnable starts up to
+   * maxAsyncTasks tasks and completes them with callbacks. Tasks run on a pool of maxAsyncTasks
+   * threads: the concurrency on each data source is capped by its maxConcurrentQueries, not by
+   * maxParallelTasks.
+   */
+  private boolean asyncExecutionEnabled = false;
+  // maximum number of tasks acquired and not completed by the worker in async execution
+  private int maxAsyncTasks = 50;
 
   public Long getId() {
     return id;
@@ -121,6 +130,24 @@ public class TaskDriverConfiguration {
     return this;
   }
 
+  public boolean isAsyncExecutionEnabled() {
+    return asyncExecutionEnabled;
+  }
+
+  public TaskDriverConfiguration setAsyncExecutionEnabled(final boolean asyncExecutionEnabled) {
+    this.asyncExecutionEnabled = asyncExecutionEnabled;
+    return this;
+  }
+
+  public int getMaxAsyncTasks() {
+    return maxAsyncTasks;
+  }
+
+  public TaskDriverConfiguration setMaxAsyncTasks(final int maxAsyncTasks) {
+    this.maxAsyncTasks = maxAsyncTasks;
+    return this;
+  }
+
   public int getActiveThresholdMultiplier() {
     return activeThresholdMultiplier;
   }
@@ -23,17 +23,15 @@ import ai.startree.thirdeye.spi.task.TaskType;
 import com.codahale.metrics.Counter;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
-import com.google.common.collect.ImmutableSet;
 import com.google.inject.Singleton;
 import java.io.IOException;
-import java.util.Collections;
 import java.util.List;
-import java.util.Random;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
-import org.apache.commons.collections4.CollectionUtils;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,30 +41,25 @@ import org.slf4j.MDC;
 public class TaskDriverRunnable implements Runnable {
 
   private static final Logger LOG = LoggerFactory.getLogger(TaskDriverRunnable.class);
-  private static final Random RANDOM = new Random();
-  private static final Set<TaskStatus> ALLOWED_OLD_TASK_STATUS = ImmutableSet.of(
-      TaskStatus.FAILED,
-      TaskStatus.WAITING
-  );
 
   private final TaskManager taskManager;
   private final TaskContext taskContext;
   private final TaskDriverConfiguration config;
-  private final long workerId;
   private final TaskRunnerFactory taskRunnerFactory;
   private final Counter taskExceptionCounter;
   private final Counter taskSuccessCounter;
   private final Counter taskCounter;
   private final Timer taskRunningTimer;
   private final TaskDriverThreadPoolManager taskDriverThreadPoolManager;
+  private final TaskDispatcher taskDispatcher;
 
-  public TaskDriverRunnable(final TaskContext taskContext) {
+  public TaskDriverRunnable(final TaskContext taskContext, final TaskDispatcher taskDispatcher) {
     this.taskContext = taskContext;
+    this.taskDispatcher = taskDispatcher;
     taskDriverThreadPoolManager = taskContext.getTaskDriverThreadPoolManager();
 
     this.taskManager = taskContext.getTaskManager();
     this.config = taskContext.getConfig();
-    this.workerId = taskContext.getWorkerId();
     this.taskRunnerFactory = taskContext.getTaskRunnerFactory();
 
     final MetricRegistry metricRegistry = taskContext.getMetricRegistry();
@@ -77,9 +70,13 @@ public class TaskDriverRunnable implements Runnable {
   }
 
   public void run() {
+    if (config.isAsyncExecutionEnabled()) {
+      runAsync();
+      return;
+    }
     while (!isShutdown()) {
-      // select a task to execute, and update it to RUNNING
-      final TaskDTO taskDTO = waitForTask();
+      // wait for a task acquired by the dispatcher. It is already RUNNING
+      final TaskDTO taskDTO = taskDispatcher.nextTask();
       if (taskDTO == null) {
         continue;
       }
@@ -91,6 +88,51 @@ public class TaskDriverRunnable implements Runnable {
         Thread.currentThread().getName()));
   }
 
+  /**
+   * Runs up to maxAsyncTasks tasks concurrently without blocking a watcher thread per task: the
+   * status of a task is updated by a callback when it completes or times out. All the free slots
+   * are requested at once, so the dispatcher acquires them in one batch. A slot is freed only when
+   * no thread executes its task anymore: a timed out task that ignores the interrupt keeps its
+   * slot until it returns.
+   */
+  private void runAsync() {
+    final int maxAsyncTasks = config.getMaxAsyncTasks();
+    final Semaphore freeSlots = new Semaphore(maxAsyncTasks);
+    // slots requested to the dispatcher, not filled yet
+    int requestedSlots = 0;
+    while (!isShutdown()) {
+      final int newSlots = freeSlots.drainPermits();
+      if (newSlots > 0) {
+        taskDispatcher.requestTasks(newSlots);
+        requestedSlots += newSlots;
+      }
+      final TaskDTO taskDTO = taskDispatcher.pollTask();
+      if (taskDTO != null) {
+        requestedSlots--;
+        startTask(taskDTO, freeSlots);
+      }
+    }
+    // a task already acquired must be executed
+    TaskDTO taskDTO;
+    while (requestedSlots > 0 && (taskDTO = taskDispatcher.pollTask()) != null) {
+      requestedSlots--;
+      startTask(taskDTO, freeSlots);
+    }
+    // the started tasks must finish executing before termination
+    freeSlots.release(requestedSlots);
+    freeSlots.acquireUninterruptibly(maxAsyncTasks);
+    LOG.info(String.format("TaskDriverRunnable safely quitting. name: %s",
+        Thread.currentThread().getName()));
+  }
+
+  private void startTask(final TaskDTO taskDTO, final Semaphore freeSlots) {
+    final Timer.Context timerContext = taskRunningTimer.time();
+    runAcquiredTaskAsync(taskDTO).whenComplete((r, e) -> {
+      timerContext.stop();
+      freeSlots.release();
+    });
+  }
+
   private boolean isShutdown() {
     return taskDriverThreadPoolManager.isShutdown();
   }
@@ -102,14 +144,7 @@ public class TaskDriverRunnable implements Runnable {
     final long tStart = System.currentTimeMillis();
     taskCounter.inc();
 
-    Future heartbeat = null;
-    if (config.isRandomWorkerIdEnabled()) {
-      heartbeat = taskDriverThreadPoolManager.getHeartbeatExecutorService()
-          .scheduleAtFixedRate(() -> taskExecutionHeartbeat(taskDTO),
-              0,
-              config.getHeartbeatInterval().toMillis(),
-              TimeUnit.MILLISECONDS);
-    }
+    final Future heartbeat = startHeartbeat(taskDTO);
 
     Future<List<TaskResult>> future = null;
     try {
@@ -136,6 +171,75 @@ public class TaskDriverRunnable implements Runnable {
     }
   }
 
+  private CompletableFuture<Void> runAcquiredTaskAsync(final TaskDTO taskDTO) {
+    MDC.put("job.name", taskDTO.getJobName());
+    LOG.info("Executing task {} {}", taskDTO.getId(), taskDTO.getTaskInfo());
+    MDC.clear();
+
+    final long tStart = System.currentTimeMillis();
+    taskCounter.inc();
+    final Future heartbeat = startHeartbeat(taskDTO);
+
+    final CompletableFuture<List<TaskResult>> result = new CompletableFuture<>();
+    // completed when no thread executes the task anymore
+    final CompletableFuture<Void> ended = new CompletableFuture<>();
+    // claimed by the thread starting the task, or by the timeout if the task did not start
+    final AtomicBoolean started = new AtomicBoolean(false);
+    Future<?> execution = null;
+    try {
+      execution = runTaskAsync(taskDTO, result, started, ended);
+    } catch (final Exception e) {
+      result.completeExceptionally(e);
+      ended.complete(null);
+    }
+    final Future<?> executionToCancel = execution;
+    final Future<?> timeout = taskDriverThreadPoolManager.getHeartbeatExecutorService()
+        .schedule(() -> {
+              final TimeoutException e = new TimeoutException(String.format(
+                  "Task %d did not complete in %s", taskDTO.getId(), config.getMaxTaskRunTime()));
+              result.completeExceptionally(e);
+            },
+            config.getMaxTaskRunTime().toMillis(),
+            TimeUnit.MILLISECONDS);
+
+    final CompletableFuture<Void> handled = result.handle((taskResults, e) -> {
+      timeout.cancel(false);
+      MDC.put("job.name", taskDTO.getJobName());
+      try {
+        if (e == null) {
+          LOG.info("DONE Executing task {}", taskDTO.getId());
+          updateTaskStatus(taskDTO.getId(), TaskStatus.COMPLETED, "");
+          taskSuccessCounter.inc();
+        } else if (e instanceof TimeoutException) {
+          handleTimeout(taskDTO, executionToCancel, (TimeoutException) e);
+          if (started.compareAndSet(false, true)) {
+            // the task never started and will not: no thread to wait for
+            ended.complete(null);
+          }
+        } else {
+          handleException(taskDTO, e instanceof Exception ? (Exception) e : new Exception(e));
+        }
+      } finally {
+        MDC.clear();
+        LOG.info("Task {} took {}ms", taskDTO.getId(), System.currentTimeMillis() - tStart);
+        optional(heartbeat).ifPresent(pulse -> pulse.cancel(false));
+      }
+      return null;
+    });
+    return CompletableFuture.allOf(handled, ended);
+  }
+
+  private Future startHeartbeat(final TaskDTO taskDTO) {
+    if (!config.isRandomWorkerIdEnabled()) {
+      return null;
+    }
+    return taskDriverThreadPoolManager.getHeartbeatExecutorService()
+        .scheduleAtFixedRate(() -> taskExecutionHeartbeat(taskDTO),
+            0,
+            config.getHeartbeatInterval().toMillis(),
+            TimeUnit.MILLISECONDS);
+  }
+
   private void taskExecutionHeartbeat(final TaskDTO taskDTO) {
     taskManager.updateLastActive(taskDTO.getId());
   }
@@ -150,7 +254,30 @@ public class TaskDriverRunnable implements Runnable {
         .submit(() -> taskRunner.execute(taskInfo, taskContext));
   }
 
-  private void handleTimeout(final TaskDTO taskDTO, final Future<List<TaskResult>> future,
+  private Future<?> runTaskAsync(final TaskDTO taskDTO,
+      final CompletableFuture<List<TaskResult>> result, final AtomicBoolean started,
+      final CompletableFuture<Void> ended) throws IOException {
+    final TaskType taskType = taskDTO.getTaskType();
+    final TaskInfo taskInfo = TaskInfoFactory.get(taskType, taskDTO.getTaskInfo());
+    final TaskRunner taskRunner = taskRunnerFactory.get(taskType);
+
+    // execute the selected task asynchronously and complete the result when done
+    return taskDriverThreadPoolManager.getTaskExecutorService().submit(() -> {
+      if (!started.compareAndSet(false, true)) {
+        // timed out before starting
+        return;
+      }
+      try {
+        result.complete(taskRunner.execute(taskInfo, taskContext));
+      } catch (final Throwable e) {
+        result.completeExceptionally(e);
+      } finally {
+        ended.complete(null);
+      }
+    });
+  }
+
+  private void handleTimeout(final TaskDTO taskDTO, final Future<?> future,
       final TimeoutException e) {
     taskExceptionCounter.inc();
     LOG.error("Timeout on executing task", e);
@@ -174,81 +301,6 @@ public class TaskDriverRunnable implements Runnable {
         String.format("%s\n%s", ExceptionUtils.getMessage(e), ExceptionUtils.getStackTrace(e)));
   }
 
-  /**
-   * Returns a TaskDTO if a task is successfully acquired; returns null if system is shutting down.
-   *
-   * @return null if system is shutting down.
-   */
-  private TaskDTO waitForTask() {
-    while (!isShutdown()) {
-      final List<TaskDTO> anomalyTasks = findTasks();
-
-      final boolean tasksFound = CollectionUtils.isNotEmpty(anomalyTasks);
-      if (tasksFound) {
-        final TaskDTO taskDTO = acquireTask(anomalyTasks);
-        if (taskDTO != null) {
-          return taskDTO;
-        }
-      }
-      sleep(!tasksFound);
-    }
-    return null;
-  }
-
-  private TaskDTO acquireTask(final List<TaskDTO> anomalyTasks) {
-    // shuffle candidate tasks to avoid synchronized patterns across threads (and hosts)
-    Collections.shuffle(anomalyTasks);
-
-    for (final TaskDTO taskDTO : anomalyTasks) {
-      try {
-        // Don't acquire a new task if shutting down.
-        if (!isShutdown()) {
-          boolean success = taskManager.updateStatusAndWorkerId(workerId,
-              taskDTO.getId(),
-              ALLOWED_OLD_TASK_STATUS,
-              taskDTO.getVersion());
-          if (success) {
-            return taskDTO;
-          }
-        }
-      } catch (Exception e) {
-        LOG.warn("Got exception when acquiring task. (Worker Id: {})", workerId, e);
-      }
-    }
-    return null;
-  }
-
-  private List<TaskDTO> findTasks() {
-    try {
-      // randomize fetching head and tail to reduce synchronized patterns across threads (and hosts)
-      boolean orderAscending = System.currentTimeMillis() % 2 == 0;
-
-      // find by task type to separate online task from a normal task
-      return taskManager.findByStatusOrderByCreateTime(TaskStatus.WAITING,
-          config.getTaskFetchSizeCap(),
-          orderAscending);
-    } catch (Exception e) {
-      LOG.error("Exception found in fetching new tasks", e);
-    }
-    return null;
-  }
-
-  private void sleep(final boolean hasFetchError) {
-    final long sleepTime = hasFetchError
-        ? config.getTaskFailureDelay().toMillis()
-        : config.getNoTaskDelay().toMillis() + RANDOM
-            .nextInt((int) config.getRandomDelayCap().toMillis());
-    // sleep for few seconds if not tasks found - avoid cpu thrashing
-    // also add some extra random number of milli seconds to allow threads to start at different times
-    try {
-      Thread.sleep(sleepTime);
-    } catch (InterruptedException e) {
-      if (!isShutdown()) {
-        LOG.warn(e.getMessage(), e);
-      }
-    }
-  }
-
   private void updateTaskStatus(long taskId,
       TaskStatus newStatus,
       String message) {
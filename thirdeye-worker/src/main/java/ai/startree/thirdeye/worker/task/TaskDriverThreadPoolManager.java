@@ -22,6 +22,8 @@ import com.google.inject.Singleton;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 @Singleton
@@ -34,23 +36,30 @@ public class TaskDriverThreadPoolManager {
 
   @Inject
   public TaskDriverThreadPoolManager(final TaskDriverConfiguration config) {
+    final ThreadFactory taskThreadFactory = new ThreadFactoryBuilder()
+        .setNameFormat("task-executor-%d")
+        .build();
+    // in async execution, a task holds its slot until its thread returns: one thread per slot
     taskExecutorService = Executors.newFixedThreadPool(
-        config.getMaxParallelTasks(),
-        new ThreadFactoryBuilder()
-            .setNameFormat("task-executor-%d")
-            .build());
+        config.isAsyncExecutionEnabled() ? config.getMaxAsyncTasks() : config.getMaxParallelTasks(),
+        taskThreadFactory);
 
+    // one watcher per parallel task, plus the task dispatcher
     taskWatcherExecutorService = Executors.newFixedThreadPool(
-        config.getMaxParallelTasks(),
+        config.getMaxParallelTasks() + 1,
         new ThreadFactoryBuilder()
             .setNameFormat("task-watcher-%d")
             .setDaemon(true)
             .build());
 
-    heartbeatExecutorService = Executors.newScheduledThreadPool(config.getMaxParallelTasks(),
+    final ScheduledThreadPoolExecutor heartbeatExecutor = new ScheduledThreadPoolExecutor(
+        config.getMaxParallelTasks(),
         new ThreadFactoryBuilder()
             .setNameFormat("task-heartbeat-%d")
             .build());
+    // task timeouts are scheduled here in async execution: don't keep them once cancelled
+    heartbeatExecutor.setRemoveOnCancelPolicy(true);
+    heartbeatExecutorService = heartbeatExecutor;
   }
 
   public ExecutorService getTaskExecutorService() {
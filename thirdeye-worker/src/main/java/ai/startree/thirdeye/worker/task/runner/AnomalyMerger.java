@@ -222,34 +222,48 @@ public class AnomalyMerger {
     final long alertId = requireNonNull(alert.getId(),
         "Alert must be an existing alert for merging.");
 
-    /* Handling normal anomalies with no enumeration item */
+    /* Merging happens per enumeration item. Anomalies with no enumeration item are a group. */
+    final Map<Long, List<MergedAnomalyResultDTO>> anomaliesByEnumerationItem =
+        groupByEnumerationItem(anomalies);
     final List<MergedAnomalyResultDTO> anomaliesWithNoEnumerationItem = anomalies.stream()
         .filter(a -> a.getEnumerationItem() == null)
         .collect(Collectors.toList());
-    final List<MergedAnomalyResultDTO> mergedAnomalies = mergeAnomalies(
-        anomaliesWithNoEnumerationItem,
-        templateWithProperties,
-        dateTimeZone,
-        maxGap,
-        alertId,
-        null);
 
-    /* Handling anomalies with enumeration item. Merging needs to happen per enumeration Item */
-    final var mergedAnomaliesWithEnumerationItem = groupByEnumerationItem(anomalies)
-        .entrySet()
-        .stream()
-        .flatMap(e -> mergeAnomalies(
-            e.getValue(),
-            templateWithProperties,
-            dateTimeZone,
-            maxGap,
-            alertId,
-            e.getKey()).stream())
-        .collect(Collectors.toList());
+    final Period maxDuration = getMaxDuration(templateWithProperties);
+    final List<MergedAnomalyResultDTO> allMergedAnomalies = new ArrayList<>();
+    if (!anomaliesWithNoEnumerationItem.isEmpty()) {
+      // anomalies with no enumeration item are merged with the anomalies of all enumeration items
+      final Interval mergeInterval = mergeInterval(alertId, anomaliesWithNoEnumerationItem,
+          maxGap, dateTimeZone);
+      allMergedAnomalies.addAll(mergeAnomalies(
+          anomaliesWithNoEnumerationItem,
+          retrieveRelevantAnomaliesFromDatabase(alertId, List.of(mergeInterval)),
+          maxGap,
+          maxDuration,
+          dateTimeZone));
+    }
 
-    final List<MergedAnomalyResultDTO> allMergedAnomalies = new ArrayList<>(mergedAnomalies);
-    allMergedAnomalies.addAll(mergedAnomaliesWithEnumerationItem);
+    /* Existing anomalies of all the enumeration items are fetched with a single query */
+    final Map<Long, Interval> mergeIntervals = new HashMap<>();
+    anomaliesByEnumerationItem.forEach((enumerationItemId, groupAnomalies) ->
+        mergeIntervals.put(enumerationItemId,
+            mergeInterval(alertId, groupAnomalies, maxGap, dateTimeZone)));
+    final List<MergedAnomalyResultDTO> existingAnomalies = retrieveRelevantAnomaliesFromDatabase(
+        alertId, mergeIntervals.values());
+    anomaliesByEnumerationItem.forEach((enumerationItemId, groupAnomalies) ->
+        allMergedAnomalies.addAll(mergeAnomalies(
+            groupAnomalies,
+            existingAnomalies(existingAnomalies, mergeIntervals.get(enumerationItemId),
+                enumerationItemId),
+            maxGap,
+            maxDuration,
+            dateTimeZone)));
 
+    if (mergedAnomalyResultManager.saveAll(allMergedAnomalies)) {
+      return;
+    }
+    LOG.warn("Failed to store {} anomalies of alert {} in a batch. Storing them one by one.",
+        allMergedAnomalies.size(), alertId);
     for (final MergedAnomalyResultDTO mergedAnomalyResultDTO : allMergedAnomalies) {
       final Long id = mergedAnomalyResultManager.save(mergedAnomalyResultDTO);
       if (id == null) {
@@ -275,29 +289,20 @@ public class AnomalyMerger {
 
   private List<MergedAnomalyResultDTO> mergeAnomalies(
       final List<MergedAnomalyResultDTO> anomalies,
-      final AlertTemplateDTO templateWithProperties,
-      final DateTimeZone dateTimeZone,
+      final List<MergedAnomalyResultDTO> existingAnomalies,
       final Period maxGap,
-      final long alertId,
-      final Long enumerationItemId) {
+      final Period maxDuration,
+      final DateTimeZone dateTimeZone) {
     if (anomalies.isEmpty()) {
       return emptyList();
     }
 
-    final List<MergedAnomalyResultDTO> existingAnomalies = retrieveRelevantAnomaliesFromDatabase(
-        alertId,
-        anomalies,
-        maxGap,
-        dateTimeZone,
-        enumerationItemId);
-
     final List<MergedAnomalyResultDTO> sortedRelevantAnomalies = combineAndSort(anomalies,
         existingAnomalies);
 
-    final Period maxDurationMillis = getMaxDuration(templateWithProperties);
     return merge(sortedRelevantAnomalies,
         maxGap,
-        maxDurationMillis,
+        maxDuration,
         dateTimeZone);
   }
 
@@ -476,11 +481,13 @@ public class AnomalyMerger {
         .orElse(Constants.DEFAULT_TIMEZONE);
   }
 
-  private List<MergedAnomalyResultDTO> retrieveRelevantAnomaliesFromDatabase(final long alertId,
+  /**
+   * @return the interval in which existing anomalies may be merged with the given anomalies.
+   */
+  private Interval mergeInterval(final long alertId,
       final List<MergedAnomalyResultDTO> anomalies,
       final Period maxGap,
-      final DateTimeZone dateTimeZone,
-      final Long enumerationItemId) {
+      final DateTimeZone dateTimeZone) {
     final long minTime = anomalies.stream()
         .map(MergedAnomalyResultDTO::getStartTime)
         .mapToLong(e -> e)
@@ -503,11 +510,42 @@ public class AnomalyMerger {
     final long mergeUpperBound = new DateTime(maxTime, dateTimeZone).plus(maxGap)
         .plus(1)
         .getMillis();
+    return new Interval(mergeLowerBound, mergeUpperBound, dateTimeZone);
+  }
 
-    return mergedAnomalyResultManager.findByStartEndTimeInRangeAndDetectionConfigId(mergeLowerBound,
-        mergeUpperBound,
+  /**
+   * Fetches the existing anomalies of the alert overlapping any of the merge intervals.
+   */
+  private List<MergedAnomalyResultDTO> retrieveRelevantAnomaliesFromDatabase(final long alertId,
+      final Collection<Interval> mergeIntervals) {
+    if (mergeIntervals.isEmpty()) {
+      return emptyList();
+    }
+    final long startTime = mergeIntervals.stream().mapToLong(Interval::getStartMillis).min()
+        .getAsLong();
+    final long endTime = mergeIntervals.stream().mapToLong(Interval::getEndMillis).max()
+        .getAsLong();
+    return mergedAnomalyResultManager.findByStartEndTimeInRangeAndDetectionConfigId(startTime,
+        endTime,
         alertId,
-        enumerationItemId);
+        null);
+  }
+
+  /**
+   * Selects the existing anomalies of an enumeration item in its merge interval.
+   */
+  private static List<MergedAnomalyResultDTO> existingAnomalies(
+      final List<MergedAnomalyResultDTO> existingAnomalies,
+      final Interval mergeInterval,
+      final Long enumerationItemId) {
+    return existingAnomalies.stream()
+        .filter(a -> a.getStartTime() < mergeInterval.getEndMillis()
+            && a.getEndTime() > mergeInterval.getStartMillis())
+        .filter(a -> optional(a.getEnumerationItem())
+            .map(EnumerationItemDTO::getId)
+            .filter(enumerationItemId::equals)
+            .isPresent())
+        .collect(Collectors.toList());
   }
 
   /**
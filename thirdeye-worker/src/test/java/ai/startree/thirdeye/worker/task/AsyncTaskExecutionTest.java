@@ -0,0 +1,205 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.worker.task;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.spi.datalayer.bao.TaskManager;
+import ai.startree.thirdeye.spi.datalayer.dto.DetectionPipelineTaskInfo;
+import ai.startree.thirdeye.spi.datalayer.dto.TaskDTO;
+import ai.startree.thirdeye.spi.task.TaskStatus;
+import ai.startree.thirdeye.spi.task.TaskType;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class AsyncTaskExecutionTest {
+
+  private static final Duration TASK_DELAY = Duration.ofMillis(500);
+
+  private TaskDriverThreadPoolManager taskDriverThreadPoolManager;
+
+  @AfterMethod
+  public void tearDown() {
+    taskDriverThreadPoolManager.shutdown();
+  }
+
+  @Test
+  public void testTasksRunConcurrentlyInASingleRunnable() throws Exception {
+    final int taskCount = 8;
+    final Map<Long, TaskStatus> statuses = new ConcurrentHashMap<>();
+    final CountDownLatch done = new CountDownLatch(taskCount);
+    final TaskManager taskManager = taskManager(taskCount, statuses, done);
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final TaskRunnerFactory taskRunnerFactory = mock(TaskRunnerFactory.class);
+    when(taskRunnerFactory.get(any())).thenReturn((taskInfo, taskContext) -> {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      Thread.sleep(TASK_DELAY.toMillis());
+      running.decrementAndGet();
+      return null;
+    });
+
+    // the number of running tasks does not depend on maxParallelTasks
+    final TaskDriverConfiguration config = new TaskDriverConfiguration()
+        .setAsyncExecutionEnabled(true)
+        .setMaxParallelTasks(1)
+        .setMaxAsyncTasks(taskCount);
+    start(config, taskManager, taskRunnerFactory);
+
+    assertThat(done.await(TASK_DELAY.toMillis() * taskCount / 2, TimeUnit.MILLISECONDS))
+        .isTrue();
+    assertThat(statuses.values()).containsOnly(TaskStatus.COMPLETED);
+    assertThat(maxRunning.get()).isGreaterThan(1).isLessThanOrEqualTo(taskCount);
+  }
+
+  @Test
+  public void testFreeSlotsAreAcquiredInOneBatch() throws Exception {
+    final int taskCount = 8;
+    final Map<Long, TaskStatus> statuses = new ConcurrentHashMap<>();
+    final CountDownLatch done = new CountDownLatch(taskCount);
+    final TaskManager taskManager = taskManager(taskCount, statuses, done);
+    final TaskRunnerFactory taskRunnerFactory = mock(TaskRunnerFactory.class);
+    when(taskRunnerFactory.get(any())).thenReturn((taskInfo, taskContext) -> null);
+
+    final TaskDriverConfiguration config = new TaskDriverConfiguration()
+        .setAsyncExecutionEnabled(true)
+        .setMaxAsyncTasks(taskCount);
+    start(config, taskManager, taskRunnerFactory);
+
+    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    verify(taskManager, atLeastOnce()).acquireTasksToRun(anyLong(), eq(taskCount));
+  }
+
+  @Test
+  public void testTaskTimeout() throws Exception {
+    final Map<Long, TaskStatus> statuses = new ConcurrentHashMap<>();
+    final CountDownLatch done = new CountDownLatch(1);
+    final TaskManager taskManager = taskManager(1, statuses, done);
+    final TaskRunnerFactory taskRunnerFactory = mock(TaskRunnerFactory.class);
+    when(taskRunnerFactory.get(any())).thenReturn((taskInfo, taskContext) -> {
+      Thread.sleep(10_000);
+      return null;
+    });
+
+    final TaskDriverConfiguration config = new TaskDriverConfiguration()
+        .setAsyncExecutionEnabled(true)
+        .setMaxTaskRunTime(TASK_DELAY);
+    start(config, taskManager, taskRunnerFactory);
+
+    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(statuses.values()).containsExactly(TaskStatus.TIMEOUT);
+  }
+
+  @Test
+  public void testTimedOutTaskKeepsItsSlotUntilItReturns() throws Exception {
+    final Map<Long, TaskStatus> statuses = new ConcurrentHashMap<>();
+    final CountDownLatch done = new CountDownLatch(2);
+    final TaskManager taskManager = taskManager(2, statuses, done);
+    final AtomicInteger running = new AtomicInteger();
+    final AtomicInteger maxRunning = new AtomicInteger();
+    final TaskRunnerFactory taskRunnerFactory = mock(TaskRunnerFactory.class);
+    when(taskRunnerFactory.get(any())).thenReturn((taskInfo, taskContext) -> {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      // ignore the interrupt and run past the timeout
+      final long end = System.currentTimeMillis() + TASK_DELAY.toMillis() * 2;
+      while (System.currentTimeMillis() < end) {
+        try {
+          Thread.sleep(10);
+        } catch (final InterruptedException ignored) {
+        }
+      }
+      running.decrementAndGet();
+      return null;
+    });
+
+    final TaskDriverConfiguration config = new TaskDriverConfiguration()
+        .setAsyncExecutionEnabled(true)
+        .setMaxAsyncTasks(1)
+        .setMaxTaskRunTime(TASK_DELAY);
+    start(config, taskManager, taskRunnerFactory);
+
+    assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(statuses.values()).containsOnly(TaskStatus.TIMEOUT);
+    assertThat(maxRunning.get()).isEqualTo(1);
+  }
+
+  private void start(final TaskDriverConfiguration config, final TaskManager taskManager,
+      final TaskRunnerFactory taskRunnerFactory) {
+    config.setNoTaskDelay(Duration.ofMillis(10)).setRandomDelayCap(Duration.ofMillis(10));
+    taskDriverThreadPoolManager = new TaskDriverThreadPoolManager(config);
+    final TaskContext taskContext = new TaskContext()
+        .setConfig(config)
+        .setWorkerId(0)
+        .setTaskManager(taskManager)
+        .setTaskRunnerFactory(taskRunnerFactory)
+        .setMetricRegistry(new MetricRegistry())
+        .setTaskDriverThreadPoolManager(taskDriverThreadPoolManager);
+    final TaskDispatcher taskDispatcher = new TaskDispatcher(taskContext);
+    taskDriverThreadPoolManager.getTaskWatcherExecutorService().submit(taskDispatcher);
+    taskDriverThreadPoolManager.getTaskWatcherExecutorService()
+        .submit(new TaskDriverRunnable(taskContext, taskDispatcher));
+  }
+
+  private static TaskManager taskManager(final int taskCount,
+      final Map<Long, TaskStatus> statuses, final CountDownLatch done) throws Exception {
+    final String taskInfo = new ObjectMapper().writeValueAsString(new DetectionPipelineTaskInfo());
+    final List<TaskDTO> tasks = new ArrayList<>();
+    for (long id = 1; id <= taskCount; id++) {
+      final TaskDTO task = new TaskDTO()
+          .setStatus(TaskStatus.RUNNING)
+          .setJobName("TestJob")
+          .setTaskType(TaskType.DETECTION)
+          .setTaskInfo(taskInfo);
+      task.setId(id);
+      tasks.add(task);
+    }
+
+    final TaskManager taskManager = mock(TaskManager.class);
+    when(taskManager.acquireTasksToRun(anyLong(), anyInt())).thenAnswer(i -> {
+      synchronized (tasks) {
+        final List<TaskDTO> batch = new ArrayList<>(
+            tasks.subList(0, Math.min(i.getArgument(1), tasks.size())));
+        tasks.removeAll(batch);
+        return batch;
+      }
+    });
+    doAnswer(i -> {
+      statuses.put(i.getArgument(0), i.getArgument(2));
+      done.countDown();
+      return null;
+    }).when(taskManager).updateStatusAndTaskEndTime(anyLong(), eq(TaskStatus.RUNNING), any(),
+        anyLong(), anyString());
+    return taskManager;
+  }
+}
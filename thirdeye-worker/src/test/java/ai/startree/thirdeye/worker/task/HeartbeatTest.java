@@ -16,10 +16,8 @@ package ai.startree.thirdeye.worker.task;
 import static java.util.Objects.requireNonNull;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyLong;
-import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
@@ -75,9 +73,6 @@ public class HeartbeatTest {
         .setHeartbeatInterval(HEARTBEAT_INTERVAL);
 
     taskManager = Mockito.mock(TaskManager.class);
-    when(taskManager.updateStatusAndWorkerId(anyLong(), anyLong(), anySet(), anyInt()))
-        .thenReturn(true);
-
     doNothing().when(taskManager)
         .updateStatusAndTaskEndTime(anyLong(), any(), any(), anyLong(), any());
 
@@ -99,7 +94,7 @@ public class HeartbeatTest {
   public void heartbeatPulseCheck() {
     final Timestamp startTime = new Timestamp(System.currentTimeMillis());
     final TaskDTO taskDTO = newTask();
-    when(taskManager.findByStatusOrderByCreateTime(eq(TaskStatus.WAITING), anyInt(), anyBoolean()))
+    when(taskManager.acquireTasksToRun(anyLong(), anyInt()))
         .thenAnswer(i -> pollingCount++ == 0? List.of(taskDTO) : List.of());
 
     doAnswer(invocation -> {
@@ -125,7 +120,10 @@ public class HeartbeatTest {
     }).when(taskManager).updateLastActive(anyLong());
 
     final TaskContext taskContext = newTaskContext();
-    final TaskDriverRunnable taskDriverRunnable = new TaskDriverRunnable(taskContext);
+    final TaskDispatcher taskDispatcher = new TaskDispatcher(taskContext);
+    taskDriverThreadPoolManager.getTaskWatcherExecutorService().submit(taskDispatcher);
+    final TaskDriverRunnable taskDriverRunnable = new TaskDriverRunnable(taskContext,
+        taskDispatcher);
     taskDriverRunnable.run();
 
     assertThat(taskDTO.getLastActive())
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022 StarTree Inc
+ *
+ * Licensed under the StarTree Community License (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the
+ * License at http://www.startree.ai/legal/startree-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT * WARRANTIES OF ANY KIND,
+ * either express or implied.
+ * See the License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package ai.startree.thirdeye.worker.task;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import ai.startree.thirdeye.spi.datalayer.bao.TaskManager;
+import ai.startree.thirdeye.spi.datalayer.dto.TaskDTO;
+import ai.startree.thirdeye.spi.task.TaskStatus;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class TaskDispatcherTest {
+
+  private static final int RUNNABLES = 3;
+  private static final int TASKS = 10;
+
+  private TaskDriverThreadPoolManager taskDriverThreadPoolManager;
+  private ExecutorService runnables;
+
+  @BeforeMethod
+  public void setUp() {
+    taskDriverThreadPoolManager = new TaskDriverThreadPoolManager(new TaskDriverConfiguration());
+    runnables = Executors.newFixedThreadPool(RUNNABLES);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    taskDriverThreadPoolManager.shutdown();
+    runnables.shutdownNow();
+  }
+
+  @Test
+  public void testTasksAreAcquiredInBatchesOfIdleRunnables() throws Exception {
+    final AtomicLong remaining = new AtomicLong(TASKS);
+    final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    final TaskManager taskManager = mock(TaskManager.class);
+    when(taskManager.acquireTasksToRun(anyLong(), anyInt())).thenAnswer(i -> {
+      final int limit = i.getArgument(1);
+      batchSizes.add(limit);
+      final List<TaskDTO> tasks = new ArrayList<>();
+      while (tasks.size() < limit && remaining.get() > 0) {
+        final TaskDTO task = new TaskDTO().setStatus(TaskStatus.RUNNING);
+        task.setId(remaining.getAndDecrement());
+        tasks.add(task);
+      }
+      return tasks;
+    });
+
+    final TaskDispatcher taskDispatcher = new TaskDispatcher(newTaskContext(taskManager,
+        new TaskDriverConfiguration().setNoTaskDelay(Duration.ofMillis(10))
+            .setRandomDelayCap(Duration.ofMillis(10))));
+    taskDriverThreadPoolManager.getTaskWatcherExecutorService().submit(taskDispatcher);
+
+    final Set<Long> executed = ConcurrentHashMap.newKeySet();
+    final CountDownLatch done = new CountDownLatch(TASKS);
+    for (int i = 0; i < RUNNABLES; i++) {
+      runnables.submit(() -> {
+        while (!Thread.currentThread().isInterrupted()) {
+          final TaskDTO task = taskDispatcher.nextTask();
+          if (task != null) {
+            executed.add(task.getId());
+            done.countDown();
+          }
+        }
+      });
+    }
+
+    assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(executed).hasSize(TASKS);
+    assertThat(batchSizes).allMatch(size -> size >= 1 && size <= RUNNABLES);
+  }
+
+  @Test
+  public void testBatchIsCappedByFetchSize() throws Exception {
+    final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    final TaskManager taskManager = mock(TaskManager.class);
+    when(taskManager.acquireTasksToRun(anyLong(), anyInt())).thenAnswer(i -> {
+      batchSizes.add(i.getArgument(1));
+      return List.of();
+    });
+
+    final TaskDispatcher taskDispatcher = new TaskDispatcher(newTaskContext(taskManager,
+        new TaskDriverConfiguration().setTaskFetchSizeCap(2)
+            .setNoTaskDelay(Duration.ofMillis(10))
+            .setRandomDelayCap(Duration.ofMillis(10))));
+    for (int i = 0; i < RUNNABLES; i++) {
+      runnables.submit(taskDispatcher::nextTask);
+    }
+    Thread.sleep(100);
+    taskDriverThreadPoolManager.getTaskWatcherExecutorService().submit(taskDispatcher);
+    Thread.sleep(200);
+
+    assertThat(batchSizes).isNotEmpty();
+    assertThat(batchSizes).allMatch(size -> size <= 2);
+  }
+
+  private TaskContext newTaskContext(final TaskManager taskManager,
+      final TaskDriverConfiguration config) {
+    return new TaskContext()
+        .setConfig(config)
+        .setWorkerId(0)
+        .setTaskManager(taskManager)
+        .setTaskDriverThreadPoolManager(taskDriverThreadPoolManager);
+  }
+}
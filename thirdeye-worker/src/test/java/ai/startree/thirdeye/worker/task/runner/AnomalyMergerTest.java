@@ -21,7 +21,9 @@ import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -42,6 +44,7 @@ import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.Interval;
 import org.joda.time.Period;
+import org.mockito.ArgumentCaptor;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
@@ -501,14 +504,18 @@ public class AnomalyMergerTest {
     when(mergedAnomalyResultManager.findByStartEndTimeInRangeAndDetectionConfigId(anyLong(),
         anyLong(),
         anyLong(),
-        eq(1L))).thenAnswer(i -> singletonList(existingAnomaly(JANUARY_1_2021_01H,
+        isNull())).thenAnswer(i -> singletonList(existingAnomaly(JANUARY_1_2021_01H,
         JANUARY_1_2021_02H).setEnumerationItem(ei1)));
+    when(mergedAnomalyResultManager.saveAll(any())).thenReturn(true);
 
     anomalyMerger.mergeAndSave(newAlert(),
         List.of(newAnomaly(JANUARY_1_2021_01H, JANUARY_1_2021_02H).setEnumerationItem(ei1),
             newAnomaly(JANUARY_1_2021_01H,
                 plusMin(JANUARY_1_2021_01H, 10)).setEnumerationItem(ei1)));
-    verify(mergedAnomalyResultManager, times(1)).save(any());
+    final List<MergedAnomalyResultDTO> saved = captureSaveAll(1).get(0);
+    assertThat(saved.size()).isEqualTo(1);
+    assertThat(saved.get(0).getId()).isNotNull();
+    verify(mergedAnomalyResultManager, never()).save(any());
   }
 
   @Test
@@ -518,13 +525,10 @@ public class AnomalyMergerTest {
     when(mergedAnomalyResultManager.findByStartEndTimeInRangeAndDetectionConfigId(anyLong(),
         anyLong(),
         anyLong(),
-        eq(1L))).thenAnswer(i -> singletonList(existingAnomaly(JANUARY_1_2021_01H,
-        JANUARY_1_2021_02H).setEnumerationItem(ei1)));
-    when(mergedAnomalyResultManager.findByStartEndTimeInRangeAndDetectionConfigId(anyLong(),
-        anyLong(),
-        anyLong(),
-        eq(2L))).thenAnswer(i -> singletonList(existingAnomaly(JANUARY_1_2021_01H,
-        JANUARY_1_2021_02H).setEnumerationItem(ei2)));
+        isNull())).thenAnswer(i -> List.of(
+        existingAnomaly(JANUARY_1_2021_01H, JANUARY_1_2021_02H).setEnumerationItem(ei1),
+        existingAnomaly(JANUARY_1_2021_01H, JANUARY_1_2021_02H).setEnumerationItem(ei2)));
+    when(mergedAnomalyResultManager.saveAll(any())).thenReturn(true);
 
     anomalyMerger.mergeAndSave(newAlert(),
         List.of(newAnomaly(JANUARY_1_2021_01H, JANUARY_1_2021_02H).setEnumerationItem(ei1),
@@ -532,7 +536,6 @@ public class AnomalyMergerTest {
             newAnomaly(JANUARY_1_2021_01H, JANUARY_1_2021_02H).setEnumerationItem(ei1),
             newAnomaly(JANUARY_1_2021_01H,
                 plusMin(JANUARY_1_2021_01H, 10)).setEnumerationItem(ei1)));
-    verify(mergedAnomalyResultManager, times(1)).save(any());
 
     anomalyMerger.mergeAndSave(newAlert(),
         List.of(newAnomaly(JANUARY_1_2021_01H, JANUARY_1_2021_02H).setEnumerationItem(ei1),
@@ -541,7 +544,37 @@ public class AnomalyMergerTest {
             newAnomaly(JANUARY_1_2021_01H,
                 plusMin(JANUARY_1_2021_01H, 10)).setEnumerationItem(ei2)));
 
-    // expecting 2 more invocations
-    verify(mergedAnomalyResultManager, times(3)).save(any());
+    // a single query per merge, whatever the number of enumeration items
+    verify(mergedAnomalyResultManager, times(2)).findByStartEndTimeInRangeAndDetectionConfigId(
+        anyLong(), anyLong(), anyLong(), isNull());
+    final List<List<MergedAnomalyResultDTO>> saved = captureSaveAll(2);
+    assertThat(saved.get(0).size()).isEqualTo(1);
+    // expecting one anomaly per enumeration item
+    assertThat(saved.get(1).size()).isEqualTo(2);
+    assertThat(saved.get(1).get(0).getEnumerationItem().getId())
+        .isNotEqualTo(saved.get(1).get(1).getEnumerationItem().getId());
+    verify(mergedAnomalyResultManager, never()).save(any());
+  }
+
+  @Test
+  public void testAnomaliesAreSavedOneByOneIfBatchFails() {
+    when(mergedAnomalyResultManager.findByStartEndTimeInRangeAndDetectionConfigId(anyLong(),
+        anyLong(),
+        anyLong(),
+        any())).thenAnswer(i -> emptyList());
+    when(mergedAnomalyResultManager.saveAll(any())).thenReturn(false);
+
+    final MergedAnomalyResultDTO newAnomaly = newAnomaly(JANUARY_1_2021_01H, JANUARY_1_2021_02H);
+    anomalyMerger.mergeAndSave(newAlert(), singletonList(newAnomaly));
+    verify(mergedAnomalyResultManager).saveAll(List.of(newAnomaly));
+    verify(mergedAnomalyResultManager).save(newAnomaly);
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<List<MergedAnomalyResultDTO>> captureSaveAll(final int times) {
+    final ArgumentCaptor<List<MergedAnomalyResultDTO>> captor = ArgumentCaptor.forClass(
+        List.class);
+    verify(mergedAnomalyResultManager, times(times)).saveAll(captor.capture());
+    return captor.getAllValues();
   }
 }